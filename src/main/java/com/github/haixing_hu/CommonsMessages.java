@@ -162,6 +162,9 @@ public interface CommonsMessages {
   public static final String SKIP_FILE                          =
     "Skip the file: {}";
 
+  public static final String FAILED_READ_ATTRIBUTES             =
+    "Failed to read the attributes of {}";
+
   public static final String SKIP_DIRECTORY                     =
     "Skip the directory: {}";
 
@@ -216,6 +216,34 @@ public class ArrayDoubleList extends RandomAccessDoubleList implements
     return true;
   }
 
+  /**
+   * Appends the specified elements of an array to the end of this list.
+   *
+   * @param array
+   *          the array whose elements are to be appended.
+   * @param off
+   *          the index of the first element in {@code array} to be appended.
+   * @param len
+   *          the number of elements to be appended.
+   * @return {@code true} if this list changed as a result of the call.
+   * @throws IndexOutOfBoundsException
+   *           if {@code off} is negative, {@code len} is negative, or
+   *           {@code len} is greater than {@code array.length - off}.
+   */
+  public boolean addAll(final double[] array, final int off, final int len) {
+    if ((off < 0) || (len < 0) || (len > array.length - off)) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return false;
+    }
+    ++modCount;
+    ensureCapacity(size + len);
+    System.arraycopy(array, off, data, size, len);
+    size += len;
+    return true;
+  }
+
   // capacity methods
   // -------------------------------------------------------------------------
 
@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.collection.primitive.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.zip.Checksum;
+
+import com.github.haixing_hu.io.AccessMode;
+import com.github.haixing_hu.io.ChecksumAlgorithm;
+import com.github.haixing_hu.io.IoUtils;
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A file of fixed width elements, mapped into memory in segments, which is
+ * the storage of the {@link MmapIntArray}, {@link MmapLongArray} and
+ * {@link MmapDoubleArray}.
+ * <p>
+ * The file starts with a header of {@link #HEADER_SIZE} bytes, which is
+ * always big-endian:
+ * <ul>
+ * <li>the magic number, as an {@code int};</li>
+ * <li>the format version, as an {@code int};</li>
+ * <li>the type of the elements, as an {@code int};</li>
+ * <li>the byte order of the elements, as a {@code byte};</li>
+ * <li>the state of the file, as a {@code byte}, which is {@link #CLEAN} if
+ * the checksum matches the elements;</li>
+ * <li>the number of elements, as a {@code long};</li>
+ * <li>the xxHash64 checksum of the elements, as a {@code long}.</li>
+ * </ul>
+ * The elements follow the header, and are mapped in segments of
+ * 128 MB by default, so that a file could be larger than a single
+ * mapping. Since the segment size is a multiple of the element size, no
+ * element spans two segments.
+ *
+ * @author Haixing Hu
+ */
+final class MmapArrayFile implements Closeable {
+
+  static final int MAGIC = 0x4D415252;
+
+  static final int VERSION = 1;
+
+  static final int HEADER_SIZE = 64;
+
+  /**
+   * The default binary logarithm of the segment size, i.e., 128 MB.
+   */
+  static final int SEGMENT_SHIFT = 27;
+
+  static final int INT_TYPE = 1;
+
+  static final int LONG_TYPE = 2;
+
+  static final int DOUBLE_TYPE = 3;
+
+  static final byte CLEAN = 0;
+
+  static final byte DIRTY = 1;
+
+  private static final int MIN_CAPACITY = 4096;
+
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int TYPE_OFFSET = 8;
+  private static final int ORDER_OFFSET = 12;
+  private static final int STATE_OFFSET = 13;
+  private static final int LENGTH_OFFSET = 16;
+  private static final int CHECKSUM_OFFSET = 24;
+
+  private final RandomAccessFile descriptor;
+  private final FileChannel channel;
+  private final boolean readOnly;
+  private final int elementSize;
+  private final ByteOrder order;
+  private final int segmentShift;
+  private final long segmentSize;
+  private final long segmentMask;
+  private final MappedByteBuffer header;
+  private ByteBuffer[] segments;
+  private long capacity;
+  private long length;
+  private boolean dirty;
+  private boolean closed;
+
+  /**
+   * Opens or creates a mapped array file.
+   *
+   * @param file
+   *          the file.
+   * @param mode
+   *          the access mode. If it is {@link AccessMode#READ_ONLY}, the file
+   *          must exist; otherwise, the file is created if it does not exist.
+   * @param type
+   *          the type of the elements.
+   * @param elementSize
+   *          the number of bytes of an element.
+   * @param order
+   *          the byte order of the elements of a new file. The byte order of
+   *          an existing file is read from its header.
+   * @param segmentShift
+   *          the binary logarithm of the segment size, which must be at least
+   *          3 and at most 30. It only affects the mapping, not the file.
+   */
+  MmapArrayFile(final File file, final AccessMode mode, final int type,
+      final int elementSize, final ByteOrder order, final int segmentShift)
+      throws IOException {
+    requireNonNull("file", file);
+    requireNonNull("mode", mode);
+    requireNonNull("order", order);
+    this.readOnly = (mode == AccessMode.READ_ONLY);
+    this.elementSize = elementSize;
+    if ((segmentShift < 3) || (segmentShift > 30)) {
+      throw new IllegalArgumentException("Invalid segment shift: " + segmentShift);
+    }
+    this.segmentShift = segmentShift;
+    this.segmentSize = 1L << segmentShift;
+    this.segmentMask = segmentSize - 1;
+    final boolean exists = file.exists() && (file.length() > 0);
+    descriptor = new RandomAccessFile(file, readOnly ? "r" : "rw");
+    try {
+      channel = descriptor.getChannel();
+      if (! exists) {
+        if (readOnly) {
+          throw new InvalidFormatException("Empty mapped array file: " + file);
+        }
+        descriptor.setLength(HEADER_SIZE);
+      } else if (channel.size() < HEADER_SIZE) {
+        throw new InvalidFormatException("Truncated mapped array file: " + file);
+      }
+      header = channel.map(readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE,
+          0, HEADER_SIZE);
+      if (exists) {
+        if ((header.getInt(MAGIC_OFFSET) != MAGIC)
+            || (header.getInt(VERSION_OFFSET) != VERSION)
+            || (header.getInt(TYPE_OFFSET) != type)) {
+          throw new InvalidFormatException("Invalid mapped array file: " + file);
+        }
+        this.order = (header.get(ORDER_OFFSET) == 0 ? ByteOrder.BIG_ENDIAN
+                                                    : ByteOrder.LITTLE_ENDIAN);
+        length = header.getLong(LENGTH_OFFSET);
+        if ((length < 0) || (length > Integer.MAX_VALUE)
+            || (HEADER_SIZE + length * elementSize > channel.size())) {
+          throw new InvalidFormatException("Invalid length of the mapped "
+              + "array file: " + file);
+        }
+        dirty = false;
+      } else {
+        this.order = order;
+        header.putInt(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(TYPE_OFFSET, type);
+        header.put(ORDER_OFFSET,
+            (byte) (order == ByteOrder.BIG_ENDIAN ? 0 : 1));
+        header.putLong(LENGTH_OFFSET, 0);
+        length = 0;
+      }
+      segments = new ByteBuffer[0];
+      capacity = 0;
+      map(channel.size() - HEADER_SIZE);
+      if (! exists) {
+        writeChecksum();
+      }
+    } catch (final IOException e) {
+      IoUtils.closeQuietly(descriptor);
+      throw e;
+    }
+    closed = false;
+  }
+
+  /**
+   * Maps the elements of the file up to the specified number of bytes, which
+   * must be no less than the current capacity.
+   */
+  private void map(final long newCapacity) throws IOException {
+    final int n = (int) ((newCapacity + segmentSize - 1) >>> segmentShift);
+    final ByteBuffer[] newSegments = new ByteBuffer[n];
+    // the full segments already mapped could be kept
+    final int kept = (int) (capacity >>> segmentShift);
+    System.arraycopy(segments, 0, newSegments, 0, Math.min(kept, n));
+    final MapMode mapMode = (readOnly ? MapMode.READ_ONLY : MapMode.READ_WRITE);
+    for (int i = kept; i < n; ++i) {
+      final long start = (long) i << segmentShift;
+      final long size = Math.min(segmentSize, newCapacity - start);
+      newSegments[i] = channel.map(mapMode, HEADER_SIZE + start, size)
+                              .order(order);
+    }
+    segments = newSegments;
+    capacity = newCapacity;
+  }
+
+  ByteOrder order() {
+    return order;
+  }
+
+  boolean isReadOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Gets the number of elements.
+   */
+  int length() {
+    return (int) length;
+  }
+
+  /**
+   * Sets the number of elements, growing the file if necessary.
+   */
+  void setLength(final int newLength) throws IOException {
+    final long bytes = (long) newLength * elementSize;
+    if (bytes > capacity) {
+      long newCapacity;
+      if (bytes <= segmentSize) {
+        newCapacity = Math.min(segmentSize,
+            Math.max(bytes, Math.max(2 * capacity, MIN_CAPACITY)));
+      } else {
+        newCapacity = ((bytes + segmentSize - 1) >>> segmentShift)
+            << segmentShift;
+      }
+      descriptor.setLength(HEADER_SIZE + newCapacity);
+      map(newCapacity);
+    }
+    length = newLength;
+    header.putLong(LENGTH_OFFSET, length);
+  }
+
+  /**
+   * Marks the file as modified, which must be called before modifying the
+   * elements. The state in the header is persisted immediately, so that a
+   * file modified but not forced could be detected by {@link #verify()}.
+   */
+  void beginUpdate() {
+    if (closed) {
+      throw new IllegalStateException(new AlreadyClosedException());
+    }
+    if (readOnly) {
+      throw new UnsupportedOperationException("The mapped array is read-only.");
+    }
+    if (! dirty) {
+      dirty = true;
+      header.put(STATE_OFFSET, DIRTY);
+      header.force();
+    }
+  }
+
+  /**
+   * Gets the segment containing the element at the specified byte position.
+   */
+  ByteBuffer segment(final long pos) {
+    return segments[(int) (pos >>> segmentShift)];
+  }
+
+  /**
+   * Gets the offset in its segment of the element at the specified byte
+   * position.
+   */
+  int offset(final long pos) {
+    return (int) (pos & segmentMask);
+  }
+
+  /**
+   * Computes the checksum of the elements.
+   */
+  private long computeChecksum() {
+    final Checksum checksum = ChecksumAlgorithm.XXHASH64.newChecksum();
+    final byte[] chunk = new byte[64 * 1024];
+    long remained = length * elementSize;
+    for (int i = 0; remained > 0; ++i) {
+      final ByteBuffer segment = segments[i].duplicate();
+      segment.clear();
+      int n = (int) Math.min(remained, segment.capacity());
+      remained -= n;
+      while (n > 0) {
+        final int count = Math.min(n, chunk.length);
+        segment.get(chunk, 0, count);
+        checksum.update(chunk, 0, count);
+        n -= count;
+      }
+    }
+    return checksum.getValue();
+  }
+
+  private void writeChecksum() {
+    header.putLong(CHECKSUM_OFFSET, computeChecksum());
+    header.put(STATE_OFFSET, CLEAN);
+    dirty = false;
+  }
+
+  /**
+   * Verifies the checksum of the elements.
+   *
+   * @return true if the file was forced or closed after its last
+   *         modification, and its elements match the checksum in the header;
+   *         false otherwise.
+   */
+  boolean verify() throws IOException {
+    if (closed) {
+      throw new AlreadyClosedException();
+    }
+    return (header.get(STATE_OFFSET) == CLEAN)
+        && (header.getLong(CHECKSUM_OFFSET) == computeChecksum());
+  }
+
+  /**
+   * Updates the checksum of the modified elements, and forces the elements
+   * and the header to the storage device.
+   */
+  void force() throws IOException {
+    if (closed) {
+      throw new AlreadyClosedException();
+    }
+    if (readOnly) {
+      return;
+    }
+    for (final ByteBuffer segment : segments) {
+      ((MappedByteBuffer) segment).force();
+    }
+    if (dirty) {
+      writeChecksum();
+    }
+    header.force();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (! closed) {
+      try {
+        force();
+      } finally {
+        closed = true;
+        segments = new ByteBuffer[0];
+        descriptor.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.collection.primitive.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.collection.primitive.IntList;
+import com.github.haixing_hu.collection.primitive.RandomAccessIntList;
+import com.github.haixing_hu.io.AccessMode;
+
+import static com.github.haixing_hu.lang.Argument.*;
+
+/**
+ * An {@link IntList} persisted in a memory-mapped file.
+ * <p>
+ * Opening an existing array only maps its file, so it takes a constant time
+ * regardless of the number of elements; the elements are paged in on demand
+ * by the operating system. The file could be larger than 2 GB, since it is
+ * mapped in several segments. The byte order of the elements is chosen when
+ * the file is created.
+ * <p>
+ * The modifications are written to the mapped memory directly, and are
+ * persisted by the operating system in the background. {@link #force()}
+ * forces them to the storage device and updates the checksum in the header
+ * of the file, which takes a time proportional to the number of elements;
+ * {@link #close()} calls {@link #force()} implicitly. Whether the file was
+ * forced after its last modification and whether its elements match the
+ * checksum could be checked by {@link #verify()}.
+ * <p>
+ * The I/O errors occurred while growing the file in the list operations are
+ * thrown as {@link UncheckedIOException}.
+ *
+ * @author Haixing Hu
+ * @see MmapLongArray
+ * @see MmapDoubleArray
+ */
+@NotThreadSafe
+public class MmapIntArray extends RandomAccessIntList implements Closeable {
+
+  private static final int ELEMENT_SIZE = 4;
+
+  private final MmapArrayFile file;
+
+  /**
+   * Opens or creates a big-endian mapped array for read and write access.
+   *
+   * @param file
+   *          the file of the array. It is created if it does not exist.
+   * @throws IOException
+   *           if any I/O error occurs, or the file is not a valid mapped
+   *           array file of this type.
+   */
+  public MmapIntArray(final File file) throws IOException {
+    this(file, AccessMode.READ_WRITE, ByteOrder.BIG_ENDIAN);
+  }
+
+  /**
+   * Opens or creates a mapped array.
+   *
+   * @param file
+   *          the file of the array. It is created if it does not exist and
+   *          the access mode is not read-only.
+   * @param mode
+   *          the access mode. All the modifications of a read-only array
+   *          throw an {@link UnsupportedOperationException}.
+   * @param order
+   *          the byte order of the elements of a newly created file. The byte
+   *          order of an existing file is kept.
+   * @throws IOException
+   *           if any I/O error occurs, or the file is not a valid mapped
+   *           array file of this type.
+   */
+  public MmapIntArray(final File file, final AccessMode mode,
+      final ByteOrder order) throws IOException {
+    this(file, mode, order, MmapArrayFile.SEGMENT_SHIFT);
+  }
+
+  // used by the unit test to map the file in small segments
+  MmapIntArray(final File file, final AccessMode mode, final ByteOrder order,
+      final int segmentShift) throws IOException {
+    this.file = new MmapArrayFile(file, mode, MmapArrayFile.INT_TYPE,
+        ELEMENT_SIZE, order, segmentShift);
+  }
+
+  /**
+   * Gets the byte order of the elements in the file.
+   *
+   * @return the byte order of the elements in the file.
+   */
+  public ByteOrder order() {
+    return file.order();
+  }
+
+  @Override
+  public int get(final int index) {
+    requireIndexInRightOpenRange(index, 0, file.length());
+    final long pos = (long) index * ELEMENT_SIZE;
+    return file.segment(pos).getInt(file.offset(pos));
+  }
+
+  private void put(final int index, final int element) {
+    final long pos = (long) index * ELEMENT_SIZE;
+    file.segment(pos).putInt(file.offset(pos), element);
+  }
+
+  @Override
+  public int size() {
+    return file.length();
+  }
+
+  @Override
+  public int removeElementAt(final int index) {
+    final int size = file.length();
+    requireIndexInRightOpenRange(index, 0, size);
+    file.beginUpdate();
+    ++modCount;
+    final int oldval = get(index);
+    for (int i = index + 1; i < size; ++i) {
+      put(i - 1, get(i));
+    }
+    resize(size - 1);
+    return oldval;
+  }
+
+  @Override
+  public int set(final int index, final int element) {
+    requireIndexInRightOpenRange(index, 0, file.length());
+    file.beginUpdate();
+    ++modCount;
+    final int oldval = get(index);
+    put(index, element);
+    return oldval;
+  }
+
+  @Override
+  public void add(final int index, final int element) {
+    final int size = file.length();
+    requireIndexInCloseRange(index, 0, size);
+    file.beginUpdate();
+    ++modCount;
+    resize(size + 1);
+    for (int i = size; i > index; --i) {
+      put(i, get(i - 1));
+    }
+    put(index, element);
+  }
+
+  /**
+   * Appends the specified elements of an array to the end of this list.
+   *
+   * @param array
+   *          the array whose elements are to be appended.
+   * @param off
+   *          the index of the first element in {@code array} to be appended.
+   * @param len
+   *          the number of elements to be appended.
+   * @return {@code true} if this list changed as a result of the call.
+   * @throws IndexOutOfBoundsException
+   *           if {@code off} is negative, {@code len} is negative, or
+   *           {@code len} is greater than {@code array.length - off}.
+   */
+  public boolean addAll(final int[] array, final int off, final int len) {
+    if ((off < 0) || (len < 0) || (len > array.length - off)) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (len == 0) {
+      return false;
+    }
+    file.beginUpdate();
+    ++modCount;
+    final int size = file.length();
+    resize(size + len);
+    for (int i = 0; i < len; ++i) {
+      put(size + i, array[off + i]);
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    file.beginUpdate();
+    ++modCount;
+    resize(0);
+  }
+
+  private void resize(final int newSize) {
+    try {
+      file.setLength(newSize);
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Forces the modifications to the storage device, and updates the checksum
+   * of the elements in the header of the file.
+   *
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public void force() throws IOException {
+    file.force();
+  }
+
+  /**
+   * Verifies the elements against the checksum in the header of the file.
+   *
+   * @return true if the array was forced or closed after its last
+   *         modification and its elements match the checksum; false
+   *         otherwise.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public boolean verify() throws IOException {
+    return file.verify();
+  }
+
+  /**
+   * Forces the modifications to the storage device and closes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    file.close();
+  }
+}
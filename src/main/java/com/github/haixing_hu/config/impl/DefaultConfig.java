@@ -64,6 +64,7 @@ public class DefaultConfig extends AbstractConfig {
   static {
     BinarySerialization.register(DefaultConfig.class, DefaultConfigBinarySerializer.INSTANCE);
     XmlSerialization.register(DefaultConfig.class, DefaultConfigXmlSerializer.INSTANCE);
+    XmlSerialization.registerStreamSerializer(DefaultConfig.class, DefaultConfigXmlSerializer.INSTANCE);
   }
 
   protected String description;
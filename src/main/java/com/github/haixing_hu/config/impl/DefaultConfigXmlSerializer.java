@@ -19,28 +19,42 @@ package com.github.haixing_hu.config.impl;
 import java.util.List;
 
 import javax.annotation.concurrent.Immutable;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
+import com.github.haixing_hu.io.serialize.DomXmlStreamSerializer;
 import com.github.haixing_hu.io.serialize.XmlSerializer;
+import com.github.haixing_hu.io.serialize.XmlStreamSerializer;
+import com.github.haixing_hu.text.xml.StaxUtils;
 import com.github.haixing_hu.text.xml.XmlException;
 import com.github.haixing_hu.text.xml.XmlSerializationException;
 
 import static com.github.haixing_hu.text.xml.DomUtils.*;
 
 /**
- * The {@link XmlSerializer} for the {@link DefaultConfig} class.
+ * The {@link XmlSerializer} and {@link XmlStreamSerializer} for the
+ * {@link DefaultConfig} class.
+ * <p>
+ * While serializing or deserializing through the XML streams, only the DOM
+ * tree of the property being processed is built in the memory.
  *
  * @author Haixing Hu
  */
 @Immutable
-public final class DefaultConfigXmlSerializer implements XmlSerializer {
+public final class DefaultConfigXmlSerializer implements XmlSerializer,
+    XmlStreamSerializer {
 
   public static final String ROOT_NODE = "configuration";
 
   public static final DefaultConfigXmlSerializer INSTANCE = new DefaultConfigXmlSerializer();
 
+  private static final DomXmlStreamSerializer PROPERTY_SERIALIZER =
+      new DomXmlStreamSerializer(DefaultPropertyXmlSerializer.INSTANCE);
+
   @Override
   public String getRootNodeName() {
     return ROOT_NODE;
@@ -79,4 +93,40 @@ public final class DefaultConfigXmlSerializer implements XmlSerializer {
     return root;
   }
 
+  @Override
+  public DefaultConfig deserialize(final XMLStreamReader reader)
+      throws XmlException {
+    try {
+      reader.require(XMLStreamReader.START_ELEMENT, null, ROOT_NODE);
+    } catch (final XMLStreamException e) {
+      throw new XmlSerializationException(e);
+    }
+    final DefaultConfig result = new DefaultConfig();
+    while (StaxUtils.nextElement(reader)) {
+      final DefaultProperty prop = (DefaultProperty) PROPERTY_SERIALIZER.deserialize(reader);
+      result.properties.put(prop.getName(), prop);
+    }
+    return result;
+  }
+
+  @Override
+  public void serialize(final XMLStreamWriter writer, final Object obj)
+      throws XmlException {
+    DefaultConfig config;
+    try {
+      config = (DefaultConfig) obj;
+    } catch (final ClassCastException e) {
+      throw new XmlSerializationException(e);
+    }
+    try {
+      writer.writeStartElement(ROOT_NODE);
+      for (final DefaultProperty prop : config.properties.values()) {
+        PROPERTY_SERIALIZER.serialize(writer, prop);
+      }
+      writer.writeEndElement();
+    } catch (final XMLStreamException e) {
+      throw new XmlSerializationException(e);
+    }
+  }
+
 }
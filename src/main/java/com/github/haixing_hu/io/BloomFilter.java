@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.github.haixing_hu.collection.primitive.LongList;
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+/**
+ * A simple Bloom filter on the 64-bit hash codes of the keys.
+ *
+ * @author Haixing Hu
+ */
+final class BloomFilter {
+
+  private static final int MAX_HASHES = 30;
+
+  private final long[] bits;
+  private final int numHashes;
+
+  private BloomFilter(final long[] bits, final int numHashes) {
+    this.bits = bits;
+    this.numHashes = numHashes;
+  }
+
+  /**
+   * Creates a Bloom filter containing the specified hash codes.
+   *
+   * @param hashes
+   *          the 64-bit hash codes of the keys.
+   * @param bitsPerKey
+   *          the number of bits per key.
+   * @return the Bloom filter.
+   */
+  static BloomFilter create(final LongList hashes, final int bitsPerKey) {
+    // the optimal number of hash functions is bitsPerKey * ln(2)
+    int numHashes = (int) Math.round(bitsPerKey * 0.69);
+    numHashes = Math.max(1, Math.min(MAX_HASHES, numHashes));
+    final long numBits = Math.max(64L, (long) hashes.size() * bitsPerKey);
+    final long[] bits = new long[(int) ((numBits + 63) / 64)];
+    final BloomFilter result = new BloomFilter(bits, numHashes);
+    final int n = hashes.size();
+    for (int i = 0; i < n; ++i) {
+      result.add(hashes.get(i));
+    }
+    return result;
+  }
+
+  private void add(final long hash) {
+    final long numBits = (long) bits.length * 64;
+    final long h1 = hash & 0xFFFFFFFFL;
+    final long h2 = hash >>> 32;
+    for (int i = 0; i < numHashes; ++i) {
+      final long bit = (h1 + i * h2) % numBits;
+      bits[(int) (bit >>> 6)] |= (1L << bit);
+    }
+  }
+
+  /**
+   * Tests whether the filter may contain a key.
+   *
+   * @param hash
+   *          the 64-bit hash code of the key.
+   * @return false if the key is definitely not in the filter; true if the key
+   *         may be in the filter.
+   */
+  boolean mightContain(final long hash) {
+    final long numBits = (long) bits.length * 64;
+    final long h1 = hash & 0xFFFFFFFFL;
+    final long h2 = hash >>> 32;
+    for (int i = 0; i < numHashes; ++i) {
+      final long bit = (h1 + i * h2) % numBits;
+      if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  void write(final OutputStream out) throws IOException {
+    OutputUtils.writeVarInt(out, numHashes);
+    OutputUtils.writeLongArray(out, bits);
+  }
+
+  static BloomFilter read(final InputStream in) throws IOException {
+    final int numHashes = InputUtils.readVarInt(in);
+    final long[] bits = InputUtils.readLongArray(in, false, null);
+    if ((numHashes <= 0) || (numHashes > MAX_HASHES) || (bits.length == 0)) {
+      throw new InvalidFormatException("Invalid Bloom filter.");
+    }
+    return new BloomFilter(bits, numHashes);
+  }
+}
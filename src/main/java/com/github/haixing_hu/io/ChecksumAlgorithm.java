@@ -16,12 +16,92 @@
  */
 package com.github.haixing_hu.io;
 
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+import javax.annotation.Nullable;
+
 /**
  * Enumeration of the algorithms for checking sum.
  *
  * @author Haixing Hu
  */
 public enum ChecksumAlgorithm {
-  ADLER32,
-  CRC32,
+
+  ADLER32(0) {
+    @Override
+    public Checksum newChecksum() {
+      return new Adler32();
+    }
+  },
+
+  CRC32(1) {
+    @Override
+    public Checksum newChecksum() {
+      return new CRC32();
+    }
+  },
+
+  /**
+   * The CRC-32C (Castagnoli) algorithm, which is accelerated by the CPU
+   * instructions on Java 9 or later.
+   */
+  CRC32C(2) {
+    @Override
+    public Checksum newChecksum() {
+      return Crc32C.create();
+    }
+  },
+
+  /**
+   * The 64-bit xxHash algorithm.
+   */
+  XXHASH64(3) {
+    @Override
+    public Checksum newChecksum() {
+      return new XxHash64();
+    }
+  };
+
+  private final int id;
+
+  private ChecksumAlgorithm(final int id) {
+    this.id = id;
+  }
+
+  /**
+   * Gets the stable identifier of this algorithm, which is stored in the
+   * files to indicate the checksum algorithm and never changes.
+   *
+   * @return the stable identifier of this algorithm.
+   */
+  public int id() {
+    return id;
+  }
+
+  /**
+   * Gets the algorithm of a stable identifier.
+   *
+   * @param id
+   *          the stable identifier of an algorithm.
+   * @return the algorithm of the specified identifier, or null if there is no
+   *         such algorithm.
+   */
+  @Nullable
+  public static ChecksumAlgorithm forId(final int id) {
+    for (final ChecksumAlgorithm algorithm : values()) {
+      if (algorithm.id == id) {
+        return algorithm;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates a new checksum object of this algorithm.
+   *
+   * @return a new checksum object of this algorithm.
+   */
+  public abstract Checksum newChecksum();
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.zip.Checksum;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A pure Java implementation of the CRC-32C (Castagnoli) checksum.
+ * <p>
+ * The checksum is computed with the slicing-by-8 algorithm. On Java 9 or
+ * later, the JDK provides the {@code java.util.zip.CRC32C} class which is
+ * accelerated by the CPU instructions, and {@link #create()} returns an
+ * instance of that class.
+ *
+ * @author Haixing Hu
+ */
+@NotThreadSafe
+public final class Crc32C implements Checksum {
+
+  /**
+   * The reversed representation of the Castagnoli polynomial.
+   */
+  private static final int POLYNOMIAL = 0x82F63B78;
+
+  private static final int[][] TABLES = new int[8][256];
+
+  static {
+    for (int i = 0; i < 256; ++i) {
+      int crc = i;
+      for (int j = 0; j < 8; ++j) {
+        crc = ((crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : (crc >>> 1));
+      }
+      TABLES[0][i] = crc;
+    }
+    for (int i = 0; i < 256; ++i) {
+      int crc = TABLES[0][i];
+      for (int k = 1; k < 8; ++k) {
+        crc = TABLES[0][crc & 0xFF] ^ (crc >>> 8);
+        TABLES[k][i] = crc;
+      }
+    }
+  }
+
+  /**
+   * The constructor of the JDK's {@code java.util.zip.CRC32C}, or null if it
+   * is not available.
+   */
+  private static final MethodHandle JDK_CONSTRUCTOR;
+
+  static {
+    MethodHandle constructor;
+    try {
+      final Class<?> cls = Class.forName("java.util.zip.CRC32C");
+      constructor = MethodHandles.publicLookup()
+          .findConstructor(cls, MethodType.methodType(void.class))
+          .asType(MethodType.methodType(Checksum.class));
+    } catch (final ReflectiveOperationException e) {
+      constructor = null;
+    }
+    JDK_CONSTRUCTOR = constructor;
+  }
+
+  /**
+   * Creates a CRC-32C checksum, using the hardware accelerated implementation
+   * of the JDK if it is available.
+   *
+   * @return a new CRC-32C checksum.
+   */
+  public static Checksum create() {
+    if (JDK_CONSTRUCTOR != null) {
+      try {
+        return (Checksum) JDK_CONSTRUCTOR.invokeExact();
+      } catch (final Throwable e) {
+        // fall through to the pure Java implementation
+      }
+    }
+    return new Crc32C();
+  }
+
+  private int crc;
+
+  public Crc32C() {
+    crc = 0xFFFFFFFF;
+  }
+
+  @Override
+  public void update(final int b) {
+    crc = TABLES[0][(crc ^ b) & 0xFF] ^ (crc >>> 8);
+  }
+
+  @Override
+  public void update(final byte[] b, final int off, final int len) {
+    if ((off < 0) || (len < 0) || (off > b.length - len)) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    final int[] t0 = TABLES[0];
+    final int[] t1 = TABLES[1];
+    final int[] t2 = TABLES[2];
+    final int[] t3 = TABLES[3];
+    final int[] t4 = TABLES[4];
+    final int[] t5 = TABLES[5];
+    final int[] t6 = TABLES[6];
+    final int[] t7 = TABLES[7];
+    int c = crc;
+    int i = off;
+    final int end = off + len;
+    for (; i + 8 <= end; i += 8) {
+      final int lo = c ^ ((b[i] & 0xFF)
+                       | ((b[i + 1] & 0xFF) << 8)
+                       | ((b[i + 2] & 0xFF) << 16)
+                       | ((b[i + 3] & 0xFF) << 24));
+      c = t7[lo & 0xFF]
+        ^ t6[(lo >>> 8) & 0xFF]
+        ^ t5[(lo >>> 16) & 0xFF]
+        ^ t4[lo >>> 24]
+        ^ t3[b[i + 4] & 0xFF]
+        ^ t2[b[i + 5] & 0xFF]
+        ^ t1[b[i + 6] & 0xFF]
+        ^ t0[b[i + 7] & 0xFF];
+    }
+    for (; i < end; ++i) {
+      c = t0[(c ^ b[i]) & 0xFF] ^ (c >>> 8);
+    }
+    crc = c;
+  }
+
+  @Override
+  public long getValue() {
+    return (~crc) & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public void reset() {
+    crc = 0xFFFFFFFF;
+  }
+}
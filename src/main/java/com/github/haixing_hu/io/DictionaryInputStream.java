@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * An input stream which reads the data written by a
+ * {@link DictionaryOutputStream}, resolving the back-references of the
+ * strings and classes read by {@link InputUtils#readSharedString} and
+ * {@link InputUtils#readSharedClass}.
+ *
+ * <p>The dictionary is rebuilt while reading, so the data must be read in the
+ * same order as it was written, from the start of the session.</p>
+ *
+ * <p>The constructor reads and verifies the header byte written by the
+ * {@link DictionaryOutputStream}. As for the output stream, the dictionary is
+ * only used if the stream passed to {@link InputUtils#readSharedString} and
+ * {@link InputUtils#readSharedClass} is this stream itself; wrapping it in
+ * another stream disables the dictionary.</p>
+ *
+ * @author Haixing Hu
+ * @see DictionaryOutputStream
+ */
+@NotThreadSafe
+public class DictionaryInputStream extends FilterInputStream {
+
+  private final List<String> strings;
+  private final List<Class<?>> classes;
+
+  /**
+   * Constructs a {@link DictionaryInputStream}, reading the header byte from
+   * the underlying stream.
+   *
+   * @param in
+   *          the underlying input stream.
+   * @throws EOFException
+   *           if the underlying stream is empty.
+   * @throws InvalidFormatException
+   *           if the underlying stream does not start with the header byte of
+   *           a dictionary stream.
+   * @throws IOException
+   *           if any other I/O error occurs.
+   */
+  public DictionaryInputStream(final InputStream in) throws IOException {
+    super(requireNonNull("in", in));
+    this.strings = new ArrayList<String>();
+    this.classes = new ArrayList<Class<?>>();
+    final int header = in.read();
+    if (header < 0) {
+      throw new EOFException();
+    } else if (header != DictionaryOutputStream.HEADER) {
+      throw new InvalidFormatException("Not a dictionary stream, header: "
+          + header);
+    }
+  }
+
+  /**
+   * Gets the number of strings in the dictionary.
+   *
+   * @return the number of strings in the dictionary.
+   */
+  public int getStringCount() {
+    return strings.size();
+  }
+
+  /**
+   * Gets the number of classes in the dictionary.
+   *
+   * @return the number of classes in the dictionary.
+   */
+  public int getClassCount() {
+    return classes.size();
+  }
+
+  String getString(final int index) throws InvalidFormatException {
+    if ((index < 0) || (index >= strings.size())) {
+      throw new InvalidFormatException("Invalid string back-reference: "
+          + index);
+    }
+    return strings.get(index);
+  }
+
+  void addString(final String value) {
+    strings.add(value);
+  }
+
+  Class<?> getClass(final int index) throws InvalidFormatException {
+    if ((index < 0) || (index >= classes.size())) {
+      throw new InvalidFormatException("Invalid class back-reference: "
+          + index);
+    }
+    return classes.get(index);
+  }
+
+  void addClass(final Class<?> value) {
+    classes.add(value);
+  }
+
+  /**
+   * The mark is not supported, since the dictionary could not be rewound.
+   */
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  @Override
+  public void mark(final int readlimit) {
+    // do nothing
+  }
+
+  @Override
+  public void reset() throws IOException {
+    throw new IOException("mark/reset not supported");
+  }
+}
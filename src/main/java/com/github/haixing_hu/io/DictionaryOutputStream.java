@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * An output stream which keeps a per-stream dictionary of the strings and
+ * classes written to it, so that the repeated ones could be written as
+ * back-references.
+ *
+ * <p>The dictionary is only used by {@link OutputUtils#writeSharedString} and
+ * {@link OutputUtils#writeSharedClass}; the first occurrence of a value is
+ * written in full and enters the dictionary, and the following occurrences
+ * are written as the varint index of the entry. All other data are written
+ * through unchanged. The stream must be read by a {@link DictionaryInputStream}
+ * wrapping the same data.</p>
+ *
+ * <p>The stream starts with a {@link #HEADER} byte, which is verified by the
+ * {@link DictionaryInputStream}, so that reading a stream not written by this
+ * class fails fast instead of silently mis-decoding the shared values.</p>
+ *
+ * <p>Note that the dictionary is only used if the stream passed to
+ * {@link OutputUtils#writeSharedString} and {@link OutputUtils#writeSharedClass}
+ * is this stream itself. Wrapping this stream in another stream, e.g., a
+ * {@code BufferedOutputStream}, disables the dictionary, and the shared
+ * values are then written in the plain format; such a stream must be read
+ * through an input stream wrapping the {@link DictionaryInputStream} in the
+ * same way.</p>
+ *
+ * <p>Strings longer than the maximum length are never entered into the
+ * dictionary, since they rarely repeat; and once the dictionary is full, the
+ * new values are written in full without being entered.</p>
+ *
+ * @author Haixing Hu
+ * @see DictionaryInputStream
+ */
+@NotThreadSafe
+public class DictionaryOutputStream extends FilterOutputStream {
+
+  /**
+   * The default maximum number of entries of each dictionary.
+   */
+  public static final int DEFAULT_MAX_ENTRIES = 64 * 1024;
+
+  /**
+   * The default maximum length of the strings entered into the dictionary.
+   */
+  public static final int DEFAULT_MAX_STRING_LENGTH = 256;
+
+  /**
+   * The header byte written at the start of a dictionary stream.
+   */
+  static final int HEADER = 0xD1;
+
+  /**
+   * The result of a lookup which entered the value into the dictionary.
+   */
+  static final int ENTERED = -1;
+
+  /**
+   * The result of a lookup which could not enter the value into the
+   * dictionary.
+   */
+  static final int NOT_ENTERED = -2;
+
+  private final int maxEntries;
+  private final int maxStringLength;
+  private final Map<String, Integer> strings;
+  private final Map<Class<?>, Integer> classes;
+
+  /**
+   * Constructs a {@link DictionaryOutputStream} with the default limits,
+   * writing the header byte to the underlying stream.
+   *
+   * @param out
+   *          the underlying output stream.
+   * @throws IOException
+   *           if any I/O error occurs while writing the header byte.
+   */
+  public DictionaryOutputStream(final OutputStream out) throws IOException {
+    this(out, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_STRING_LENGTH);
+  }
+
+  /**
+   * Constructs a {@link DictionaryOutputStream}, writing the header byte to
+   * the underlying stream.
+   *
+   * @param out
+   *          the underlying output stream.
+   * @param maxEntries
+   *          the maximum number of entries of each dictionary; the values
+   *          written after a dictionary is full are written literally.
+   * @param maxStringLength
+   *          the maximum length of the strings entered into the dictionary;
+   *          the longer strings are written literally.
+   * @throws IOException
+   *           if any I/O error occurs while writing the header byte.
+   */
+  public DictionaryOutputStream(final OutputStream out, final int maxEntries,
+      final int maxStringLength) throws IOException {
+    super(requireNonNull("out", out));
+    this.maxEntries = maxEntries;
+    this.maxStringLength = maxStringLength;
+    this.strings = new HashMap<String, Integer>();
+    this.classes = new HashMap<Class<?>, Integer>();
+    out.write(HEADER);
+  }
+
+  /**
+   * Gets the maximum number of entries of each dictionary.
+   *
+   * @return the maximum number of entries of each dictionary.
+   */
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Gets the maximum length of the strings entered into the dictionary.
+   *
+   * @return the maximum length of the strings entered into the dictionary.
+   */
+  public int getMaxStringLength() {
+    return maxStringLength;
+  }
+
+  /**
+   * Gets the number of strings in the dictionary.
+   *
+   * @return the number of strings in the dictionary.
+   */
+  public int getStringCount() {
+    return strings.size();
+  }
+
+  /**
+   * Gets the number of classes in the dictionary.
+   *
+   * @return the number of classes in the dictionary.
+   */
+  public int getClassCount() {
+    return classes.size();
+  }
+
+  /**
+   * Looks up a string in the dictionary, entering it if it is absent and
+   * could be entered.
+   *
+   * @param value
+   *          a string.
+   * @return the index of the string in the dictionary if it was already in
+   *         the dictionary; {@link #ENTERED} if it was entered by this call;
+   *         or {@link #NOT_ENTERED} if it could not be entered.
+   */
+  int lookupString(final String value) {
+    final Integer index = strings.get(value);
+    if (index != null) {
+      return index;
+    } else if ((value.length() > maxStringLength)
+        || (strings.size() >= maxEntries)) {
+      return NOT_ENTERED;
+    } else {
+      strings.put(value, strings.size());
+      return ENTERED;
+    }
+  }
+
+  /**
+   * Looks up a class in the dictionary, entering it if it is absent and
+   * could be entered.
+   *
+   * @param value
+   *          a class.
+   * @return the index of the class in the dictionary if it was already in the
+   *         dictionary; {@link #ENTERED} if it was entered by this call; or
+   *         {@link #NOT_ENTERED} if it could not be entered.
+   */
+  int lookupClass(final Class<?> value) {
+    final Integer index = classes.get(value);
+    if (index != null) {
+      return index;
+    } else if (classes.size() >= maxEntries) {
+      return NOT_ENTERED;
+    } else {
+      classes.put(value, classes.size());
+      return ENTERED;
+    }
+  }
+
+  @Override
+  public void write(final byte[] buffer, final int off, final int len)
+      throws IOException {
+    out.write(buffer, off, len);
+  }
+}
@@ -0,0 +1,662 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.haixing_hu.io.serialize.BinarySerialization;
+import com.github.haixing_hu.io.serialize.BinarySerializer;
+import com.github.haixing_hu.io.serialize.NoBinarySerializerRegisteredException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * Sorts the records of a {@link RecordReader} which may be too large to fit in
+ * the memory.
+ * <p>
+ * The records are read into bounded in-memory runs. Each full run is sorted
+ * and spilled to a temporary file by a pool of worker threads, while the
+ * records of the next run are being read; the spilled runs are then merged
+ * into a {@link RecordWriter}, at most {@link #getMergeFactor()} runs at a
+ * time. If all the records fit in a single run, they are sorted in the memory
+ * by the worker threads and no temporary file is created.
+ * <p>
+ * The keys and values are written to the temporary files by the serializers
+ * registered in the {@link BinarySerialization}. The keys could not be null.
+ * The sort is stable: the records having the same key are written in the
+ * order they were read. If a {@link RecordCombiner} is specified, the records
+ * having the same key are combined into one record, both before a run is
+ * spilled and while the runs are merged.
+ * <p>
+ * At most {@code (parallelism + 1) * runSize} records are kept in the memory.
+ *
+ * @author Haixing Hu
+ * @see RecordCombiner
+ */
+@ThreadSafe
+public final class ExternalSorter<KEY, VALUE> {
+
+  /**
+   * The default maximum number of records of an in-memory run.
+   */
+  public static final int DEFAULT_RUN_SIZE = 1 << 20;
+
+  /**
+   * The default maximum number of runs merged at a time.
+   */
+  public static final int DEFAULT_MERGE_FACTOR = 64;
+
+  /**
+   * The prefix of the names of the temporary run files.
+   */
+  public static final String TEMP_FILE_PREFIX = "sort-run-";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ExternalSorter.class);
+
+  private static final int MAX_TEMP_FILE_TRIES = 10;
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The minimum number of records of an in-memory run sorted in parallel.
+   */
+  private static final int MIN_SORT_GRANULARITY = 1 << 13;
+
+  private static final AtomicLong TEMP_FILE_SEQUENCE = new AtomicLong();
+
+  private final Comparator<? super KEY> comparator;
+  private final Comparator<Record<KEY, VALUE>> recordComparator;
+  private final RecordCombiner<KEY, VALUE> combiner;
+  private final BinarySerializer keySerializer;
+  private final BinarySerializer valueSerializer;
+  private final int runSize;
+  private final int mergeFactor;
+  private final int parallelism;
+
+  /**
+   * Constructs an {@link ExternalSorter} with the default options.
+   *
+   * @param keyClass
+   *          the class of the keys, which must be comparable.
+   * @param valueClass
+   *          the class of the values.
+   * @throws NoBinarySerializerRegisteredException
+   *           if no binary serializer is registered for the keys or values.
+   */
+  public ExternalSorter(final Class<KEY> keyClass,
+      final Class<VALUE> valueClass)
+      throws NoBinarySerializerRegisteredException {
+    this(keyClass, valueClass, null, null, DEFAULT_RUN_SIZE,
+        DEFAULT_MERGE_FACTOR, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Constructs an {@link ExternalSorter}.
+   *
+   * @param keyClass
+   *          the class of the keys.
+   * @param valueClass
+   *          the class of the values.
+   * @param comparator
+   *          the comparator of the keys, or null to use the natural order of
+   *          the keys.
+   * @param combiner
+   *          the combiner of the records having the same key, or null to keep
+   *          all the records.
+   * @param runSize
+   *          the maximum number of records of an in-memory run, which must be
+   *          positive.
+   * @param mergeFactor
+   *          the maximum number of runs merged at a time, which must be at
+   *          least 2.
+   * @param parallelism
+   *          the number of threads sorting and spilling the runs, which must
+   *          be positive.
+   * @throws NoBinarySerializerRegisteredException
+   *           if no binary serializer is registered for the keys or values.
+   */
+  public ExternalSorter(final Class<KEY> keyClass,
+      final Class<VALUE> valueClass,
+      @Nullable final Comparator<? super KEY> comparator,
+      @Nullable final RecordCombiner<KEY, VALUE> combiner, final int runSize,
+      final int mergeFactor, final int parallelism)
+      throws NoBinarySerializerRegisteredException {
+    requireNonNull("keyClass", keyClass);
+    requireNonNull("valueClass", valueClass);
+    if (runSize <= 0) {
+      throw new IllegalArgumentException("The run size must be positive: "
+          + runSize);
+    }
+    if (mergeFactor < 2) {
+      throw new IllegalArgumentException("The merge factor must be at "
+          + "least 2: " + mergeFactor);
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("The parallelism must be positive: "
+          + parallelism);
+    }
+    this.comparator = SortedRecordFile.comparator(keyClass, comparator);
+    this.recordComparator = new Comparator<Record<KEY, VALUE>>() {
+      @Override
+      public int compare(final Record<KEY, VALUE> r1,
+          final Record<KEY, VALUE> r2) {
+        return ExternalSorter.this.comparator.compare(r1.key, r2.key);
+      }
+    };
+    this.combiner = combiner;
+    this.keySerializer = BinarySerialization.getSerializer(keyClass);
+    if (keySerializer == null) {
+      throw new NoBinarySerializerRegisteredException(keyClass);
+    }
+    this.valueSerializer = BinarySerialization.getSerializer(valueClass);
+    if (valueSerializer == null) {
+      throw new NoBinarySerializerRegisteredException(valueClass);
+    }
+    this.runSize = runSize;
+    this.mergeFactor = mergeFactor;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Gets the comparator of the keys.
+   *
+   * @return the comparator of the keys.
+   */
+  public Comparator<? super KEY> getComparator() {
+    return comparator;
+  }
+
+  /**
+   * Gets the combiner of the records having the same key.
+   *
+   * @return the combiner of the records having the same key, or null if the
+   *         records are not combined.
+   */
+  @Nullable
+  public RecordCombiner<KEY, VALUE> getCombiner() {
+    return combiner;
+  }
+
+  /**
+   * Gets the maximum number of records of an in-memory run.
+   *
+   * @return the maximum number of records of an in-memory run.
+   */
+  public int getRunSize() {
+    return runSize;
+  }
+
+  /**
+   * Gets the maximum number of runs merged at a time.
+   *
+   * @return the maximum number of runs merged at a time.
+   */
+  public int getMergeFactor() {
+    return mergeFactor;
+  }
+
+  /**
+   * Gets the number of threads sorting and spilling the runs.
+   *
+   * @return the number of threads sorting and spilling the runs.
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  /**
+   * Sorts all the remaining records of a reader and writes them to a writer.
+   * <p>
+   * Neither the reader nor the writer is closed by this function. All the
+   * temporary files are deleted before this function returns, even if an
+   * error occurred.
+   *
+   * @param reader
+   *          the reader of the records to sort.
+   * @param writer
+   *          the writer where to write the sorted records.
+   * @return the number of records written to the writer.
+   * @throws IOException
+   *           if any I/O error occurred.
+   */
+  public long sort(final RecordReader<KEY, VALUE> reader,
+      final RecordWriter<KEY, VALUE> writer) throws IOException {
+    requireNonNull("reader", reader);
+    requireNonNull("writer", writer);
+    final List<File> tempFiles = Collections.synchronizedList(new ArrayList<File>());
+    final List<Future<Run>> spills = new ArrayList<Future<Run>>();
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      List<Record<KEY, VALUE>> records = new ArrayList<Record<KEY, VALUE>>();
+      while (reader.hasNext()) {
+        final Map.Entry<KEY, VALUE> entry = reader.next();
+        final KEY key = entry.getKey();
+        if (key == null) {
+          throw new NullPointerException("The key of a record is null.");
+        }
+        if (records.size() == runSize) {
+          // a full run is only spilled when a record of the next run arrives,
+          // so an input fitting in a single run is never spilled
+          if (spills.size() >= parallelism) {
+            // bounds the number of runs kept in the memory
+            await(spills.get(spills.size() - parallelism));
+          }
+          spills.add(pool.submit(new SpillTask(records, tempFiles)));
+          records = new ArrayList<Record<KEY, VALUE>>();
+        }
+        records.add(new Record<KEY, VALUE>(key, entry.getValue()));
+      }
+      if (spills.isEmpty()) {
+        return writeRun(records, writer, pool);
+      }
+      if (! records.isEmpty()) {
+        spills.add(pool.submit(new SpillTask(records, tempFiles)));
+      }
+      records = null;
+      List<Run> runs = new ArrayList<Run>(spills.size());
+      for (final Future<Run> spill : spills) {
+        runs.add(await(spill));
+      }
+      // merges the runs in several passes if there are too many runs
+      while (runs.size() > mergeFactor) {
+        runs = mergePass(runs, tempFiles);
+      }
+      return merge(runs, writer);
+    } finally {
+      pool.shutdownNow();
+      try {
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      synchronized (tempFiles) {
+        for (final File file : tempFiles) {
+          deleteQuietly(file);
+        }
+      }
+    }
+  }
+
+  private long writeRun(final List<Record<KEY, VALUE>> records,
+      final RecordWriter<KEY, VALUE> writer, final ForkJoinPool pool)
+      throws IOException {
+    @SuppressWarnings("unchecked")
+    final Record<KEY, VALUE>[] array = records.toArray(new Record[records.size()]);
+    if ((parallelism == 1) || (array.length <= MIN_SORT_GRANULARITY)) {
+      // the sort of arrays of objects is stable
+      Arrays.sort(array, recordComparator);
+    } else {
+      // sorts on the pool of this sorter rather than the common pool
+      final int granularity = Math.max(MIN_SORT_GRANULARITY,
+          array.length / (parallelism << 2));
+      @SuppressWarnings("unchecked")
+      final Record<KEY, VALUE>[] buffer = new Record[array.length];
+      await(pool.submit(new SortTask(array, buffer, 0, array.length,
+          granularity)));
+    }
+    final CombiningWriter out = new CombiningWriter(writer);
+    for (final Record<KEY, VALUE> record : array) {
+      out.write(record.key, record.value);
+    }
+    return out.finish();
+  }
+
+  /**
+   * Merges each group of adjacent runs into a run, keeping the order of the
+   * runs to keep the sort stable.
+   */
+  private List<Run> mergePass(final List<Run> runs, final List<File> tempFiles)
+      throws IOException {
+    final List<Run> result = new ArrayList<Run>();
+    for (int start = 0; start < runs.size(); start += mergeFactor) {
+      final List<Run> group = runs.subList(start,
+          Math.min(start + mergeFactor, runs.size()));
+      if (group.size() == 1) {
+        result.add(group.get(0));
+        continue;
+      }
+      final Run merged = new Run(newTempFile(tempFiles));
+      final RunWriter out = new RunWriter(merged);
+      try {
+        merge(group, out);
+      } finally {
+        out.close();
+      }
+      for (final Run run : group) {
+        deleteQuietly(run.file);
+      }
+      result.add(merged);
+    }
+    return result;
+  }
+
+  private long merge(final List<Run> runs, final RecordWriter<KEY, VALUE> writer)
+      throws IOException {
+    final PriorityQueue<RunReader> queue = new PriorityQueue<RunReader>(
+        runs.size(), new Comparator<RunReader>() {
+          @Override
+          public int compare(final RunReader r1, final RunReader r2) {
+            final int result = comparator.compare(r1.key, r2.key);
+            // the records of the same key are ordered by the runs
+            return (result != 0 ? result : r1.index - r2.index);
+          }
+        });
+    final List<RunReader> readers = new ArrayList<RunReader>(runs.size());
+    try {
+      for (int i = 0; i < runs.size(); ++i) {
+        final RunReader reader = new RunReader(runs.get(i), i);
+        readers.add(reader);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+      final CombiningWriter out = new CombiningWriter(writer);
+      while (! queue.isEmpty()) {
+        final RunReader reader = queue.poll();
+        out.write(reader.key, reader.value);
+        if (reader.advance()) {
+          queue.add(reader);
+        }
+      }
+      return out.finish();
+    } finally {
+      for (final RunReader reader : readers) {
+        IoUtils.closeQuietly(reader.in);
+      }
+    }
+  }
+
+  private static File newTempFile(final List<File> tempFiles)
+      throws IOException {
+    // the sequence number avoids name collisions between concurrent spills
+    final File file = FileUtils.createTempFile(TEMP_FILE_PREFIX
+        + TEMP_FILE_SEQUENCE.incrementAndGet(), MAX_TEMP_FILE_TRIES);
+    tempFiles.add(file);
+    return file;
+  }
+
+  private static void deleteQuietly(final File file) {
+    if ((! file.delete()) && file.exists()) {
+      LOGGER.warn("Failed to delete the temporary file: {}", file);
+    }
+  }
+
+  private static <T> T await(final Future<T> future) throws IOException {
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while sorting the records.");
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException(cause);
+      }
+    }
+  }
+
+  private static final class Record<KEY, VALUE> {
+    final KEY key;
+    final VALUE value;
+
+    Record(final KEY key, @Nullable final VALUE value) {
+      this.key = key;
+      this.value = value;
+    }
+  }
+
+  /**
+   * A run of sorted records spilled to a temporary file.
+   */
+  private static final class Run {
+    final File file;
+    long count;
+
+    Run(final File file) {
+      this.file = file;
+    }
+  }
+
+  /**
+   * Stably sorts a range of an array of records by sorting the two halves of
+   * the range in parallel and then merging them. The ranges of at most
+   * {@code granularity} records are sorted sequentially.
+   */
+  private final class SortTask extends RecursiveAction {
+    private static final long serialVersionUID = - 3811524478532169372L;
+
+    private final Record<KEY, VALUE>[] array;
+    private final Record<KEY, VALUE>[] buffer;
+    private final int from;
+    private final int to;
+    private final int granularity;
+
+    SortTask(final Record<KEY, VALUE>[] array,
+        final Record<KEY, VALUE>[] buffer, final int from, final int to,
+        final int granularity) {
+      this.array = array;
+      this.buffer = buffer;
+      this.from = from;
+      this.to = to;
+      this.granularity = granularity;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from <= granularity) {
+        Arrays.sort(array, from, to, recordComparator);
+        return;
+      }
+      final int mid = (from + to) >>> 1;
+      invokeAll(new SortTask(array, buffer, from, mid, granularity),
+          new SortTask(array, buffer, mid, to, granularity));
+      if (recordComparator.compare(array[mid - 1], array[mid]) <= 0) {
+        return;   // already in order
+      }
+      // merges the left half copied to the buffer with the right half; the
+      // left record is taken first on ties to keep the sort stable
+      System.arraycopy(array, from, buffer, from, mid - from);
+      int i = from;
+      int j = mid;
+      int k = from;
+      while ((i < mid) && (j < to)) {
+        if (recordComparator.compare(array[j], buffer[i]) < 0) {
+          array[k++] = array[j++];
+        } else {
+          array[k++] = buffer[i++];
+        }
+      }
+      while (i < mid) {
+        array[k++] = buffer[i++];
+      }
+    }
+  }
+
+  /**
+   * Sorts an in-memory run and spills it to a temporary file.
+   */
+  private final class SpillTask implements Callable<Run> {
+    @Nullable
+    private List<Record<KEY, VALUE>> records;
+    private final List<File> tempFiles;
+
+    SpillTask(final List<Record<KEY, VALUE>> records,
+        final List<File> tempFiles) {
+      this.records = records;
+      this.tempFiles = tempFiles;
+    }
+
+    @Override
+    public Run call() throws IOException {
+      // the future of this task is kept until the sort finishes, so the task
+      // must not keep the records reachable after the run is spilled
+      final List<Record<KEY, VALUE>> records = this.records;
+      this.records = null;
+      // the sort of lists is stable
+      Collections.sort(records, recordComparator);
+      final Run run = new Run(newTempFile(tempFiles));
+      final RunWriter out = new RunWriter(run);
+      try {
+        final CombiningWriter combining = new CombiningWriter(out);
+        for (final Record<KEY, VALUE> record : records) {
+          combining.write(record.key, record.value);
+        }
+        combining.finish();
+      } finally {
+        out.close();
+      }
+      return run;
+    }
+  }
+
+  /**
+   * Writes the records to a temporary run file.
+   */
+  private final class RunWriter implements RecordWriter<KEY, VALUE> {
+    private final Run run;
+    private final OutputStream out;
+
+    RunWriter(final Run run) throws IOException {
+      this.run = run;
+      this.out = new BufferedOutputStream(new FileOutputStream(run.file),
+          BUFFER_SIZE);
+    }
+
+    @Override
+    public void write(@Nullable final KEY key, @Nullable final VALUE value)
+        throws IOException {
+      keySerializer.serialize(out, key);
+      valueSerializer.serialize(out, value);
+      ++run.count;
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads the records from a temporary run file.
+   */
+  private final class RunReader {
+    final InputStream in;
+    final int index;
+    long remaining;
+    KEY key;
+    VALUE value;
+
+    RunReader(final Run run, final int index) throws IOException {
+      this.in = new BufferedInputStream(new FileInputStream(run.file),
+          BUFFER_SIZE);
+      this.index = index;
+      this.remaining = run.count;
+    }
+
+    @SuppressWarnings("unchecked")
+    boolean advance() throws IOException {
+      if (remaining == 0) {
+        key = null;
+        value = null;
+        return false;
+      }
+      key = (KEY) keySerializer.deserialize(in, false);
+      value = (VALUE) valueSerializer.deserialize(in, true);
+      --remaining;
+      return true;
+    }
+  }
+
+  /**
+   * Writes the sorted records to a writer, combining the adjacent records
+   * having the same key if there is a combiner.
+   */
+  private final class CombiningWriter {
+    private final RecordWriter<KEY, VALUE> writer;
+    private boolean pending;
+    private KEY pendingKey;
+    private VALUE pendingValue;
+    private long count;
+
+    CombiningWriter(final RecordWriter<KEY, VALUE> writer) {
+      this.writer = writer;
+    }
+
+    void write(final KEY key, @Nullable final VALUE value) throws IOException {
+      if (combiner == null) {
+        writer.write(key, value);
+        ++count;
+      } else if (pending && (comparator.compare(pendingKey, key) == 0)) {
+        pendingValue = combiner.combine(pendingKey, pendingValue, value);
+      } else {
+        flush();
+        pending = true;
+        pendingKey = key;
+        pendingValue = value;
+      }
+    }
+
+    long finish() throws IOException {
+      flush();
+      return count;
+    }
+
+    private void flush() throws IOException {
+      if (pending) {
+        writer.write(pendingKey, pendingValue);
+        ++count;
+        pending = false;
+        pendingKey = null;
+        pendingValue = null;
+      }
+    }
+  }
+}
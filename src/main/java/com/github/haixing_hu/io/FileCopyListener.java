@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+
+/**
+ * A listener notified of the progress of copying files.
+ *
+ * @author Haixing Hu
+ * @see FileUtils#copyDirectory(File, File, java.io.FileFilter, int, int,
+ *      FileCopyListener)
+ */
+public interface FileCopyListener {
+
+  /**
+   * Called after a file is copied.
+   * <p>
+   * This function may be called concurrently by several threads.
+   *
+   * @param srcFile
+   *          the source file.
+   * @param destFile
+   *          the destination file.
+   * @param bytes
+   *          the number of bytes copied.
+   */
+  public void fileCopied(File srcFile, File destFile, long bytes);
+}
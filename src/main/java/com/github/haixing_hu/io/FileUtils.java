@@ -16,16 +16,50 @@
  */
 package com.github.haixing_hu.io;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashSet;
-import java.util.zip.CheckedInputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.util.zip.Checksum;
 
 import javax.annotation.Nullable;
@@ -45,8 +79,6 @@ import com.github.haixing_hu.io.exception.FileIsDirectoryException;
 import com.github.haixing_hu.io.exception.FileIsNotDirectoryException;
 import com.github.haixing_hu.io.exception.FileNotExistException;
 import com.github.haixing_hu.lang.SystemUtils;
-import com.github.haixing_hu.util.filter.file.DirectoryFileFilter;
-import com.github.haixing_hu.util.filter.file.RegularFileFilter;
 
 import static com.github.haixing_hu.CommonsMessages.*;
 import static com.github.haixing_hu.io.OperationOption.*;
@@ -61,6 +93,41 @@ public final class FileUtils {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FileUtils.class);
 
+  /**
+   * The size of the regions of a file mapped at a time while computing the
+   * checksum of the file.
+   */
+  private static final long CHECKSUM_MAP_SIZE = 256L * 1024 * 1024;
+
+  /**
+   * The size of the chunks fed to the checksum object at a time.
+   */
+  private static final int CHECKSUM_CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * The maximum number of bytes transferred by the kernel at a time while
+   * copying a file.
+   */
+  private static final long TRANSFER_CHUNK_SIZE = 64L * 1024 * 1024;
+
+  /**
+   * The size of the regions of two files mapped at a time while comparing
+   * their contents.
+   */
+  private static final long COMPARE_MAP_SIZE = 256L * 1024 * 1024;
+
+  /**
+   * The files not larger than this size are compared by reading them instead
+   * of mapping them.
+   */
+  private static final int COMPARE_READ_SIZE = 64 * 1024;
+
+  /**
+   * The size of the regions of two files compared by a task while comparing
+   * their contents in parallel.
+   */
+  private static final long COMPARE_TASK_SIZE = 64L * 1024 * 1024;
+
   @GuardedBy(value = "itself")
   private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss-SSS");
 
@@ -178,27 +245,363 @@ public final class FileUtils {
    *           if the directory does not exist.
    */
   public static long getSizeOfDirectory(final File dir) throws IOException {
+    checkDirectory(dir);
+    final long[] result = { 0 };
+    // the attributes of each entry are read only once while walking the tree
+    Files.walkFileTree(dir.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+        Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(final Path file,
+          final BasicFileAttributes attrs) {
+        result[0] += attrs.size();
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFileFailed(final Path file,
+          final IOException e) throws IOException {
+        if (e instanceof FileSystemLoopException) {
+          return FileVisitResult.CONTINUE;
+        }
+        throw new DirectoryCanNotListException(file.toString());
+      }
+    });
+    return result[0];
+  }
+
+  /**
+   * Counts the size of a directory recursively (sum of the length of all
+   * files), walking the sub-directories in parallel.
+   *
+   * @param dir
+   *          directory to inspect, must not be {@code null}
+   * @param pool
+   *          the fork-join pool used to walk the sub-directories.
+   * @return size of directory in bytes.
+   * @throws FileNotExistException
+   *           if the directory does not exist.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static long getSizeOfDirectory(final File dir, final ForkJoinPool pool)
+      throws IOException {
+    checkDirectory(dir);
+    try {
+      final Path root = dir.toPath();
+      return pool.invoke(new SizeTask(root, rootAncestor(root)));
+    } catch (final RuntimeException e) {
+      throw unwrap(e);
+    }
+  }
+
+  /**
+   * Lists the relative paths of all regular files in a directory and its
+   * sub-directories, walking the sub-directories in parallel.
+   *
+   * @param dir
+   *          directory to inspect, must not be {@code null}
+   * @param pool
+   *          the fork-join pool used to walk the sub-directories.
+   * @return the sorted list of the paths of all regular files in the
+   *         directory tree, relative to the directory.
+   * @throws FileNotExistException
+   *           if the directory does not exist.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static List<String> listFilesRecursively(final File dir,
+      final ForkJoinPool pool) throws IOException {
+    checkDirectory(dir);
+    final Path root = dir.toPath();
+    final Queue<Path> files = new ConcurrentLinkedQueue<Path>();
+    try {
+      pool.invoke(new ListTask(root, rootAncestor(root), files));
+    } catch (final RuntimeException e) {
+      throw unwrap(e);
+    }
+    final List<String> result = new ArrayList<String>(files.size());
+    for (final Path file : files) {
+      result.add(root.relativize(file).toString());
+    }
+    Collections.sort(result);
+    return result;
+  }
+
+  /**
+   * Streams the paths of all regular files in a directory and its
+   * sub-directories.
+   * <p>
+   * The directory tree is walked lazily while the stream is consumed, so the
+   * results are yielded incrementally. The symbolic links are followed, and
+   * the loops of symbolic links are skipped, as the other walking functions
+   * of this class do. The returned stream must be closed after use.
+   *
+   * @param dir
+   *          directory to inspect, must not be {@code null}
+   * @return the stream of the paths of all regular files in the directory
+   *         tree.
+   * @throws FileNotExistException
+   *           if the directory does not exist.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static Stream<Path> streamFiles(final File dir) throws IOException {
+    checkDirectory(dir);
+    final Path root = dir.toPath();
+    final FileWalker walker = new FileWalker(root, rootAncestor(root));
+    final Spliterator<Path> spliterator = Spliterators.spliteratorUnknownSize(
+        walker, Spliterator.NONNULL | Spliterator.DISTINCT);
+    return StreamSupport.stream(spliterator, false).onClose(walker);
+  }
+
+  private static void checkDirectory(final File dir) throws IOException {
     if (! dir.exists()) {
       throw new DirectoryNotFoundException(dir.getAbsolutePath());
     }
     if (! dir.isDirectory()) {
       throw new FileIsNotDirectoryException(dir.getAbsolutePath());
     }
-    long result = 0;
-    final File[] files = dir.listFiles();
-    if (files == null) { // null if security restricted
-      throw new DirectoryCanNotListException(dir.getAbsolutePath());
+  }
+
+  private static IOException unwrap(final RuntimeException e) {
+    // the fork-join pool may rethrow a copy of the exception wrapping it
+    for (Throwable t = e; t != null; t = t.getCause()) {
+      if (t instanceof UncheckedIOException) {
+        return ((UncheckedIOException) t).getCause();
+      }
     }
-    for (final File file : files) {
-      if (file.isDirectory()) {
-        result += getSizeOfDirectory(file);
-      } else {
-        result += file.length();
+    throw e;
+  }
+
+  /**
+   * The chain of the keys of the directories from the root to a directory
+   * being walked, used to detect the loops of symbolic links.
+   */
+  private static final class Ancestor {
+    final Object key;
+    @Nullable
+    final Ancestor parent;
+
+    Ancestor(final Object key, @Nullable final Ancestor parent) {
+      this.key = key;
+      this.parent = parent;
+    }
+
+    static boolean contains(@Nullable final Ancestor ancestor,
+        final Object key) {
+      for (Ancestor a = ancestor; a != null; a = a.parent) {
+        if (a.key.equals(key)) {
+          return true;
+        }
       }
+      return false;
+    }
+  }
+
+  @Nullable
+  private static Ancestor rootAncestor(final Path root) throws IOException {
+    final Object key = Files.readAttributes(root, BasicFileAttributes.class)
+                            .fileKey();
+    return (key == null ? null : new Ancestor(key, null));
+  }
+
+  /**
+   * Reads the entries of a directory with their attributes, each of which is
+   * read only once.
+   */
+  private static List<Path> readDirectory(final Path dir,
+      final List<BasicFileAttributes> attributes) {
+    final List<Path> result = new ArrayList<Path>();
+    try {
+      final DirectoryStream<Path> stream = Files.newDirectoryStream(dir);
+      try {
+        for (final Path entry : stream) {
+          final BasicFileAttributes attrs;
+          try {
+            attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+          } catch (final IOException e) {
+            // a broken symbolic link, or an entry deleted while walking
+            LOGGER.debug(FAILED_READ_ATTRIBUTES, entry, e);
+            continue;
+          }
+          result.add(entry);
+          attributes.add(attrs);
+        }
+      } finally {
+        stream.close();
+      }
+    } catch (final IOException e) {
+      throw new UncheckedIOException(
+          new DirectoryCanNotListException(dir.toString()));
     }
     return result;
   }
 
+  private static final class SizeTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 4466301658263929207L;
+
+    private final Path dir;
+    @Nullable
+    private final Ancestor ancestor;
+
+    SizeTask(final Path dir, @Nullable final Ancestor ancestor) {
+      this.dir = dir;
+      this.ancestor = ancestor;
+    }
+
+    @Override
+    protected Long compute() {
+      final List<BasicFileAttributes> attributes =
+          new ArrayList<BasicFileAttributes>();
+      final List<Path> entries = readDirectory(dir, attributes);
+      final List<SizeTask> tasks = new ArrayList<SizeTask>();
+      long result = 0;
+      for (int i = 0; i < entries.size(); ++i) {
+        final BasicFileAttributes attrs = attributes.get(i);
+        if (attrs.isDirectory()) {
+          final Object key = attrs.fileKey();
+          if ((key == null) || (! Ancestor.contains(ancestor, key))) {
+            final SizeTask task = new SizeTask(entries.get(i),
+                (key == null ? ancestor : new Ancestor(key, ancestor)));
+            task.fork();
+            tasks.add(task);
+          }
+        } else {
+          result += attrs.size();
+        }
+      }
+      for (final SizeTask task : tasks) {
+        result += task.join();
+      }
+      return result;
+    }
+  }
+
+  private static final class ListTask extends RecursiveAction {
+
+    private static final long serialVersionUID = - 5176023449230768803L;
+
+    private final Path dir;
+    @Nullable
+    private final Ancestor ancestor;
+    private final Queue<Path> files;
+
+    ListTask(final Path dir, @Nullable final Ancestor ancestor,
+        final Queue<Path> files) {
+      this.dir = dir;
+      this.ancestor = ancestor;
+      this.files = files;
+    }
+
+    @Override
+    protected void compute() {
+      final List<BasicFileAttributes> attributes =
+          new ArrayList<BasicFileAttributes>();
+      final List<Path> entries = readDirectory(dir, attributes);
+      final List<ListTask> tasks = new ArrayList<ListTask>();
+      for (int i = 0; i < entries.size(); ++i) {
+        final BasicFileAttributes attrs = attributes.get(i);
+        if (attrs.isDirectory()) {
+          final Object key = attrs.fileKey();
+          if ((key == null) || (! Ancestor.contains(ancestor, key))) {
+            tasks.add(new ListTask(entries.get(i),
+                (key == null ? ancestor : new Ancestor(key, ancestor)), files));
+          }
+        } else if (attrs.isRegularFile()) {
+          files.add(entries.get(i));
+        }
+      }
+      invokeAll(tasks);
+    }
+  }
+
+  /**
+   * Walks the regular files of a directory tree lazily, in the depth-first
+   * order, skipping the loops of symbolic links. Running it closes the opened
+   * directory streams.
+   */
+  private static final class FileWalker implements Iterator<Path>, Runnable {
+
+    /**
+     * A directory being walked.
+     */
+    private static final class Frame {
+      final DirectoryStream<Path> stream;
+      final Iterator<Path> entries;
+      @Nullable
+      final Ancestor ancestor;
+
+      Frame(final Path dir, @Nullable final Ancestor ancestor) {
+        try {
+          this.stream = Files.newDirectoryStream(dir);
+        } catch (final IOException e) {
+          throw new UncheckedIOException(
+              new DirectoryCanNotListException(dir.toString()));
+        }
+        this.entries = stream.iterator();
+        this.ancestor = ancestor;
+      }
+    }
+
+    private final Deque<Frame> frames;
+    @Nullable
+    private Path next;
+
+    FileWalker(final Path root, @Nullable final Ancestor ancestor) {
+      frames = new ArrayDeque<Frame>();
+      frames.push(new Frame(root, ancestor));
+      next = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+      while ((next == null) && (! frames.isEmpty())) {
+        final Frame frame = frames.peek();
+        if (! frame.entries.hasNext()) {
+          IoUtils.closeQuietly(frames.pop().stream);
+          continue;
+        }
+        final Path entry = frame.entries.next();
+        final BasicFileAttributes attrs;
+        try {
+          attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+        } catch (final IOException e) {
+          // a broken symbolic link, or an entry deleted while walking
+          LOGGER.debug(FAILED_READ_ATTRIBUTES, entry, e);
+          continue;
+        }
+        if (attrs.isDirectory()) {
+          final Object key = attrs.fileKey();
+          if ((key == null) || (! Ancestor.contains(frame.ancestor, key))) {
+            frames.push(new Frame(entry, (key == null ? frame.ancestor
+                : new Ancestor(key, frame.ancestor))));
+          }
+        } else if (attrs.isRegularFile()) {
+          next = entry;
+        }
+      }
+      return (next != null);
+    }
+
+    @Override
+    public Path next() {
+      if (! hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final Path result = next;
+      next = null;
+      return result;
+    }
+
+    @Override
+    public void run() {
+      while (! frames.isEmpty()) {
+        IoUtils.closeQuietly(frames.pop().stream);
+      }
+    }
+  }
+
 
   /**
    * Opens a {@link FileOutputStream} for the specified file, checking and
@@ -434,16 +837,7 @@ public final class FileUtils {
       // same file
       return true;
     }
-    InputStream input1 = null;
-    InputStream input2 = null;
-    try {
-      input1 = new FileInputStream(file1);
-      input2 = new FileInputStream(file2);
-      return IoUtils.compareContent(input1, input2) == 0;
-    } finally {
-      IoUtils.closeQuietly(input1);
-      IoUtils.closeQuietly(input2);
-    }
+    return (mismatch(file1, file2) < 0);
   }
 
   /**
@@ -485,15 +879,195 @@ public final class FileUtils {
       // same file
       return 0;
     }
-    InputStream input1 = null;
-    InputStream input2 = null;
+    final long pos = mismatch(file1, file2);
+    if (pos < 0) {
+      return 0;
+    }
+    final long length1 = file1.length();
+    final long length2 = file2.length();
+    if (pos == Math.min(length1, length2)) {
+      // the shorter file is a prefix of the longer one
+      return (length1 < length2 ? -1 : +1);
+    }
+    return byteAt(file1, pos) - byteAt(file2, pos);
+  }
+
+  private static int byteAt(final File file, final long pos) throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      raf.seek(pos);
+      return raf.read();
+    } finally {
+      raf.close();
+    }
+  }
+
+  /**
+   * Finds the position of the first mismatching byte of two files.
+   * <p>
+   * The files are compared over memory-mapped regions, 8 bytes at a time.
+   *
+   * @param file1
+   *          the first file.
+   * @param file2
+   *          the second file.
+   * @return the position of the first mismatching byte; or the length of the
+   *         shorter file if it is a proper prefix of the other; or -1 if the
+   *         contents of the two files are identical.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static long mismatch(final File file1, final File file2)
+      throws IOException {
+    return mismatch(file1, file2, null);
+  }
+
+  /**
+   * Finds the position of the first mismatching byte of two files, comparing
+   * the regions of the files in parallel.
+   * <p>
+   * The files are compared over memory-mapped regions, 8 bytes at a time. The
+   * regions following a found mismatch are skipped.
+   *
+   * @param file1
+   *          the first file.
+   * @param file2
+   *          the second file.
+   * @param pool
+   *          the fork-join pool used to compare the regions, or null to
+   *          compare them sequentially.
+   * @return the position of the first mismatching byte; or the length of the
+   *         shorter file if it is a proper prefix of the other; or -1 if the
+   *         contents of the two files are identical.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static long mismatch(final File file1, final File file2,
+      @Nullable final ForkJoinPool pool) throws IOException {
+    if (file1.isDirectory() || file2.isDirectory()) {
+      throw new IOException(DIRECTORY_CANT_COMPARE);
+    }
+    final RandomAccessFile raf1 = new RandomAccessFile(file1, "r");
     try {
-      input1 = new FileInputStream(file1);
-      input2 = new FileInputStream(file2);
-      return IoUtils.compareContent(input1, input2);
+      final RandomAccessFile raf2 = new RandomAccessFile(file2, "r");
+      try {
+        final FileChannel channel1 = raf1.getChannel();
+        final FileChannel channel2 = raf2.getChannel();
+        final long length1 = channel1.size();
+        final long length2 = channel2.size();
+        final long common = Math.min(length1, length2);
+        final long result;
+        if (common <= COMPARE_READ_SIZE) {
+          result = mismatchByReading(channel1, channel2, (int) common);
+        } else if ((pool == null) || (common <= COMPARE_TASK_SIZE)) {
+          result = mismatchByMapping(channel1, channel2, 0, common);
+        } else {
+          final AtomicLong found = new AtomicLong(Long.MAX_VALUE);
+          try {
+            pool.invoke(new MismatchTask(channel1, channel2, 0, common, found));
+          } catch (final RuntimeException e) {
+            throw unwrap(e);
+          }
+          result = (found.get() == Long.MAX_VALUE ? -1 : found.get());
+        }
+        if (result >= 0) {
+          return result;
+        } else {
+          return (length1 == length2 ? -1 : common);
+        }
+      } finally {
+        raf2.close();
+      }
     } finally {
-      IoUtils.closeQuietly(input1);
-      IoUtils.closeQuietly(input2);
+      raf1.close();
+    }
+  }
+
+  private static long mismatchByReading(final FileChannel channel1,
+      final FileChannel channel2, final int size) throws IOException {
+    final ByteBuffer buffer1 = ByteBuffer.allocate(size);
+    final ByteBuffer buffer2 = ByteBuffer.allocate(size);
+    while (buffer1.hasRemaining()) {
+      if (channel1.read(buffer1, buffer1.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    while (buffer2.hasRemaining()) {
+      if (channel2.read(buffer2, buffer2.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    buffer1.flip();
+    buffer2.flip();
+    return IoUtils.mismatch(buffer1, buffer2);
+  }
+
+  private static long mismatchByMapping(final FileChannel channel1,
+      final FileChannel channel2, final long start, final long end)
+      throws IOException {
+    for (long pos = start; pos < end; pos += COMPARE_MAP_SIZE) {
+      final long size = Math.min(COMPARE_MAP_SIZE, end - pos);
+      final MappedByteBuffer buffer1 = channel1.map(MapMode.READ_ONLY, pos, size);
+      try {
+        final MappedByteBuffer buffer2 = channel2.map(MapMode.READ_ONLY, pos, size);
+        try {
+          final int m = IoUtils.mismatch(buffer1, buffer2);
+          if (m >= 0) {
+            return pos + m;
+          }
+        } finally {
+          SystemUtils.cleanupMmapping(buffer2);
+        }
+      } finally {
+        SystemUtils.cleanupMmapping(buffer1);
+      }
+    }
+    return -1;
+  }
+
+  private static final class MismatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 7722519350364452016L;
+
+    private final FileChannel channel1;
+    private final FileChannel channel2;
+    private final long start;
+    private final long end;
+    private final AtomicLong found;
+
+    MismatchTask(final FileChannel channel1, final FileChannel channel2,
+        final long start, final long end, final AtomicLong found) {
+      this.channel1 = channel1;
+      this.channel2 = channel2;
+      this.start = start;
+      this.end = end;
+      this.found = found;
+    }
+
+    @Override
+    protected void compute() {
+      if (start >= found.get()) {
+        return;   // a mismatch before this region has been found
+      }
+      if (end - start > COMPARE_TASK_SIZE) {
+        final long chunks = (end - start + COMPARE_TASK_SIZE - 1) / COMPARE_TASK_SIZE;
+        final long mid = start + (chunks / 2) * COMPARE_TASK_SIZE;
+        invokeAll(new MismatchTask(channel1, channel2, start, mid, found),
+            new MismatchTask(channel1, channel2, mid, end, found));
+        return;
+      }
+      final long pos;
+      try {
+        pos = mismatchByMapping(channel1, channel2, start, end);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      if (pos >= 0) {
+        long current = found.get();
+        while ((pos < current) && (! found.compareAndSet(current, pos))) {
+          current = found.get();
+        }
+      }
     }
   }
 
@@ -571,7 +1145,19 @@ public final class FileUtils {
       LOGGER.debug(COPYING_FILES, srcFile, destFile);
       input = new FileInputStream(srcFile);
       output = new FileOutputStream(destFile);
-      IoUtils.copy(input, Long.MAX_VALUE, output);
+      // let the kernel copy the data without passing it through the user space
+      final FileChannel in = input.getChannel();
+      final FileChannel out = output.getChannel();
+      final long size = in.size();
+      long pos = 0;
+      while (pos < size) {
+        final long n = in.transferTo(pos, Math.min(size - pos,
+            TRANSFER_CHUNK_SIZE), out);
+        if (n <= 0) {
+          break;    // the source file was truncated
+        }
+        pos += n;
+      }
     } finally {
       IoUtils.closeQuietly(output);
       IoUtils.closeQuietly(input);
@@ -778,6 +1364,233 @@ public final class FileUtils {
     return result;
   }
 
+  /**
+   * Copies a filtered directory to a new location, copying the sub-directories
+   * and files in parallel.
+   * <p>
+   * This function has the same semantics as
+   * {@link #copyDirectory(File, File, FileFilter, int)}, except that the
+   * directory tree is walked and copied by a fork-join pool, and the copying
+   * of each file is reported to an optional listener.
+   *
+   * @param srcDir
+   *          an existing directory to copy, must not be {@code null}
+   * @param destDir
+   *          the new directory, must not be {@code null}
+   * @param filter
+   *          the filter to apply, null means copy all directories and files
+   * @param options
+   *          a bitwise combination of the constants defined in the
+   *          {@link OperationOption} class.
+   * @param parallelism
+   *          the maximum number of files copied concurrently.
+   * @param listener
+   *          the listener to be notified after each file is copied, which
+   *          could be null. It may be called concurrently by several threads.
+   * @return the number of files or directories copied.
+   * @throws FileNotExistException
+   *           if the srcDir does not exist.
+   * @throws IOException
+   *           if an IO error occurs during copying
+   */
+  public static int copyDirectory(final File srcDir, final File destDir,
+      @Nullable final FileFilter filter, final int options,
+      final int parallelism, @Nullable final FileCopyListener listener)
+      throws IOException {
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("The parallelism must be positive.");
+    }
+    if (srcDir.exists() == false) {
+      throw new DirectoryNotFoundException(srcDir.getAbsolutePath());
+    }
+    if (srcDir.isDirectory() == false) {
+      throw new FileIsNotDirectoryException(srcDir.getAbsolutePath());
+    }
+    if (destDir.exists()) {
+      if (destDir.canWrite() == false) {
+        throw new DirectoryCanNotWriteException(destDir.getAbsolutePath());
+      }
+      if (! destDir.isDirectory()) {
+        throw new FileIsNotDirectoryException(destDir.getAbsolutePath());
+      }
+    } else {
+      if ((options & MAKE_DIRS) == 0) {
+        return 0;
+      }
+      if (destDir.mkdirs() == false) {
+        throw new DirectoryCanNotCreateException(destDir.getAbsolutePath());
+      }
+      if (destDir.canWrite() == false) {
+        throw new DirectoryCanNotWriteException(destDir.getAbsolutePath());
+      }
+    }
+    final CopyContext context = new CopyContext(destDir.getCanonicalPath(),
+        filter, options, listener);
+    final ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      pool.invoke(new CopyDirectoryTask(srcDir, srcDir.getCanonicalPath(),
+          destDir, context.destRootCanon, context));
+      return context.copied.size();
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
+    } catch (final RuntimeException e) {
+      // the fork-join pool may rethrow a copy of the exception wrapping it
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw e;
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * The states shared by the tasks of a parallel directory copying.
+   */
+  private static final class CopyContext {
+    final String destRootCanon;
+    @Nullable
+    final FileFilter filter;
+    final boolean overwrite;
+    final boolean preserveDate;
+    @Nullable
+    final FileCopyListener listener;
+    // the canonical paths of the copied files and directories
+    final Set<String> copied;
+
+    CopyContext(final String destRootCanon, @Nullable final FileFilter filter,
+        final int options, @Nullable final FileCopyListener listener) {
+      this.destRootCanon = destRootCanon;
+      this.filter = filter;
+      this.overwrite = ((options & OVERWRITE) != 0);
+      this.preserveDate = ((options & PRESERVE_DATE) != 0);
+      this.listener = listener;
+      this.copied = ConcurrentHashMap.newKeySet();
+    }
+  }
+
+  private static final class CopyDirectoryTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 3095420539839127823L;
+
+    private final File srcDir;
+    private final String srcDirCanon;
+    private final File destDir;
+    private final String destDirCanon;
+    private final CopyContext context;
+
+    CopyDirectoryTask(final File srcDir, final String srcDirCanon,
+        final File destDir, final String destDirCanon,
+        final CopyContext context) {
+      this.srcDir = srcDir;
+      this.srcDirCanon = srcDirCanon;
+      this.destDir = destDir;
+      this.destDirCanon = destDirCanon;
+      this.context = context;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        copy();
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void copy() throws IOException {
+      if (srcDirCanon.equals(destDirCanon)
+          || srcDirCanon.equals(context.destRootCanon)) {
+        // skip the destination, in order to avoid the circular copying.
+        return;
+      }
+      LOGGER.debug(COPYING_DIRECTORIES, srcDir, destDir);
+      final File[] files = srcDir.listFiles(context.filter);
+      if (files == null) { // null if security restricted
+        throw new DirectoryCanNotListException(srcDir.getAbsolutePath());
+      }
+      final List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+      for (final File srcFile : files) {
+        final String srcFileName = srcFile.getName();
+        final String newSrcCanon = srcDirCanon + File.separatorChar + srcFileName;
+        final String newDestCanon = destDirCanon + File.separatorChar + srcFileName;
+        if (context.copied.contains(newSrcCanon)
+            || context.copied.contains(newDestCanon)) {
+          // avoid the circular copying.
+          continue;
+        }
+        if (srcFile.isDirectory()) {
+          final File destSubDir = new File(destDir, srcFileName);
+          if (destSubDir.exists()) {
+            if (! destSubDir.isDirectory()) {
+              throw new FileIsNotDirectoryException(destSubDir.getAbsolutePath());
+            }
+          } else {
+            if (! destSubDir.mkdir()) {
+              throw new DirectoryCanNotCreateException(destSubDir.getPath());
+            }
+            if (context.preserveDate) {
+              destSubDir.setLastModified(srcFile.lastModified());
+            }
+          }
+          if (destSubDir.canWrite() == false) {
+            throw new DirectoryCanNotWriteException(destSubDir.getPath());
+          }
+          tasks.add(new CopyDirectoryTask(srcFile, newSrcCanon, destSubDir,
+              newDestCanon, context).fork());
+        } else if (srcFile.isFile()) {
+          final File destFile = new File(destDir, srcFileName);
+          if (destFile.exists()) {
+            if (! context.overwrite) {
+              LOGGER.debug(SKIP_FILE, destFile);
+              continue;
+            }
+            if (destFile.isDirectory()) {
+              throw new FileIsNotDirectoryException(destFile.getAbsolutePath());
+            }
+          }
+          tasks.add(new CopyFileTask(srcFile, destFile, newDestCanon,
+              context).fork());
+        }
+      }
+      for (final ForkJoinTask<Void> task : tasks) {
+        task.join();
+      }
+      context.copied.add(destDirCanon);
+    }
+  }
+
+  private static final class CopyFileTask extends RecursiveAction {
+
+    private static final long serialVersionUID = - 2190543176320518417L;
+
+    private final File srcFile;
+    private final File destFile;
+    private final String destFileCanon;
+    private final CopyContext context;
+
+    CopyFileTask(final File srcFile, final File destFile,
+        final String destFileCanon, final CopyContext context) {
+      this.srcFile = srcFile;
+      this.destFile = destFile;
+      this.destFileCanon = destFileCanon;
+      this.context = context;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        doCopyFile(srcFile, destFile, context.preserveDate);
+      } catch (final IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      context.copied.add(destFileCanon);
+      if (context.listener != null) {
+        context.listener.fileCopied(srcFile, destFile, destFile.length());
+      }
+    }
+  }
+
   /**
    * Deletes a file. If file is a directory, delete it and all sub-directories.
    *
@@ -953,6 +1766,7 @@ public final class FileUtils {
    *           if the file is a directory
    * @throws IOException
    *           if an IO error occurs reading the file
+   * @see ChecksumAlgorithm#newChecksum()
    * @since Commons IO 1.3
    */
   public static Checksum checksum(final File file, final Checksum checksum)
@@ -960,10 +1774,26 @@ public final class FileUtils {
     if (file.isDirectory()) {
       throw new FileIsNotDirectoryException(file.getAbsolutePath());
     }
-    InputStream in = null;
+    final FileInputStream in = new FileInputStream(file);
     try {
-      in = new CheckedInputStream(new FileInputStream(file), checksum);
-      IoUtils.copy(in, Long.MAX_VALUE, NullOutputStream.INSTANCE);
+      // map the file in large regions, which avoids a system call for
+      // each chunk; the chunks are fed to the checksum object in bulk.
+      final FileChannel channel = in.getChannel();
+      final long size = channel.size();
+      final byte[] chunk = new byte[CHECKSUM_CHUNK_SIZE];
+      for (long pos = 0; pos < size; pos += CHECKSUM_MAP_SIZE) {
+        final long length = Math.min(CHECKSUM_MAP_SIZE, size - pos);
+        final MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, pos, length);
+        try {
+          while (buffer.hasRemaining()) {
+            final int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            checksum.update(chunk, 0, n);
+          }
+        } finally {
+          SystemUtils.cleanupMmapping(buffer);
+        }
+      }
     } finally {
       IoUtils.closeQuietly(in);
     }
@@ -1015,11 +1845,7 @@ public final class FileUtils {
     } else if (! dir.isDirectory()) {
       throw new FileIsNotDirectoryException(dir.getAbsolutePath());
     }
-    final String[] result = dir.list(RegularFileFilter.INSTANCE);
-    if (result == null) {
-      throw new DirectoryCanNotListException(dir.getAbsolutePath());
-    }
-    return result;
+    return listEntries(dir, true);
   }
 
   /**
@@ -1038,10 +1864,26 @@ public final class FileUtils {
     } else if (! dir.isDirectory()) {
       throw new FileIsNotDirectoryException(dir.getAbsolutePath());
     }
-    final String[] result = dir.list(DirectoryFileFilter.INSTANCE);
-    if (result == null) {
-      throw new DirectoryCanNotListException(dir.getAbsolutePath());
+    return listEntries(dir, false);
+  }
+
+  private static String[] listEntries(final File dir, final boolean regularFiles)
+      throws IOException {
+    final List<BasicFileAttributes> attributes =
+        new ArrayList<BasicFileAttributes>();
+    final List<Path> entries;
+    try {
+      entries = readDirectory(dir.toPath(), attributes);
+    } catch (final UncheckedIOException e) {
+      throw e.getCause();
     }
-    return result;
+    final List<String> result = new ArrayList<String>(entries.size());
+    for (int i = 0; i < entries.size(); ++i) {
+      final BasicFileAttributes attrs = attributes.get(i);
+      if (regularFiles ? attrs.isRegularFile() : attrs.isDirectory()) {
+        result.add(entries.get(i).getFileName().toString());
+      }
+    }
+    return result.toArray(new String[result.size()]);
   }
 }
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+/**
+ * The types of the fields of the records accessed by {@link FlyweightRecord}.
+ * <p>
+ * Each type is encoded the same way as the corresponding function of
+ * {@link OutputUtils} does.
+ *
+ * @author Haixing Hu
+ * @see FlyweightSchema
+ */
+public enum FlyweightFieldType {
+
+  /**
+   * Encoded by {@link OutputUtils#writeBoolean}.
+   */
+  BOOLEAN,
+
+  /**
+   * Encoded by {@link OutputUtils#writeByte}.
+   */
+  BYTE,
+
+  /**
+   * Encoded by {@link OutputUtils#writeShort}.
+   */
+  SHORT,
+
+  /**
+   * Encoded by {@link OutputUtils#writeInt}.
+   */
+  INT,
+
+  /**
+   * Encoded by {@link OutputUtils#writeLong}.
+   */
+  LONG,
+
+  /**
+   * Encoded by {@link OutputUtils#writeFloat}.
+   */
+  FLOAT,
+
+  /**
+   * Encoded by {@link OutputUtils#writeDouble}.
+   */
+  DOUBLE,
+
+  /**
+   * Encoded by {@link OutputUtils#writeVarInt}.
+   */
+  VAR_INT,
+
+  /**
+   * Encoded by {@link OutputUtils#writeVarLong}.
+   */
+  VAR_LONG,
+
+  /**
+   * Encoded by {@link OutputUtils#writeString}. The value could be null.
+   */
+  STRING,
+
+  /**
+   * Encoded by {@link OutputUtils#writeByteArray(java.io.OutputStream, byte[])}.
+   * The value could be null.
+   */
+  BYTE_ARRAY,
+}
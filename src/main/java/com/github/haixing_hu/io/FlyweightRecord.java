@@ -0,0 +1,403 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.UTFDataFormatException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.text.CharsetUtils;
+
+import static com.github.haixing_hu.CommonsMessages.MALFORMED_UTF_ERROR;
+import static com.github.haixing_hu.CommonsMessages.PARTIAL_CHAR_ERROR;
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A flyweight accessing the fields of a record written by
+ * {@link FlyweightRecordWriter} in place, without deserializing the record.
+ * <p>
+ * A flyweight is positioned on a record of a {@link ByteBuffer}, which could
+ * be a memory-mapped region of a file, by {@link #wrap(ByteBuffer, int)}.
+ * Each field is located through the offset table of the record and decoded
+ * only when it is accessed, so a query reading a few fields of a large record
+ * does not pay for the others. The flyweight could be repositioned on any
+ * number of records without allocating any object.
+ * <p>
+ * The flyweight only uses the absolute get operations of the buffer, so the
+ * position and limit of the buffer are never changed.
+ *
+ * @author Haixing Hu
+ * @see FlyweightRecordWriter
+ * @see FlyweightRecordCursor
+ */
+@NotThreadSafe
+public final class FlyweightRecord {
+
+  private final FlyweightSchema schema;
+  private final int fieldCount;
+  private ByteBuffer buffer;
+  private int offset;
+  private int length;
+  private boolean wide;
+  private int dataStart;
+  private int varEnd;
+  private char[] chars;
+
+  public FlyweightRecord(final FlyweightSchema schema) {
+    this.schema = requireNonNull("schema", schema);
+    this.fieldCount = schema.size();
+    this.buffer = null;
+    this.chars = new char[64];
+  }
+
+  public FlyweightSchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Positions this flyweight on a record.
+   *
+   * @param buffer
+   *          the buffer containing the record. Its byte order must be
+   *          big-endian, which is the default byte order of buffers.
+   * @param offset
+   *          the absolute index of the first byte of the record in the buffer.
+   * @return this flyweight.
+   * @throws IndexOutOfBoundsException
+   *           if the record is not entirely within the limit of the buffer.
+   */
+  public FlyweightRecord wrap(final ByteBuffer buffer, final int offset) {
+    if (buffer.order() != ByteOrder.BIG_ENDIAN) {
+      throw new IllegalArgumentException("The byte order must be big-endian.");
+    }
+    final int len = buffer.getInt(offset);
+    if ((len < 0) || (len > buffer.limit() - offset - 4)) {
+      throw new IndexOutOfBoundsException("Truncated record at " + offset);
+    }
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = len;
+    this.wide = (len - 2 * fieldCount > 0xFFFF);
+    this.dataStart = offset + 4 + fieldCount * (wide ? 4 : 2);
+    return this;
+  }
+
+  /**
+   * Gets the buffer this flyweight is positioned on.
+   *
+   * @return the buffer this flyweight is positioned on, or null if it was not
+   *         positioned yet.
+   */
+  public ByteBuffer getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Gets the absolute index of the first byte of the current record.
+   *
+   * @return the absolute index of the first byte of the current record.
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * Gets the total number of bytes of the current record.
+   *
+   * @return the total number of bytes of the current record.
+   */
+  public int getSize() {
+    return 4 + length;
+  }
+
+  private int position(final int field, final FlyweightFieldType type) {
+    if (schema.getType(field) != type) {
+      throw new IllegalArgumentException("The field " + schema.getName(field)
+          + " is of type " + schema.getType(field) + ", not " + type + ".");
+    }
+    if (wide) {
+      return dataStart + buffer.getInt(offset + 4 + 4 * field);
+    } else {
+      return dataStart + (buffer.getShort(offset + 4 + 2 * field) & 0xFFFF);
+    }
+  }
+
+  public boolean getBoolean(final int field) {
+    return buffer.get(position(field, FlyweightFieldType.BOOLEAN)) != 0;
+  }
+
+  public byte getByte(final int field) {
+    return buffer.get(position(field, FlyweightFieldType.BYTE));
+  }
+
+  public short getShort(final int field) {
+    return buffer.getShort(position(field, FlyweightFieldType.SHORT));
+  }
+
+  public int getInt(final int field) {
+    return buffer.getInt(position(field, FlyweightFieldType.INT));
+  }
+
+  public long getLong(final int field) {
+    return buffer.getLong(position(field, FlyweightFieldType.LONG));
+  }
+
+  public float getFloat(final int field) {
+    return buffer.getFloat(position(field, FlyweightFieldType.FLOAT));
+  }
+
+  public double getDouble(final int field) {
+    return buffer.getDouble(position(field, FlyweightFieldType.DOUBLE));
+  }
+
+  public int getVarInt(final int field) {
+    return decodeVarInt(position(field, FlyweightFieldType.VAR_INT));
+  }
+
+  public long getVarLong(final int field) {
+    int pos = position(field, FlyweightFieldType.VAR_LONG);
+    long result = 0;
+    for (int shift = 0; ; shift += 7) {
+      final int ch = buffer.get(pos++);
+      result |= (long) (ch & 0x7F) << shift;
+      if ((ch & 0x80) == 0) {
+        return result;
+      }
+    }
+  }
+
+  /**
+   * Decodes a varint at the specified index, and stores the index of the byte
+   * following it in {@link #varEnd}.
+   */
+  private int decodeVarInt(int pos) {
+    int result = 0;
+    for (int shift = 0; ; shift += 7) {
+      final int ch = buffer.get(pos++);
+      result |= (ch & 0x7F) << shift;
+      if ((ch & 0x80) == 0) {
+        varEnd = pos;
+        return result;
+      }
+    }
+  }
+
+  /**
+   * Tests whether the value of a field of type {@link FlyweightFieldType#STRING}
+   * or {@link FlyweightFieldType#BYTE_ARRAY} is null.
+   *
+   * @param field
+   *          the index of the field.
+   * @return {@code true} if the value of the field is null; {@code false}
+   *         otherwise.
+   */
+  public boolean isNull(final int field) {
+    final FlyweightFieldType type = schema.getType(field);
+    if ((type != FlyweightFieldType.STRING)
+        && (type != FlyweightFieldType.BYTE_ARRAY)) {
+      return false;
+    }
+    return buffer.get(position(field, type)) != 0;
+  }
+
+  /**
+   * Gets the value of a field of type {@link FlyweightFieldType#STRING}.
+   *
+   * @param field
+   *          the index of the field.
+   * @return the value of the field, which could be null.
+   * @throws UncheckedIOException
+   *           if the value is not a valid modified UTF-8 encoding.
+   */
+  @Nullable
+  public String getString(final int field) {
+    final int pos = position(field, FlyweightFieldType.STRING);
+    if (buffer.get(pos) != 0) {
+      return null;
+    }
+    final int utflen = decodeVarInt(pos + 1);
+    final int start = varEnd;
+    if (buffer.hasArray() && isAscii(start, utflen)) {
+      return new String(buffer.array(), buffer.arrayOffset() + start, utflen,
+          CharsetUtils.ISO_8859_1);
+    }
+    final int count = decode(start, utflen);
+    return new String(chars, 0, count);
+  }
+
+  /**
+   * Tests whether the value of a field of type {@link FlyweightFieldType#STRING}
+   * equals to a string, without creating a string of the value.
+   *
+   * @param field
+   *          the index of the field.
+   * @param value
+   *          the string to compare with, which could be null.
+   * @return {@code true} if the value of the field equals to the string;
+   *         {@code false} otherwise.
+   * @throws UncheckedIOException
+   *           if the value is not a valid modified UTF-8 encoding.
+   */
+  public boolean equalsString(final int field, @Nullable final String value) {
+    final int pos = position(field, FlyweightFieldType.STRING);
+    if (buffer.get(pos) != 0) {
+      return (value == null);
+    } else if (value == null) {
+      return false;
+    }
+    final int utflen = decodeVarInt(pos + 1);
+    final int n = value.length();
+    if ((utflen < n) || (utflen > 3 * n)) {
+      return false;
+    }
+    final int count = decode(varEnd, utflen);
+    if (count != n) {
+      return false;
+    }
+    for (int i = 0; i < n; ++i) {
+      if (chars[i] != value.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isAscii(final int start, final int len) {
+    final byte[] array = buffer.array();
+    final int end = buffer.arrayOffset() + start + len;
+    int word = 0;
+    for (int i = buffer.arrayOffset() + start; i < end; ++i) {
+      word |= array[i];
+    }
+    return (word & 0x80) == 0;
+  }
+
+  /**
+   * Decodes the modified UTF-8 bytes of a string into {@link #chars}.
+   *
+   * @return the number of decoded characters.
+   */
+  private int decode(final int start, final int utflen) {
+    if (chars.length < utflen) {
+      chars = new char[Math.max(utflen, chars.length * 2)];
+    }
+    final int end = start + utflen;
+    int count = 0;
+    int pos = start;
+    while (pos < end) {
+      final int ch = buffer.get(pos) & 0xFF;
+      switch (ch >> 4) {
+        case 0:
+        case 1:
+        case 2:
+        case 3:
+        case 4:
+        case 5:
+        case 6:
+        case 7:
+          /* 0xxxxxxx */
+          ++pos;
+          chars[count++] = (char) ch;
+          break;
+        case 12:
+        case 13: {
+          /* 110x xxxx 10xx xxxx */
+          pos += 2;
+          if (pos > end) {
+            throw malformed(PARTIAL_CHAR_ERROR);
+          }
+          final int ch2 = buffer.get(pos - 1);
+          if ((ch2 & 0xC0) != 0x80) {
+            throw malformed(MALFORMED_UTF_ERROR + (pos - start));
+          }
+          chars[count++] = (char) (((ch & 0x1F) << 6) | (ch2 & 0x3F));
+          break;
+        }
+        case 14: {
+          /* 1110 xxxx 10xx xxxx 10xx xxxx */
+          pos += 3;
+          if (pos > end) {
+            throw malformed(PARTIAL_CHAR_ERROR);
+          }
+          final int ch2 = buffer.get(pos - 2);
+          final int ch3 = buffer.get(pos - 1);
+          if (((ch2 & 0xC0) != 0x80) || ((ch3 & 0xC0) != 0x80)) {
+            throw malformed(MALFORMED_UTF_ERROR + (pos - start - 1));
+          }
+          chars[count++] = (char) (((ch & 0x0F) << 12) | ((ch2 & 0x3F) << 6)
+              | (ch3 & 0x3F));
+          break;
+        }
+        default:
+          /* 10xx xxxx, 1111 xxxx */
+          throw malformed(MALFORMED_UTF_ERROR + (pos - start));
+      }
+    }
+    return count;
+  }
+
+  private static UncheckedIOException malformed(final String message) {
+    return new UncheckedIOException(new UTFDataFormatException(message));
+  }
+
+  /**
+   * Gets the value of a field of type {@link FlyweightFieldType#BYTE_ARRAY}.
+   *
+   * @param field
+   *          the index of the field.
+   * @return a copy of the value of the field, which could be null.
+   */
+  @Nullable
+  public byte[] getByteArray(final int field) {
+    final int pos = position(field, FlyweightFieldType.BYTE_ARRAY);
+    if (buffer.get(pos) != 0) {
+      return null;
+    }
+    final int len = decodeVarInt(pos + 1);
+    final byte[] result = new byte[len];
+    final ByteBuffer source = buffer.duplicate();
+    source.position(varEnd);
+    source.get(result);
+    return result;
+  }
+
+  /**
+   * Gets a read-only view of the value of a field of type
+   * {@link FlyweightFieldType#BYTE_ARRAY}, without copying it.
+   *
+   * @param field
+   *          the index of the field.
+   * @return a read-only view of the value of the field, whose position is 0
+   *         and whose limit is the length of the value; or null if the value
+   *         is null.
+   */
+  @Nullable
+  public ByteBuffer getByteArrayView(final int field) {
+    final int pos = position(field, FlyweightFieldType.BYTE_ARRAY);
+    if (buffer.get(pos) != 0) {
+      return null;
+    }
+    final int len = decodeVarInt(pos + 1);
+    final ByteBuffer view = buffer.asReadOnlyBuffer();
+    view.limit(varEnd + len).position(varEnd);
+    return view.slice();
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A streaming cursor over the records written by {@link FlyweightRecordWriter},
+ * exposing each record through a reusable {@link FlyweightRecord}.
+ * <p>
+ * The records could be scanned from a {@link ByteBuffer}, or from a file which
+ * is mapped in windows of {@link #WINDOW_SIZE} bytes (or larger, if a record
+ * is larger). No object is allocated per record, and the flyweight is only
+ * valid until the next call of {@link #next()}. The mapped windows are
+ * released by the garbage collector, so that the flyweight could never refer
+ * to unmapped memory.
+ *
+ * @author Haixing Hu
+ * @see FlyweightRecord
+ * @see MmapLineCursor
+ */
+@NotThreadSafe
+public final class FlyweightRecordCursor implements Closeable {
+
+  /**
+   * The default size of the mapped windows.
+   */
+  public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private final FlyweightRecord record;
+  private final RandomAccessFile descriptor;
+  private final FileChannel channel;
+  private final long size;
+  private boolean closed;
+  private ByteBuffer window;
+  private long windowStart;
+  private long next;
+  private long recordStart;
+
+  /**
+   * Constructs a {@link FlyweightRecordCursor} over the records between the
+   * position and the limit of a buffer.
+   *
+   * @param buffer
+   *          the buffer containing the records.
+   * @param schema
+   *          the schema of the records.
+   */
+  public FlyweightRecordCursor(final ByteBuffer buffer,
+      final FlyweightSchema schema) {
+    requireNonNull("buffer", buffer);
+    this.record = new FlyweightRecord(schema);
+    this.descriptor = null;
+    this.channel = null;
+    this.size = buffer.limit();
+    this.closed = false;
+    this.window = buffer;
+    this.windowStart = 0;
+    this.next = buffer.position();
+    this.recordStart = -1;
+  }
+
+  /**
+   * Constructs a {@link FlyweightRecordCursor} over the records of a file.
+   *
+   * @param file
+   *          the file containing the records.
+   * @param schema
+   *          the schema of the records.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public FlyweightRecordCursor(final File file, final FlyweightSchema schema)
+      throws IOException {
+    requireNonNull("file", file);
+    this.record = new FlyweightRecord(schema);
+    this.descriptor = new RandomAccessFile(file, "r");
+    this.channel = descriptor.getChannel();
+    try {
+      this.size = channel.size();
+    } catch (final IOException e) {
+      IoUtils.closeQuietly(descriptor);
+      throw e;
+    }
+    this.closed = false;
+    this.window = null;
+    this.windowStart = 0;
+    this.next = 0;
+    this.recordStart = -1;
+  }
+
+  /**
+   * Advances this cursor to the next record.
+   *
+   * @return true if the cursor is positioned at the next record; false if
+   *         there is no more record.
+   * @throws InvalidFormatException
+   *           if the last record is truncated.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public boolean next() throws IOException {
+    if (closed) {
+      throw new AlreadyClosedException();
+    }
+    if (next >= size) {
+      recordStart = -1;
+      return false;
+    }
+    if (next + 4 > size) {
+      throw new InvalidFormatException("Truncated record at " + next);
+    }
+    if ((window == null) || (next + 4 > windowStart + window.limit())) {
+      map(next, 4);
+    }
+    final int length = window.getInt((int) (next - windowStart));
+    final long end = next + 4 + length;
+    if ((length < 0) || (end > size)) {
+      throw new InvalidFormatException("Truncated record at " + next);
+    }
+    if (end > windowStart + window.limit()) {
+      map(next, end - next);
+    }
+    record.wrap(window, (int) (next - windowStart));
+    recordStart = next;
+    next = end;
+    return true;
+  }
+
+  /**
+   * Maps a window of the file starting from a position.
+   */
+  private void map(final long pos, final long minSize) throws IOException {
+    if (channel == null) {
+      // the whole buffer is the only window
+      throw new InvalidFormatException("Truncated record at " + pos);
+    }
+    final long mapSize = Math.min(Math.max(WINDOW_SIZE, minSize), size - pos);
+    if (mapSize > Integer.MAX_VALUE) {
+      throw new IOException("The record is too large at " + pos);
+    }
+    window = channel.map(MapMode.READ_ONLY, pos, mapSize);
+    windowStart = pos;
+  }
+
+  /**
+   * Gets the flyweight positioned on the current record.
+   *
+   * @return the flyweight positioned on the current record. It is reused by
+   *         the following records.
+   */
+  public FlyweightRecord getRecord() {
+    if (recordStart < 0) {
+      throw new IllegalStateException("The cursor is not positioned at a record.");
+    }
+    return record;
+  }
+
+  /**
+   * Gets the position of the current record.
+   *
+   * @return the position of the current record in the file or buffer, or -1
+   *         if the cursor is not positioned at a record.
+   */
+  public long getRecordPosition() {
+    return recordStart;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (! closed) {
+      closed = true;
+      window = null;
+      if (descriptor != null) {
+        descriptor.close();
+      }
+    }
+  }
+}
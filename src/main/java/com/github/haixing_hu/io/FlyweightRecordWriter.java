@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.SortedRecordWriter.BlockBuffer;
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * Writes records which could be accessed in place by {@link FlyweightRecord}.
+ * <p>
+ * The fields of a record are written one by one in the order of the schema,
+ * and the record is finished by {@link #endRecord()}. Each field is encoded
+ * by the corresponding function of {@link OutputUtils}, and the record is
+ * written as:
+ * <ol>
+ * <li>the length of the rest of the record, written by
+ * {@link OutputUtils#writeInt};</li>
+ * <li>the offset table, i.e., the offset of each field relative to the start
+ * of the encoded fields, as an unsigned 2 bytes big-endian value if the
+ * encoded fields are no longer than 65535 bytes, or as a 4 bytes big-endian
+ * value otherwise;</li>
+ * <li>the encoded fields.</li>
+ * </ol>
+ * The records are written back to back, so a file of them could be scanned
+ * by {@link FlyweightRecordCursor}.
+ *
+ * @author Haixing Hu
+ * @see FlyweightRecord
+ * @see FlyweightRecordCursor
+ */
+@NotThreadSafe
+public final class FlyweightRecordWriter implements Closeable {
+
+  private static final int INITIAL_BUFFER_SIZE = 256;
+
+  private final FlyweightSchema schema;
+  private final BlockBuffer data;
+  private final int[] offsets;
+  private byte[] header;
+  private OutputStream out;
+  private int field;
+  private long recordCount;
+
+  /**
+   * Constructs a {@link FlyweightRecordWriter}.
+   *
+   * @param out
+   *          the output stream where to write the records. It will be closed
+   *          when this writer is closed.
+   * @param schema
+   *          the schema of the records.
+   */
+  public FlyweightRecordWriter(final OutputStream out,
+      final FlyweightSchema schema) {
+    this.out = requireNonNull("out", out);
+    this.schema = requireNonNull("schema", schema);
+    this.data = new BlockBuffer(INITIAL_BUFFER_SIZE);
+    this.offsets = new int[schema.size()];
+    this.header = new byte[4 + 2 * schema.size()];
+    this.field = 0;
+    this.recordCount = 0;
+  }
+
+  public FlyweightSchema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Gets the number of records written so far.
+   *
+   * @return the number of records written so far.
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  public void writeBoolean(final boolean value) throws IOException {
+    beginField(FlyweightFieldType.BOOLEAN);
+    OutputUtils.writeBoolean(data, value);
+  }
+
+  public void writeByte(final byte value) throws IOException {
+    beginField(FlyweightFieldType.BYTE);
+    OutputUtils.writeByte(data, value);
+  }
+
+  public void writeShort(final short value) throws IOException {
+    beginField(FlyweightFieldType.SHORT);
+    OutputUtils.writeShort(data, value);
+  }
+
+  public void writeInt(final int value) throws IOException {
+    beginField(FlyweightFieldType.INT);
+    OutputUtils.writeInt(data, value);
+  }
+
+  public void writeLong(final long value) throws IOException {
+    beginField(FlyweightFieldType.LONG);
+    OutputUtils.writeLong(data, value);
+  }
+
+  public void writeFloat(final float value) throws IOException {
+    beginField(FlyweightFieldType.FLOAT);
+    OutputUtils.writeFloat(data, value);
+  }
+
+  public void writeDouble(final double value) throws IOException {
+    beginField(FlyweightFieldType.DOUBLE);
+    OutputUtils.writeDouble(data, value);
+  }
+
+  public void writeVarInt(final int value) throws IOException {
+    beginField(FlyweightFieldType.VAR_INT);
+    OutputUtils.writeVarInt(data, value);
+  }
+
+  public void writeVarLong(final long value) throws IOException {
+    beginField(FlyweightFieldType.VAR_LONG);
+    OutputUtils.writeVarLong(data, value);
+  }
+
+  public void writeString(@Nullable final String value) throws IOException {
+    beginField(FlyweightFieldType.STRING);
+    OutputUtils.writeString(data, value);
+  }
+
+  public void writeByteArray(@Nullable final byte[] value) throws IOException {
+    beginField(FlyweightFieldType.BYTE_ARRAY);
+    OutputUtils.writeByteArray(data, value);
+  }
+
+  private void beginField(final FlyweightFieldType type)
+      throws AlreadyClosedException {
+    if (out == null) {
+      throw new AlreadyClosedException();
+    }
+    if (field == offsets.length) {
+      throw new IllegalStateException("All fields of the record were written.");
+    }
+    if (schema.getType(field) != type) {
+      throw new IllegalArgumentException("The field " + schema.getName(field)
+          + " is of type " + schema.getType(field) + ", not " + type + ".");
+    }
+    offsets[field++] = data.size();
+  }
+
+  /**
+   * Finishes the current record and writes it to the output.
+   *
+   * @throws IllegalStateException
+   *           if not all fields of the current record were written.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public void endRecord() throws IOException {
+    if (out == null) {
+      throw new AlreadyClosedException();
+    }
+    if (field < offsets.length) {
+      throw new IllegalStateException("The field " + schema.getName(field)
+          + " of the record was not written.");
+    }
+    final int size = data.size();
+    final int n = offsets.length;
+    final boolean wide = (size > 0xFFFF);
+    final int headerSize = 4 + n * (wide ? 4 : 2);
+    if (header.length < headerSize) {
+      header = new byte[headerSize];
+    }
+    putInt(header, 0, headerSize - 4 + size);
+    if (wide) {
+      for (int i = 0, j = 4; i < n; ++i, j += 4) {
+        putInt(header, j, offsets[i]);
+      }
+    } else {
+      for (int i = 0, j = 4; i < n; ++i, j += 2) {
+        header[j] = (byte) (offsets[i] >>> 8);
+        header[j + 1] = (byte) offsets[i];
+      }
+    }
+    out.write(header, 0, headerSize);
+    out.write(data.array(), 0, size);
+    data.reset();
+    field = 0;
+    ++recordCount;
+  }
+
+  private static void putInt(final byte[] buffer, final int off,
+      final int value) {
+    buffer[off] = (byte) (value >>> 24);
+    buffer[off + 1] = (byte) (value >>> 16);
+    buffer[off + 2] = (byte) (value >>> 8);
+    buffer[off + 3] = (byte) value;
+  }
+
+  public void flush() throws IOException {
+    if (out == null) {
+      throw new AlreadyClosedException();
+    }
+    out.flush();
+  }
+
+  /**
+   * Closes this writer and the underlying output stream. The unfinished
+   * record, if any, is discarded.
+   */
+  @Override
+  public void close() throws IOException {
+    if (out != null) {
+      try {
+        out.close();
+      } finally {
+        out = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.annotation.concurrent.Immutable;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * The schema of the records written by {@link FlyweightRecordWriter} and
+ * accessed by {@link FlyweightRecord}, i.e., the names and types of their
+ * fields, in the order they are written.
+ *
+ * @author Haixing Hu
+ */
+@Immutable
+public final class FlyweightSchema {
+
+  private final String[] names;
+  private final FlyweightFieldType[] types;
+  private final Map<String, Integer> indexes;
+
+  /**
+   * Constructs a {@link FlyweightSchema}.
+   *
+   * @param names
+   *          the names of the fields. They must be distinct.
+   * @param types
+   *          the types of the fields, which must have the same length as the
+   *          {@code names}.
+   */
+  public FlyweightSchema(final String[] names,
+      final FlyweightFieldType[] types) {
+    requireNonNull("names", names);
+    requireNonNull("types", types);
+    if (names.length != types.length) {
+      throw new IllegalArgumentException("The numbers of names and types "
+          + "of the fields are different.");
+    }
+    this.names = names.clone();
+    this.types = types.clone();
+    this.indexes = new HashMap<String, Integer>();
+    for (int i = 0; i < names.length; ++i) {
+      requireNonNull("names[" + i + "]", names[i]);
+      requireNonNull("types[" + i + "]", types[i]);
+      if (indexes.put(names[i], i) != null) {
+        throw new IllegalArgumentException("Duplicated field: " + names[i]);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of fields.
+   *
+   * @return the number of fields.
+   */
+  public int size() {
+    return types.length;
+  }
+
+  /**
+   * Gets the name of a field.
+   *
+   * @param field
+   *          the index of the field.
+   * @return the name of the field.
+   */
+  public String getName(final int field) {
+    return names[field];
+  }
+
+  /**
+   * Gets the type of a field.
+   *
+   * @param field
+   *          the index of the field.
+   * @return the type of the field.
+   */
+  public FlyweightFieldType getType(final int field) {
+    return types[field];
+  }
+
+  /**
+   * Gets the index of a field.
+   *
+   * @param name
+   *          the name of the field.
+   * @return the index of the field, or -1 if there is no such field.
+   */
+  public int indexOf(final String name) {
+    final Integer index = indexes.get(name);
+    return (index == null ? -1 : index);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(names) * 31 + Arrays.hashCode(types);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if ((obj == null) || (getClass() != obj.getClass())) {
+      return false;
+    }
+    final FlyweightSchema other = (FlyweightSchema) obj;
+    return Arrays.equals(names, other.names)
+        && Arrays.equals(types, other.types);
+  }
+}
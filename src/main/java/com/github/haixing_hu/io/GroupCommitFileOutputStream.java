@@ -0,0 +1,446 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * An {@link OutputStream} which appends data to a file in the group-commit
+ * mode.
+ * <p>
+ * Unlike the {@link NioFileOutputStream}, which synchronously writes every
+ * flushed buffer to the storage device, this stream could be shared by
+ * several threads: the data appended by the writers is collected in a shared
+ * buffer, and a background flusher thread writes all the data collected
+ * since its last commit in one batch, and then forces it to the storage
+ * device with a single {@link FileChannel#force(boolean)}. While the flusher
+ * is waiting for the storage device, the following appends are collected into
+ * the next batch, so the number of forces decreases as the load increases.
+ * <p>
+ * Each append returns a future which is completed when the appended data is
+ * durable. If the buffer of the collecting batch is full, the writers are
+ * blocked until the flusher takes the batch.
+ *
+ * @author Haixing Hu
+ * @see NioFileOutputStream
+ */
+@ThreadSafe
+public final class GroupCommitFileOutputStream extends OutputStream {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(GroupCommitFileOutputStream.class);
+
+  public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private static final Function<Long, Long> IDENTITY = Function.identity();
+
+  /**
+   * A batch of data committed by one force.
+   */
+  private static final class Batch {
+    byte[] data;
+    int size;
+    CompletableFuture<Long> durable;
+
+    Batch(final int capacity) {
+      data = new byte[capacity];
+      size = 0;
+      durable = new CompletableFuture<Long>();
+    }
+  }
+
+  private final RandomAccessFile descriptor;
+  private final FileChannel channel;
+  private final int bufferSize;
+  private final Object lock;
+  private final Thread flusher;
+
+  @GuardedBy("lock")
+  private Batch collecting;
+  @GuardedBy("lock")
+  private Batch spare;
+  @GuardedBy("lock")
+  private long appended;
+  @GuardedBy("lock")
+  private boolean flushing;
+  @GuardedBy("lock")
+  private boolean closed;
+  @GuardedBy("lock")
+  @Nullable
+  private IOException failure;
+  @GuardedBy("lock")
+  private long commitCount;
+
+  /**
+   * Constructs a {@link GroupCommitFileOutputStream} appending to a file.
+   *
+   * @param file
+   *          the file to append. It is created if it does not exist.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public GroupCommitFileOutputStream(final File file) throws IOException {
+    this(file, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructs a {@link GroupCommitFileOutputStream} appending to a file.
+   *
+   * @param file
+   *          the file to append. It is created if it does not exist.
+   * @param bufferSize
+   *          the size of the buffer collecting a batch. The data appended at
+   *          once could be larger than the buffer.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public GroupCommitFileOutputStream(final File file, final int bufferSize)
+      throws IOException {
+    requireNonNull("file", file);
+    if (bufferSize <= 0) {
+      throw new IllegalArgumentException("The buffer size must be positive.");
+    }
+    this.bufferSize = bufferSize;
+    // the data is forced explicitly, so the file is not opened in the
+    // synchronous mode.
+    descriptor = new RandomAccessFile(file, "rw");
+    channel = descriptor.getChannel();
+    appended = descriptor.length();
+    channel.position(appended);
+    lock = new Object();
+    collecting = new Batch(bufferSize);
+    spare = new Batch(bufferSize);
+    flushing = false;
+    closed = false;
+    failure = null;
+    commitCount = 0;
+    flusher = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        flushLoop();
+      }
+    }, "GroupCommitFlusher-" + file.getName());
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  /**
+   * Appends data to the file.
+   *
+   * @param buf
+   *          the buffer of the data.
+   * @param off
+   *          the start offset of the data in the buffer.
+   * @param len
+   *          the number of bytes to append.
+   * @return a future which is completed with the durable length of the file
+   *         once the appended data is durable, or completed exceptionally if
+   *         the data could not be committed.
+   * @throws IOException
+   *           if this stream is closed, or a previous commit has failed.
+   */
+  public CompletableFuture<Long> append(final byte[] buf, final int off,
+      final int len) throws IOException {
+    synchronized (lock) {
+      final Batch batch = collect(buf, off, len);
+      // the returned future must not be completed by the callers
+      return batch.durable.thenApply(IDENTITY);
+    }
+  }
+
+  @GuardedBy("lock")
+  private Batch collect(final byte[] buf, final int off, final int len)
+      throws IOException {
+    if ((off < 0) || (len < 0) || (len > buf.length - off)) {
+      throw new IndexOutOfBoundsException();
+    }
+    final Batch batch = reserve(len);
+    System.arraycopy(buf, off, batch.data, batch.size, len);
+    collected(batch, len);
+    return batch;
+  }
+
+  /**
+   * Waits until the collecting batch has room for the specified number of
+   * bytes, and returns it.
+   */
+  @GuardedBy("lock")
+  private Batch reserve(final int len) throws IOException {
+    checkState();
+    // wait for the flusher if the collecting batch is full, unless it is
+    // empty and the data has to be collected anyway.
+    while ((collecting.size > 0) && (collecting.size + len > bufferSize)) {
+      awaitFlusher();
+      checkState();
+    }
+    final Batch batch = collecting;
+    if (batch.size + len > batch.data.length) {
+      final byte[] data = new byte[batch.size + len];
+      System.arraycopy(batch.data, 0, data, 0, batch.size);
+      batch.data = data;
+    }
+    return batch;
+  }
+
+  @GuardedBy("lock")
+  private void collected(final Batch batch, final int len) {
+    final boolean wasEmpty = (batch.size == 0);
+    batch.size += len;
+    appended += len;
+    // only an idle flusher waits for a non-empty batch, so the waiters need
+    // not to be woken up for each append
+    if (wasEmpty || (batch.size >= bufferSize)) {
+      lock.notifyAll();
+    }
+  }
+
+  /**
+   * Gets a future which is completed once all the data appended so far is
+   * durable.
+   *
+   * @return a future which is completed with the durable length of the file
+   *         once all the data appended so far is durable.
+   * @throws IOException
+   *           if this stream is closed, or a previous commit has failed.
+   */
+  public CompletableFuture<Long> sync() throws IOException {
+    synchronized (lock) {
+      checkState();
+      if ((collecting.size == 0) && (! flushing)) {
+        return CompletableFuture.completedFuture(appended);
+      } else if (collecting.size == 0) {
+        // the data appended so far is being committed by the flusher
+        return spare.durable.thenApply(IDENTITY);
+      } else {
+        return collecting.durable.thenApply(IDENTITY);
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private void checkState() throws IOException {
+    if (closed) {
+      throw new AlreadyClosedException();
+    }
+    if (failure != null) {
+      throw new IOException("A previous commit has failed.", failure);
+    }
+  }
+
+  @GuardedBy("lock")
+  private void awaitFlusher() throws InterruptedIOException {
+    try {
+      lock.wait();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+  }
+
+  private void flushLoop() {
+    while (true) {
+      final Batch batch;
+      synchronized (lock) {
+        while ((collecting.size == 0) && (! closed)) {
+          try {
+            lock.wait();
+          } catch (final InterruptedException e) {
+            // ignore and check the state again
+          }
+        }
+        if (collecting.size == 0) {
+          return;     // closed and drained
+        }
+        // swap the batches, so that the writers could continue to collect
+        // while this batch is being committed
+        batch = collecting;
+        collecting = spare;
+        spare = batch;
+        flushing = true;
+        lock.notifyAll();
+      }
+      IOException error = null;
+      long durableLength = 0;
+      try {
+        final ByteBuffer buffer = ByteBuffer.wrap(batch.data, 0, batch.size);
+        while (buffer.hasRemaining()) {
+          channel.write(buffer);
+        }
+        channel.force(true);
+        durableLength = channel.position();
+      } catch (final IOException e) {
+        LOGGER.error("Failed to commit the data.", e);
+        error = e;
+      }
+      final CompletableFuture<Long> durable = batch.durable;
+      synchronized (lock) {
+        if (error != null) {
+          failure = error;
+        }
+        ++commitCount;
+        batch.size = 0;
+        if (batch.data.length > bufferSize) {
+          batch.data = new byte[bufferSize];
+        }
+        batch.durable = new CompletableFuture<Long>();
+        flushing = false;
+        lock.notifyAll();
+      }
+      if (error == null) {
+        durable.complete(durableLength);
+      } else {
+        durable.completeExceptionally(error);
+        failPending(error);
+        return;
+      }
+    }
+  }
+
+  private void failPending(final IOException error) {
+    final CompletableFuture<Long> pending;
+    synchronized (lock) {
+      pending = collecting.durable;
+      collecting.size = 0;
+    }
+    pending.completeExceptionally(error);
+  }
+
+  /**
+   * Gets the number of forces committed by this stream.
+   *
+   * @return the number of forces committed by this stream.
+   */
+  public long getCommitCount() {
+    synchronized (lock) {
+      return commitCount;
+    }
+  }
+
+  /**
+   * Gets the length of the file including the data appended but not yet
+   * committed.
+   *
+   * @return the length of the file including the data appended but not yet
+   *         committed.
+   */
+  public long length() {
+    synchronized (lock) {
+      return appended;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * This function does not wait for the data to be durable.
+   */
+  @Override
+  public void write(final int b) throws IOException {
+    synchronized (lock) {
+      final Batch batch = reserve(1);
+      batch.data[batch.size] = (byte) b;
+      collected(batch, 1);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * This function does not wait for the data to be durable.
+   */
+  @Override
+  public void write(final byte[] buf, final int off, final int len)
+      throws IOException {
+    synchronized (lock) {
+      collect(buf, off, len);
+    }
+  }
+
+  /**
+   * Waits until all the data appended so far is durable.
+   */
+  @Override
+  public void flush() throws IOException {
+    await(sync());
+  }
+
+  private static void await(final CompletableFuture<Long> future)
+      throws IOException {
+    try {
+      future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /**
+   * Commits all the data appended so far, and closes this stream.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      lock.notifyAll();
+    }
+    try {
+      flusher.join();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } finally {
+      try {
+        channel.close();
+      } finally {
+        descriptor.close();
+      }
+    }
+    synchronized (lock) {
+      if (failure != null) {
+        throw new IOException("Failed to commit the data.", failure);
+      }
+    }
+  }
+}
@@ -23,6 +23,12 @@ import java.io.UTFDataFormatException;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -56,6 +62,7 @@ import com.github.haixing_hu.io.serialize.BinarySerializer;
 import com.github.haixing_hu.io.serialize.NoBinarySerializerRegisteredException;
 import com.github.haixing_hu.lang.ArrayUtils;
 import com.github.haixing_hu.lang.StringUtils;
+import com.github.haixing_hu.text.CharsetUtils;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Multimap;
 
@@ -813,17 +820,40 @@ public final class InputUtils {
         throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
       }
     }
+    return readUtf(in);
+  }
+
+  /**
+   * Reads a non-null string written by
+   * {@link OutputUtils#writeUtf(java.io.OutputStream, String)}, i.e., the
+   * varint length and the modified UTF-8 bytes of the string, without a null
+   * mark.
+   *
+   * @param in
+   *          the input source where to read the data.
+   * @return the string read from the input.
+   * @throws EOFException
+   *           if the input reaches the end before reading the whole string.
+   * @throws UTFDataFormatException
+   *           if the bytes read are not a valid modified UTF-8 encoding.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static String readUtf(final InputStream in) throws IOException {
     final int utflen = readVarInt(in);
     if (utflen == 0) {
       return StringUtils.EMPTY;
     }
-    final byte[] byteBuffer = new byte[utflen];
-    final char[] charBuffer = new char[utflen];
+    final byte[] byteBuffer = getStringBytes(utflen);
+    readFully(in, byteBuffer, 0, utflen);
+    // optimization for ASCII string
+    if (isAscii(byteBuffer, utflen)) {
+      return new String(byteBuffer, 0, utflen, CharsetUtils.ISO_8859_1);
+    }
+    final char[] charBuffer = getStringChars(utflen);
     int ch, ch2, ch3;
     int count = 0;
     int charCount = 0;
-    readFully(in, byteBuffer, 0, utflen);
-    // optimization for ASCII string
     while (count < utflen) {
       ch = byteBuffer[count] & 0xff;
       if (ch > 127) {
@@ -1037,13 +1067,121 @@ public final class InputUtils {
         throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
       }
     }
-    Class<?> result;
-    try {
-      result = Class.forName(className);
-    } catch (final ClassNotFoundException e) {
-      throw new InvalidFormatException(e);
+    return forName(className);
+  }
+
+  /**
+   * Reads a string written by
+   * {@link OutputUtils#writeSharedString(java.io.OutputStream, String)}.
+   *
+   * <p>If the input is a {@link DictionaryInputStream}, the back-references
+   * to the strings already read are resolved with the dictionary of the
+   * stream. Otherwise, the string is read exactly as
+   * {@link #readString(InputStream, boolean)} does.</p>
+   *
+   * <p>The dictionary is only used if {@code in} itself is a
+   * {@link DictionaryInputStream}; wrapping it in another stream disables the
+   * dictionary.</p>
+   *
+   * @param in
+   *          the input source where to read the data.
+   * @param allowNull
+   *          if it is true, the string to be read could be a null value;
+   *          otherwise, if the string read from the input is null, an
+   *          {@code InvalidFormatException} will be thrown.
+   * @return a string read from the input. Note that it could be null if the
+   *         value read from the input is a null and the argument
+   *         {@code allowNull} is true.
+   * @throws EOFException
+   *           if the input reaches the end before reading the whole string.
+   * @throws InvalidFormatException
+   *           if the value read from the input is a null value and the argument
+   *           {@code allowNull} is false, or the value is an invalid
+   *           back-reference.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static String readSharedString(final InputStream in,
+      final boolean allowNull) throws IOException {
+    if (! (in instanceof DictionaryInputStream)) {
+      return readString(in, allowNull);
+    }
+    final DictionaryInputStream dict = (DictionaryInputStream) in;
+    final int tag = readVarInt(in);
+    switch (tag) {
+      case OutputUtils.SHARED_NULL:
+        if (allowNull) {
+          return null;
+        } else {
+          throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
+        }
+      case OutputUtils.SHARED_ENTERED: {
+        final String result = readUtf(in);
+        dict.addString(result);
+        return result;
+      }
+      case OutputUtils.SHARED_LITERAL:
+        return readUtf(in);
+      default:
+        return dict.getString(tag - OutputUtils.SHARED_REFERENCE);
+    }
+  }
+
+  /**
+   * Reads a class written by
+   * {@link OutputUtils#writeSharedClass(java.io.OutputStream, Class)}.
+   *
+   * <p>If the input is a {@link DictionaryInputStream}, the back-references
+   * to the classes already read are resolved with the dictionary of the
+   * stream, without loading the classes again. Otherwise, the class is read
+   * exactly as {@link #readClass(InputStream, boolean)} does.</p>
+   *
+   * <p>The dictionary is only used if {@code in} itself is a
+   * {@link DictionaryInputStream}; wrapping it in another stream disables the
+   * dictionary.</p>
+   *
+   * @param in
+   *          the input source where to read the data.
+   * @param allowNull
+   *          if it is true, the class to be read could be a null value;
+   *          otherwise, if the class read from the input is null, an
+   *          {@code InvalidFormatException} will be thrown.
+   * @return a class read from the input. Note that it could be null if the
+   *         value read from the input is a null and the argument
+   *         {@code allowNull} is true.
+   * @throws EOFException
+   *           if the input reaches the end before reading the whole class.
+   * @throws InvalidFormatException
+   *           if the value read from the input is a null value and the argument
+   *           {@code allowNull} is false, or the value is an invalid
+   *           back-reference, or the class could not be found.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static Class<?> readSharedClass(final InputStream in,
+      final boolean allowNull) throws IOException {
+    if (! (in instanceof DictionaryInputStream)) {
+      return readClass(in, allowNull);
+    }
+    final DictionaryInputStream dict = (DictionaryInputStream) in;
+    final int tag = readVarInt(in);
+    switch (tag) {
+      case OutputUtils.SHARED_NULL:
+        if (allowNull) {
+          return null;
+        } else {
+          throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
+        }
+      case OutputUtils.SHARED_ENTERED: {
+        final Class<?> result = forName(readUtf(in));
+        dict.addClass(result);
+        return result;
+      }
+      case OutputUtils.SHARED_LITERAL:
+        return forName(readUtf(in));
+      default:
+        return dict.getClass(tag - OutputUtils.SHARED_REFERENCE);
     }
-    return result;
   }
 
   /**
@@ -1539,10 +1677,7 @@ public final class InputUtils {
       } else {
         result.clear();
       }
-      for (int i = 0; i < n; ++i) {
-        final byte value = readByte(in);
-        result.add(value);
-      }
+      readBytes(in, result, n);
       return result;
     }
   }
@@ -1652,9 +1787,7 @@ public final class InputUtils {
       if ((result == null) || (result.length != n)) {
         result = new short[n];
       }
-      for (int i = 0; i < n; ++i) {
-        result[i] = readShort(in);
-      }
+      readShorts(in, result, 0, n);
       return result;
     }
   }
@@ -1711,10 +1844,7 @@ public final class InputUtils {
       } else {
         result.clear();
       }
-      for (int i = 0; i < n; ++i) {
-        final short value = readShort(in);
-        result.add(value);
-      }
+      readShorts(in, result, n);
       return result;
     }
   }
@@ -2003,9 +2133,7 @@ public final class InputUtils {
       if ((result == null) || (result.length != n)) {
         result = new int[n];
       }
-      for (int i = 0; i < n; ++i) {
-        result[i] = readInt(in);
-      }
+      readInts(in, result, 0, n);
       return result;
     }
   }
@@ -2062,10 +2190,7 @@ public final class InputUtils {
       } else {
         result.clear();
       }
-      for (int i = 0; i < n; ++i) {
-        final int value = readInt(in);
-        result.add(value);
-      }
+      readInts(in, result, n);
       return result;
     }
   }
@@ -2180,6 +2305,62 @@ public final class InputUtils {
     }
   }
 
+  /**
+   * Reads an {@code int} array written by
+   * {@link OutputUtils#writeVarIntArray(OutputStream, int[], VarIntFormat)}.
+   *
+   * <p>In the block-oriented formats, the encoded bytes are read at once and
+   * decoded with the lookup tables of the {@link VarIntCodec}.</p>
+   *
+   * @param in
+   *          the input source where to read the data.
+   * @param allowNull
+   *          if it is true, the array to be read could be a null value.
+   * @param result
+   *          an array used to store the result, which could be null. It is
+   *          reused if its length is the same as the length of the array read.
+   * @param format
+   *          the encoding format.
+   * @return the array read from the input, which may be null if
+   *         {@code allowNull} is true.
+   * @throws InvalidFormatException
+   *           if the array read from the input is null, while the argument
+   *           {@code allowNull} is false; or the encoded data is malformed.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static int[] readVarIntArray(final InputStream in,
+      final boolean allowNull, @Nullable int[] result,
+      final VarIntFormat format) throws IOException {
+    if (format == VarIntFormat.LEB128) {
+      return readVarIntArray(in, allowNull, result);
+    }
+    if (readNullMark(in)) {
+      if (allowNull) {
+        return null;
+      } else {
+        throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
+      }
+    }
+    final int n = readVarInt(in);
+    final int size = readVarInt(in);
+    if (size > VarIntCodec.maxEncodedSize(format, n)) {
+      throw new InvalidFormatException("Invalid size of the encoded array.");
+    }
+    final byte[] buffer = new byte[size];
+    readFully(in, buffer, 0, size);
+    if (n == 0) {
+      return ArrayUtils.EMPTY_INT_ARRAY;
+    }
+    if ((result == null) || (result.length != n)) {
+      result = new int[n];
+    }
+    if (VarIntCodec.decode(format, buffer, 0, size, result, 0, n) != size) {
+      throw new InvalidFormatException("Invalid size of the encoded array.");
+    }
+    return result;
+  }
+
   /**
    * Reads a variable length encoded {@code int} list from the input.
    *
@@ -2347,9 +2528,7 @@ public final class InputUtils {
       if ((result == null) || (result.length != n)) {
         result = new long[n];
       }
-      for (int i = 0; i < n; ++i) {
-        result[i] = readLong(in);
-      }
+      readLongs(in, result, 0, n);
       return result;
     }
   }
@@ -2406,10 +2585,7 @@ public final class InputUtils {
       } else {
         result.clear();
       }
-      for (int i = 0; i < n; ++i) {
-        final long value = readLong(in);
-        result.add(value);
-      }
+      readLongs(in, result, n);
       return result;
     }
   }
@@ -2697,9 +2873,7 @@ public final class InputUtils {
       if ((result == null) || (result.length != n)) {
         result = new float[n];
       }
-      for (int i = 0; i < n; ++i) {
-        result[i] = readFloat(in);
-      }
+      readFloats(in, result, 0, n);
       return result;
     }
   }
@@ -2756,10 +2930,7 @@ public final class InputUtils {
       } else {
         result.clear();
       }
-      for (int i = 0; i < n; ++i) {
-        final float value = readFloat(in);
-        result.add(value);
-      }
+      readFloats(in, result, n);
       return result;
     }
   }
@@ -2869,9 +3040,7 @@ public final class InputUtils {
       if ((result == null) || (result.length != n)) {
         result = new double[n];
       }
-      for (int i = 0; i < n; ++i) {
-        result[i] = readDouble(in);
-      }
+      readDoubles(in, result, 0, n);
       return result;
     }
   }
@@ -2928,10 +3097,7 @@ public final class InputUtils {
       } else {
         result.clear();
       }
-      for (int i = 0; i < n; ++i) {
-        final double value = readDouble(in);
-        result.add(value);
-      }
+      readDoubles(in, result, n);
       return result;
     }
   }
@@ -3437,4 +3603,348 @@ public final class InputUtils {
       return result;
     }
   }
+
+  /**
+   * Loads a class by its name.
+   */
+  private static Class<?> forName(final String className)
+      throws InvalidFormatException {
+    try {
+      return Class.forName(className);
+    } catch (final ClassNotFoundException e) {
+      throw new InvalidFormatException(e);
+    }
+  }
+
+  /**
+   * The maximum size of the thread-local buffers used to decode strings.
+   * Longer strings are decoded with temporary arrays, so that a thread does
+   * not retain a huge buffer after reading a huge string.
+   */
+  private static final int MAX_STRING_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * The thread-local buffer used to read the encoded bytes of strings.
+   */
+  private static final ThreadLocal<byte[]> STRING_BYTES =
+      new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[256];
+    }
+  };
+
+  /**
+   * The thread-local buffer used to store the decoded characters of strings.
+   */
+  private static final ThreadLocal<char[]> STRING_CHARS =
+      new ThreadLocal<char[]>() {
+    @Override
+    protected char[] initialValue() {
+      return new char[256];
+    }
+  };
+
+  /**
+   * Gets a byte array of at least the specified length, reusing the
+   * thread-local buffer if possible.
+   */
+  private static byte[] getStringBytes(final int n) {
+    if (n > MAX_STRING_BUFFER_SIZE) {
+      return new byte[n];
+    }
+    byte[] result = STRING_BYTES.get();
+    if (result.length < n) {
+      result = new byte[Math.min(Math.max(n, result.length * 2),
+          MAX_STRING_BUFFER_SIZE)];
+      STRING_BYTES.set(result);
+    }
+    return result;
+  }
+
+  /**
+   * Gets a char array of at least the specified length, reusing the
+   * thread-local buffer if possible.
+   */
+  private static char[] getStringChars(final int n) {
+    if (n > MAX_STRING_BUFFER_SIZE) {
+      return new char[n];
+    }
+    char[] result = STRING_CHARS.get();
+    if (result.length < n) {
+      result = new char[Math.min(Math.max(n, result.length * 2),
+          MAX_STRING_BUFFER_SIZE)];
+      STRING_CHARS.set(result);
+    }
+    return result;
+  }
+
+  /**
+   * Tests whether the first {@code n} bytes of an array are all ASCII bytes.
+   *
+   * <p>The bytes are tested a word of 8 bytes at a time: the bytes of a word
+   * are or-ed together and their high bits are tested with a single branch.
+   * </p>
+   */
+  private static boolean isAscii(final byte[] bytes, final int n) {
+    int i = 0;
+    for (final int end = n - 7; i < end; i += 8) {
+      final int word = bytes[i] | bytes[i + 1] | bytes[i + 2] | bytes[i + 3]
+          | bytes[i + 4] | bytes[i + 5] | bytes[i + 6] | bytes[i + 7];
+      if ((word & 0x80) != 0) {
+        return false;
+      }
+    }
+    int word = 0;
+    for (; i < n; ++i) {
+      word |= bytes[i];
+    }
+    return (word & 0x80) == 0;
+  }
+
+  /**
+   * The size in bytes of the buffer used to bulk read arrays and lists of
+   * fixed width primitive values.
+   */
+  private static final int BULK_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Reads the specified number of {@code byte} values from the input, and
+   * appends them to a list.
+   *
+   * <p>The values are read chunk by chunk with {@link #readFully}; if the list
+   * is an {@link ArrayByteList}, each chunk is appended with a single array
+   * copy.</p>
+   */
+  private static void readBytes(final InputStream in, final ByteList result,
+      final int n) throws IOException {
+    final byte[] chunk = new byte[Math.min(n, BULK_BUFFER_SIZE)];
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, chunk.length);
+      readFully(in, chunk, 0, count);
+      if (result instanceof ArrayByteList) {
+        ((ArrayByteList) result).addAll(chunk, 0, count);
+      } else {
+        for (int i = 0; i < count; ++i) {
+          result.add(chunk[i]);
+        }
+      }
+      remained -= count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code short} values from
+   * the input.
+   *
+   * <p>The bytes are read chunk by chunk with {@link #readFully}, and each
+   * chunk is decoded through a {@link ShortBuffer} view, instead of reading the
+   * values one by one.</p>
+   */
+  private static void readShorts(final InputStream in, final short[] result,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 2) * 2];
+    final ShortBuffer view = ByteBuffer.wrap(bytes).asShortBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      readFully(in, bytes, 0, count * 2);
+      view.clear();
+      view.get(result, i, count);
+      i += count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code short} values from
+   * the input, and appends them to a list.
+   */
+  private static void readShorts(final InputStream in, final ShortList result,
+      final int n) throws IOException {
+    final short[] chunk = new short[Math.min(n, BULK_BUFFER_SIZE / 2)];
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, chunk.length);
+      readShorts(in, chunk, 0, count);
+      if (result instanceof ArrayShortList) {
+        ((ArrayShortList) result).addAll(chunk, 0, count);
+      } else {
+        for (int i = 0; i < count; ++i) {
+          result.add(chunk[i]);
+        }
+      }
+      remained -= count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code int} values from
+   * the input.
+   *
+   * <p>The bytes are read chunk by chunk with {@link #readFully}, and each
+   * chunk is decoded through a {@link IntBuffer} view, instead of reading the
+   * values one by one.</p>
+   */
+  private static void readInts(final InputStream in, final int[] result,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 4) * 4];
+    final IntBuffer view = ByteBuffer.wrap(bytes).asIntBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      readFully(in, bytes, 0, count * 4);
+      view.clear();
+      view.get(result, i, count);
+      i += count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code int} values from
+   * the input, and appends them to a list.
+   */
+  private static void readInts(final InputStream in, final IntList result,
+      final int n) throws IOException {
+    final int[] chunk = new int[Math.min(n, BULK_BUFFER_SIZE / 4)];
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, chunk.length);
+      readInts(in, chunk, 0, count);
+      if (result instanceof ArrayIntList) {
+        ((ArrayIntList) result).addAll(chunk, 0, count);
+      } else {
+        for (int i = 0; i < count; ++i) {
+          result.add(chunk[i]);
+        }
+      }
+      remained -= count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code long} values from
+   * the input.
+   *
+   * <p>The bytes are read chunk by chunk with {@link #readFully}, and each
+   * chunk is decoded through a {@link LongBuffer} view, instead of reading the
+   * values one by one.</p>
+   */
+  private static void readLongs(final InputStream in, final long[] result,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 8) * 8];
+    final LongBuffer view = ByteBuffer.wrap(bytes).asLongBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      readFully(in, bytes, 0, count * 8);
+      view.clear();
+      view.get(result, i, count);
+      i += count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code long} values from
+   * the input, and appends them to a list.
+   */
+  private static void readLongs(final InputStream in, final LongList result,
+      final int n) throws IOException {
+    final long[] chunk = new long[Math.min(n, BULK_BUFFER_SIZE / 8)];
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, chunk.length);
+      readLongs(in, chunk, 0, count);
+      if (result instanceof ArrayLongList) {
+        ((ArrayLongList) result).addAll(chunk, 0, count);
+      } else {
+        for (int i = 0; i < count; ++i) {
+          result.add(chunk[i]);
+        }
+      }
+      remained -= count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code float} values from
+   * the input.
+   *
+   * <p>The bytes are read chunk by chunk with {@link #readFully}, and each
+   * chunk is decoded through a {@link FloatBuffer} view, instead of reading the
+   * values one by one.</p>
+   */
+  private static void readFloats(final InputStream in, final float[] result,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 4) * 4];
+    final FloatBuffer view = ByteBuffer.wrap(bytes).asFloatBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      readFully(in, bytes, 0, count * 4);
+      view.clear();
+      view.get(result, i, count);
+      i += count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code float} values from
+   * the input, and appends them to a list.
+   */
+  private static void readFloats(final InputStream in, final FloatList result,
+      final int n) throws IOException {
+    final float[] chunk = new float[Math.min(n, BULK_BUFFER_SIZE / 4)];
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, chunk.length);
+      readFloats(in, chunk, 0, count);
+      if (result instanceof ArrayFloatList) {
+        ((ArrayFloatList) result).addAll(chunk, 0, count);
+      } else {
+        for (int i = 0; i < count; ++i) {
+          result.add(chunk[i]);
+        }
+      }
+      remained -= count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code double} values from
+   * the input.
+   *
+   * <p>The bytes are read chunk by chunk with {@link #readFully}, and each
+   * chunk is decoded through a {@link DoubleBuffer} view, instead of reading the
+   * values one by one.</p>
+   */
+  private static void readDoubles(final InputStream in, final double[] result,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 8) * 8];
+    final DoubleBuffer view = ByteBuffer.wrap(bytes).asDoubleBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      readFully(in, bytes, 0, count * 8);
+      view.clear();
+      view.get(result, i, count);
+      i += count;
+    }
+  }
+
+  /**
+   * Reads the specified number of big-endian encoded {@code double} values from
+   * the input, and appends them to a list.
+   */
+  private static void readDoubles(final InputStream in, final DoubleList result,
+      final int n) throws IOException {
+    final double[] chunk = new double[Math.min(n, BULK_BUFFER_SIZE / 8)];
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, chunk.length);
+      readDoubles(in, chunk, 0, count);
+      if (result instanceof ArrayDoubleList) {
+        ((ArrayDoubleList) result).addAll(chunk, 0, count);
+      } else {
+        for (int i = 0; i < count; ++i) {
+          result.add(chunk[i]);
+        }
+      }
+      remained -= count;
+    }
+  }
 }
@@ -25,13 +25,15 @@ import java.io.ByteArrayOutputStream;
 import java.io.CharArrayWriter;
 import java.io.Closeable;
 import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
-import java.io.StringWriter;
 import java.io.Writer;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 
 import javax.annotation.concurrent.ThreadSafe;
@@ -456,9 +458,14 @@ public final class IoUtils {
    *           if an I/O error occurs
    */
   public static String toString(final Reader input) throws IOException {
-    final StringWriter output = new StringWriter();
-    copy(input, Long.MAX_VALUE, output);
-    return output.toString();
+    // unlike the StringWriter, the StringBuilder is not synchronized
+    final StringBuilder builder = new StringBuilder();
+    final char[] buffer = new char[BUFFER_SIZE];
+    int n;
+    while ((n = input.read(buffer)) >= 0) {
+      builder.append(buffer, 0, n);
+    }
+    return builder.toString();
   }
 
   /**
@@ -487,6 +494,35 @@ public final class IoUtils {
     return result;
   }
 
+  /**
+   * Creates a streaming cursor over the lines of a {@code Reader}, which does
+   * not create a String per line.
+   *
+   * @param input
+   *          the {@code Reader} to read from, not null. It will be closed when
+   *          the cursor is closed.
+   * @return the cursor over the lines of the reader.
+   * @see LineCursor
+   */
+  public static LineCursor lineCursor(final Reader input) {
+    return new LineCursor(input);
+  }
+
+  /**
+   * Creates a streaming cursor over the lines of a memory-mapped UTF-8 file,
+   * which does not create a String per line.
+   *
+   * @param file
+   *          the file to read.
+   * @return the cursor over the lines of the file.
+   * @throws IOException
+   *           if an I/O error occurs
+   * @see MmapLineCursor
+   */
+  public static MmapLineCursor lineCursor(final File file) throws IOException {
+    return new MmapLineCursor(file);
+  }
+
   /**
    * Writes the {@code toString()} value of each item in a collection to a
    * {@code Writer} line by line, using the specified line ending.
@@ -523,8 +559,8 @@ public final class IoUtils {
   /**
    * Compare the contents of two input streams lexicographically.
    *
-   * This method buffers the input internally using
-   * {@code BufferedInputStream} if they are not already buffered.
+   * This method reads the inputs in blocks, and compares the blocks 8 bytes
+   * at a time. It may read beyond the first different byte.
    *
    * Note that after calling this function, the two input streams were NOT
    * closed by this function, instead, they MUST be closed by the caller.
@@ -539,33 +575,87 @@ public final class IoUtils {
    * @throws IOException
    *           if an I/O error occurs
    */
-  public static int compareContent(InputStream input1, InputStream input2)
-      throws IOException {
-    if (! (input1 instanceof BufferedInputStream)) {
-      input1 = new BufferedInputStream(input1);
+  public static int compareContent(final InputStream input1,
+      final InputStream input2) throws IOException {
+    final byte[] buffer1 = new byte[BUFFER_SIZE];
+    final byte[] buffer2 = new byte[BUFFER_SIZE];
+    while (true) {
+      final int n1 = fill(input1, buffer1);
+      final int n2 = fill(input2, buffer2);
+      final int n = Math.min(n1, n2);
+      final int m = mismatch(ByteBuffer.wrap(buffer1, 0, n),
+          ByteBuffer.wrap(buffer2, 0, n));
+      if (m >= 0) {
+        return (buffer1[m] & 0xFF) - (buffer2[m] & 0xFF);
+      }
+      if (n1 != n2) {
+        // the shorter input is a prefix of the longer one
+        return (n1 < n2 ? -1 : +1);
+      }
+      if (n1 < buffer1.length) {
+        return 0;
+      }
     }
-    if (! (input2 instanceof BufferedInputStream)) {
-      input2 = new BufferedInputStream(input2);
+  }
+
+  /**
+   * Reads from an input stream until the buffer is full or the end of the
+   * stream is reached.
+   */
+  private static int fill(final InputStream in, final byte[] buffer)
+      throws IOException {
+    int count = 0;
+    while (count < buffer.length) {
+      final int n = in.read(buffer, count, buffer.length - count);
+      if (n < 0) {
+        break;
+      }
+      count += n;
     }
-    int ch1 = input1.read();
-    while (ch1 != -1) {
-      final int ch2 = input2.read();
-      if (ch1 != ch2) {
-        if (ch2 == -1) {
-          // input2 is shorter than input1
-          return +1;
-        } else {
-          return (ch1 - ch2);
-        }
+    return count;
+  }
+
+  /**
+   * Finds the first mismatch between the remaining bytes of two byte buffers.
+   * <p>
+   * The bytes are compared 8 at a time. The positions and the byte orders of
+   * the buffers are not changed.
+   *
+   * @param buffer1
+   *          the first buffer.
+   * @param buffer2
+   *          the second buffer.
+   * @return the index, relative to the positions of the buffers, of the first
+   *         mismatching byte; or the smaller number of the remaining bytes if
+   *         the remaining bytes of one buffer is a proper prefix of the
+   *         other's; or -1 if the remaining bytes of the two buffers are
+   *         identical.
+   */
+  public static int mismatch(final ByteBuffer buffer1, final ByteBuffer buffer2) {
+    final int pos1 = buffer1.position();
+    final int pos2 = buffer2.position();
+    final int n = Math.min(buffer1.remaining(), buffer2.remaining());
+    // in the big endian order, the first different byte of two words is the
+    // most significant different byte; the words are read from the duplicates
+    // of the buffers so that the orders of the buffers are not changed
+    final ByteBuffer bigEndian1 =
+        buffer1.duplicate().order(ByteOrder.BIG_ENDIAN);
+    final ByteBuffer bigEndian2 =
+        buffer2.duplicate().order(ByteOrder.BIG_ENDIAN);
+    int i = 0;
+    for (; i + 8 <= n; i += 8) {
+      final long diff = bigEndian1.getLong(pos1 + i)
+          ^ bigEndian2.getLong(pos2 + i);
+      if (diff != 0) {
+        return i + (Long.numberOfLeadingZeros(diff) >>> 3);
       }
-      ch1 = input1.read();
     }
-    if (input2.read() == -1) {
-      return 0;
-    } else {
-      // input2 is longer than input1
-      return -1;
+    for (; i < n; ++i) {
+      if (buffer1.get(pos1 + i) != buffer2.get(pos2 + i)) {
+        return i;
+      }
     }
+    return (buffer1.remaining() == buffer2.remaining() ? -1 : n);
   }
 
   /**
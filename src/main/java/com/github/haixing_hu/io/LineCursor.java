@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A streaming cursor over the lines, or the delimited records, of a
+ * {@link Reader}.
+ * <p>
+ * Unlike {@link IoUtils#readLines(Reader)}, this cursor does not create a
+ * {@link String} for each line. The current line is exposed as a reusable
+ * {@link CharSequence} window over the internal buffer of the cursor, which
+ * is only valid until the next call of {@link #next()}.
+ * <p>
+ * In the line mode, a line is terminated by a line feed ('\n'), a carriage
+ * return ('\r'), or a carriage return followed immediately by a line feed, as
+ * {@link java.io.BufferedReader#readLine()} does. In the record mode, a record
+ * is terminated by the specified delimiter. The terminators are not included
+ * in the lines or records, and the last line or record is not required to be
+ * terminated.
+ *
+ * @author Haixing Hu
+ * @see MmapLineCursor
+ */
+@NotThreadSafe
+public final class LineCursor implements Closeable {
+
+  private static final int LINE_MODE = - 1;
+
+  private Reader reader;
+  private final int delimiter;
+  private char[] buffer;
+  private CharBuffer window;
+  private int start;
+  private int limit;
+  private boolean eof;
+  private boolean skipLineFeed;
+  private long lineNumber;
+
+  /**
+   * Constructs a {@link LineCursor} in the line mode.
+   *
+   * @param reader
+   *          the reader to read. It will be closed when this cursor is closed.
+   */
+  public LineCursor(final Reader reader) {
+    this(reader, LINE_MODE, IoUtils.BUFFER_SIZE);
+  }
+
+  /**
+   * Constructs a {@link LineCursor} in the record mode.
+   *
+   * @param reader
+   *          the reader to read. It will be closed when this cursor is closed.
+   * @param delimiter
+   *          the delimiter of the records.
+   */
+  public LineCursor(final Reader reader, final char delimiter) {
+    this(reader, delimiter, IoUtils.BUFFER_SIZE);
+  }
+
+  private LineCursor(final Reader reader, final int delimiter,
+      final int bufferSize) {
+    this.reader = requireNonNull("reader", reader);
+    this.delimiter = delimiter;
+    buffer = new char[bufferSize];
+    window = CharBuffer.wrap(buffer);
+    window.limit(0);
+    start = 0;
+    limit = 0;
+    eof = false;
+    skipLineFeed = false;
+    lineNumber = 0;
+  }
+
+  /**
+   * Advances this cursor to the next line.
+   *
+   * @return true if the cursor is positioned at the next line; false if there
+   *         is no more line.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public boolean next() throws IOException {
+    if (reader == null) {
+      throw new AlreadyClosedException();
+    }
+    int scan = start;
+    while (true) {
+      if (skipLineFeed) {
+        if (scan < limit) {
+          if (buffer[scan] == '\n') {
+            ++scan;
+            start = scan;
+          }
+          skipLineFeed = false;
+        } else if (eof) {
+          skipLineFeed = false;
+        }
+      }
+      if (! skipLineFeed) {
+        for (; scan < limit; ++scan) {
+          final char ch = buffer[scan];
+          if (delimiter == LINE_MODE) {
+            if ((ch == '\n') || (ch == '\r')) {
+              skipLineFeed = (ch == '\r');
+              return found(scan, scan + 1);
+            }
+          } else if (ch == delimiter) {
+            return found(scan, scan + 1);
+          }
+        }
+      }
+      if (eof) {
+        if (start < limit) {
+          return found(limit, limit);    // the unterminated last line
+        }
+        window.limit(0);
+        return false;
+      }
+      scan -= fill();
+    }
+  }
+
+  private boolean found(final int end, final int next) {
+    window.limit(end).position(start);
+    start = next;
+    ++lineNumber;
+    return true;
+  }
+
+  /**
+   * Reads more characters into the buffer, moving the unfinished line to the
+   * beginning of the buffer and growing the buffer if necessary.
+   *
+   * @return the number of characters the unfinished line is moved backwards.
+   */
+  private int fill() throws IOException {
+    final int shift = start;
+    if (shift > 0) {
+      System.arraycopy(buffer, shift, buffer, 0, limit - shift);
+      limit -= shift;
+      start = 0;
+    } else if (limit == buffer.length) {
+      final char[] newBuffer = new char[buffer.length * 2];
+      System.arraycopy(buffer, 0, newBuffer, 0, limit);
+      buffer = newBuffer;
+      window = CharBuffer.wrap(buffer);
+    }
+    final int n = reader.read(buffer, limit, buffer.length - limit);
+    if (n < 0) {
+      eof = true;
+    } else {
+      limit += n;
+    }
+    return shift;
+  }
+
+  /**
+   * Gets the current line.
+   * <p>
+   * The returned object is reused by this cursor, and is only valid until the
+   * next call of {@link #next()}.
+   *
+   * @return the current line, without its terminator.
+   */
+  public CharSequence getLine() {
+    return window;
+  }
+
+  /**
+   * Gets the current line as a string.
+   *
+   * @return the current line, without its terminator.
+   */
+  public String getLineAsString() {
+    return window.toString();
+  }
+
+  /**
+   * Gets the number of lines read by this cursor, which is also the 1-based
+   * line number of the current line.
+   *
+   * @return the number of lines read by this cursor.
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (reader != null) {
+      try {
+        reader.close();
+      } finally {
+        reader = null;
+        window.limit(0);
+      }
+    }
+  }
+}
@@ -30,11 +30,16 @@ import com.github.haixing_hu.lang.SystemUtils;
 
 /**
  * A {@link SeekableInputStream} to read data from a file using a mmap.
+ * <p>
+ * The sequential reading functions of this class are not thread safe, but the
+ * positional reading functions of the {@link PositionalReadable} interface
+ * are thread safe.
  *
  * @author Haixing Hu
  */
 @NotThreadSafe
-public final class MmapFileInputStream extends SeekableInputStream {
+public final class MmapFileInputStream extends SeekableInputStream
+    implements PositionalReadable {
 
   private ByteBuffer buffer;
 
@@ -111,6 +116,46 @@ public final class MmapFileInputStream extends SeekableInputStream {
     buffer.position((int)pos);
   }
 
+  @Override
+  public int read(final long pos, final byte[] buf, final int off,
+      final int len) throws IOException {
+    final ByteBuffer buf0 = buffer;
+    if (buf0 == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((off < 0) || (len < 0) || (off > buf.length - len)) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (pos < 0) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    final int limit = buf0.limit();
+    if (pos >= limit) {
+      return -1;
+    }
+    final int count = (int) Math.min(len, limit - pos);
+    // the duplicated buffer has its own position, so that concurrent
+    // reading does not interfere with each other.
+    final ByteBuffer dup = buf0.duplicate();
+    dup.position((int) pos);
+    dup.get(buf, off, count);
+    return count;
+  }
+
+  @Override
+  public ByteBuffer slice(final long pos, final int len) throws IOException {
+    final ByteBuffer buf0 = buffer;
+    if (buf0 == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((pos < 0) || (len < 0) || (pos + len > buf0.limit())) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    final ByteBuffer dup = buf0.duplicate();
+    dup.position((int) pos).limit((int) pos + len);
+    return dup.slice().asReadOnlyBuffer();
+  }
+
   @Override
   public void close() throws IOException {
     if (buffer != null) {
@@ -0,0 +1,364 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.text.CharsetUtils;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A streaming cursor over the lines, or the delimited records, of a
+ * memory-mapped UTF-8 file.
+ * <p>
+ * The file is mapped in windows of {@link #WINDOW_SIZE} bytes (or larger, if
+ * a line is longer), and each line is exposed either as its byte offset and
+ * length, as a reusable {@link ByteBuffer} view of the mapped bytes, or as a
+ * reusable {@link CharSequence} decoded on demand. None of them allocates an
+ * object per line, and the reusable objects are only valid until the next
+ * call of {@link #next()}. The mapped windows are released by the garbage
+ * collector, so that the views could never refer to unmapped memory.
+ * <p>
+ * A line is terminated by the delimiter byte, which is a line feed by
+ * default; a carriage return preceding a line feed is also removed from the
+ * line. The last line is not required to be terminated.
+ * <p>
+ * A file could be split into several cursors over disjoint byte ranges with
+ * {@link #split(File, int)}, which could be processed in parallel. A cursor
+ * over the range {@code [start, end)} reads the lines beginning in the range,
+ * and the last of them may extend beyond the end of the range.
+ *
+ * @author Haixing Hu
+ * @see LineCursor
+ */
+@NotThreadSafe
+public final class MmapLineCursor implements Closeable {
+
+  /**
+   * The default size of the mapped windows.
+   */
+  public static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+  private static final byte LINE_FEED = '\n';
+
+  private final RandomAccessFile descriptor;
+  private final FileChannel channel;
+  private final long fileSize;
+  private final long end;
+  private final byte delimiter;
+  private final CharsetDecoder decoder;
+  private boolean closed;
+  private MappedByteBuffer window;
+  private ByteBuffer view;
+  private long windowStart;
+  private long next;
+  private long lineStart;
+  private int lineLength;
+  private CharBuffer chars;
+  private boolean decoded;
+
+  /**
+   * Constructs a {@link MmapLineCursor} over the lines of a whole file.
+   *
+   * @param file
+   *          the file to read.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public MmapLineCursor(final File file) throws IOException {
+    this(file, 0, Long.MAX_VALUE, LINE_FEED);
+  }
+
+  /**
+   * Constructs a {@link MmapLineCursor} over the lines or records beginning
+   * in a byte range of a file.
+   *
+   * @param file
+   *          the file to read.
+   * @param start
+   *          the start of the byte range.
+   * @param end
+   *          the end of the byte range; it could be greater than the size of
+   *          the file.
+   * @param delimiter
+   *          the delimiter of the lines or records.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public MmapLineCursor(final File file, final long start, final long end,
+      final byte delimiter) throws IOException {
+    requireNonNull("file", file);
+    if ((start < 0) || (end < start)) {
+      throw new IllegalArgumentException("Invalid range: [" + start + ", "
+          + end + ")");
+    }
+    this.delimiter = delimiter;
+    this.decoder = CharsetUtils.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    descriptor = new RandomAccessFile(file, "r");
+    channel = descriptor.getChannel();
+    fileSize = channel.size();
+    this.end = Math.min(end, fileSize);
+    closed = false;
+    window = null;
+    view = null;
+    windowStart = 0;
+    lineStart = -1;
+    lineLength = 0;
+    chars = CharBuffer.allocate(256);
+    decoded = false;
+    try {
+      next = (start == 0 ? 0 : findDelimiter(start - 1) + 1);
+    } catch (final IOException e) {
+      IoUtils.closeQuietly(descriptor);
+      throw e;
+    }
+  }
+
+  /**
+   * Splits a file into cursors over disjoint byte ranges of roughly equal
+   * sizes, which together read all the lines of the file.
+   *
+   * @param file
+   *          the file to split.
+   * @param n
+   *          the number of cursors, which must be positive.
+   * @return the list of cursors, in the order of their ranges. They must be
+   *         closed by the caller.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static List<MmapLineCursor> split(final File file, final int n)
+      throws IOException {
+    if (n <= 0) {
+      throw new IllegalArgumentException("The number of splits must be positive.");
+    }
+    final long size = file.length();
+    final List<MmapLineCursor> result = new ArrayList<MmapLineCursor>(n);
+    try {
+      for (int i = 0; i < n; ++i) {
+        final long start = (size * i) / n;
+        final long end = (i == n - 1 ? Long.MAX_VALUE : (size * (i + 1)) / n);
+        result.add(new MmapLineCursor(file, start, end, LINE_FEED));
+      }
+    } catch (final IOException e) {
+      for (final MmapLineCursor cursor : result) {
+        IoUtils.closeQuietly(cursor);
+      }
+      throw e;
+    }
+    return result;
+  }
+
+  /**
+   * Maps a window of the file containing a position.
+   */
+  private void map(final long pos, final long minSize) throws IOException {
+    final long size = Math.min(Math.max(WINDOW_SIZE, minSize), fileSize - pos);
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("The line is too long at " + pos);
+    }
+    window = channel.map(MapMode.READ_ONLY, pos, size);
+    view = window.duplicate();
+    windowStart = pos;
+  }
+
+  /**
+   * Finds the position of the first delimiter at or after a position.
+   *
+   * @return the position of the delimiter, or the size of the file if there
+   *         is no delimiter.
+   */
+  private long findDelimiter(final long pos) throws IOException {
+    if (pos >= fileSize) {
+      return fileSize;
+    }
+    if ((window == null) || (pos < windowStart)
+        || (pos >= windowStart + window.limit())) {
+      map(pos, 0);
+    }
+    long scanned = pos;
+    while (true) {
+      final int limit = window.limit();
+      for (int i = (int) (scanned - windowStart); i < limit; ++i) {
+        if (window.get(i) == delimiter) {
+          return windowStart + i;
+        }
+      }
+      scanned = windowStart + limit;
+      if (scanned >= fileSize) {
+        return fileSize;
+      }
+      // remap from the start position, so that the whole line is in a window
+      map(pos, 2L * (scanned - pos));
+    }
+  }
+
+  /**
+   * Advances this cursor to the next line.
+   *
+   * @return true if the cursor is positioned at the next line; false if there
+   *         is no more line beginning in the range of this cursor.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public boolean next() throws IOException {
+    if (closed) {
+      throw new AlreadyClosedException();
+    }
+    if ((next >= end) || (next >= fileSize)) {
+      lineStart = -1;
+      lineLength = 0;
+      return false;
+    }
+    final long pos = findDelimiter(next);
+    lineStart = next;
+    long length = pos - next;
+    if ((delimiter == LINE_FEED) && (length > 0)
+        && (window.get((int) (pos - 1 - windowStart)) == '\r')) {
+      --length;
+    }
+    lineLength = (int) length;
+    next = pos + 1;
+    decoded = false;
+    return true;
+  }
+
+  /**
+   * Gets the byte offset of the current line in the file.
+   *
+   * @return the byte offset of the current line in the file.
+   */
+  public long getLineStart() {
+    return lineStart;
+  }
+
+  /**
+   * Gets the length in bytes of the current line, without its terminator.
+   *
+   * @return the length in bytes of the current line.
+   */
+  public int getLineLength() {
+    return lineLength;
+  }
+
+  /**
+   * Gets the bytes of the current line.
+   * <p>
+   * The returned buffer is a read-only view of the mapped file, whose position
+   * and limit are set to the current line. It is reused by this cursor, and
+   * is only valid until the next call of {@link #next()}.
+   *
+   * @return the bytes of the current line.
+   */
+  public ByteBuffer getLineBytes() {
+    if (lineStart < 0) {
+      throw new IllegalStateException("No current line.");
+    }
+    final int offset = (int) (lineStart - windowStart);
+    view.limit(offset + lineLength).position(offset);
+    return view;
+  }
+
+  /**
+   * Gets the characters of the current line, decoded in UTF-8.
+   * <p>
+   * The returned object is reused by this cursor, and is only valid until the
+   * next call of {@link #next()}. Lines in ASCII are decoded without the
+   * charset decoder.
+   *
+   * @return the characters of the current line.
+   */
+  public CharSequence getLine() {
+    if (! decoded) {
+      decode();
+      decoded = true;
+    }
+    return chars;
+  }
+
+  /**
+   * Gets the current line as a string, decoded in UTF-8.
+   *
+   * @return the current line.
+   */
+  public String getLineAsString() {
+    return getLine().toString();
+  }
+
+  private void decode() {
+    final ByteBuffer bytes = getLineBytes();
+    if (chars.capacity() < lineLength) {
+      chars = CharBuffer.allocate(Math.max(lineLength, chars.capacity() * 2));
+    }
+    chars.clear();
+    final char[] array = chars.array();
+    final int offset = bytes.position();
+    int i = 0;
+    for (; i < lineLength; ++i) {
+      final byte b = bytes.get(offset + i);
+      if (b < 0) {
+        break;
+      }
+      array[i] = (char) b;
+    }
+    if (i < lineLength) {
+      // not in ASCII; the decoded characters are no more than the bytes
+      bytes.position(offset + i);
+      chars.position(i);
+      decoder.reset();
+      final CoderResult result = decoder.decode(bytes, chars, true);
+      if (result.isError()) {
+        // never happens, since the errors are replaced
+        throw new IllegalStateException(new CharacterCodingException());
+      }
+      decoder.flush(chars);
+      chars.flip();
+    } else {
+      chars.limit(lineLength);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (! closed) {
+      closed = true;
+      window = null;
+      view = null;
+      descriptor.close();
+    }
+  }
+}
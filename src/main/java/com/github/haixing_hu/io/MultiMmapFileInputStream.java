@@ -26,17 +26,24 @@ import java.nio.channels.FileChannel.MapMode;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.io.exception.InvalidSeekPositionException;
 import com.github.haixing_hu.lang.SystemUtils;
 
 import static com.github.haixing_hu.CommonsMessages.BUFFER_SIZE_MUST_POSITIVE;
 
 /**
  * A {@link SeekableInputStream} to read data from a file using mutiple mmaps.
+ * <p>
+ * The sequential reading functions of this class are not thread safe, but the
+ * positional reading functions of the {@link PositionalReadable} interface
+ * are thread safe, and they could read bytes across the boundaries of the
+ * mapped regions.
  *
  * @author Haixing Hu
  */
 @NotThreadSafe
-public final class MultiMmapFileInputStream extends SeekableInputStream {
+public final class MultiMmapFileInputStream extends SeekableInputStream
+    implements PositionalReadable {
 
   private final int        maxBufferSize;
   private ByteBuffer[]     buffers;
@@ -168,6 +175,66 @@ public final class MultiMmapFileInputStream extends SeekableInputStream {
     available = buffer.remaining();
   }
 
+  @Override
+  public int read(final long pos, final byte[] buf, final int off,
+      final int len) throws IOException {
+    final ByteBuffer[] buffers0 = buffers;
+    if (buffers0 == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((off < 0) || (len < 0) || (off > buf.length - len)) {
+      throw new IndexOutOfBoundsException();
+    }
+    if (pos < 0) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    if (pos >= length) {
+      return -1;
+    }
+    final int total = (int) Math.min(len, length - pos);
+    int count = 0;
+    int i = (int) (pos / maxBufferSize);
+    int bufferPos = (int) (pos - ((long) i * maxBufferSize));
+    while (count < total) {
+      // the duplicated buffer has its own position, so that concurrent
+      // reading does not interfere with each other.
+      final ByteBuffer dup = buffers0[i].duplicate();
+      dup.position(bufferPos);
+      final int n = Math.min(total - count, dup.remaining());
+      dup.get(buf, off + count, n);
+      count += n;
+      ++i;
+      bufferPos = 0;
+    }
+    return count;
+  }
+
+  @Override
+  public ByteBuffer slice(final long pos, final int len) throws IOException {
+    final ByteBuffer[] buffers0 = buffers;
+    if (buffers0 == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((pos < 0) || (len < 0) || (pos > length - len)) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    if (len == 0) {
+      return ByteBuffer.allocate(0).asReadOnlyBuffer();
+    }
+    final int i = (int) (pos / maxBufferSize);
+    final int bufferPos = (int) (pos - ((long) i * maxBufferSize));
+    if (bufferPos + len <= buffers0[i].limit()) {
+      final ByteBuffer dup = buffers0[i].duplicate();
+      dup.position(bufferPos).limit(bufferPos + len);
+      return dup.slice().asReadOnlyBuffer();
+    } else {
+      // the range spans several mapped regions
+      final byte[] bytes = new byte[len];
+      read(pos, bytes, 0, len);
+      return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+  }
+
   @Override
   public void close() throws IOException {
     if (buffer != null) {
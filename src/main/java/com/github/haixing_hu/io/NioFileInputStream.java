@@ -18,15 +18,29 @@ package com.github.haixing_hu.io;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.github.haixing_hu.io.exception.AlreadyClosedException;
 
 /**
  * A {@link SeekableInputStream} which reads data from a file using the
  * {@code java.nio} APIs.
+ * <p>
+ * If a positive read-ahead depth is specified, the stream reads the file
+ * through an {@link AsynchronousFileChannel}, and keeps the specified number
+ * of buffers being filled in the background ahead of the current position,
+ * so that a sequential scan does not stall on every refilling of the buffer.
+ * The pending read-ahead is cancelled on seeking out of the current buffer.
+ * Note that in this mode the stream does not read the data appended to the
+ * file after it was opened.
  *
  * @author Haixing Hu
  */
@@ -39,23 +53,97 @@ public class NioFileInputStream extends SeekableInputStream {
   private ByteBuffer buffer;
   private long offset;
   private long length;
+  private final int readAheadDepth;
+  private AsynchronousFileChannel asyncChannel;
+  private ArrayDeque<Prefetch> prefetches;
+  private ArrayDeque<ByteBuffer> freeBuffers;
+  private long prefetchPosition;
+  private long stallCount;
+  private long stallNanos;
 
   public NioFileInputStream(final File file) throws IOException {
     this(file, DEFAULT_BUFFER_SIZE);
   }
 
   public NioFileInputStream(final File file, final int bufferSize) throws IOException {
+    this(file, bufferSize, 0);
+  }
+
+  /**
+   * Constructs a {@link NioFileInputStream}.
+   *
+   * @param file
+   *          the file to read.
+   * @param bufferSize
+   *          the size of each buffer.
+   * @param readAheadDepth
+   *          the number of buffers read ahead in the background. If it is 0,
+   *          the buffer is refilled synchronously; if it is 1, the file is
+   *          double buffered; and so on.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public NioFileInputStream(final File file, final int bufferSize,
+      final int readAheadDepth) throws IOException {
     super();
-    descriptor = new RandomAccessFile(file, "r");
-    channel = descriptor.getChannel();
-    buffer = ByteBuffer.allocate(bufferSize);
+    if (readAheadDepth < 0) {
+      throw new IllegalArgumentException("The read-ahead depth must be "
+          + "non-negative: " + readAheadDepth);
+    }
+    this.readAheadDepth = readAheadDepth;
+    if (readAheadDepth == 0) {
+      descriptor = new RandomAccessFile(file, "r");
+      channel = descriptor.getChannel();
+      buffer = ByteBuffer.allocate(bufferSize);
+      length = descriptor.length();
+    } else {
+      asyncChannel = AsynchronousFileChannel.open(file.toPath(),
+          StandardOpenOption.READ);
+      prefetches = new ArrayDeque<Prefetch>(readAheadDepth);
+      freeBuffers = new ArrayDeque<ByteBuffer>(readAheadDepth + 1);
+      buffer = ByteBuffer.allocateDirect(bufferSize);
+      length = asyncChannel.size();
+      prefetchPosition = 0;
+    }
+    buffer.limit(0);    // the buffer is empty at first
     offset = 0;
-    length = descriptor.length();
+    stallCount = 0;
+    stallNanos = 0;
+  }
+
+  /**
+   * Gets the number of buffers read ahead in the background.
+   *
+   * @return the number of buffers read ahead in the background, or 0 if the
+   *         buffer is refilled synchronously.
+   */
+  public int getReadAheadDepth() {
+    return readAheadDepth;
+  }
+
+  /**
+   * Gets the number of times the reading stalled while waiting for the
+   * read-ahead to complete.
+   *
+   * @return the number of times the reading stalled.
+   */
+  public long getStallCount() {
+    return stallCount;
+  }
+
+  /**
+   * Gets the total time the reading stalled while waiting for the read-ahead
+   * to complete.
+   *
+   * @return the total stalling time in nanoseconds.
+   */
+  public long getStallNanos() {
+    return stallNanos;
   }
 
   @Override
   public int read() throws IOException {
-    if (descriptor == null) {
+    if (buffer == null) {
       throw new AlreadyClosedException();
     }
     if (! buffer.hasRemaining()) {
@@ -71,7 +159,7 @@ public class NioFileInputStream extends SeekableInputStream {
     if ((off < 0) || (len < 0) || (off > buf.length - len)) {
       throw new IndexOutOfBoundsException();
     }
-    if (descriptor == null) {
+    if (buffer == null) {
       throw new AlreadyClosedException();
     }
     if (len == 0) {
@@ -94,10 +182,10 @@ public class NioFileInputStream extends SeekableInputStream {
       count = available;
     }
     // and now, try to read the remaining 'len' bytes:
-    if (len < buffer.capacity()) {
-      // If the amount left to read is small enough, and
-      // we are allowed to use our buffer, do it in the usual
-      // buffered way: fill the buffer once and copy from it:
+    if ((len < buffer.capacity()) || (asyncChannel != null)) {
+      // If the amount left to read is small enough, or the data is being
+      // read ahead into the buffers, do it in the usual buffered way:
+      // fill the buffer once and copy from it:
       if (! fillBuffer()) {
         // EOF has encountered
         return (count == 0 ? - 1 : count);
@@ -134,6 +222,9 @@ public class NioFileInputStream extends SeekableInputStream {
   private boolean fillBuffer() throws IOException {
     // fix the start offset of the buffer
     offset += buffer.position();
+    if (asyncChannel != null) {
+      return fillBufferAsync();
+    }
     // next fill the buffer
     buffer.clear();
     int n;
@@ -144,6 +235,96 @@ public class NioFileInputStream extends SeekableInputStream {
     return (n > 0);
   }
 
+  private boolean fillBufferAsync() throws IOException {
+    schedulePrefetches();
+    final Prefetch prefetch = prefetches.poll();
+    if (prefetch == null) {
+      buffer.position(0);
+      buffer.limit(0);
+      return false;   // EOF
+    }
+    assert (prefetch.position == offset);
+    final int n = await(prefetch.future);
+    // recycle the consumed buffer
+    freeBuffers.add(buffer);
+    buffer = prefetch.buffer;
+    buffer.flip();
+    if (n <= 0) {
+      cancelPrefetches();
+      return false;   // EOF
+    }
+    if ((n < buffer.capacity()) && (prefetch.position + n < length)) {
+      // a short read, the following read-ahead must be restarted
+      cancelPrefetches();
+      prefetchPosition = prefetch.position + n;
+    }
+    schedulePrefetches();
+    return true;
+  }
+
+  private void schedulePrefetches() {
+    while ((prefetches.size() < readAheadDepth) && (prefetchPosition < length)) {
+      ByteBuffer buf = freeBuffers.poll();
+      if (buf == null) {
+        buf = ByteBuffer.allocateDirect(buffer.capacity());
+      }
+      buf.clear();
+      final Future<Integer> future = asyncChannel.read(buf, prefetchPosition);
+      prefetches.add(new Prefetch(prefetchPosition, buf, future));
+      prefetchPosition += buf.capacity();
+    }
+  }
+
+  private void cancelPrefetches() {
+    Prefetch prefetch;
+    while ((prefetch = prefetches.poll()) != null) {
+      // a buffer may be recycled only if its reading has completed;
+      // otherwise it may still be written by the background I/O.
+      if (! prefetch.future.cancel(false)) {
+        freeBuffers.add(prefetch.buffer);
+      }
+    }
+  }
+
+  private int await(final Future<Integer> future) throws IOException {
+    final boolean stalled = (! future.isDone());
+    final long start = (stalled ? System.nanoTime() : 0);
+    try {
+      return future.get();
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else {
+        throw new IOException(cause);
+      }
+    } finally {
+      if (stalled) {
+        ++stallCount;
+        stallNanos += System.nanoTime() - start;
+      }
+    }
+  }
+
+  /**
+   * A buffer being filled in the background.
+   */
+  private static final class Prefetch {
+    final long position;
+    final ByteBuffer buffer;
+    final Future<Integer> future;
+
+    Prefetch(final long position, final ByteBuffer buffer,
+        final Future<Integer> future) {
+      this.position = position;
+      this.buffer = buffer;
+      this.future = future;
+    }
+  }
+
   @Override
   public long length() throws IOException {
     return length;
@@ -151,7 +332,7 @@ public class NioFileInputStream extends SeekableInputStream {
 
   @Override
   public long position() throws IOException {
-    if (descriptor == null) {
+    if (buffer == null) {
       throw new AlreadyClosedException();
     }
     return offset + buffer.position();
@@ -159,12 +340,19 @@ public class NioFileInputStream extends SeekableInputStream {
 
   @Override
   public void seek(final long newPos) throws IOException {
-    if (descriptor == null) {
+    if (buffer == null) {
       throw new AlreadyClosedException();
     }
     if ((newPos >= offset) && (newPos < (offset + buffer.limit()))) {
       // seek within the buffer
       buffer.position((int) (newPos - offset));
+    } else if (asyncChannel != null) {
+      // abandon the current data in buffer and the read-ahead
+      cancelPrefetches();
+      offset = newPos;
+      buffer.position(0);
+      buffer.limit(0);
+      prefetchPosition = newPos;
     } else {
       // seek the channel to the new position
       channel.position(newPos);
@@ -177,13 +365,21 @@ public class NioFileInputStream extends SeekableInputStream {
 
   @Override
   public void close() throws IOException {
-    if (descriptor != null) {
+    if (buffer != null) {
       try {
-        descriptor.close();
+        if (asyncChannel != null) {
+          cancelPrefetches();
+          asyncChannel.close();
+        } else {
+          descriptor.close();
+        }
       } finally {
         buffer = null;
         channel = null;
         descriptor = null;
+        asyncChannel = null;
+        prefetches = null;
+        freeBuffers = null;
         length = 0;
       }
     }
@@ -27,8 +27,13 @@ import com.github.haixing_hu.io.exception.AlreadyClosedException;
 /**
  * A {@link SeekableOutputStream} which writes data to a file using the
  * {@code java.nio} APIs.
+ * <p>
+ * The file is opened in the synchronous mode, so every flushed buffer is
+ * forced to the storage device. For many small commits from several threads,
+ * use the {@link GroupCommitFileOutputStream} instead.
  *
  * @author Haixing Hu
+ * @see GroupCommitFileOutputStream
  */
 public class NioFileOutputStream extends SeekableOutputStream {
 
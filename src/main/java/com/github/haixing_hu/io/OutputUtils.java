@@ -20,6 +20,9 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
@@ -45,7 +48,6 @@ import com.github.haixing_hu.collection.primitive.ShortIterator;
 import com.github.haixing_hu.io.serialize.BinarySerialization;
 import com.github.haixing_hu.io.serialize.BinarySerializer;
 import com.github.haixing_hu.io.serialize.NoBinarySerializerRegisteredException;
-import com.github.haixing_hu.util.buffer.ByteBuffer;
 import com.google.common.collect.Multimap;
 
 /**
@@ -246,29 +248,71 @@ public final class OutputUtils {
   public static void writeString(final OutputStream out, @Nullable final String value)
       throws IOException {
     if (! writeNullMark(out, value)) {
-      final int strlen = value.length();
-      if (strlen == 0) {
-        writeVarInt(out, 0); // special case for empty string
-        return;
+      writeUtf(out, value);
+    }
+  }
+
+  /**
+   * Writes the varint length and the modified UTF-8 bytes of a non-null
+   * string, without a null mark.
+   *
+   * @param out
+   *          the output where to write the string.
+   * @param value
+   *          the string to be written. It must not be null.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static void writeUtf(final OutputStream out, final String value)
+      throws IOException {
+    final int strlen = value.length();
+    if (strlen == 0) {
+      writeVarInt(out, 0); // special case for empty string
+      return;
+    }
+    // the first pass computes the length of the encoded bytes
+    int utflen = strlen;
+    for (int i = 0; i < strlen; ++i) {
+      final int ch = value.charAt(i);
+      if ((ch < 0x0001) || (ch > 0x007F)) {
+        utflen += (ch > 0x07FF ? 2 : 1);
       }
-      final ByteBuffer bytes = new ByteBuffer();
-      // encode the characters
+    }
+    writeVarInt(out, utflen);
+    // the second pass encodes the characters chunk by chunk into a reusable
+    // thread-local buffer, without allocating an array of the whole string
+    final byte[] buffer = STRING_BUFFER.get();
+    final int limit = buffer.length - 3;
+    int count = 0;
+    if (utflen == strlen) {
+      for (int i = 0; i < strlen; ++i) {
+        buffer[count++] = (byte) value.charAt(i);
+        if (count > limit) {
+          out.write(buffer, 0, count);
+          count = 0;
+        }
+      }
+    } else {
       for (int i = 0; i < strlen; ++i) {
         final int ch = value.charAt(i);
         if ((ch >= 0x0001) && (ch <= 0x007F)) {
-          bytes.append((byte) ch);
+          buffer[count++] = (byte) ch;
         } else if (ch > 0x07FF) {
-          bytes.append((byte) (0xE0 | ((ch >> 12) & 0x0F)));
-          bytes.append((byte) (0x80 | ((ch >> 6) & 0x3F)));
-          bytes.append((byte) (0x80 | (ch & 0x3F)));
+          buffer[count++] = (byte) (0xE0 | ((ch >> 12) & 0x0F));
+          buffer[count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+          buffer[count++] = (byte) (0x80 | (ch & 0x3F));
         } else {
-          bytes.append((byte) (0xC0 | ((ch >> 6) & 0x1F)));
-          bytes.append((byte) (0x80 | (ch & 0x3F)));
+          buffer[count++] = (byte) (0xC0 | ((ch >> 6) & 0x1F));
+          buffer[count++] = (byte) (0x80 | (ch & 0x3F));
+        }
+        if (count > limit) {
+          out.write(buffer, 0, count);
+          count = 0;
         }
       }
-      // write the length and bytes of the buffer
-      writeVarInt(out, bytes.length());
-      out.write(bytes.buffer(), 0, bytes.length());
+    }
+    if (count > 0) {
+      out.write(buffer, 0, count);
     }
   }
 
@@ -317,6 +361,82 @@ public final class OutputUtils {
     }
   }
 
+  /**
+   * Writes a string which is likely to repeat in the output.
+   *
+   * <p>If the output is a {@link DictionaryOutputStream}, a string already
+   * written by this function is written as the varint index of its entry in
+   * the dictionary of the stream. Otherwise, the string is written exactly as
+   * {@link #writeString(OutputStream, String)} does. The string must be read
+   * by {@link InputUtils#readSharedString(InputStream, boolean)}.</p>
+   *
+   * <p>The dictionary is only used if {@code out} itself is a
+   * {@link DictionaryOutputStream}; wrapping it in another stream disables the
+   * dictionary.</p>
+   *
+   * @param out
+   *          the output where to write the string.
+   * @param value
+   *          the string to be written. It could be null.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static void writeSharedString(final OutputStream out,
+      @Nullable final String value) throws IOException {
+    if (! (out instanceof DictionaryOutputStream)) {
+      writeString(out, value);
+    } else if (value == null) {
+      writeVarInt(out, SHARED_NULL);
+    } else {
+      final int index = ((DictionaryOutputStream) out).lookupString(value);
+      if (index >= 0) {
+        writeVarInt(out, SHARED_REFERENCE + index);
+      } else {
+        writeVarInt(out, (index == DictionaryOutputStream.ENTERED
+                          ? SHARED_ENTERED : SHARED_LITERAL));
+        writeUtf(out, value);
+      }
+    }
+  }
+
+  /**
+   * Writes a class which is likely to repeat in the output.
+   *
+   * <p>If the output is a {@link DictionaryOutputStream}, a class already
+   * written by this function is written as the varint index of its entry in
+   * the dictionary of the stream. Otherwise, the class is written exactly as
+   * {@link #writeClass(OutputStream, Class)} does. The class must be read by
+   * {@link InputUtils#readSharedClass(InputStream, boolean)}.</p>
+   *
+   * <p>The dictionary is only used if {@code out} itself is a
+   * {@link DictionaryOutputStream}; wrapping it in another stream disables the
+   * dictionary.</p>
+   *
+   * @param out
+   *          the output where to write the class.
+   * @param value
+   *          the class to be written. It could be null.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static void writeSharedClass(final OutputStream out,
+      @Nullable final Class<?> value) throws IOException {
+    if (! (out instanceof DictionaryOutputStream)) {
+      writeClass(out, value);
+    } else if (value == null) {
+      writeVarInt(out, SHARED_NULL);
+    } else {
+      final int index = ((DictionaryOutputStream) out).lookupClass(value);
+      if (index >= 0) {
+        writeVarInt(out, SHARED_REFERENCE + index);
+      } else {
+        writeVarInt(out, (index == DictionaryOutputStream.ENTERED
+                          ? SHARED_ENTERED : SHARED_LITERAL));
+        writeUtf(out, value.getName());
+      }
+    }
+  }
+
   public static void writeEnum(final OutputStream out, @Nullable final Enum<?> value)
       throws IOException {
     if (! writeNullMark(out, value)) {
@@ -414,11 +534,7 @@ public final class OutputUtils {
       @Nullable final ByteCollection col) throws IOException {
     if (! writeNullMark(out, col)) {
       writeVarInt(out, col.size());
-      final ByteIterator iter = col.iterator();
-      while (iter.hasNext()) {
-        final byte value = iter.next();
-        writeByte(out, value);
-      }
+      writeBytes(out, col.iterator(), col.size());
     }
   }
 
@@ -426,9 +542,7 @@ public final class OutputUtils {
       @Nullable final short[] array) throws IOException {
     if (! writeNullMark(out, array)) {
       writeVarInt(out, array.length);
-      for (final short value : array) {
-        writeShort(out, value);
-      }
+      writeShorts(out, array, 0, array.length);
     }
   }
 
@@ -438,21 +552,14 @@ public final class OutputUtils {
       throw new IndexOutOfBoundsException();
     }
     writeVarInt(out, len);
-    final int end = off + len;
-    for (int i = off; i < end; ++i) {
-      writeShort(out, array[i]);
-    }
+    writeShorts(out, array, off, len);
   }
 
   public static void writeShortCollection(final OutputStream out,
       @Nullable final ShortCollection col) throws IOException {
     if (! writeNullMark(out, col)) {
       writeVarInt(out, col.size());
-      final ShortIterator iter = col.iterator();
-      while (iter.hasNext()) {
-        final short value = iter.next();
-        writeShort(out, value);
-      }
+      writeShorts(out, col.iterator(), col.size());
     }
   }
 
@@ -494,9 +601,7 @@ public final class OutputUtils {
       throws IOException {
     if (! writeNullMark(out, array)) {
       writeVarInt(out, array.length);
-      for (final int value : array) {
-        writeInt(out, value);
-      }
+      writeInts(out, array, 0, array.length);
     }
   }
 
@@ -506,21 +611,14 @@ public final class OutputUtils {
       throw new IndexOutOfBoundsException();
     }
     writeVarInt(out, len);
-    final int end = off + len;
-    for (int i = off; i < end; ++i) {
-      writeInt(out, array[i]);
-    }
+    writeInts(out, array, off, len);
   }
 
   public static void writeIntCollection(final OutputStream out,
       @Nullable final IntCollection col) throws IOException {
     if (! writeNullMark(out, col)) {
       writeVarInt(out, col.size());
-      final IntIterator iter = col.iterator();
-      while (iter.hasNext()) {
-        final int value = iter.next();
-        writeInt(out, value);
-      }
+      writeInts(out, col.iterator(), col.size());
     }
   }
 
@@ -534,6 +632,40 @@ public final class OutputUtils {
     }
   }
 
+  /**
+   * Writes an {@code int} array in a variable length encoding format.
+   *
+   * <p>In the {@link VarIntFormat#LEB128} format, the output is the same as
+   * {@link #writeVarIntArray(OutputStream, int[])}. In the other formats, the
+   * length of the array is followed by the number of the encoded bytes and
+   * the encoded bytes, which are written at once.</p>
+   *
+   * @param out
+   *          the output where to write the data.
+   * @param array
+   *          the array to write, which could be null.
+   * @param format
+   *          the encoding format.
+   * @throws IOException
+   *           if any I/O error occurs.
+   * @see InputUtils#readVarIntArray(InputStream, boolean, int[], VarIntFormat)
+   */
+  public static void writeVarIntArray(final OutputStream out,
+      @Nullable final int[] array, final VarIntFormat format)
+      throws IOException {
+    if (format == VarIntFormat.LEB128) {
+      writeVarIntArray(out, array);
+    } else if (! writeNullMark(out, array)) {
+      writeVarInt(out, array.length);
+      final byte[] buffer = new byte[VarIntCodec.maxEncodedSize(format,
+          array.length)];
+      final int size = VarIntCodec.encode(format, array, 0, array.length,
+          buffer, 0);
+      writeVarInt(out, size);
+      out.write(buffer, 0, size);
+    }
+  }
+
   public static void writeVarIntArray(final OutputStream out, final int[] array,
       final int off, final int len) throws IOException {
     if ((off < 0) || (len < 0) || (len > array.length - off)) {
@@ -562,9 +694,7 @@ public final class OutputUtils {
       @Nullable final long[] array) throws IOException {
     if (! writeNullMark(out, array)) {
       writeVarInt(out, array.length);
-      for (final long value : array) {
-        writeLong(out, value);
-      }
+      writeLongs(out, array, 0, array.length);
     }
   }
 
@@ -574,21 +704,14 @@ public final class OutputUtils {
       throw new IndexOutOfBoundsException();
     }
     writeVarInt(out, len);
-    final int end = off + len;
-    for (int i = off; i < end; ++i) {
-      writeLong(out, array[i]);
-    }
+    writeLongs(out, array, off, len);
   }
 
   public static void writeLongCollection(final OutputStream out,
       @Nullable final LongCollection col) throws IOException {
     if (! writeNullMark(out, col)) {
       writeVarInt(out, col.size());
-      final LongIterator iter = col.iterator();
-      while (iter.hasNext()) {
-        final long value = iter.next();
-        writeLong(out, value);
-      }
+      writeLongs(out, col.iterator(), col.size());
     }
   }
 
@@ -630,9 +753,7 @@ public final class OutputUtils {
       @Nullable final float[] array) throws IOException {
     if (! writeNullMark(out, array)) {
       writeVarInt(out, array.length);
-      for (final float value : array) {
-        writeFloat(out, value);
-      }
+      writeFloats(out, array, 0, array.length);
     }
   }
 
@@ -642,21 +763,14 @@ public final class OutputUtils {
       throw new IndexOutOfBoundsException();
     }
     writeVarInt(out, len);
-    final int end = off + len;
-    for (int i = off; i < end; ++i) {
-      writeFloat(out, array[i]);
-    }
+    writeFloats(out, array, off, len);
   }
 
   public static void writeFloatCollection(final OutputStream out,
       @Nullable final FloatCollection col) throws IOException {
     if (! writeNullMark(out, col)) {
       writeVarInt(out, col.size());
-      final FloatIterator iter = col.iterator();
-      while (iter.hasNext()) {
-        final float value = iter.next();
-        writeFloat(out, value);
-      }
+      writeFloats(out, col.iterator(), col.size());
     }
   }
 
@@ -664,9 +778,7 @@ public final class OutputUtils {
       @Nullable final double[] array) throws IOException {
     if (! writeNullMark(out, array)) {
       writeVarInt(out, array.length);
-      for (final double value : array) {
-        writeDouble(out, value);
-      }
+      writeDoubles(out, array, 0, array.length);
     }
   }
 
@@ -676,21 +788,14 @@ public final class OutputUtils {
       throw new IndexOutOfBoundsException();
     }
     writeVarInt(out, len);
-    final int end = off + len;
-    for (int i = off; i < end; ++i) {
-      writeDouble(out, array[i]);
-    }
+    writeDoubles(out, array, off, len);
   }
 
   public static void writeDoubleCollection(final OutputStream out,
       @Nullable final DoubleCollection col) throws IOException {
     if (! writeNullMark(out, col)) {
       writeVarInt(out, col.size());
-      final DoubleIterator iter = col.iterator();
-      while (iter.hasNext()) {
-        final double value = iter.next();
-        writeDouble(out, value);
-      }
+      writeDoubles(out, col.iterator(), col.size());
     }
   }
 
@@ -806,4 +911,274 @@ public final class OutputUtils {
       }
     }
   }
+
+  /**
+   * The tag of a null value written by the shared string and class functions
+   * to a {@link DictionaryOutputStream}.
+   */
+  static final int SHARED_NULL = 0;
+
+  /**
+   * The tag of a value written in full and entered into the dictionary.
+   */
+  static final int SHARED_ENTERED = 1;
+
+  /**
+   * The tag of a value written in full but not entered into the dictionary.
+   */
+  static final int SHARED_LITERAL = 2;
+
+  /**
+   * The tag of the first entry of the dictionary; the tags of back-references
+   * are this value plus the indexes of the referenced entries.
+   */
+  static final int SHARED_REFERENCE = 3;
+
+  /**
+   * The size in bytes of the thread-local buffer used to encode strings.
+   */
+  private static final int STRING_BUFFER_SIZE = 8 * 1024;
+
+  /**
+   * The thread-local buffer used to encode strings.
+   */
+  private static final ThreadLocal<byte[]> STRING_BUFFER =
+      new ThreadLocal<byte[]>() {
+    @Override
+    protected byte[] initialValue() {
+      return new byte[STRING_BUFFER_SIZE];
+    }
+  };
+
+  /**
+   * The size in bytes of the buffer used to bulk write arrays and collections
+   * of fixed width primitive values.
+   */
+  private static final int BULK_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Writes the specified number of {@code byte} values of an iterator to the
+   * output, chunk by chunk.
+   */
+  private static void writeBytes(final OutputStream out, final ByteIterator iter,
+      final int n) throws IOException {
+    final byte[] chunk = new byte[Math.min(n, BULK_BUFFER_SIZE)];
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, chunk.length);
+      for (int i = 0; i < count; ++i) {
+        chunk[i] = iter.next();
+      }
+      out.write(chunk, 0, count);
+      remained -= count;
+    }
+  }
+
+  /**
+   * Writes the specified elements of a {@code short} array to the output in the
+   * big-endian order.
+   *
+   * <p>The values are encoded chunk by chunk through a {@link ShortBuffer} view, and
+   * each chunk is written with a single call to {@link OutputStream#write},
+   * instead of writing the values one by one.</p>
+   */
+  private static void writeShorts(final OutputStream out, final short[] array,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 2) * 2];
+    final ShortBuffer view = java.nio.ByteBuffer.wrap(bytes).asShortBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      view.clear();
+      view.put(array, i, count);
+      out.write(bytes, 0, count * 2);
+      i += count;
+    }
+  }
+
+  /**
+   * Writes the specified number of {@code short} values of an iterator to the
+   * output in the big-endian order, chunk by chunk.
+   */
+  private static void writeShorts(final OutputStream out, final ShortIterator iter,
+      final int n) throws IOException {
+    final byte[] bytes = new byte[Math.min(n, BULK_BUFFER_SIZE / 2) * 2];
+    final ShortBuffer view = java.nio.ByteBuffer.wrap(bytes).asShortBuffer();
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, view.capacity());
+      view.clear();
+      for (int i = 0; i < count; ++i) {
+        view.put(iter.next());
+      }
+      out.write(bytes, 0, count * 2);
+      remained -= count;
+    }
+  }
+
+  /**
+   * Writes the specified elements of a {@code int} array to the output in the
+   * big-endian order.
+   *
+   * <p>The values are encoded chunk by chunk through a {@link IntBuffer} view, and
+   * each chunk is written with a single call to {@link OutputStream#write},
+   * instead of writing the values one by one.</p>
+   */
+  private static void writeInts(final OutputStream out, final int[] array,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 4) * 4];
+    final IntBuffer view = java.nio.ByteBuffer.wrap(bytes).asIntBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      view.clear();
+      view.put(array, i, count);
+      out.write(bytes, 0, count * 4);
+      i += count;
+    }
+  }
+
+  /**
+   * Writes the specified number of {@code int} values of an iterator to the
+   * output in the big-endian order, chunk by chunk.
+   */
+  private static void writeInts(final OutputStream out, final IntIterator iter,
+      final int n) throws IOException {
+    final byte[] bytes = new byte[Math.min(n, BULK_BUFFER_SIZE / 4) * 4];
+    final IntBuffer view = java.nio.ByteBuffer.wrap(bytes).asIntBuffer();
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, view.capacity());
+      view.clear();
+      for (int i = 0; i < count; ++i) {
+        view.put(iter.next());
+      }
+      out.write(bytes, 0, count * 4);
+      remained -= count;
+    }
+  }
+
+  /**
+   * Writes the specified elements of a {@code long} array to the output in the
+   * big-endian order.
+   *
+   * <p>The values are encoded chunk by chunk through a {@link LongBuffer} view, and
+   * each chunk is written with a single call to {@link OutputStream#write},
+   * instead of writing the values one by one.</p>
+   */
+  private static void writeLongs(final OutputStream out, final long[] array,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 8) * 8];
+    final LongBuffer view = java.nio.ByteBuffer.wrap(bytes).asLongBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      view.clear();
+      view.put(array, i, count);
+      out.write(bytes, 0, count * 8);
+      i += count;
+    }
+  }
+
+  /**
+   * Writes the specified number of {@code long} values of an iterator to the
+   * output in the big-endian order, chunk by chunk.
+   */
+  private static void writeLongs(final OutputStream out, final LongIterator iter,
+      final int n) throws IOException {
+    final byte[] bytes = new byte[Math.min(n, BULK_BUFFER_SIZE / 8) * 8];
+    final LongBuffer view = java.nio.ByteBuffer.wrap(bytes).asLongBuffer();
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, view.capacity());
+      view.clear();
+      for (int i = 0; i < count; ++i) {
+        view.put(iter.next());
+      }
+      out.write(bytes, 0, count * 8);
+      remained -= count;
+    }
+  }
+
+  /**
+   * Writes the specified elements of a {@code float} array to the output in the
+   * big-endian order.
+   *
+   * <p>The bits of the values are encoded chunk by chunk through a
+   * {@link IntBuffer} view, and each chunk is written with a single call to
+   * {@link OutputStream#write}, instead of writing the values one by one.</p>
+   */
+  private static void writeFloats(final OutputStream out, final float[] array,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 4) * 4];
+    final IntBuffer view = java.nio.ByteBuffer.wrap(bytes).asIntBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      view.clear();
+      for (int j = 0; j < count; ++j) {
+        view.put(Float.floatToIntBits(array[i + j]));
+      }
+      out.write(bytes, 0, count * 4);
+      i += count;
+    }
+  }
+
+  /**
+   * Writes the specified number of {@code float} values of an iterator to the
+   * output in the big-endian order, chunk by chunk.
+   */
+  private static void writeFloats(final OutputStream out, final FloatIterator iter,
+      final int n) throws IOException {
+    final byte[] bytes = new byte[Math.min(n, BULK_BUFFER_SIZE / 4) * 4];
+    final IntBuffer view = java.nio.ByteBuffer.wrap(bytes).asIntBuffer();
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, view.capacity());
+      view.clear();
+      for (int i = 0; i < count; ++i) {
+        view.put(Float.floatToIntBits(iter.next()));
+      }
+      out.write(bytes, 0, count * 4);
+      remained -= count;
+    }
+  }
+
+  /**
+   * Writes the specified elements of a {@code double} array to the output in the
+   * big-endian order.
+   *
+   * <p>The bits of the values are encoded chunk by chunk through a
+   * {@link LongBuffer} view, and each chunk is written with a single call to
+   * {@link OutputStream#write}, instead of writing the values one by one.</p>
+   */
+  private static void writeDoubles(final OutputStream out, final double[] array,
+      final int off, final int len) throws IOException {
+    final byte[] bytes = new byte[Math.min(len, BULK_BUFFER_SIZE / 8) * 8];
+    final LongBuffer view = java.nio.ByteBuffer.wrap(bytes).asLongBuffer();
+    final int end = off + len;
+    for (int i = off; i < end; ) {
+      final int count = Math.min(end - i, view.capacity());
+      view.clear();
+      for (int j = 0; j < count; ++j) {
+        view.put(Double.doubleToLongBits(array[i + j]));
+      }
+      out.write(bytes, 0, count * 8);
+      i += count;
+    }
+  }
+
+  /**
+   * Writes the specified number of {@code double} values of an iterator to the
+   * output in the big-endian order, chunk by chunk.
+   */
+  private static void writeDoubles(final OutputStream out, final DoubleIterator iter,
+      final int n) throws IOException {
+    final byte[] bytes = new byte[Math.min(n, BULK_BUFFER_SIZE / 8) * 8];
+    final LongBuffer view = java.nio.ByteBuffer.wrap(bytes).asLongBuffer();
+    for (int remained = n; remained > 0; ) {
+      final int count = Math.min(remained, view.capacity());
+      view.clear();
+      for (int i = 0; i < count; ++i) {
+        view.put(Double.doubleToLongBits(iter.next()));
+      }
+      out.write(bytes, 0, count * 8);
+      remained -= count;
+    }
+  }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * Provides functions to process the splits of a record input in parallel.
+ * <p>
+ * The splits are processed by a fork-join pool: the list of splits is divided
+ * recursively, each split is processed by a {@link RecordProcessor}, and the
+ * results of adjacent splits are merged in the order of the splits.
+ *
+ * @author Haixing Hu
+ * @see SplittableRecordReader
+ */
+@ThreadSafe
+public final class ParallelRecordProcessing {
+
+  /**
+   * Splits a reader into as many parts as the parallelism of the common
+   * fork-join pool, and processes the splits in parallel.
+   * <p>
+   * The specified reader itself is neither read nor closed.
+   *
+   * @param reader
+   *          the reader to split.
+   * @param processor
+   *          the processor of the splits.
+   * @return the merged result of all splits.
+   * @throws IOException
+   *           if any I/O error occurred.
+   */
+  public static <KEY, VALUE, RESULT> RESULT process(
+      final SplittableRecordReader<KEY, VALUE> reader,
+      final RecordProcessor<KEY, VALUE, RESULT> processor) throws IOException {
+    final ForkJoinPool pool = ForkJoinPool.commonPool();
+    return process(reader, processor, pool, pool.getParallelism());
+  }
+
+  /**
+   * Splits a reader and processes the splits in parallel.
+   * <p>
+   * The specified reader itself is neither read nor closed.
+   *
+   * @param reader
+   *          the reader to split.
+   * @param processor
+   *          the processor of the splits.
+   * @param pool
+   *          the fork-join pool used to process the splits.
+   * @param splits
+   *          the maximum number of splits, which must be positive.
+   * @return the merged result of all splits.
+   * @throws IOException
+   *           if any I/O error occurred.
+   */
+  public static <KEY, VALUE, RESULT> RESULT process(
+      final SplittableRecordReader<KEY, VALUE> reader,
+      final RecordProcessor<KEY, VALUE, RESULT> processor,
+      final ForkJoinPool pool, final int splits) throws IOException {
+    requireNonNull("reader", reader);
+    return process(reader.split(splits), processor, pool);
+  }
+
+  /**
+   * Processes a list of readers in parallel.
+   * <p>
+   * All the readers in the list are closed after calling this function, even
+   * if an error occurred.
+   *
+   * @param readers
+   *          the non-empty list of readers to process.
+   * @param processor
+   *          the processor of the readers.
+   * @param pool
+   *          the fork-join pool used to process the readers.
+   * @return the merged result of all readers.
+   * @throws IOException
+   *           if any I/O error occurred.
+   */
+  public static <KEY, VALUE, RESULT> RESULT process(
+      final List<? extends RecordReader<KEY, VALUE>> readers,
+      final RecordProcessor<KEY, VALUE, RESULT> processor,
+      final ForkJoinPool pool) throws IOException {
+    try {
+      requireNonNull("readers", readers);
+      requireNonNull("processor", processor);
+      requireNonNull("pool", pool);
+      if (readers.isEmpty()) {
+        throw new IllegalArgumentException("The list of readers is empty.");
+      }
+      return pool.invoke(new ProcessTask<KEY, VALUE, RESULT>(readers,
+          processor, 0, readers.size()));
+    } catch (final RuntimeException e) {
+      // the fork-join pool may rethrow a copy of the exception wrapping it
+      for (Throwable t = e; t != null; t = t.getCause()) {
+        if (t instanceof UncheckedIOException) {
+          throw ((UncheckedIOException) t).getCause();
+        }
+      }
+      throw e;
+    } finally {
+      if (readers != null) {
+        for (final RecordReader<KEY, VALUE> reader : readers) {
+          IoUtils.closeQuietly(reader);
+        }
+      }
+    }
+  }
+
+  private static final class ProcessTask<KEY, VALUE, RESULT> extends
+      RecursiveTask<RESULT> {
+
+    private static final long serialVersionUID = - 6420153838720582141L;
+
+    private final List<? extends RecordReader<KEY, VALUE>> readers;
+    private final RecordProcessor<KEY, VALUE, RESULT> processor;
+    private final int start;
+    private final int end;
+
+    ProcessTask(final List<? extends RecordReader<KEY, VALUE>> readers,
+        final RecordProcessor<KEY, VALUE, RESULT> processor, final int start,
+        final int end) {
+      this.readers = readers;
+      this.processor = processor;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected RESULT compute() {
+      if (end - start == 1) {
+        final RecordReader<KEY, VALUE> reader = readers.get(start);
+        try {
+          return processor.process(reader);
+        } catch (final IOException e) {
+          throw new UncheckedIOException(e);
+        } finally {
+          IoUtils.closeQuietly(reader);
+        }
+      }
+      final int mid = (start + end) >>> 1;
+      final ProcessTask<KEY, VALUE, RESULT> left =
+          new ProcessTask<KEY, VALUE, RESULT>(readers, processor, start, mid);
+      left.fork();
+      final RESULT right =
+          new ProcessTask<KEY, VALUE, RESULT>(readers, processor, mid, end).compute();
+      return processor.merge(left.join(), right);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * This interface provides positional reading functions, which read data at
+ * the specified positions without changing the current position of the
+ * stream.
+ * <p>
+ * <b>NOTE</b>: the functions of this interface <b>MUST</b> be thread safe, so
+ * that a single stream could be shared by many threads doing random access
+ * concurrently; but they must not be called concurrently with the closing of
+ * the stream.
+ *
+ * @author Haixing Hu
+ */
+public interface PositionalReadable {
+
+  /**
+   * Reads bytes at a specified position, without changing the current
+   * position of the stream.
+   *
+   * @param pos
+   *          the position, measured in bytes from the beginning of the file,
+   *          where to start reading.
+   * @param buf
+   *          the buffer where to store the bytes read.
+   * @param off
+   *          the offset of the buffer where to store the bytes read.
+   * @param len
+   *          the maximum number of bytes to read.
+   * @return the number of bytes actually read, which is less than
+   *         {@code len} only if the end of the stream is reached; or -1 if the
+   *         specified position is at or beyond the end of the stream.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public int read(long pos, byte[] buf, int off, int len) throws IOException;
+
+  /**
+   * Gets a read-only view of the bytes at a specified position, without
+   * changing the current position of the stream.
+   * <p>
+   * If the bytes could not be viewed directly, e.g., they span several mapped
+   * regions, a copy of them is returned.
+   *
+   * @param pos
+   *          the position, measured in bytes from the beginning of the file,
+   *          of the first byte of the view.
+   * @param len
+   *          the number of bytes of the view.
+   * @return a read-only buffer whose position is 0 and whose limit is
+   *         {@code len}.
+   * @throws IOException
+   *           if any I/O error occurs, or the specified range exceeds the end
+   *           of the stream.
+   */
+  public ByteBuffer slice(long pos, int len) throws IOException;
+}
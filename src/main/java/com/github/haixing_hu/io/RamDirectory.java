@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A flat in-memory directory of named {@link RamFile}s.
+ * <p>
+ * The directory could be accessed by several threads concurrently. Each file
+ * could be read by any number of {@link RamFileInputStream}s while it is
+ * written by at most one {@link RamFileOutputStream}. Since the files live
+ * only in the memory, nothing is left behind if the process crashes; the
+ * files could be staged from and to real files with
+ * {@link #copyFrom(File, String)} and {@link #copyTo(String, File)}.
+ *
+ * @author Haixing Hu
+ */
+@ThreadSafe
+public final class RamDirectory {
+
+  private final boolean direct;
+  private final ConcurrentMap<String, RamFile> files;
+
+  /**
+   * Constructs a {@link RamDirectory} whose files are stored in the heap.
+   */
+  public RamDirectory() {
+    this(false);
+  }
+
+  /**
+   * Constructs a {@link RamDirectory}.
+   *
+   * @param direct
+   *          whether to store the files off the heap in the direct memory.
+   */
+  public RamDirectory(final boolean direct) {
+    this.direct = direct;
+    files = new ConcurrentHashMap<String, RamFile>();
+  }
+
+  /**
+   * Tests whether the files in this directory are stored off the heap.
+   *
+   * @return true if the files in this directory are stored off the heap in the
+   *         direct memory; false otherwise.
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
+  /**
+   * Lists the names of the files in this directory.
+   *
+   * @return the sorted array of the names of the files in this directory.
+   */
+  public String[] list() {
+    final String[] result = files.keySet().toArray(new String[0]);
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * Tests whether a file exists in this directory.
+   *
+   * @param name
+   *          the name of the file.
+   * @return true if the file exists; false otherwise.
+   */
+  public boolean exists(final String name) {
+    return files.containsKey(requireNonNull("name", name));
+  }
+
+  /**
+   * Gets a file in this directory.
+   *
+   * @param name
+   *          the name of the file.
+   * @return the file, or null if it does not exist.
+   */
+  @Nullable
+  public RamFile getFile(final String name) {
+    return files.get(requireNonNull("name", name));
+  }
+
+  private RamFile requireFile(final String name) throws FileNotFoundException {
+    final RamFile file = getFile(name);
+    if (file == null) {
+      throw new FileNotFoundException(name);
+    }
+    return file;
+  }
+
+  /**
+   * Gets the length of a file in this directory.
+   *
+   * @param name
+   *          the name of the file.
+   * @return the length of the file.
+   * @throws FileNotFoundException
+   *           if the file does not exist.
+   */
+  public long length(final String name) throws FileNotFoundException {
+    return requireFile(name).getLength();
+  }
+
+  /**
+   * Gets the total number of bytes occupied by the files in this directory.
+   *
+   * @return the total number of bytes occupied by the files in this directory.
+   */
+  public long getOccupiedSize() {
+    long result = 0;
+    for (final RamFile file : files.values()) {
+      result += file.getOccupiedSize();
+    }
+    return result;
+  }
+
+  /**
+   * Creates a new empty file in this directory, replacing the existing file of
+   * the same name.
+   * <p>
+   * The streams opened on the replaced file are not affected.
+   *
+   * @param name
+   *          the name of the file.
+   * @return the new file.
+   */
+  public RamFile createFile(final String name) {
+    final RamFile file = new RamFile(direct);
+    files.put(requireNonNull("name", name), file);
+    return file;
+  }
+
+  /**
+   * Opens a stream to read a file in this directory.
+   *
+   * @param name
+   *          the name of the file.
+   * @return the stream reading the file.
+   * @throws FileNotFoundException
+   *           if the file does not exist.
+   */
+  public RamFileInputStream openInput(final String name)
+      throws FileNotFoundException {
+    return new RamFileInputStream(requireFile(name));
+  }
+
+  /**
+   * Creates a new file in this directory, replacing the existing file of the
+   * same name, and opens a stream to write it.
+   *
+   * @param name
+   *          the name of the file.
+   * @return the stream writing the new file.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public RamFileOutputStream createOutput(final String name)
+      throws IOException {
+    return new RamFileOutputStream(createFile(name), false);
+  }
+
+  /**
+   * Opens a stream to append to a file in this directory, creating the file if
+   * it does not exist.
+   *
+   * @param name
+   *          the name of the file.
+   * @return the stream writing the file.
+   * @throws IOException
+   *           if the file is being written by another stream.
+   */
+  public RamFileOutputStream appendOutput(final String name)
+      throws IOException {
+    requireNonNull("name", name);
+    RamFile file = files.get(name);
+    if (file == null) {
+      final RamFile newFile = new RamFile(direct);
+      file = files.putIfAbsent(name, newFile);
+      if (file == null) {
+        file = newFile;
+      }
+    }
+    return new RamFileOutputStream(file, true);
+  }
+
+  /**
+   * Deletes a file from this directory.
+   * <p>
+   * The streams opened on the deleted file are not affected.
+   *
+   * @param name
+   *          the name of the file.
+   * @return true if the file was deleted; false if it does not exist.
+   */
+  public boolean delete(final String name) {
+    return (files.remove(requireNonNull("name", name)) != null);
+  }
+
+  /**
+   * Renames a file in this directory, replacing the existing file of the
+   * target name.
+   *
+   * @param from
+   *          the name of the file to rename.
+   * @param to
+   *          the new name of the file.
+   * @throws FileNotFoundException
+   *           if the file to rename does not exist.
+   */
+  public synchronized void rename(final String from, final String to)
+      throws FileNotFoundException {
+    requireNonNull("to", to);
+    final RamFile file = requireFile(from);
+    files.put(to, file);
+    if (! from.equals(to)) {
+      files.remove(from, file);
+    }
+  }
+
+  /**
+   * Deletes all files in this directory.
+   */
+  public void clear() {
+    files.clear();
+  }
+
+  /**
+   * Copies a real file into this directory, replacing the existing file of the
+   * same name.
+   *
+   * @param source
+   *          the real file to copy.
+   * @param name
+   *          the name of the file in this directory.
+   * @return the new file.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public RamFile copyFrom(final File source, final String name)
+      throws IOException {
+    requireNonNull("source", source);
+    final RamFile file = new RamFile(direct);
+    file.readFrom(source);
+    files.put(requireNonNull("name", name), file);
+    return file;
+  }
+
+  /**
+   * Copies a file in this directory to a real file.
+   *
+   * @param name
+   *          the name of the file in this directory.
+   * @param target
+   *          the real file where to copy. It will be overwritten if it exists.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public void copyTo(final String name, final File target) throws IOException {
+    requireNonNull("target", target);
+    requireFile(name).writeTo(target);
+  }
+}
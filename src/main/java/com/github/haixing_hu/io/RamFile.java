@@ -16,42 +16,122 @@
  */
 package com.github.haixing_hu.io;
 
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
 
 /**
  * A {@link RamFile} object represents a virtual file in RAM.
- *
- * Note that this class is NOT thread safe.
+ * <p>
+ * The data of a {@link RamFile} is stored in blocks of {@link #BLOCK_SIZE}
+ * bytes, which are allocated either in the Java heap, or off the heap in the
+ * direct memory. The direct blocks are allocated in slabs of
+ * {@link #SLAB_BLOCKS} blocks, and are released by the garbage collector with
+ * the file.
+ * <p>
+ * A {@link RamFile} could be read by several threads concurrently while it is
+ * written by another thread: the modifications of a writer are synchronized,
+ * and the new length of the file is published after the data is written, so
+ * that a reader always sees complete data up to the length it reads. However,
+ * the bytes overwritten in place by a writer may be seen partially by
+ * concurrent readers. At most one {@link RamFileOutputStream} could be opened
+ * on a file at the same time.
  *
  * @author Haixing Hu
+ * @see RamDirectory
+ * @see RamFileInputStream
+ * @see RamFileOutputStream
  */
+@ThreadSafe
 public final class RamFile implements Serializable {
 
-  private static final long   serialVersionUID = - 1964074757799348292L;
+  private static final long   serialVersionUID = 2356401859218710383L;
 
   /**
    * The size in bytes of the blocks in the RamFile.
    */
   public static final int BLOCK_SIZE           = 4096;
 
-  private final ArrayList<byte[]> blocks;       // the data in a RamFile is stored in blocks
-  private long              length;       // the length of this RamFile
-  private long              lastModified; // the last modified time of this RamFile
+  /**
+   * The number of direct blocks allocated at once.
+   */
+  public static final int SLAB_BLOCKS          = 64;
+
+  private final boolean     direct;
+  private transient AtomicBoolean writing;
+  // the blocks are published by replacing the array, and the length of this
+  // RamFile is published after the data is written
+  private transient volatile ByteBuffer[] blocks;
+  private transient volatile int blockCount;
+  @GuardedBy("this")
+  private transient ByteBuffer slab;
+  private volatile long     length;       // the length of this RamFile
+  private volatile long     lastModified; // the last modified time of this RamFile
 
+  /**
+   * Constructs an empty {@link RamFile} whose blocks are allocated in the heap.
+   */
   public RamFile() {
-    blocks = new ArrayList<byte[]>();
+    this(false);
+  }
+
+  /**
+   * Constructs an empty {@link RamFile}.
+   *
+   * @param direct
+   *          whether to allocate the blocks off the heap in the direct memory.
+   */
+  public RamFile(final boolean direct) {
+    this.direct = direct;
+    writing = new AtomicBoolean(false);
+    blocks = new ByteBuffer[4];
+    blockCount = 0;
+    slab = null;
     length = 0;
     lastModified = System.currentTimeMillis();
   }
 
+  /**
+   * Tests whether the blocks of this {@link RamFile} are allocated off the heap.
+   *
+   * @return true if the blocks of this {@link RamFile} are allocated off the
+   *         heap in the direct memory; false otherwise.
+   */
+  public boolean isDirect() {
+    return direct;
+  }
+
   public long getLength() {
     return length;
   }
 
-  public void setLength(final long length) {
+  /**
+   * Sets the length of this {@link RamFile}.
+   * <p>
+   * If the new length is greater than the current length, the blocks needed
+   * are allocated, but the bytes beyond the current length are not cleared.
+   *
+   * @param length
+   *          the new length.
+   */
+  public synchronized void setLength(final long length) {
+    if (length < 0) {
+      throw new IllegalArgumentException("The length must be non-negative.");
+    }
+    ensureCapacity(length);
     this.length = length;
   }
 
@@ -64,47 +144,411 @@ public final class RamFile implements Serializable {
   }
 
   public long getOccupiedSize() {
-    return ((long) blocks.size()) * ((long) BLOCK_SIZE);
+    return ((long) blockCount) * ((long) BLOCK_SIZE);
   }
 
-  public byte[] addBlock() {
-    final byte[] block = new byte[BLOCK_SIZE];
-    synchronized (this) {
-      blocks.add(block);
+  /**
+   * Adds a block to the end of this {@link RamFile}.
+   *
+   * @return the array of the new block.
+   * @throws UnsupportedOperationException
+   *           if the blocks of this {@link RamFile} are allocated off the heap.
+   */
+  public synchronized byte[] addBlock() {
+    if (direct) {
+      throw new UnsupportedOperationException("The blocks are not in the heap.");
     }
-    return block;
+    return appendBlock().array();
   }
 
+  /**
+   * Gets the array of a block.
+   *
+   * @param blockIndex
+   *          the index of the block.
+   * @return the array of the block.
+   * @throws UnsupportedOperationException
+   *           if the blocks of this {@link RamFile} are allocated off the heap.
+   */
   public byte[] getBlock(final int blockIndex) {
-    return blocks.get(blockIndex);
+    if (direct) {
+      throw new UnsupportedOperationException("The blocks are not in the heap.");
+    }
+    if (blockIndex >= blockCount) {
+      throw new IndexOutOfBoundsException();
+    }
+    return blocks[blockIndex].array();
   }
 
   public int getBlockCount() {
-    return blocks.size();
+    return blockCount;
+  }
+
+  @GuardedBy("this")
+  private ByteBuffer appendBlock() {
+    final ByteBuffer block;
+    if (direct) {
+      if ((slab == null) || (! slab.hasRemaining())) {
+        slab = ByteBuffer.allocateDirect(SLAB_BLOCKS * BLOCK_SIZE);
+      }
+      slab.limit(slab.position() + BLOCK_SIZE);
+      block = slab.slice();
+      slab.position(slab.limit());
+      slab.limit(slab.capacity());
+    } else {
+      block = ByteBuffer.wrap(new byte[BLOCK_SIZE]);
+    }
+    ByteBuffer[] array = blocks;
+    final int n = blockCount;
+    if (n == array.length) {
+      final ByteBuffer[] newArray = new ByteBuffer[n * 2];
+      System.arraycopy(array, 0, newArray, 0, n);
+      array = newArray;
+    }
+    array[n] = block;
+    blocks = array;
+    blockCount = n + 1;
+    return block;
+  }
+
+  @GuardedBy("this")
+  private void ensureCapacity(final long capacity) {
+    while (getOccupiedSize() < capacity) {
+      appendBlock();
+    }
+  }
+
+  /**
+   * Acquires the exclusive right to write this {@link RamFile}.
+   *
+   * @throws IOException
+   *           if the file is being written by another stream.
+   */
+  void acquireWriter() throws IOException {
+    if (! writing.compareAndSet(false, true)) {
+      throw new IOException("The file is being written by another stream.");
+    }
+  }
+
+  /**
+   * Releases the right to write this {@link RamFile}.
+   */
+  void releaseWriter() {
+    writing.set(false);
+  }
+
+  /**
+   * Reads bytes from a specified position of this {@link RamFile}.
+   * <p>
+   * This function is thread safe.
+   *
+   * @param pos
+   *          the position where to start reading.
+   * @param buf
+   *          the buffer into which the data is read.
+   * @param off
+   *          the start offset in the buffer.
+   * @param len
+   *          the maximum number of bytes to read.
+   * @return the number of bytes read, or -1 if the position is at or beyond
+   *         the end of this {@link RamFile}.
+   */
+  public int read(final long pos, final byte[] buf, final int off,
+      final int len) {
+    if ((off < 0) || (len < 0) || (off > buf.length - len) || (pos < 0)) {
+      throw new IndexOutOfBoundsException();
+    }
+    // the length must be read before the blocks
+    final long size = length;
+    final ByteBuffer[] array = blocks;
+    if (pos >= size) {
+      return -1;
+    }
+    final int count = (int) Math.min(len, size - pos);
+    int blockIndex = (int) (pos / BLOCK_SIZE);
+    int blockOffset = (int) (pos % BLOCK_SIZE);
+    int done = 0;
+    while (done < count) {
+      final int n = Math.min(count - done, BLOCK_SIZE - blockOffset);
+      final ByteBuffer block = array[blockIndex];
+      if (block.hasArray()) {
+        System.arraycopy(block.array(), block.arrayOffset() + blockOffset,
+            buf, off + done, n);
+      } else {
+        final ByteBuffer dup = block.duplicate();
+        dup.position(blockOffset);
+        dup.get(buf, off + done, n);
+      }
+      done += n;
+      ++blockIndex;
+      blockOffset = 0;
+    }
+    return count;
+  }
+
+  /**
+   * Reads a byte from a specified position of this {@link RamFile}.
+   * <p>
+   * This function is thread safe.
+   *
+   * @param pos
+   *          the position of the byte.
+   * @return the byte as an integer between 0 and 255, or -1 if the position is
+   *         at or beyond the end of this {@link RamFile}.
+   */
+  public int read(final long pos) {
+    if (pos < 0) {
+      throw new IndexOutOfBoundsException();
+    }
+    final long size = length;
+    final ByteBuffer[] array = blocks;
+    if (pos >= size) {
+      return -1;
+    }
+    return (array[(int) (pos / BLOCK_SIZE)].get((int) (pos % BLOCK_SIZE)) & 0xFF);
+  }
+
+  /**
+   * Gets a read-only view of a block.
+   *
+   * @param blockIndex
+   *          the index of the block.
+   * @return a read-only view of the whole block.
+   */
+  ByteBuffer getBlockBuffer(final int blockIndex) {
+    if (blockIndex >= blockCount) {
+      throw new IndexOutOfBoundsException();
+    }
+    return blocks[blockIndex].asReadOnlyBuffer();
+  }
+
+  /**
+   * Writes bytes to a specified position of this {@link RamFile}, extending
+   * its length if necessary.
+   *
+   * @param pos
+   *          the position where to start writing, which must not be greater
+   *          than the length of this {@link RamFile}.
+   * @param buf
+   *          the buffer of the data to write.
+   * @param off
+   *          the start offset in the buffer.
+   * @param len
+   *          the number of bytes to write.
+   */
+  public synchronized void write(final long pos, final byte[] buf,
+      final int off, final int len) {
+    if ((off < 0) || (len < 0) || (off > buf.length - len) || (pos < 0)
+        || (pos > length)) {
+      throw new IndexOutOfBoundsException();
+    }
+    ensureCapacity(pos + len);
+    final ByteBuffer[] array = blocks;
+    int blockIndex = (int) (pos / BLOCK_SIZE);
+    int blockOffset = (int) (pos % BLOCK_SIZE);
+    int done = 0;
+    while (done < len) {
+      final int n = Math.min(len - done, BLOCK_SIZE - blockOffset);
+      final ByteBuffer block = array[blockIndex];
+      if (block.hasArray()) {
+        System.arraycopy(buf, off + done, block.array(),
+            block.arrayOffset() + blockOffset, n);
+      } else {
+        final ByteBuffer dup = block.duplicate();
+        dup.position(blockOffset);
+        dup.put(buf, off + done, n);
+      }
+      done += n;
+      ++blockIndex;
+      blockOffset = 0;
+    }
+    // publish the new length after the data is written
+    if (pos + len > length) {
+      length = pos + len;
+    }
+    lastModified = System.currentTimeMillis();
+  }
+
+  /**
+   * Writes a byte to a specified position of this {@link RamFile}, extending
+   * its length if necessary.
+   *
+   * @param pos
+   *          the position of the byte, which must not be greater than the
+   *          length of this {@link RamFile}.
+   * @param b
+   *          the byte to write.
+   */
+  public synchronized void write(final long pos, final int b) {
+    if ((pos < 0) || (pos > length)) {
+      throw new IndexOutOfBoundsException();
+    }
+    ensureCapacity(pos + 1);
+    blocks[(int) (pos / BLOCK_SIZE)].put((int) (pos % BLOCK_SIZE), (byte) b);
+    if (pos + 1 > length) {
+      length = pos + 1;
+    }
+    lastModified = System.currentTimeMillis();
   }
 
   /**
    * Copy the current contents of this {@link RamFile} to a specified
-   * {@link Output}.
+   * {@link OutputStream}.
    *
    * @param out
-   *          a specified {@link Output} where to write the data.
+   *          a specified {@link OutputStream} where to write the data.
    * @throws IOException
    *           if any I/O error occurs.
    */
   public void writeTo(final OutputStream out) throws IOException {
+    final long size = length;
+    final ByteBuffer[] array = blocks;
+    final byte[] buffer = (direct ? new byte[BLOCK_SIZE] : null);
     long pos = 0;
     int blockIndex = 0;
-    while (pos < length) {
-      int bytes = BLOCK_SIZE;
-      final long nextPos = pos + bytes;
-      if (nextPos > length) { // at the last buffer
-        bytes = (int) (length - pos);
+    while (pos < size) {
+      final int bytes = (int) Math.min(BLOCK_SIZE, size - pos);
+      final ByteBuffer block = array[blockIndex++];
+      if (block.hasArray()) {
+        out.write(block.array(), block.arrayOffset(), bytes);
+      } else {
+        final ByteBuffer dup = block.duplicate();
+        dup.get(buffer, 0, bytes);
+        out.write(buffer, 0, bytes);
       }
-      final byte[] block = getBlock(blockIndex++);
-      out.write(block, 0, bytes);
-      pos = nextPos;
+      pos += bytes;
     }
   }
 
+  /**
+   * Copy the current contents of this {@link RamFile} to a real file.
+   * <p>
+   * The blocks are written to the file channel by gathering writes, without
+   * copying them.
+   *
+   * @param file
+   *          the file where to write the data. It will be overwritten if it
+   *          exists.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public void writeTo(final File file) throws IOException {
+    final long size = length;
+    final ByteBuffer[] array = blocks;
+    final int n = (int) ((size + BLOCK_SIZE - 1) / BLOCK_SIZE);
+    final ByteBuffer[] buffers = new ByteBuffer[n];
+    for (int i = 0; i < n; ++i) {
+      final ByteBuffer dup = array[i].duplicate();
+      dup.limit((int) Math.min(BLOCK_SIZE, size - (long) i * BLOCK_SIZE));
+      buffers[i] = dup;
+    }
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      final FileChannel channel = out.getChannel();
+      long remaining = size;
+      int first = 0;
+      while (remaining > 0) {
+        remaining -= channel.write(buffers, first, n - first);
+        while ((first < n) && (! buffers[first].hasRemaining())) {
+          ++first;
+        }
+      }
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * Replaces the contents of this {@link RamFile} with the data read from a
+   * specified {@link InputStream}.
+   * <p>
+   * The data is read until the end of the input stream, and the input stream
+   * is not closed.
+   *
+   * @param in
+   *          a specified {@link InputStream} from where to read the data.
+   * @return the number of bytes read.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public synchronized long readFrom(final InputStream in) throws IOException {
+    length = 0;
+    final byte[] buffer = new byte[BLOCK_SIZE];
+    while (true) {
+      final int n = in.read(buffer);
+      if (n < 0) {
+        break;
+      }
+      write(length, buffer, 0, n);
+    }
+    lastModified = System.currentTimeMillis();
+    return length;
+  }
+
+  /**
+   * Replaces the contents of this {@link RamFile} with the contents of a real
+   * file.
+   * <p>
+   * The data is read from the file channel directly into the blocks.
+   *
+   * @param file
+   *          the file from where to read the data.
+   * @return the number of bytes read.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public synchronized long readFrom(final File file) throws IOException {
+    final FileInputStream in = new FileInputStream(file);
+    try {
+      final FileChannel channel = in.getChannel();
+      final long size = channel.size();
+      length = 0;
+      ensureCapacity(size);
+      final ByteBuffer[] array = blocks;
+      long pos = 0;
+      while (pos < size) {
+        final ByteBuffer dup = array[(int) (pos / BLOCK_SIZE)].duplicate();
+        dup.position((int) (pos % BLOCK_SIZE));
+        dup.limit((int) Math.min(BLOCK_SIZE, dup.position() + size - pos));
+        while (dup.hasRemaining()) {
+          final int n = channel.read(dup, pos);
+          if (n < 0) {
+            throw new EOFException();
+          }
+          pos += n;
+        }
+      }
+      length = size;
+      lastModified = System.currentTimeMillis();
+      return size;
+    } finally {
+      in.close();
+    }
+  }
+
+  private synchronized void writeObject(final ObjectOutputStream out)
+      throws IOException {
+    out.defaultWriteObject();
+    writeTo(out);
+  }
+
+  private void readObject(final ObjectInputStream in) throws IOException,
+      ClassNotFoundException {
+    in.defaultReadObject();
+    writing = new AtomicBoolean(false);
+    blocks = new ByteBuffer[4];
+    blockCount = 0;
+    final long size = length;
+    final long modified = lastModified;
+    length = 0;
+    final byte[] buffer = new byte[BLOCK_SIZE];
+    long pos = 0;
+    while (pos < size) {
+      final int n = (int) Math.min(BLOCK_SIZE, size - pos);
+      in.readFully(buffer, 0, n);
+      write(pos, buffer, 0, n);
+      pos += n;
+    }
+    lastModified = modified;
+  }
 }
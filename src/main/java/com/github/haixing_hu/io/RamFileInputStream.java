@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.io.exception.InvalidSeekPositionException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A {@link SeekableInputStream} to read data from a {@link RamFile}.
+ * <p>
+ * Several streams could read the same {@link RamFile} concurrently, even while
+ * it is being written, and each stream sees the data up to the current length
+ * of the file. The sequential reading functions of this class are not thread
+ * safe, but the positional reading functions of the
+ * {@link PositionalReadable} interface are thread safe.
+ *
+ * @author Haixing Hu
+ * @see RamDirectory
+ */
+@NotThreadSafe
+public final class RamFileInputStream extends AbstractSeekableInputStream
+    implements PositionalReadable {
+
+  private RamFile file;
+  private long position;
+
+  /**
+   * Constructs a {@link RamFileInputStream}.
+   *
+   * @param file
+   *          the {@link RamFile} to read.
+   */
+  public RamFileInputStream(final RamFile file) {
+    super();
+    this.file = requireNonNull("file", file);
+    position = 0;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    final int result = file.read(position);
+    if (result >= 0) {
+      ++position;
+    }
+    return result;
+  }
+
+  @Override
+  public int read(final byte[] buf, final int off, final int len)
+      throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    if (len == 0) {
+      return 0;
+    }
+    final int result = file.read(position, buf, off, len);
+    if (result > 0) {
+      position += result;
+    }
+    return result;
+  }
+
+  @Override
+  public long length() throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    return file.getLength();
+  }
+
+  @Override
+  public long position() throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    return position;
+  }
+
+  @Override
+  public void seek(final long pos) throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((pos < 0) || (pos > file.getLength())) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    position = pos;
+  }
+
+  @Override
+  public int read(final long pos, final byte[] buf, final int off,
+      final int len) throws IOException {
+    final RamFile f = file;
+    if (f == null) {
+      throw new AlreadyClosedException();
+    }
+    if (pos < 0) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    return f.read(pos, buf, off, len);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * If the specified range is inside a block of the file, the returned buffer
+   * is a read-only view of the block; otherwise it is a read-only copy of the
+   * data.
+   */
+  @Override
+  public ByteBuffer slice(final long pos, final int len) throws IOException {
+    final RamFile f = file;
+    if (f == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((pos < 0) || (len < 0) || (pos + len > f.getLength())) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    final int offset = (int) (pos % RamFile.BLOCK_SIZE);
+    if (offset + len <= RamFile.BLOCK_SIZE) {
+      final ByteBuffer block = f.getBlockBuffer((int) (pos / RamFile.BLOCK_SIZE));
+      block.position(offset).limit(offset + len);
+      return block.slice();
+    } else {
+      final byte[] data = new byte[len];
+      f.read(pos, data, 0, len);
+      return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+  }
+
+  @Override
+  public void close() {
+    file = null;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.io.exception.InvalidSeekPositionException;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A {@link SeekableOutputStream} to write data to a {@link RamFile}.
+ * <p>
+ * At most one {@link RamFileOutputStream} could be opened on a {@link RamFile}
+ * at the same time, while the file could be read concurrently by any number
+ * of {@link RamFileInputStream}s.
+ *
+ * @author Haixing Hu
+ * @see RamDirectory
+ */
+@NotThreadSafe
+public final class RamFileOutputStream extends SeekableOutputStream {
+
+  private RamFile file;
+  private long position;
+
+  /**
+   * Constructs a {@link RamFileOutputStream}.
+   *
+   * @param file
+   *          the {@link RamFile} to write.
+   * @param append
+   *          whether to start writing at the end of the file; otherwise the
+   *          file is truncated.
+   * @throws IOException
+   *           if the file is being written by another stream.
+   */
+  public RamFileOutputStream(final RamFile file, final boolean append)
+      throws IOException {
+    requireNonNull("file", file);
+    file.acquireWriter();
+    this.file = file;
+    if (append) {
+      position = file.getLength();
+    } else {
+      file.setLength(0);
+      position = 0;
+    }
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    file.write(position, b);
+    ++position;
+  }
+
+  @Override
+  public void write(final byte[] buf, final int off, final int len)
+      throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    file.write(position, buf, off, len);
+    position += len;
+  }
+
+  @Override
+  public long length() throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    return file.getLength();
+  }
+
+  @Override
+  public long position() throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    return position;
+  }
+
+  @Override
+  public void seek(final long pos) throws IOException {
+    if (file == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((pos < 0) || (pos > file.getLength())) {
+      throw new InvalidSeekPositionException(pos);
+    }
+    position = pos;
+  }
+
+  @Override
+  public void close() {
+    if (file != null) {
+      file.releaseWriter();
+      file = null;
+    }
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import javax.annotation.Nullable;
+
+/**
+ * This interface provides a function to combine the values of the records
+ * having the same key.
+ * <p>
+ * The combiner may be applied to any subset of the records of a key in any
+ * grouping, therefore the combining function must be associative; and it is
+ * always called with the values in the order the records were read.
+ *
+ * @author Haixing Hu
+ * @see ExternalSorter
+ */
+public interface RecordCombiner<KEY, VALUE> {
+
+  /**
+   * Combines the values of two records having the same key.
+   *
+   * @param key
+   *          the key of the records.
+   * @param first
+   *          the value of the record read first.
+   * @param second
+   *          the value of the record read second.
+   * @return the combined value.
+   */
+  public VALUE combine(KEY key, @Nullable VALUE first, @Nullable VALUE second);
+}
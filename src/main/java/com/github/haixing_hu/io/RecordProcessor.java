@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+
+/**
+ * This interface provides functions to process the records read by a
+ * {@link RecordReader} and merge the results of several readers.
+ *
+ * @param <RESULT>
+ *          the type of the processing results.
+ * @author Haixing Hu
+ * @see ParallelRecordProcessing
+ */
+public interface RecordProcessor<KEY, VALUE, RESULT> {
+
+  /**
+   * Processes all the records of a reader.
+   * <p>
+   * This function may be called concurrently by different threads with
+   * different readers.
+   *
+   * @param reader
+   *          the reader to process. It will be closed by the caller.
+   * @return the result of processing the records of the reader.
+   * @throws IOException
+   *           if any I/O error occurred.
+   */
+  public RESULT process(RecordReader<KEY, VALUE> reader) throws IOException;
+
+  /**
+   * Merges the results of two adjacent splits.
+   *
+   * @param left
+   *          the result of the split preceding the other.
+   * @param right
+   *          the result of the split following the other.
+   * @return the merged result.
+   */
+  public RESULT merge(RESULT left, RESULT right);
+}
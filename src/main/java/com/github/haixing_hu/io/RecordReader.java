@@ -20,6 +20,11 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.util.Map;
 
+import com.github.haixing_hu.io.serialize.BinarySerialization;
+import com.github.haixing_hu.lang.Assignable;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
 /**
  * This interface provides functions to read key-value pair records from an
  * input source.
@@ -119,4 +124,55 @@ public interface RecordReader<KEY, VALUE> extends Closeable {
    *           if any I/O error occurred.
    */
   public Map.Entry<KEY, VALUE> next() throws IOException;
+
+  /**
+   * Reads the next key/value pair from the input into the specified key and
+   * value objects.
+   * <p>
+   * Unlike {@link #next()}, this function allocates no objects for the record
+   * if the classes of the keys and values are mutable, i.e., if their binary
+   * serializers are
+   * {@link com.github.haixing_hu.io.serialize.ReusingBinarySerializer}s or
+   * their objects are {@link Assignable}. The
+   * caller usually creates the key and value once by {@link #createKey()} and
+   * {@link #createValue()}, and reuses them for all the records. The keys and
+   * values of the records read by this function could not be null.
+   * <p>
+   * The default implementation reads the record by {@link #next()} and
+   * assigns its key and value to the specified objects, which must be
+   * {@link Assignable}. The readers decoding the records from binary streams
+   * should override it to decode the records directly into the specified
+   * objects by {@link BinarySerialization#deserializeInto}.
+   *
+   * @param key
+   *          the key object where to store the key of the next record.
+   * @param value
+   *          the value object where to store the value of the next record.
+   * @return true if a record was read; false if at EOF.
+   * @throws IOException
+   *           if any I/O error occurred.
+   * @throws UnsupportedOperationException
+   *           if the key or value could not be filled in place.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public default boolean next(final KEY key, final VALUE value)
+      throws IOException {
+    requireNonNull("key", key);
+    requireNonNull("value", value);
+    if (! (key instanceof Assignable)) {
+      throw new UnsupportedOperationException("Can not assign to an object of "
+          + key.getClass().getName());
+    }
+    if (! (value instanceof Assignable)) {
+      throw new UnsupportedOperationException("Can not assign to an object of "
+          + value.getClass().getName());
+    }
+    if (! hasNext()) {
+      return false;
+    }
+    final Map.Entry<KEY, VALUE> entry = next();
+    ((Assignable) key).assign(requireNonNull("entry.key", entry.getKey()));
+    ((Assignable) value).assign(requireNonNull("entry.value", entry.getValue()));
+    return true;
+  }
 }
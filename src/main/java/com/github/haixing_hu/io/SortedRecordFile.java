@@ -0,0 +1,130 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.util.Comparator;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nullable;
+
+import com.github.haixing_hu.util.Version;
+import com.github.haixing_hu.util.VersionSignature;
+
+/**
+ * Defines the format of the sorted record files, which are written by
+ * {@link SortedRecordWriter} and read by {@link SortedRecordReader}.
+ * <p>
+ * A sorted record file stores key/value records sorted by their keys, and
+ * has the following layout:
+ * <pre>
+ * header:        the version signature of the format
+ * data blocks:   the compressed blocks of the serialized records
+ * meta block:    the kind of the Bloom filters, and the index of the data
+ *                blocks, which stores the first key, the offset, the sizes,
+ *                the number of records, the checksum and the optional Bloom
+ *                filter of the keys of each data block
+ * footer:        the offset, size and checksum of the meta block, the total
+ *                number of records and blocks, the checksum algorithm, and
+ *                the magic number
+ * </pre>
+ * Each record in a data block is stored as the serialized key, followed by
+ * the size of the serialized value as a variable length integer, and the
+ * serialized value.
+ * The keys and values are serialized by their {@link
+ * com.github.haixing_hu.io.serialize.BinarySerializer}s, the data blocks are
+ * compressed by the {@link com.github.haixing_hu.util.CompressionTools}, and
+ * the checksum of each block is computed on its compressed bytes.
+ *
+ * @author Haixing Hu
+ */
+public final class SortedRecordFile {
+
+  /**
+   * The default size of the uncompressed data blocks in bytes.
+   */
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * The default compression level of the data blocks.
+   */
+  public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+
+  /**
+   * The default checksum algorithm of the blocks.
+   */
+  public static final ChecksumAlgorithm DEFAULT_CHECKSUM_ALGORITHM =
+      ChecksumAlgorithm.CRC32C;
+
+  /**
+   * The default number of bits per key of the Bloom filter; 0 means no Bloom
+   * filter.
+   */
+  public static final int DEFAULT_BLOOM_BITS_PER_KEY = 10;
+
+  static final VersionSignature SIGNATURE =
+      new VersionSignature(0x53524649_4C450001L, new Version(1, 0));
+
+  static final long MAGIC = 0x534F5254_45445346L;
+
+  /**
+   * The kind of the Bloom filters indicating that there is no Bloom filter.
+   */
+  static final int NO_FILTER = 0;
+
+  /**
+   * The kind of the Bloom filters indicating that each data block has a
+   * Bloom filter of its keys stored in its index entry.
+   */
+  static final int BLOCK_FILTERS = 1;
+
+  /**
+   * The size of the footer in bytes.
+   */
+  static final int FOOTER_SIZE = 8 + 4 + 8 + 8 + 4 + 1 + 8;
+
+  private SortedRecordFile() {}
+
+  /**
+   * Gets the comparator of the keys.
+   *
+   * @param keyClass
+   *          the class of the keys.
+   * @param comparator
+   *          the specified comparator, or null to use the natural order of the
+   *          keys.
+   * @return the comparator of the keys.
+   * @throws IllegalArgumentException
+   *           if the comparator is null and the keys are not comparable.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  static <KEY> Comparator<? super KEY> comparator(final Class<KEY> keyClass,
+      @Nullable final Comparator<? super KEY> comparator) {
+    if (comparator != null) {
+      return comparator;
+    }
+    if (! Comparable.class.isAssignableFrom(keyClass)) {
+      throw new IllegalArgumentException("The keys are not comparable: "
+          + keyClass.getName());
+    }
+    return new Comparator<KEY>() {
+      @Override
+      public int compare(final KEY k1, final KEY k2) {
+        return ((Comparable) k1).compareTo(k2);
+      }
+    };
+  }
+}
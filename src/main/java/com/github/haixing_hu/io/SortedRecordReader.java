@@ -0,0 +1,653 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.zip.Checksum;
+import java.util.zip.DataFormatException;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+import com.github.haixing_hu.io.exception.InvalidSignatureException;
+import com.github.haixing_hu.io.serialize.BinarySerialization;
+import com.github.haixing_hu.io.serialize.BinarySerializer;
+import com.github.haixing_hu.io.serialize.NoBinarySerializerRegisteredException;
+import com.github.haixing_hu.util.CompressionTools;
+import com.github.haixing_hu.util.pair.KeyValuePair;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A {@link RecordReader} which reads the records from a sorted record file.
+ * <p>
+ * Besides reading the records sequentially, this reader could seek to the
+ * record of a specified key by binary searching the sparse index of the data
+ * blocks, and then scanning the records in the located block. Only the index,
+ * the Bloom filters, and the current data block are kept in the memory.
+ * <p>
+ * The data blocks are independently compressed and located by the index, so
+ * they serve as the sync points of the file: {@link #split(int)} partitions
+ * the remaining blocks into contiguous ranges, and returns an independent
+ * reader over each range, which could be processed in parallel by
+ * {@link ParallelRecordProcessing}.
+ *
+ * @author Haixing Hu
+ * @see SortedRecordFile
+ * @see SortedRecordWriter
+ */
+@NotThreadSafe
+public final class SortedRecordReader<KEY, VALUE> implements
+    SplittableRecordReader<KEY, VALUE> {
+
+  private final File file;
+  private final Class<KEY> keyClass;
+  private final Class<VALUE> valueClass;
+  private final Comparator<? super KEY> comparator;
+  private final BinarySerializer keySerializer;
+  private final BinarySerializer valueSerializer;
+  private final ChecksumAlgorithm checksumAlgorithm;
+  private final Checksum checksum;
+  private final long recordCount;
+  private final int blockCount;
+  private final Object[] firstKeys;
+  private final long[] blockOffsets;
+  private final int[] blockSizes;
+  private final int[] blockRawSizes;
+  private final int[] blockRecordCounts;
+  private final long[] blockChecksums;
+  private final long[] blockFirstRecords;
+  @Nullable
+  private final BloomFilter[] blockFilters;
+  private final XxHash64 hasher;
+  private final SortedRecordWriter.BlockBuffer keyBuffer;
+  private final int firstBlock;
+  private final int endBlock;
+  private final long firstRecord;
+  private final long endRecord;
+  private RandomAccessFile descriptor;
+  private FileChannel channel;
+  private int blockIndex;
+  private int loadedBlock;
+  private byte[] blockData;
+  private ByteArrayInputStream blockInput;
+  private int blockRemaining;
+  private long position;
+  @Nullable
+  private KEY peekedKey;
+
+  /**
+   * Constructs a {@link SortedRecordReader}, whose keys are compared in their
+   * natural order.
+   *
+   * @param file
+   *          the file to read.
+   * @param keyClass
+   *          the class of the keys, which must be comparable.
+   * @param valueClass
+   *          the class of the values.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public SortedRecordReader(final File file, final Class<KEY> keyClass,
+      final Class<VALUE> valueClass) throws IOException {
+    this(file, keyClass, valueClass, null);
+  }
+
+  /**
+   * Constructs a {@link SortedRecordReader}.
+   *
+   * @param file
+   *          the file to read.
+   * @param keyClass
+   *          the class of the keys.
+   * @param valueClass
+   *          the class of the values.
+   * @param comparator
+   *          the comparator used to write the file, or null to use the natural
+   *          order of the keys.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public SortedRecordReader(final File file, final Class<KEY> keyClass,
+      final Class<VALUE> valueClass,
+      @Nullable final Comparator<? super KEY> comparator) throws IOException {
+    this.file = requireNonNull("file", file);
+    this.keyClass = requireNonNull("keyClass", keyClass);
+    this.valueClass = requireNonNull("valueClass", valueClass);
+    this.comparator = SortedRecordFile.comparator(keyClass, comparator);
+    this.keySerializer = BinarySerialization.getSerializer(keyClass);
+    if (keySerializer == null) {
+      throw new NoBinarySerializerRegisteredException(keyClass);
+    }
+    this.valueSerializer = BinarySerialization.getSerializer(valueClass);
+    if (valueSerializer == null) {
+      throw new NoBinarySerializerRegisteredException(valueClass);
+    }
+    this.hasher = new XxHash64();
+    this.keyBuffer = new SortedRecordWriter.BlockBuffer(64);
+    descriptor = new RandomAccessFile(file, "r");
+    try {
+      channel = descriptor.getChannel();
+      final long length = channel.size();
+      // verify the header
+      final byte[] header = readAt(0, (int) Math.min(length, 64));
+      SortedRecordFile.SIGNATURE.verify(new ByteArrayInputStream(header));
+      // read the footer
+      if (length < SortedRecordFile.FOOTER_SIZE) {
+        throw new InvalidFormatException("The file is truncated: " + file);
+      }
+      final ByteArrayInputStream footer = new ByteArrayInputStream(
+          readAt(length - SortedRecordFile.FOOTER_SIZE,
+              SortedRecordFile.FOOTER_SIZE));
+      final long metaOffset = InputUtils.readLong(footer);
+      final int metaSize = InputUtils.readInt(footer);
+      final long metaChecksum = InputUtils.readLong(footer);
+      recordCount = InputUtils.readLong(footer);
+      blockCount = InputUtils.readInt(footer);
+      final int algorithm = InputUtils.readByte(footer);
+      if (InputUtils.readLong(footer) != SortedRecordFile.MAGIC) {
+        throw new InvalidSignatureException("Not a sorted record file: " + file);
+      }
+      checksumAlgorithm = ChecksumAlgorithm.forId(algorithm);
+      if ((checksumAlgorithm == null) || (metaOffset < 0) || (metaSize < 0) || (blockCount < 0)
+          || (metaOffset + metaSize > length - SortedRecordFile.FOOTER_SIZE)) {
+        throw new InvalidFormatException("Invalid footer: " + file);
+      }
+      checksum = checksumAlgorithm.newChecksum();
+      // read the meta block
+      final byte[] meta = readAt(metaOffset, metaSize);
+      verifyChecksum(meta, metaChecksum);
+      final ByteArrayInputStream in = new ByteArrayInputStream(meta);
+      final int filterKind = InputUtils.readByte(in);
+      if ((filterKind != SortedRecordFile.NO_FILTER)
+          && (filterKind != SortedRecordFile.BLOCK_FILTERS)) {
+        throw new InvalidFormatException("Invalid Bloom filter kind: " + file);
+      }
+      if (InputUtils.readVarInt(in) != blockCount) {
+        throw new InvalidFormatException("Invalid block index: " + file);
+      }
+      firstKeys = new Object[blockCount];
+      blockOffsets = new long[blockCount];
+      blockSizes = new int[blockCount];
+      blockRawSizes = new int[blockCount];
+      blockRecordCounts = new int[blockCount];
+      blockChecksums = new long[blockCount];
+      blockFirstRecords = new long[blockCount];
+      blockFilters = (filterKind == SortedRecordFile.BLOCK_FILTERS
+          ? new BloomFilter[blockCount] : null);
+      long first = 0;
+      for (int i = 0; i < blockCount; ++i) {
+        InputUtils.readVarInt(in);    // the size of the serialized key
+        firstKeys[i] = keySerializer.deserialize(in, false);
+        blockOffsets[i] = InputUtils.readLong(in);
+        blockSizes[i] = InputUtils.readVarInt(in);
+        blockRawSizes[i] = InputUtils.readVarInt(in);
+        blockRecordCounts[i] = InputUtils.readVarInt(in);
+        blockChecksums[i] = InputUtils.readLong(in);
+        if (blockFilters != null) {
+          blockFilters[i] = BloomFilter.read(in);
+        }
+        blockFirstRecords[i] = first;
+        first += blockRecordCounts[i];
+      }
+      if (first != recordCount) {
+        throw new InvalidFormatException("Invalid block index: " + file);
+      }
+    } catch (final IOException e) {
+      IoUtils.closeQuietly(descriptor);
+      throw e;
+    }
+    firstBlock = 0;
+    endBlock = blockCount;
+    firstRecord = 0;
+    endRecord = recordCount;
+    blockIndex = -1;
+    loadedBlock = -1;
+    blockData = null;
+    blockInput = null;
+    blockRemaining = 0;
+    position = 0;
+    peekedKey = null;
+  }
+
+  /**
+   * Constructs a reader over a range of the data blocks of another reader,
+   * sharing its index and Bloom filters. The range starts at the record
+   * {@code firstRecord}, which is in the block {@code firstBlock}.
+   */
+  private SortedRecordReader(final SortedRecordReader<KEY, VALUE> parent,
+      final int firstBlock, final int endBlock, final long firstRecord)
+      throws IOException {
+    file = parent.file;
+    keyClass = parent.keyClass;
+    valueClass = parent.valueClass;
+    comparator = parent.comparator;
+    keySerializer = parent.keySerializer;
+    valueSerializer = parent.valueSerializer;
+    checksumAlgorithm = parent.checksumAlgorithm;
+    checksum = checksumAlgorithm.newChecksum();
+    recordCount = parent.recordCount;
+    blockCount = parent.blockCount;
+    firstKeys = parent.firstKeys;
+    blockOffsets = parent.blockOffsets;
+    blockSizes = parent.blockSizes;
+    blockRawSizes = parent.blockRawSizes;
+    blockRecordCounts = parent.blockRecordCounts;
+    blockChecksums = parent.blockChecksums;
+    blockFirstRecords = parent.blockFirstRecords;
+    blockFilters = parent.blockFilters;
+    hasher = new XxHash64();
+    keyBuffer = new SortedRecordWriter.BlockBuffer(64);
+    this.firstBlock = firstBlock;
+    this.endBlock = endBlock;
+    this.firstRecord = firstRecord;
+    endRecord = parent.recordOffset(endBlock);
+    descriptor = new RandomAccessFile(file, "r");
+    channel = descriptor.getChannel();
+    blockIndex = firstBlock - 1;
+    loadedBlock = -1;
+    blockData = null;
+    blockInput = null;
+    blockRemaining = 0;
+    position = firstRecord;
+    peekedKey = null;
+  }
+
+  private long recordOffset(final int block) {
+    return (block < blockCount ? blockFirstRecords[block] : recordCount);
+  }
+
+  private byte[] readAt(final long pos, final int size) throws IOException {
+    final byte[] result = new byte[size];
+    final ByteBuffer buffer = ByteBuffer.wrap(result);
+    while (buffer.hasRemaining()) {
+      final int n = channel.read(buffer, pos + buffer.position());
+      if (n < 0) {
+        throw new EOFException();
+      }
+    }
+    return result;
+  }
+
+  private void verifyChecksum(final byte[] data, final long expected)
+      throws InvalidFormatException {
+    checksum.reset();
+    checksum.update(data, 0, data.length);
+    if (checksum.getValue() != expected) {
+      throw new InvalidFormatException("Checksum mismatch.");
+    }
+  }
+
+  private void loadBlock(final int index) throws IOException {
+    if (channel == null) {
+      throw new AlreadyClosedException();
+    }
+    if (index != loadedBlock) {
+      final byte[] data = readAt(blockOffsets[index], blockSizes[index]);
+      verifyChecksum(data, blockChecksums[index]);
+      try {
+        blockData = CompressionTools.decompress(data, 0, data.length);
+      } catch (final DataFormatException e) {
+        throw new InvalidFormatException(e);
+      }
+      if (blockData.length != blockRawSizes[index]) {
+        throw new InvalidFormatException("Invalid block size.");
+      }
+      loadedBlock = index;
+    }
+    blockIndex = index;
+    blockInput = new ByteArrayInputStream(blockData);
+    blockRemaining = blockRecordCounts[index];
+    position = blockFirstRecords[index];
+    peekedKey = null;
+    // skips the records before the start of a split beginning in the block
+    while (position < firstRecord) {
+      peekKey();
+      skipValue();
+    }
+  }
+
+  /**
+   * Gets the total number of records in the file.
+   *
+   * @return the total number of records in the file.
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Gets the number of data blocks in the file.
+   *
+   * @return the number of data blocks in the file.
+   */
+  public int getBlockCount() {
+    return blockCount;
+  }
+
+  /**
+   * Gets the number of records in the range of this reader.
+   * <p>
+   * For a reader returned by {@link #split(int)}, this is the number of
+   * records in its split; otherwise it is the total number of records in the
+   * file.
+   *
+   * @return the number of records in the range of this reader.
+   */
+  public long getSplitRecordCount() {
+    return endRecord - firstRecord;
+  }
+
+  /**
+   * Splits the remaining data blocks in the range of this reader into at most
+   * {@code n} contiguous ranges of roughly equal compressed size, and returns
+   * an independent reader over each range.
+   * <p>
+   * The first split starts at the current position of this reader, so if this
+   * reader is in the middle of a block, the first split skips the records of
+   * the block already read or skipped by this reader.
+   * <p>
+   * The returned readers share the index of this reader but have their own
+   * file descriptors, so they could be used by different threads, and must be
+   * closed by the caller. The state of this reader is not changed.
+   *
+   * @param n
+   *          the maximum number of splits, which must be positive.
+   * @return the list of readers over the splits, in the order of the keys.
+   *         It has at least one element, and has no more elements than the
+   *         number of blocks unless the range of this reader is empty.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  @Override
+  public List<SortedRecordReader<KEY, VALUE>> split(final int n)
+      throws IOException {
+    if (n <= 0) {
+      throw new IllegalArgumentException("The number of splits must be positive.");
+    }
+    if (channel == null) {
+      throw new AlreadyClosedException();
+    }
+    // the remaining records start at the current record of the current block
+    // if it is not exhausted, or at the first record of the next block, but
+    // never before the first record of the range of this reader, which may
+    // start in the middle of its first block
+    int start = (blockRemaining > 0 ? blockIndex : blockIndex + 1);
+    long startRecord = (blockRemaining > 0 ? position
+        : Math.max(recordOffset(start), firstRecord));
+    final List<SortedRecordReader<KEY, VALUE>> result =
+        new ArrayList<SortedRecordReader<KEY, VALUE>>();
+    try {
+      long total = 0;
+      for (int i = start; i < endBlock; ++i) {
+        total += blockSizes[i];
+      }
+      long size = 0;
+      for (int i = start; i < endBlock; ++i) {
+        size += blockSizes[i];
+        // cut after the block reaching the next 1/n of the total size
+        final long target = (total * (result.size() + 1)) / n;
+        if ((size >= target) && (result.size() < n - 1)) {
+          result.add(new SortedRecordReader<KEY, VALUE>(this, start, i + 1,
+              startRecord));
+          start = i + 1;
+          startRecord = recordOffset(start);
+        }
+      }
+      if ((start < endBlock) || result.isEmpty()) {
+        result.add(new SortedRecordReader<KEY, VALUE>(this, start, endBlock,
+            startRecord));
+      }
+    } catch (final IOException e) {
+      for (final SortedRecordReader<KEY, VALUE> reader : result) {
+        IoUtils.closeQuietly(reader);
+      }
+      throw e;
+    }
+    return result;
+  }
+
+  @Override
+  public KEY createKey() throws InstantiationException, IllegalAccessException {
+    return keyClass.newInstance();
+  }
+
+  @Override
+  public VALUE createValue() throws InstantiationException, IllegalAccessException {
+    return valueClass.newInstance();
+  }
+
+  /**
+   * Gets the index of the next record to be read.
+   *
+   * @return the index of the next record to be read.
+   */
+  @Override
+  public long getPosition() {
+    return position;
+  }
+
+  @Override
+  public float getProgress() {
+    if (endRecord == firstRecord) {
+      return 1.0f;
+    } else {
+      return (float) (position - firstRecord) / (float) (endRecord - firstRecord);
+    }
+  }
+
+  @Override
+  public boolean hasNext() throws IOException {
+    while (blockRemaining == 0) {
+      if (blockIndex + 1 >= endBlock) {
+        return false;
+      }
+      loadBlock(blockIndex + 1);
+    }
+    return true;
+  }
+
+  @Override
+  public Map.Entry<KEY, VALUE> next() throws IOException {
+    if (! hasNext()) {
+      throw new NoSuchElementException();
+    }
+    final KEY key = peekKey();
+    peekedKey = null;
+    InputUtils.readVarInt(blockInput);   // the size of the serialized value
+    @SuppressWarnings("unchecked")
+    final VALUE value = (VALUE) valueSerializer.deserialize(blockInput, true);
+    --blockRemaining;
+    ++position;
+    return new KeyValuePair<KEY, VALUE>(key, value);
+  }
+
+  @Override
+  public boolean next(final KEY key, final VALUE value) throws IOException {
+    requireNonNull("key", key);
+    requireNonNull("value", value);
+    if (! hasNext()) {
+      return false;
+    }
+    if (peekedKey != null) {
+      // reads the peeked key again into the specified key
+      blockInput.reset();
+      peekedKey = null;
+    }
+    BinarySerialization.deserializeInto(keySerializer, blockInput, key);
+    InputUtils.readVarInt(blockInput);   // the size of the serialized value
+    BinarySerialization.deserializeInto(valueSerializer, blockInput, value);
+    --blockRemaining;
+    ++position;
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private KEY peekKey() throws IOException {
+    if (peekedKey == null) {
+      blockInput.mark(0);
+      peekedKey = (KEY) keySerializer.deserialize(blockInput, false);
+    }
+    return peekedKey;
+  }
+
+  private void skipValue() throws IOException {
+    final int size = InputUtils.readVarInt(blockInput);
+    if (blockInput.skip(size) != size) {
+      throw new EOFException();
+    }
+    peekedKey = null;
+    --blockRemaining;
+    ++position;
+  }
+
+  /**
+   * Seeks to the first record whose key is greater than or equal to the
+   * specified key.
+   * <p>
+   * For a reader returned by {@link #split(int)}, only the records in its
+   * split are searched.
+   *
+   * @param key
+   *          the key to seek.
+   * @return true if the record following the new position has the specified
+   *         key; false otherwise.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public boolean seek(final KEY key) throws IOException {
+    requireNonNull("key", key);
+    if (channel == null) {
+      throw new AlreadyClosedException();
+    }
+    if (firstBlock == endBlock) {
+      return false;
+    }
+    loadBlock(findBlock(key, firstBlock, endBlock));
+    while (hasNext()) {
+      final int c = comparator.compare(peekKey(), key);
+      if (c >= 0) {
+        return (c == 0);
+      }
+      skipValue();
+    }
+    return false;
+  }
+
+  /**
+   * Binary searches the last block in a non-empty range whose first key is not
+   * greater than a key, or the first block of the range if there is no such
+   * block.
+   */
+  @SuppressWarnings("unchecked")
+  private int findBlock(final KEY key, final int first, final int end) {
+    int low = first;
+    int high = end - 1;
+    while (low < high) {
+      final int mid = (low + high + 1) >>> 1;
+      if (comparator.compare((KEY) firstKeys[mid], key) <= 0) {
+        low = mid;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Tests whether the file may contain a key, using the Bloom filters of the
+   * file.
+   *
+   * @param key
+   *          the key to test.
+   * @return false if the file definitely does not contain the key; true if
+   *         the file may contain the key, or the file has no Bloom filter.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  public boolean mightContain(final KEY key) throws IOException {
+    requireNonNull("key", key);
+    if (blockFilters == null) {
+      return true;
+    }
+    if ((blockCount == 0)
+        || (comparator.compare((KEY) firstKeys[0], key) > 0)) {
+      return false;
+    }
+    final BloomFilter filter = blockFilters[findBlock(key, 0, blockCount)];
+    keyBuffer.reset();
+    keySerializer.serialize(keyBuffer, key);
+    hasher.reset();
+    hasher.update(keyBuffer.array(), 0, keyBuffer.size());
+    return filter.mightContain(hasher.getValue());
+  }
+
+  /**
+   * Gets the value of a key.
+   * <p>
+   * After calling this function, the reader is positioned after the record of
+   * the key if it is found.
+   *
+   * @param key
+   *          the key to look up.
+   * @return the value of the key, or null if the file does not contain the
+   *         key. Note that null is also returned if the value of the key is
+   *         null.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  @Nullable
+  public VALUE get(final KEY key) throws IOException {
+    if ((! mightContain(key)) || (! seek(key))) {
+      return null;
+    }
+    return next().getValue();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (descriptor != null) {
+      try {
+        descriptor.close();
+      } finally {
+        descriptor = null;
+        channel = null;
+        blockData = null;
+        blockInput = null;
+        blockRemaining = 0;
+        blockIndex = firstBlock - 1;
+        loadedBlock = -1;
+        peekedKey = null;
+      }
+    }
+  }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Comparator;
+import java.util.zip.Checksum;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.github.haixing_hu.collection.primitive.LongList;
+import com.github.haixing_hu.collection.primitive.impl.ArrayLongList;
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+import com.github.haixing_hu.io.serialize.BinarySerialization;
+import com.github.haixing_hu.io.serialize.BinarySerializer;
+import com.github.haixing_hu.io.serialize.NoBinarySerializerRegisteredException;
+import com.github.haixing_hu.io.serialize.ReusingBinarySerializer;
+import com.github.haixing_hu.lang.ArrayUtils;
+import com.github.haixing_hu.util.CompressionTools;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A {@link RecordWriter} which writes the records sorted by their keys into a
+ * sorted record file.
+ * <p>
+ * The records must be written in the strictly increasing order of their
+ * keys, and the keys could not be null. The file is complete only after this
+ * writer is closed.
+ *
+ * @author Haixing Hu
+ * @see SortedRecordFile
+ * @see SortedRecordReader
+ */
+@NotThreadSafe
+public final class SortedRecordWriter<KEY, VALUE> implements
+    RecordWriter<KEY, VALUE> {
+
+  private final Comparator<? super KEY> comparator;
+  private final BinarySerializer keySerializer;
+  private final BinarySerializer valueSerializer;
+  private final int blockSize;
+  private final int compressionLevel;
+  private final ChecksumAlgorithm checksumAlgorithm;
+  private final Checksum checksum;
+  private final int bloomBitsPerKey;
+  private final XxHash64 hasher;
+  private final LongList keyHashes;
+  private final BlockBuffer keyBuffer;
+  private final BlockInput keyInput;
+  private final BlockBuffer valueBuffer;
+  private final BlockBuffer block;
+  private final BlockBuffer index;
+  private OutputStream out;
+  private long offset;
+  private long recordCount;
+  private int blockCount;
+  private int blockRecordCount;
+  private KEY lastKey;
+
+  /**
+   * Constructs a {@link SortedRecordWriter} with the default options.
+   *
+   * @param file
+   *          the file to write.
+   * @param keyClass
+   *          the class of the keys, which must be comparable.
+   * @param valueClass
+   *          the class of the values.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public SortedRecordWriter(final File file, final Class<KEY> keyClass,
+      final Class<VALUE> valueClass) throws IOException {
+    this(file, keyClass, valueClass, null, SortedRecordFile.DEFAULT_BLOCK_SIZE,
+        SortedRecordFile.DEFAULT_COMPRESSION_LEVEL,
+        SortedRecordFile.DEFAULT_CHECKSUM_ALGORITHM,
+        SortedRecordFile.DEFAULT_BLOOM_BITS_PER_KEY);
+  }
+
+  /**
+   * Constructs a {@link SortedRecordWriter}.
+   *
+   * @param file
+   *          the file to write.
+   * @param keyClass
+   *          the class of the keys.
+   * @param valueClass
+   *          the class of the values.
+   * @param comparator
+   *          the comparator of the keys, or null to use the natural order of
+   *          the keys. The same comparator must be used to read the file.
+   * @param blockSize
+   *          the size of the uncompressed data blocks in bytes.
+   * @param compressionLevel
+   *          the compression level of the data blocks. It should be a constant
+   *          defined in {@link java.util.zip.Deflater} class.
+   * @param checksumAlgorithm
+   *          the checksum algorithm of the blocks.
+   * @param bloomBitsPerKey
+   *          the number of bits per key of the Bloom filter, or 0 to write no
+   *          Bloom filter.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public SortedRecordWriter(final File file, final Class<KEY> keyClass,
+      final Class<VALUE> valueClass,
+      @Nullable final Comparator<? super KEY> comparator, final int blockSize,
+      final int compressionLevel, final ChecksumAlgorithm checksumAlgorithm,
+      final int bloomBitsPerKey) throws IOException {
+    requireNonNull("file", file);
+    requireNonNull("keyClass", keyClass);
+    requireNonNull("valueClass", valueClass);
+    requireNonNull("checksumAlgorithm", checksumAlgorithm);
+    if (blockSize <= 0) {
+      throw new IllegalArgumentException("The block size must be positive: "
+          + blockSize);
+    }
+    if (bloomBitsPerKey < 0) {
+      throw new IllegalArgumentException("The number of bits per key must "
+          + "be non-negative: " + bloomBitsPerKey);
+    }
+    this.comparator = SortedRecordFile.comparator(keyClass, comparator);
+    this.keySerializer = BinarySerialization.getSerializer(keyClass);
+    if (keySerializer == null) {
+      throw new NoBinarySerializerRegisteredException(keyClass);
+    }
+    this.valueSerializer = BinarySerialization.getSerializer(valueClass);
+    if (valueSerializer == null) {
+      throw new NoBinarySerializerRegisteredException(valueClass);
+    }
+    this.blockSize = blockSize;
+    this.compressionLevel = compressionLevel;
+    this.checksumAlgorithm = checksumAlgorithm;
+    this.checksum = checksumAlgorithm.newChecksum();
+    this.bloomBitsPerKey = bloomBitsPerKey;
+    this.hasher = new XxHash64();
+    this.keyHashes = (bloomBitsPerKey > 0 ? new ArrayLongList() : null);
+    this.keyBuffer = new BlockBuffer(64);
+    this.keyInput = new BlockInput();
+    this.valueBuffer = new BlockBuffer(256);
+    this.block = new BlockBuffer(blockSize + blockSize / 4);
+    this.index = new BlockBuffer(1024);
+    FileUtils.ensureParentExist(file);
+    this.out = new BufferedOutputStream(new FileOutputStream(file),
+        SortedRecordFile.DEFAULT_BLOCK_SIZE);
+    try {
+      final ByteArrayOutputStream header = new ByteArrayOutputStream();
+      SortedRecordFile.SIGNATURE.sign(header);
+      header.writeTo(out);
+      this.offset = header.size();
+    } catch (final IOException e) {
+      IoUtils.closeQuietly(out);
+      throw e;
+    }
+    this.recordCount = 0;
+    this.blockCount = 0;
+    this.blockRecordCount = 0;
+    this.lastKey = null;
+  }
+
+  /**
+   * Gets the number of records written.
+   *
+   * @return the number of records written.
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  @Override
+  public void write(final KEY key, @Nullable final VALUE value)
+      throws IOException {
+    requireNonNull("key", key);
+    if (out == null) {
+      throw new AlreadyClosedException();
+    }
+    if ((lastKey != null) && (comparator.compare(lastKey, key) >= 0)) {
+      throw new IllegalArgumentException("The keys must be written in the "
+          + "strictly increasing order: " + key);
+    }
+    keyBuffer.reset();
+    keySerializer.serialize(keyBuffer, key);
+    final byte[] keyBytes = keyBuffer.array();
+    final int keySize = keyBuffer.size();
+    // serializes the value before changing the state of this writer, so that
+    // a failed serialization leaves this writer unchanged
+    valueBuffer.reset();
+    valueSerializer.serialize(valueBuffer, value);
+    copyLastKey(keyBytes, keySize);
+    if (keyHashes != null) {
+      // the hash codes are only kept until the current block is flushed
+      hasher.reset();
+      hasher.update(keyBytes, 0, keySize);
+      keyHashes.add(hasher.getValue());
+    }
+    if (blockRecordCount == 0) {
+      // the first key of a block is stored in the index
+      OutputUtils.writeByteArray(index, keyBytes, 0, keySize);
+    }
+    // the size of the value is stored so that it could be skipped quickly
+    block.write(keyBytes, 0, keySize);
+    OutputUtils.writeVarInt(block, valueBuffer.size());
+    valueBuffer.writeTo(block);
+    ++blockRecordCount;
+    ++recordCount;
+    if (block.size() >= blockSize) {
+      flushBlock();
+    }
+  }
+
+  /**
+   * Keeps a private copy of the last written key, since the caller may reuse
+   * and modify the key object after writing it. The copy is decoded in place
+   * if the key serializer supports it.
+   */
+  @SuppressWarnings("unchecked")
+  private void copyLastKey(final byte[] keyBytes, final int keySize)
+      throws IOException {
+    keyInput.reset(keyBytes, keySize);
+    if ((lastKey != null)
+        && (keySerializer instanceof ReusingBinarySerializer)) {
+      ((ReusingBinarySerializer) keySerializer).deserializeInto(keyInput,
+          lastKey);
+    } else {
+      lastKey = (KEY) keySerializer.deserialize(keyInput, false);
+    }
+  }
+
+  private void flushBlock() throws IOException {
+    final byte[] data = CompressionTools.compress(block.array(), 0,
+        block.size(), compressionLevel);
+    checksum.reset();
+    checksum.update(data, 0, data.length);
+    out.write(data);
+    OutputUtils.writeLong(index, offset);
+    OutputUtils.writeVarInt(index, data.length);
+    OutputUtils.writeVarInt(index, block.size());
+    OutputUtils.writeVarInt(index, blockRecordCount);
+    OutputUtils.writeLong(index, checksum.getValue());
+    if (keyHashes != null) {
+      BloomFilter.create(keyHashes, bloomBitsPerKey).write(index);
+      keyHashes.clear();
+    }
+    offset += data.length;
+    ++blockCount;
+    blockRecordCount = 0;
+    block.reset();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (out == null) {
+      return;
+    }
+    try {
+      if (blockRecordCount > 0) {
+        flushBlock();
+      }
+      // write the meta block
+      final BlockBuffer meta = block;
+      meta.reset();
+      OutputUtils.writeByte(meta, (byte) (keyHashes != null
+          ? SortedRecordFile.BLOCK_FILTERS : SortedRecordFile.NO_FILTER));
+      OutputUtils.writeVarInt(meta, blockCount);
+      index.writeTo(meta);
+      checksum.reset();
+      checksum.update(meta.array(), 0, meta.size());
+      meta.writeTo(out);
+      // write the footer
+      OutputUtils.writeLong(out, offset);
+      OutputUtils.writeInt(out, meta.size());
+      OutputUtils.writeLong(out, checksum.getValue());
+      OutputUtils.writeLong(out, recordCount);
+      OutputUtils.writeInt(out, blockCount);
+      OutputUtils.writeByte(out, (byte) checksumAlgorithm.id());
+      OutputUtils.writeLong(out, SortedRecordFile.MAGIC);
+      out.flush();
+    } finally {
+      IoUtils.closeQuietly(out);
+      out = null;
+      lastKey = null;
+    }
+  }
+
+  /**
+   * A {@link ByteArrayOutputStream} exposing its internal array.
+   */
+  static final class BlockBuffer extends ByteArrayOutputStream {
+
+    BlockBuffer(final int size) {
+      super(size);
+    }
+
+    byte[] array() {
+      return buf;
+    }
+  }
+
+  /**
+   * A {@link ByteArrayInputStream} which could be reset to read another
+   * array.
+   */
+  static final class BlockInput extends ByteArrayInputStream {
+
+    BlockInput() {
+      super(ArrayUtils.EMPTY_BYTE_ARRAY);
+    }
+
+    void reset(final byte[] array, final int size) {
+      buf = array;
+      pos = 0;
+      count = size;
+      mark = 0;
+    }
+  }
+}
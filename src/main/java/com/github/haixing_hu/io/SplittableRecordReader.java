@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A {@link RecordReader} whose input could be split into several independent
+ * parts, each of which could be read by a separate reader.
+ *
+ * @author Haixing Hu
+ * @see ParallelRecordProcessing
+ */
+public interface SplittableRecordReader<KEY, VALUE> extends
+    RecordReader<KEY, VALUE> {
+
+  /**
+   * Splits the remaining input of this reader into at most {@code n} parts,
+   * and returns an independent reader over each part.
+   * <p>
+   * The returned readers could be used by different threads, and must be
+   * closed by the caller. Reading all the returned readers in the order of
+   * the list reads the same records as reading this reader.
+   *
+   * @param n
+   *          the maximum number of splits, which must be positive.
+   * @return the non-empty list of readers over the splits.
+   * @throws IOException
+   *           if any I/O error occurred.
+   */
+  public List<? extends RecordReader<KEY, VALUE>> split(int n)
+      throws IOException;
+}
@@ -0,0 +1,356 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+/**
+ * Provides functions to encode and decode arrays of variable length integers
+ * in the block-oriented formats.
+ * <p>
+ * The {@link VarIntFormat#GROUP_VARINT} and {@link VarIntFormat#STREAM_VBYTE}
+ * formats store the byte lengths of each four integers in a control byte, so
+ * the decoders look up the lengths in a table instead of testing a
+ * continuation bit per byte. Unlike the {@link VarIntFormat#LEB128} format,
+ * they encode every {@code int} value, with the negative values taking four
+ * bytes.
+ *
+ * @author Haixing Hu
+ * @see VarIntFormat
+ */
+@ThreadSafe
+public final class VarIntCodec {
+
+  /**
+   * The total number of data bytes of the four integers of a control byte.
+   */
+  private static final byte[] DATA_LENGTHS = new byte[256];
+
+  static {
+    for (int c = 0; c < 256; ++c) {
+      DATA_LENGTHS[c] = (byte) (4 + (c & 3) + ((c >>> 2) & 3)
+          + ((c >>> 4) & 3) + ((c >>> 6) & 3));
+    }
+  }
+
+  /**
+   * Gets the maximum number of bytes needed to encode a number of integers.
+   *
+   * @param format
+   *          the format of the encoding.
+   * @param n
+   *          the number of integers.
+   * @return the maximum number of bytes needed to encode the integers.
+   */
+  public static int maxEncodedSize(final VarIntFormat format, final int n) {
+    switch (format) {
+      case LEB128:
+        return n * 5;
+      case GROUP_VARINT:
+      case STREAM_VBYTE:
+        return ((n + 3) >>> 2) + n * 4;
+      default:
+        throw new IllegalArgumentException("Unsupported format: " + format);
+    }
+  }
+
+  private static int byteLength(final int value) {
+    // the number of bytes minus 1
+    return (value >>> 8 == 0 ? 0 : (value >>> 16 == 0 ? 1
+        : (value >>> 24 == 0 ? 2 : 3)));
+  }
+
+  private static int putInt(final byte[] dst, int pos, final int value,
+      final int len) {
+    dst[pos++] = (byte) value;
+    if (len > 0) {
+      dst[pos++] = (byte) (value >>> 8);
+      if (len > 1) {
+        dst[pos++] = (byte) (value >>> 16);
+        if (len > 2) {
+          dst[pos++] = (byte) (value >>> 24);
+        }
+      }
+    }
+    return pos;
+  }
+
+  private static int getInt(final byte[] src, final int pos, final int len) {
+    switch (len) {
+      case 0:
+        return (src[pos] & 0xFF);
+      case 1:
+        return (src[pos] & 0xFF) | ((src[pos + 1] & 0xFF) << 8);
+      case 2:
+        return (src[pos] & 0xFF) | ((src[pos + 1] & 0xFF) << 8)
+            | ((src[pos + 2] & 0xFF) << 16);
+      default:
+        return (src[pos] & 0xFF) | ((src[pos + 1] & 0xFF) << 8)
+            | ((src[pos + 2] & 0xFF) << 16) | (src[pos + 3] << 24);
+    }
+  }
+
+  /**
+   * Encodes integers.
+   *
+   * @param format
+   *          the format of the encoding.
+   * @param src
+   *          the array of the integers to encode.
+   * @param srcOff
+   *          the offset of the first integer to encode.
+   * @param n
+   *          the number of integers to encode.
+   * @param dst
+   *          the buffer where to store the encoded bytes, which must have at
+   *          least {@link #maxEncodedSize(VarIntFormat, int)} bytes after the
+   *          offset.
+   * @param dstOff
+   *          the offset where to store the encoded bytes.
+   * @return the number of encoded bytes.
+   */
+  public static int encode(final VarIntFormat format, final int[] src,
+      final int srcOff, final int n, final byte[] dst, final int dstOff) {
+    if ((srcOff < 0) || (n < 0) || (n > src.length - srcOff)) {
+      throw new IndexOutOfBoundsException();
+    }
+    switch (format) {
+      case LEB128:
+        return encodeLeb128(src, srcOff, n, dst, dstOff);
+      case GROUP_VARINT:
+        return encodeGroupVarInt(src, srcOff, n, dst, dstOff);
+      case STREAM_VBYTE:
+        return encodeStreamVByte(src, srcOff, n, dst, dstOff);
+      default:
+        throw new IllegalArgumentException("Unsupported format: " + format);
+    }
+  }
+
+  private static int encodeLeb128(final int[] src, final int srcOff,
+      final int n, final byte[] dst, final int dstOff) {
+    int pos = dstOff;
+    for (int i = srcOff; i < srcOff + n; ++i) {
+      int value = src[i];
+      while ((value & ~0x7F) != 0) {
+        dst[pos++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      dst[pos++] = (byte) value;
+    }
+    return pos - dstOff;
+  }
+
+  private static int encodeGroupVarInt(final int[] src, final int srcOff,
+      final int n, final byte[] dst, final int dstOff) {
+    int pos = dstOff;
+    for (int i = 0; i < n; i += 4) {
+      final int controlPos = pos++;
+      int control = 0;
+      final int m = Math.min(4, n - i);
+      for (int j = 0; j < m; ++j) {
+        final int value = src[srcOff + i + j];
+        final int len = byteLength(value);
+        control |= len << (2 * j);
+        pos = putInt(dst, pos, value, len);
+      }
+      dst[controlPos] = (byte) control;
+    }
+    return pos - dstOff;
+  }
+
+  private static int encodeStreamVByte(final int[] src, final int srcOff,
+      final int n, final byte[] dst, final int dstOff) {
+    int controlPos = dstOff;
+    int pos = dstOff + ((n + 3) >>> 2);
+    for (int i = 0; i < n; i += 4) {
+      int control = 0;
+      final int m = Math.min(4, n - i);
+      for (int j = 0; j < m; ++j) {
+        final int value = src[srcOff + i + j];
+        final int len = byteLength(value);
+        control |= len << (2 * j);
+        pos = putInt(dst, pos, value, len);
+      }
+      dst[controlPos++] = (byte) control;
+    }
+    return pos - dstOff;
+  }
+
+  /**
+   * Decodes integers.
+   *
+   * @param format
+   *          the format of the encoding.
+   * @param src
+   *          the buffer of the encoded bytes.
+   * @param srcOff
+   *          the offset of the encoded bytes.
+   * @param srcLen
+   *          the number of the encoded bytes available in the buffer.
+   * @param dst
+   *          the array where to store the decoded integers.
+   * @param dstOff
+   *          the offset where to store the decoded integers.
+   * @param n
+   *          the number of integers to decode.
+   * @return the number of bytes decoded.
+   * @throws InvalidFormatException
+   *           if the encoded bytes are malformed or truncated.
+   */
+  public static int decode(final VarIntFormat format, final byte[] src,
+      final int srcOff, final int srcLen, final int[] dst, final int dstOff,
+      final int n) throws InvalidFormatException {
+    if ((srcOff < 0) || (srcLen < 0) || (srcLen > src.length - srcOff)
+        || (dstOff < 0) || (n < 0) || (n > dst.length - dstOff)) {
+      throw new IndexOutOfBoundsException();
+    }
+    switch (format) {
+      case LEB128:
+        return decodeLeb128(src, srcOff, srcLen, dst, dstOff, n);
+      case GROUP_VARINT:
+        return decodeGroupVarInt(src, srcOff, srcLen, dst, dstOff, n);
+      case STREAM_VBYTE:
+        return decodeStreamVByte(src, srcOff, srcLen, dst, dstOff, n);
+      default:
+        throw new IllegalArgumentException("Unsupported format: " + format);
+    }
+  }
+
+  private static InvalidFormatException truncated() {
+    return new InvalidFormatException("The encoded integers are truncated.");
+  }
+
+  private static int decodeLeb128(final byte[] src, final int srcOff,
+      final int srcLen, final int[] dst, final int dstOff, final int n)
+      throws InvalidFormatException {
+    final int end = srcOff + srcLen;
+    int pos = srcOff;
+    for (int i = dstOff; i < dstOff + n; ++i) {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        if (pos >= end) {
+          throw truncated();
+        }
+        final int b = src[pos++];
+        if (shift == 28 && ((b & 0xF0) != 0)) {
+          throw new InvalidFormatException("Malformed variable length integer.");
+        }
+        value |= (b & 0x7F) << shift;
+        if (b >= 0) {
+          break;
+        }
+      }
+      dst[i] = value;
+    }
+    return pos - srcOff;
+  }
+
+  private static int decodeGroupVarInt(final byte[] src, final int srcOff,
+      final int srcLen, final int[] dst, final int dstOff, final int n)
+      throws InvalidFormatException {
+    final int end = srcOff + srcLen;
+    int pos = srcOff;
+    int i = dstOff;
+    final int fullEnd = dstOff + (n & ~3);
+    // the full groups, whose lengths are looked up in the table
+    while (i < fullEnd) {
+      if (pos >= end) {
+        throw truncated();
+      }
+      final int control = src[pos++] & 0xFF;
+      if (pos + DATA_LENGTHS[control] > end) {
+        throw truncated();
+      }
+      final int len0 = control & 3;
+      final int len1 = (control >>> 2) & 3;
+      final int len2 = (control >>> 4) & 3;
+      final int len3 = control >>> 6;
+      dst[i] = getInt(src, pos, len0);
+      pos += len0 + 1;
+      dst[i + 1] = getInt(src, pos, len1);
+      pos += len1 + 1;
+      dst[i + 2] = getInt(src, pos, len2);
+      pos += len2 + 1;
+      dst[i + 3] = getInt(src, pos, len3);
+      pos += len3 + 1;
+      i += 4;
+    }
+    // the last partial group
+    if (i < dstOff + n) {
+      if (pos >= end) {
+        throw truncated();
+      }
+      final int control = src[pos++] & 0xFF;
+      for (int j = 0; i < dstOff + n; ++i, ++j) {
+        final int len = (control >>> (2 * j)) & 3;
+        if (pos + len + 1 > end) {
+          throw truncated();
+        }
+        dst[i] = getInt(src, pos, len);
+        pos += len + 1;
+      }
+    }
+    return pos - srcOff;
+  }
+
+  private static int decodeStreamVByte(final byte[] src, final int srcOff,
+      final int srcLen, final int[] dst, final int dstOff, final int n)
+      throws InvalidFormatException {
+    final int end = srcOff + srcLen;
+    final int groups = (n + 3) >>> 2;
+    if (groups > srcLen) {
+      throw truncated();
+    }
+    int controlPos = srcOff;
+    int pos = srcOff + groups;
+    int i = dstOff;
+    final int fullEnd = dstOff + (n & ~3);
+    while (i < fullEnd) {
+      final int control = src[controlPos++] & 0xFF;
+      if (pos + DATA_LENGTHS[control] > end) {
+        throw truncated();
+      }
+      final int len0 = control & 3;
+      final int len1 = (control >>> 2) & 3;
+      final int len2 = (control >>> 4) & 3;
+      final int len3 = control >>> 6;
+      dst[i] = getInt(src, pos, len0);
+      pos += len0 + 1;
+      dst[i + 1] = getInt(src, pos, len1);
+      pos += len1 + 1;
+      dst[i + 2] = getInt(src, pos, len2);
+      pos += len2 + 1;
+      dst[i + 3] = getInt(src, pos, len3);
+      pos += len3 + 1;
+      i += 4;
+    }
+    if (i < dstOff + n) {
+      final int control = src[controlPos] & 0xFF;
+      for (int j = 0; i < dstOff + n; ++i, ++j) {
+        final int len = (control >>> (2 * j)) & 3;
+        if (pos + len + 1 > end) {
+          throw truncated();
+        }
+        dst[i] = getInt(src, pos, len);
+        pos += len + 1;
+      }
+    }
+    return pos - srcOff;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+/**
+ * Enumeration of the encodings of arrays of variable length integers.
+ *
+ * @author Haixing Hu
+ * @see VarIntCodec
+ */
+public enum VarIntFormat {
+
+  /**
+   * Each integer is encoded in 7-bit groups, with a continuation bit in each
+   * byte. This is the format of {@link OutputUtils#writeVarInt}.
+   */
+  LEB128,
+
+  /**
+   * The integers are encoded in groups of four: a control byte storing the
+   * byte lengths of the four integers in 2 bits each, followed by the bytes
+   * of the four integers in the little endian order.
+   */
+  GROUP_VARINT,
+
+  /**
+   * The control bytes of all the groups of four integers are stored before
+   * the bytes of all integers, so that the data bytes could be decoded
+   * without interleaved control bytes.
+   */
+  STREAM_VBYTE
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.util.zip.Checksum;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A pure Java implementation of the 64-bit xxHash algorithm, as a streaming
+ * {@link Checksum}.
+ * <p>
+ * xxHash64 is not a cyclic redundancy check, but it detects accidental
+ * corruptions equally well, and it is several times faster than CRC32 when
+ * computed in Java without hardware acceleration.
+ *
+ * @author Haixing Hu
+ * @see <a href="https://github.com/Cyan4973/xxHash">xxHash</a>
+ */
+@NotThreadSafe
+public final class XxHash64 implements Checksum {
+
+  private static final long PRIME1 = 0x9E3779B185EBCA87L;
+  private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+  private static final long PRIME3 = 0x165667B19E3779F9L;
+  private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+  private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+  private static final int STRIPE_SIZE = 32;
+
+  private final long seed;
+  private final byte[] pending;
+  private int pendingSize;
+  private long totalSize;
+  private long v1;
+  private long v2;
+  private long v3;
+  private long v4;
+
+  public XxHash64() {
+    this(0);
+  }
+
+  public XxHash64(final long seed) {
+    this.seed = seed;
+    this.pending = new byte[STRIPE_SIZE];
+    reset();
+  }
+
+  @Override
+  public void reset() {
+    pendingSize = 0;
+    totalSize = 0;
+    v1 = seed + PRIME1 + PRIME2;
+    v2 = seed + PRIME2;
+    v3 = seed;
+    v4 = seed - PRIME1;
+  }
+
+  @Override
+  public void update(final int b) {
+    pending[pendingSize++] = (byte) b;
+    ++totalSize;
+    if (pendingSize == STRIPE_SIZE) {
+      processStripe(pending, 0);
+      pendingSize = 0;
+    }
+  }
+
+  @Override
+  public void update(final byte[] b, final int off, final int len) {
+    if ((off < 0) || (len < 0) || (off > b.length - len)) {
+      throw new ArrayIndexOutOfBoundsException();
+    }
+    totalSize += len;
+    int i = off;
+    final int end = off + len;
+    if (pendingSize > 0) {
+      final int n = Math.min(STRIPE_SIZE - pendingSize, len);
+      System.arraycopy(b, i, pending, pendingSize, n);
+      pendingSize += n;
+      i += n;
+      if (pendingSize < STRIPE_SIZE) {
+        return;
+      }
+      processStripe(pending, 0);
+      pendingSize = 0;
+    }
+    long a1 = v1;
+    long a2 = v2;
+    long a3 = v3;
+    long a4 = v4;
+    for (; i + STRIPE_SIZE <= end; i += STRIPE_SIZE) {
+      a1 = round(a1, getLong(b, i));
+      a2 = round(a2, getLong(b, i + 8));
+      a3 = round(a3, getLong(b, i + 16));
+      a4 = round(a4, getLong(b, i + 24));
+    }
+    v1 = a1;
+    v2 = a2;
+    v3 = a3;
+    v4 = a4;
+    if (i < end) {
+      pendingSize = end - i;
+      System.arraycopy(b, i, pending, 0, pendingSize);
+    }
+  }
+
+  private void processStripe(final byte[] b, final int off) {
+    v1 = round(v1, getLong(b, off));
+    v2 = round(v2, getLong(b, off + 8));
+    v3 = round(v3, getLong(b, off + 16));
+    v4 = round(v4, getLong(b, off + 24));
+  }
+
+  @Override
+  public long getValue() {
+    long h;
+    if (totalSize >= STRIPE_SIZE) {
+      h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+        + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+      h = mergeRound(h, v1);
+      h = mergeRound(h, v2);
+      h = mergeRound(h, v3);
+      h = mergeRound(h, v4);
+    } else {
+      h = seed + PRIME5;
+    }
+    h += totalSize;
+    int i = 0;
+    for (; i + 8 <= pendingSize; i += 8) {
+      h ^= round(0, getLong(pending, i));
+      h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+    }
+    if (i + 4 <= pendingSize) {
+      h ^= (getInt(pending, i) & 0xFFFFFFFFL) * PRIME1;
+      h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+      i += 4;
+    }
+    for (; i < pendingSize; ++i) {
+      h ^= (pending[i] & 0xFF) * PRIME5;
+      h = Long.rotateLeft(h, 11) * PRIME1;
+    }
+    h ^= h >>> 33;
+    h *= PRIME2;
+    h ^= h >>> 29;
+    h *= PRIME3;
+    h ^= h >>> 32;
+    return h;
+  }
+
+  private static long round(final long acc, final long input) {
+    return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+  }
+
+  private static long mergeRound(final long acc, final long value) {
+    return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+  }
+
+  private static long getLong(final byte[] b, final int i) {
+    return (b[i] & 0xFFL)
+        | ((b[i + 1] & 0xFFL) << 8)
+        | ((b[i + 2] & 0xFFL) << 16)
+        | ((b[i + 3] & 0xFFL) << 24)
+        | ((b[i + 4] & 0xFFL) << 32)
+        | ((b[i + 5] & 0xFFL) << 40)
+        | ((b[i + 6] & 0xFFL) << 48)
+        | ((b[i + 7] & 0xFFL) << 56);
+  }
+
+  private static int getInt(final byte[] b, final int i) {
+    return (b[i] & 0xFF)
+        | ((b[i + 1] & 0xFF) << 8)
+        | ((b[i + 2] & 0xFF) << 16)
+        | ((b[i + 3] & 0xFF) << 24);
+  }
+}
@@ -32,11 +32,8 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
 
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -65,6 +62,7 @@ import com.github.haixing_hu.io.serialize.predefined.LongBinarySerializer;
 import com.github.haixing_hu.io.serialize.predefined.ShortArrayBinarySerializer;
 import com.github.haixing_hu.io.serialize.predefined.ShortBinarySerializer;
 import com.github.haixing_hu.io.serialize.predefined.StringBinarySerializer;
+import com.github.haixing_hu.lang.Assignable;
 import com.github.haixing_hu.net.Url;
 import com.github.haixing_hu.net.UrlUtils;
 
@@ -81,8 +79,8 @@ public final class BinarySerialization {
   private static final Logger LOGGER = LoggerFactory
       .getLogger(BinarySerialization.class);
 
-  @GuardedBy("registry")
-  private static final Map<Class<?>, BinarySerializer> registry = new HashMap<Class<?>, BinarySerializer>();
+  private static final SerializerRegistry<BinarySerializer> registry =
+      new SerializerRegistry<BinarySerializer>();
 
   // register the binary serializer for classes of common data types
   static {
@@ -125,11 +123,8 @@ public final class BinarySerialization {
     requireNonNull("objClass", objClass);
     requireNonNull("serializer", serializer);
     LOGGER.debug("Registering a binary serializer for class {}.", objClass);
-    synchronized (registry) {
-      if (registry.containsKey(objClass)) {
-        LOGGER.warn("Override the binary serializer for class {}.", objClass);
-      }
-      registry.put(objClass, serializer);
+    if (registry.put(objClass, serializer) != null) {
+      LOGGER.warn("Override the binary serializer for class {}.", objClass);
     }
   }
 
@@ -145,18 +140,7 @@ public final class BinarySerialization {
    */
   public static BinarySerializer getSerializer(final Class<?> objClass) {
     requireNonNull("objClass", objClass);
-    LOGGER.debug("Getting the binary serializer for class {}.", objClass);
-    // ensure the objClass has been load, such that the register code in
-    // the static initialization block of the class could be run.
-    final String className = objClass.getName();
-    try {
-      Class.forName(className);
-    } catch (final ClassNotFoundException e) {
-      LOGGER.error("Failed to load the class {}", className);
-    }
-    synchronized (registry) {
-      return registry.get(objClass);
-    }
+    return registry.get(objClass);
   }
 
   /**
@@ -351,6 +335,48 @@ public final class BinarySerialization {
     }
   }
 
+  /**
+   * Deserializes an object from an binary input stream into an existing
+   * object, without allocating a new object if possible.
+   * <p>
+   * If the serializer is a {@link ReusingBinarySerializer}, the object is
+   * deserialized directly into the existing object; otherwise, if the existing
+   * object is {@link Assignable}, a new object is deserialized and assigned to
+   * it. Note that the input stream will NOT be closed.
+   *
+   * @param serializer
+   *          The serializer of the class of the existing object.
+   * @param in
+   *          A binary input stream.
+   * @param obj
+   *          The existing object whose state is replaced by the deserialized
+   *          object.
+   * @throws IOException
+   *           If any I/O error occurred, or if the object stored in the binary
+   *           input stream is null.
+   * @throws UnsupportedOperationException
+   *           If the serializer is not a {@link ReusingBinarySerializer} and the
+   *           existing object is not {@link Assignable}.
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static void deserializeInto(final BinarySerializer serializer,
+      final InputStream in, final Object obj) throws IOException {
+    requireNonNull("serializer", serializer);
+    requireNonNull("obj", obj);
+    if (serializer instanceof ReusingBinarySerializer) {
+      ((ReusingBinarySerializer) serializer).deserializeInto(in, obj);
+    } else if (obj instanceof Assignable) {
+      try {
+        ((Assignable) obj).assign(serializer.deserialize(in, false));
+      } catch (final ClassCastException e) {
+        throw new SerializationException(e);
+      }
+    } else {
+      throw new UnsupportedOperationException("Can not deserialize into an "
+          + "object of " + obj.getClass().getName());
+    }
+  }
+
   /**
    * Deserializes an object from a URI.
    *
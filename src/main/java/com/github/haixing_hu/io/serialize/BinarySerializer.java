@@ -23,11 +23,24 @@ import java.io.OutputStream;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
+import com.github.haixing_hu.io.DictionaryOutputStream;
+import com.github.haixing_hu.io.InputUtils;
+import com.github.haixing_hu.io.OutputUtils;
+
 /**
  * A {@link BinarySerializer} provides interface to serialize and deserialize
  * objects to and from binary streams.
  * <p>
  * <b>NOTE</b>: the implementation of this interface <b>MUST</b> be thread safe.
+ * <p>
+ * An implementation writing strings or classes which are likely to repeat,
+ * such as host names or type names, could opt in to the per-stream dictionary
+ * encoding by writing them with {@link OutputUtils#writeSharedString} and
+ * {@link OutputUtils#writeSharedClass}, and reading them with
+ * {@link InputUtils#readSharedString} and {@link InputUtils#readSharedClass}.
+ * The repeated values are written as back-references if the objects are
+ * serialized to a {@link DictionaryOutputStream}, and are written in full
+ * otherwise.
  *
  * @author Haixing Hu
  */
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import javax.annotation.concurrent.Immutable;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import com.github.haixing_hu.text.xml.StaxUtils;
+import com.github.haixing_hu.text.xml.XmlException;
+import com.github.haixing_hu.text.xml.XmlUtils;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * Adapts a DOM based {@link XmlSerializer} to the {@link XmlStreamSerializer}
+ * interface.
+ * <p>
+ * Only the DOM tree of the object being serialized or deserialized is built
+ * in the memory, therefore an XML stream containing many such objects could
+ * be processed with a bounded memory.
+ *
+ * @author Haixing Hu
+ */
+@Immutable
+public final class DomXmlStreamSerializer implements XmlStreamSerializer {
+
+  private final XmlSerializer serializer;
+
+  public DomXmlStreamSerializer(final XmlSerializer serializer) {
+    this.serializer = requireNonNull("serializer", serializer);
+  }
+
+  /**
+   * Gets the adapted DOM based serializer.
+   *
+   * @return the adapted DOM based serializer.
+   */
+  public XmlSerializer getSerializer() {
+    return serializer;
+  }
+
+  @Override
+  public String getRootNodeName() {
+    return serializer.getRootNodeName();
+  }
+
+  @Override
+  public Object deserialize(final XMLStreamReader reader) throws XmlException {
+    final Document doc = XmlUtils.newDocument();
+    final Element root = StaxUtils.readElement(reader, doc);
+    return serializer.deserialize(root);
+  }
+
+  @Override
+  public void serialize(final XMLStreamWriter writer, final Object obj)
+      throws XmlException {
+    final Document doc = XmlUtils.newDocument();
+    final Element root = serializer.serialize(doc, obj);
+    StaxUtils.writeElement(writer, root);
+  }
+
+}
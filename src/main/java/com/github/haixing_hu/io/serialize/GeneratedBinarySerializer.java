@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+import com.github.haixing_hu.io.exception.SerializationException;
+
+import static com.github.haixing_hu.CommonsMessages.INVALID_ENUM_ORDINAL;
+import static com.github.haixing_hu.CommonsMessages.UNEXPECTED_NULL_VALUE;
+import static com.github.haixing_hu.io.InputUtils.*;
+import static com.github.haixing_hu.io.OutputUtils.*;
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A {@link BinarySerializer} generated from the fields of a class.
+ *
+ * <p>The fields of the class are inspected only once, when the serializer is
+ * generated, and each of them is accessed through a cached
+ * {@link MethodHandle}. All the non-static and non-transient fields of the
+ * class and its ancestor classes are serialized, ancestor class first and in
+ * the alphabetical order of the field names within a class. The primitive
+ * fields are encoded with the functions of the
+ * {@link com.github.haixing_hu.io.OutputUtils}; the enum
+ * fields are encoded by their ordinals; and the fields of other types are
+ * encoded with the binary serializers registered for their declared types,
+ * which are looked up the first time they are needed.</p>
+ *
+ * <p>The class must have a no-argument constructor, which could be private.
+ * A class usually opts in by registering the generated serializer in its
+ * static initialization block:</p>
+ *
+ * <pre>
+ * static {
+ *   GeneratedBinarySerializer.register(MyClass.class);
+ * }
+ * </pre>
+ *
+ * <p>The serializer could also deserialize an object into an existing object
+ * of the class, overwriting all its serialized fields.</p>
+ *
+ * @author Haixing Hu
+ */
+@Immutable
+public final class GeneratedBinarySerializer implements
+    ReusingBinarySerializer {
+
+  /**
+   * Generates a binary serializer for a class, and registers it to the
+   * {@link BinarySerialization}.
+   *
+   * @param objClass
+   *          the class object.
+   * @return the generated binary serializer.
+   * @throws IllegalArgumentException
+   *           if the class has no no-argument constructor, or its fields
+   *           could not be accessed.
+   */
+  public static GeneratedBinarySerializer register(final Class<?> objClass) {
+    final GeneratedBinarySerializer serializer = generate(objClass);
+    BinarySerialization.register(objClass, serializer);
+    return serializer;
+  }
+
+  /**
+   * Generates a binary serializer for a class.
+   *
+   * @param objClass
+   *          the class object.
+   * @return the generated binary serializer, which is not registered.
+   * @throws IllegalArgumentException
+   *           if the class has no no-argument constructor, or its fields
+   *           could not be accessed.
+   */
+  public static GeneratedBinarySerializer generate(final Class<?> objClass) {
+    requireNonNull("objClass", objClass);
+    final MethodHandles.Lookup lookup = MethodHandles.lookup();
+    try {
+      final Constructor<?> ctor = objClass.getDeclaredConstructor();
+      ctor.setAccessible(true);
+      final MethodHandle constructor = lookup.unreflectConstructor(ctor)
+          .asType(MethodType.methodType(Object.class));
+      final List<FieldCodec> codecs = new ArrayList<FieldCodec>();
+      addFieldCodecs(lookup, objClass, codecs);
+      return new GeneratedBinarySerializer(objClass, constructor,
+          codecs.toArray(new FieldCodec[codecs.size()]));
+    } catch (final NoSuchMethodException e) {
+      throw new IllegalArgumentException("No no-argument constructor for class "
+          + objClass.getName(), e);
+    } catch (final IllegalAccessException e) {
+      throw new IllegalArgumentException(e);
+    } catch (final SecurityException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  private static void addFieldCodecs(final MethodHandles.Lookup lookup,
+      final Class<?> cls, final List<FieldCodec> codecs)
+      throws IllegalAccessException {
+    final Class<?> superClass = cls.getSuperclass();
+    if ((superClass != null) && (superClass != Object.class)) {
+      addFieldCodecs(lookup, superClass, codecs);
+    }
+    final Field[] fields = cls.getDeclaredFields();
+    Arrays.sort(fields, new Comparator<Field>() {
+      @Override
+      public int compare(final Field f1, final Field f2) {
+        return f1.getName().compareTo(f2.getName());
+      }
+    });
+    for (final Field field : fields) {
+      final int modifiers = field.getModifiers();
+      if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)
+          || field.isSynthetic()) {
+        continue;
+      }
+      field.setAccessible(true);
+      codecs.add(FieldCodec.of(lookup, field));
+    }
+  }
+
+  private final Class<?> objClass;
+  private final MethodHandle constructor;
+  private final FieldCodec[] codecs;
+
+  private GeneratedBinarySerializer(final Class<?> objClass,
+      final MethodHandle constructor, final FieldCodec[] codecs) {
+    this.objClass = objClass;
+    this.constructor = constructor;
+    this.codecs = codecs;
+  }
+
+  /**
+   * Gets the class whose objects are serialized by this serializer.
+   *
+   * @return the class whose objects are serialized by this serializer.
+   */
+  public Class<?> getObjectClass() {
+    return objClass;
+  }
+
+  @Override
+  public Object deserialize(final InputStream in, final boolean allowNull)
+      throws IOException {
+    if (readNullMark(in)) {
+      if (allowNull) {
+        return null;
+      } else {
+        throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
+      }
+    }
+    try {
+      final Object result = constructor.invokeExact();
+      for (final FieldCodec codec : codecs) {
+        codec.read(in, result);
+      }
+      return result;
+    } catch (final IOException e) {
+      throw e;
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Error e) {
+      throw e;
+    } catch (final Throwable e) {
+      throw new SerializationException(e);
+    }
+  }
+
+  @Override
+  public void deserializeInto(final InputStream in, final Object obj)
+      throws IOException {
+    requireNonNull("obj", obj);
+    if (! objClass.isInstance(obj)) {
+      throw new SerializationException(new ClassCastException(
+          obj.getClass().getName() + " is not " + objClass.getName()));
+    }
+    if (readNullMark(in)) {
+      throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
+    }
+    try {
+      for (final FieldCodec codec : codecs) {
+        codec.read(in, obj);
+      }
+    } catch (final IOException e) {
+      throw e;
+    } catch (final RuntimeException e) {
+      throw e;
+    } catch (final Error e) {
+      throw e;
+    } catch (final Throwable e) {
+      throw new SerializationException(e);
+    }
+  }
+
+  @Override
+  public void serialize(final OutputStream out, @Nullable final Object obj)
+      throws IOException {
+    if (! writeNullMark(out, obj)) {
+      if (! objClass.isInstance(obj)) {
+        throw new SerializationException(new ClassCastException(
+            obj.getClass().getName() + " is not " + objClass.getName()));
+      }
+      try {
+        for (final FieldCodec codec : codecs) {
+          codec.write(out, obj);
+        }
+      } catch (final IOException e) {
+        throw e;
+      } catch (final RuntimeException e) {
+        throw e;
+      } catch (final Error e) {
+        throw e;
+      } catch (final Throwable e) {
+        throw new SerializationException(e);
+      }
+    }
+  }
+
+  /**
+   * Encodes and decodes a field through its getter and setter method handles.
+   * The getter has the type {@code (Object)T} and the setter has the type
+   * {@code (Object,T)void}, where {@code T} is the type of the field if it is
+   * primitive, or {@code Object} otherwise.
+   */
+  private static abstract class FieldCodec {
+
+    static FieldCodec of(final MethodHandles.Lookup lookup, final Field field)
+        throws IllegalAccessException {
+      final Class<?> type = field.getType();
+      final Class<?> erased = (type.isPrimitive() ? type : Object.class);
+      final MethodHandle getter = lookup.unreflectGetter(field)
+          .asType(MethodType.methodType(erased, Object.class));
+      final MethodHandle setter = lookup.unreflectSetter(field)
+          .asType(MethodType.methodType(void.class, Object.class, erased));
+      if (type == boolean.class) {
+        return new BooleanCodec(getter, setter);
+      } else if (type == char.class) {
+        return new CharCodec(getter, setter);
+      } else if (type == byte.class) {
+        return new ByteCodec(getter, setter);
+      } else if (type == short.class) {
+        return new ShortCodec(getter, setter);
+      } else if (type == int.class) {
+        return new IntCodec(getter, setter);
+      } else if (type == long.class) {
+        return new LongCodec(getter, setter);
+      } else if (type == float.class) {
+        return new FloatCodec(getter, setter);
+      } else if (type == double.class) {
+        return new DoubleCodec(getter, setter);
+      } else if (type.isEnum()) {
+        return new EnumCodec(getter, setter, type);
+      } else {
+        return new ObjectCodec(getter, setter, type);
+      }
+    }
+
+    protected final MethodHandle getter;
+    protected final MethodHandle setter;
+
+    protected FieldCodec(final MethodHandle getter, final MethodHandle setter) {
+      this.getter = getter;
+      this.setter = setter;
+    }
+
+    abstract void write(OutputStream out, Object obj) throws Throwable;
+
+    abstract void read(InputStream in, Object obj) throws Throwable;
+  }
+
+  private static final class BooleanCodec extends FieldCodec {
+    BooleanCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeBoolean(out, (boolean) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readBoolean(in));
+    }
+  }
+
+  private static final class CharCodec extends FieldCodec {
+    CharCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeChar(out, (char) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readChar(in));
+    }
+  }
+
+  private static final class ByteCodec extends FieldCodec {
+    ByteCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeByte(out, (byte) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readByte(in));
+    }
+  }
+
+  private static final class ShortCodec extends FieldCodec {
+    ShortCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeShort(out, (short) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readShort(in));
+    }
+  }
+
+  private static final class IntCodec extends FieldCodec {
+    IntCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeInt(out, (int) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readInt(in));
+    }
+  }
+
+  private static final class LongCodec extends FieldCodec {
+    LongCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeLong(out, (long) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readLong(in));
+    }
+  }
+
+  private static final class FloatCodec extends FieldCodec {
+    FloatCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeFloat(out, (float) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readFloat(in));
+    }
+  }
+
+  private static final class DoubleCodec extends FieldCodec {
+    DoubleCodec(final MethodHandle getter, final MethodHandle setter) {
+      super(getter, setter);
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeDouble(out, (double) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, readDouble(in));
+    }
+  }
+
+  private static final class EnumCodec extends FieldCodec {
+    private final Object[] values;
+
+    EnumCodec(final MethodHandle getter, final MethodHandle setter,
+        final Class<?> type) {
+      super(getter, setter);
+      values = type.getEnumConstants();
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      writeEnum(out, (Enum<?>) (Object) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      Object value = null;
+      if (! readNullMark(in)) {
+        final int ordinal = readVarInt(in);
+        if ((ordinal < 0) || (ordinal >= values.length)) {
+          throw new InvalidFormatException(INVALID_ENUM_ORDINAL + ordinal);
+        }
+        value = values[ordinal];
+      }
+      setter.invokeExact(obj, value);
+    }
+  }
+
+  private static final class ObjectCodec extends FieldCodec {
+    private final Class<?> type;
+    private volatile BinarySerializer serializer;
+
+    ObjectCodec(final MethodHandle getter, final MethodHandle setter,
+        final Class<?> type) {
+      super(getter, setter);
+      this.type = type;
+    }
+
+    private BinarySerializer getSerializer() throws IOException {
+      BinarySerializer result = serializer;
+      if (result == null) {
+        result = BinarySerialization.getSerializer(type);
+        if (result == null) {
+          throw new NoBinarySerializerRegisteredException(type);
+        }
+        serializer = result;
+      }
+      return result;
+    }
+
+    @Override
+    void write(final OutputStream out, final Object obj) throws Throwable {
+      getSerializer().serialize(out, (Object) getter.invokeExact(obj));
+    }
+
+    @Override
+    void read(final InputStream in, final Object obj) throws Throwable {
+      setter.invokeExact(obj, getSerializer().deserialize(in, true));
+    }
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A {@link BinarySerializer} which could also deserialize an object into an
+ * existing object of a mutable class, without allocating a new object.
+ * <p>
+ * <b>NOTE</b>: the implementation of this interface <b>MUST</b> be thread safe.
+ *
+ * @author Haixing Hu
+ * @see BinarySerialization#deserializeInto(BinarySerializer, InputStream, Object)
+ */
+@ThreadSafe
+public interface ReusingBinarySerializer extends BinarySerializer {
+
+  /**
+   * Deserializes an object from a binary input stream into an existing
+   * object.
+   *
+   * @param in
+   *          A binary input stream.
+   * @param obj
+   *          The existing object whose state is replaced by the deserialized
+   *          object.
+   * @throws IOException
+   *           If any I/O error occurred, or if the object stored in the binary
+   *           input stream is null.
+   */
+  public void deserializeInto(InputStream in, Object obj) throws IOException;
+}
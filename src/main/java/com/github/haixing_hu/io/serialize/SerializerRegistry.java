@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A copy-on-write registry mapping classes to their serializers.
+ *
+ * <p>The registry is read far more often than it is written, so every write
+ * publishes a new immutable copy of the mapping, and the lookup path takes no
+ * lock. Since serializers are usually registered in the static initialization
+ * block of the class to be serialized, a lookup missing a class forces the
+ * initialization of that class once, and then looks it up again.</p>
+ *
+ * @param <S>
+ *          the type of the serializers.
+ * @author Haixing Hu
+ */
+@ThreadSafe
+final class SerializerRegistry<S> {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(SerializerRegistry.class);
+
+  /**
+   * Initializes each class at most once, the first time it is looked up.
+   */
+  private static final ClassValue<Boolean> INITIALIZER = new ClassValue<Boolean>() {
+    @Override
+    protected Boolean computeValue(final Class<?> type) {
+      if (type.isPrimitive()) {
+        return Boolean.FALSE;
+      }
+      try {
+        Class.forName(type.getName(), true, type.getClassLoader());
+        return Boolean.TRUE;
+      } catch (final ClassNotFoundException e) {
+        LOGGER.error("Failed to load the class {}", type.getName());
+        return Boolean.FALSE;
+      }
+    }
+  };
+
+  private final Object lock = new Object();
+
+  /**
+   * The current immutable copy of the mapping. It is only replaced while
+   * holding the {@link #lock}, so that concurrent registrations are not lost,
+   * but it is read without the lock: the volatile write publishes the copy,
+   * which is never modified after being published.
+   */
+  private volatile Map<Class<?>, S> map = Collections.emptyMap();
+
+  /**
+   * Registers a serializer for a class.
+   *
+   * @param objClass
+   *          the class object.
+   * @param serializer
+   *          the serializer for the specified class.
+   * @return the serializer previously registered for the specified class, or
+   *         {@code null} if there was none.
+   */
+  @Nullable
+  S put(final Class<?> objClass, final S serializer) {
+    synchronized (lock) {
+      final Map<Class<?>, S> copy = new IdentityHashMap<Class<?>, S>(map);
+      final S old = copy.put(objClass, serializer);
+      map = Collections.unmodifiableMap(copy);
+      return old;
+    }
+  }
+
+  /**
+   * Gets the serializer registered for a class.
+   *
+   * @param objClass
+   *          the class object.
+   * @return the serializer registered for the specified class, or
+   *         {@code null} if there was none.
+   */
+  @Nullable
+  S get(final Class<?> objClass) {
+    final S result = map.get(objClass);
+    if (result != null) {
+      return result;
+    }
+    // the register code in the static initialization block of the class
+    // may have not been run yet.
+    if (INITIALIZER.get(objClass)) {
+      return map.get(objClass);
+    } else {
+      return null;
+    }
+  }
+}
@@ -29,10 +29,12 @@ import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
 
-import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -42,7 +44,9 @@ import org.w3c.dom.Element;
 import com.github.haixing_hu.io.IoUtils;
 import com.github.haixing_hu.net.Url;
 import com.github.haixing_hu.text.CharsetUtils;
+import com.github.haixing_hu.text.xml.StaxUtils;
 import com.github.haixing_hu.text.xml.XmlException;
+import com.github.haixing_hu.text.xml.XmlParseException;
 import com.github.haixing_hu.text.xml.XmlSerializationException;
 import com.github.haixing_hu.text.xml.XmlUtils;
 
@@ -51,6 +55,17 @@ import static com.github.haixing_hu.lang.Argument.requireNonNull;
 /**
  * Provides functions to manager {@link XmlSerializer}s, as well as functions to
  * help serializing and deserializing objects to and from XML DOM trees.
+ * <p>
+ * A class may also register an {@link XmlStreamSerializer}, which serializes
+ * its objects directly to XML streams. If such a serializer is registered,
+ * the objects of that class are written to output streams, writers and files
+ * without building the whole XML DOM trees in the memory. Such documents are
+ * written by an indenting StAX writer, so that they are indented in the same
+ * way as the documents printed from the DOM trees and remain human-editable.
+ * The deserialization from readers, input streams and files still builds DOM
+ * trees, in order to support the XInclude directives; the
+ * {@link #deserialize(Class, XMLStreamReader)} function could be used to
+ * deserialize objects directly from XML streams.
  *
  * @author Haixing Hu
  */
@@ -59,9 +74,11 @@ public class XmlSerialization {
   private static final Logger LOGGER =
       LoggerFactory.getLogger(XmlSerialization.class);
 
-  @GuardedBy("registry")
-  private static final Map<Class<?>, XmlSerializer> registry =
-  new HashMap<Class<?>, XmlSerializer>();
+  private static final SerializerRegistry<XmlSerializer> registry =
+      new SerializerRegistry<XmlSerializer>();
+
+  private static final SerializerRegistry<XmlStreamSerializer> streamRegistry =
+      new SerializerRegistry<XmlStreamSerializer>();
 
   /**
    * Registers an XML serializer for a class.
@@ -76,11 +93,8 @@ public class XmlSerialization {
     requireNonNull("objClass", objClass);
     requireNonNull("serializer", serializer);
     LOGGER.debug("Registering an XML serializer for class {}.", objClass);
-    synchronized (registry) {
-      if (registry.containsKey(objClass)) {
-        LOGGER.warn("Override the XML serializer for class {}.", objClass);
-      }
-      registry.put(objClass, serializer);
+    if (registry.put(objClass, serializer) != null) {
+      LOGGER.warn("Override the XML serializer for class {}.", objClass);
     }
   }
 
@@ -94,18 +108,133 @@ public class XmlSerialization {
    */
   public static XmlSerializer getSerializer(final Class<?> objClass) {
     requireNonNull("objClass", objClass);
-    LOGGER.debug("Getting the XML serializer for class {}.", objClass);
-    // ensure the objClass has been load, such that the register code in
-    // the static initialization block of the class could be run.
-    final String className = objClass.getName();
+    return registry.get(objClass);
+  }
+
+  /**
+   * Registers an XML stream serializer for a class.
+   *
+   * @param objClass
+   *          The class object.
+   * @param serializer
+   *          The XML stream serializer for the specified class.
+   */
+  public static void registerStreamSerializer(final Class<?> objClass,
+      final XmlStreamSerializer serializer) {
+    requireNonNull("objClass", objClass);
+    requireNonNull("serializer", serializer);
+    LOGGER.debug("Registering an XML stream serializer for class {}.", objClass);
+    if (streamRegistry.put(objClass, serializer) != null) {
+      LOGGER.warn("Override the XML stream serializer for class {}.", objClass);
+    }
+  }
+
+  /**
+   * Gets the XML stream serializer for a specified class.
+   * <p>
+   * If no XML stream serializer was registered for the specified class but
+   * an XML serializer was registered, the returned serializer is a
+   * {@link DomXmlStreamSerializer} adapting the registered XML serializer.
+   *
+   * @param objClass
+   *          The class object.
+   * @return The XML stream serializer for the specified class, or null if
+   *         neither XML stream serializer nor XML serializer was registered for
+   *         the specified class.
+   */
+  @Nullable
+  public static XmlStreamSerializer getStreamSerializer(final Class<?> objClass) {
+    requireNonNull("objClass", objClass);
+    final XmlStreamSerializer result = streamRegistry.get(objClass);
+    if (result != null) {
+      return result;
+    }
+    final XmlSerializer serializer = registry.get(objClass);
+    if (serializer == null) {
+      return null;
+    } else {
+      return new DomXmlStreamSerializer(serializer);
+    }
+  }
+
+  /**
+   * Serializes an object to an XML stream.
+   * <p>
+   * Only the root node of the object is written, therefore this function could
+   * be used to write many objects to the same XML stream.
+   *
+   * @param <T>
+   *          the type of the object to be serialized.
+   * @param objClass
+   *          the class of the object to be serialized.
+   * @param obj
+   *          the object to be serialized.
+   * @param writer
+   *          the StAX writer where to write the serialized XML.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static <T> void serialize(final Class<T> objClass, final T obj,
+      final XMLStreamWriter writer) throws XmlException {
+    final XmlStreamSerializer serializer = getStreamSerializer(objClass);
+    if (serializer == null) {
+      throw new NoXmlSerializerRegisteredException(objClass);
+    }
+    serializer.serialize(writer, obj);
+  }
+
+  /**
+   * Serializes an object as a whole indented XML document with a native XML
+   * stream serializer.
+   *
+   * @return true if the object is serialized; false if there is no native XML
+   *         stream serializer registered for the class.
+   */
+  private static <T> boolean streamDocument(final Class<T> objClass,
+      final T obj, final OutputStream out) throws XmlException {
+    final XmlStreamSerializer serializer = streamRegistry.get(objClass);
+    if (serializer == null) {
+      return false;
+    }
+    final XMLStreamWriter writer = StaxUtils.newIndentingWriter(out);
     try {
-      Class.forName(className);
-    } catch (final ClassNotFoundException e) {
-      LOGGER.error("Failed to load the class {}", className);
+      writer.writeStartDocument(XmlUtils.ENCODING, "1.0");
+      serializer.serialize(writer, obj);
+      writer.writeEndDocument();
+      writer.flush();
+    } catch (final XMLStreamException e) {
+      throw new XmlSerializationException(e);
+    } finally {
+      StaxUtils.closeQuietly(writer);
+    }
+    return true;
+  }
+
+  /**
+   * Serializes an object as a whole indented XML document with a native XML
+   * stream serializer.
+   *
+   * @return true if the object is serialized; false if there is no native XML
+   *         stream serializer registered for the class.
+   */
+  private static <T> boolean streamDocument(final Class<T> objClass,
+      final T obj, final Writer out) throws XmlException {
+    final XmlStreamSerializer serializer = streamRegistry.get(objClass);
+    if (serializer == null) {
+      return false;
     }
-    synchronized (registry) {
-      return registry.get(objClass);
+    final XMLStreamWriter writer = StaxUtils.newIndentingWriter(out);
+    try {
+      writer.writeStartDocument();
+      serializer.serialize(writer, obj);
+      writer.writeEndDocument();
+      writer.flush();
+    } catch (final XMLStreamException e) {
+      throw new XmlSerializationException(e);
+    } finally {
+      StaxUtils.closeQuietly(writer);
     }
+    return true;
   }
 
   /**
@@ -177,6 +306,9 @@ public class XmlSerialization {
    */
   public static <T> void serialize(final Class<T> objClass, final T obj,
       final OutputStream out) throws XmlException {
+    if (streamDocument(objClass, obj, out)) {
+      return;
+    }
     final XmlSerializer serializer = getSerializer(objClass);
     if (serializer == null) {
       throw new NoXmlSerializerRegisteredException(objClass);
@@ -205,6 +337,9 @@ public class XmlSerialization {
    */
   public static <T> void serialize(final Class<T> objClass, final T obj,
       final PrintStream out) throws XmlException {
+    if (streamDocument(objClass, obj, out)) {
+      return;
+    }
     final XmlSerializer serializer = getSerializer(objClass);
     if (serializer == null) {
       throw new NoXmlSerializerRegisteredException(objClass);
@@ -233,6 +368,9 @@ public class XmlSerialization {
    */
   public static <T> void serialize(final Class<T> objClass, final T obj,
       final Writer writer) throws XmlException {
+    if (streamDocument(objClass, obj, writer)) {
+      return;
+    }
     final XmlSerializer serializer = getSerializer(objClass);
     if (serializer == null) {
       throw new NoXmlSerializerRegisteredException(objClass);
@@ -259,15 +397,23 @@ public class XmlSerialization {
    */
   public static <T> void serialize(final Class<T> objClass, final T obj,
       final File file) throws XmlException {
-    final XmlSerializer serializer = getSerializer(objClass);
-    if (serializer == null) {
-      throw new NoXmlSerializerRegisteredException(objClass);
+    // the XML serializer is only needed if there is no native XML stream
+    // serializer, and it is looked up before creating the file
+    XmlSerializer serializer = null;
+    if (streamRegistry.get(objClass) == null) {
+      serializer = getSerializer(objClass);
+      if (serializer == null) {
+        throw new NoXmlSerializerRegisteredException(objClass);
+      }
     }
     OutputStream os = null;
     Writer writer = null;
     try {
       os = new FileOutputStream(file);
       writer = new OutputStreamWriter(os, CharsetUtils.UTF_8);
+      if (streamDocument(objClass, obj, writer)) {
+        return;
+      }
       final Document doc = XmlUtils.newDocument();
       final Element root = serializer.serialize(doc, obj);
       doc.appendChild(root);
@@ -584,4 +730,42 @@ public class XmlSerialization {
       throw new XmlSerializationException(e);
     }
   }
+
+  /**
+   * Deserializes an object from an XML stream.
+   * <p>
+   * If the reader is positioned at the start of the XML document, it is
+   * advanced to the root element of the document; otherwise it must be
+   * positioned at the start of the root node of the object. After calling this
+   * function, the reader is positioned at the end of the root node of the
+   * object, therefore this function could be used to read many objects from
+   * the same XML stream.
+   *
+   * @param <T>
+   *          the type of the object to be deserialized.
+   * @param objClass
+   *          the class of the object.
+   * @param reader
+   *          the StAX reader from where to read the XML.
+   * @return the object deserialized from the XML stream.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> T deserialize(final Class<T> objClass,
+      final XMLStreamReader reader) throws XmlException {
+    final XmlStreamSerializer serializer = getStreamSerializer(objClass);
+    if (serializer == null) {
+      throw new NoXmlSerializerRegisteredException(objClass);
+    }
+    if ((reader.getEventType() == XMLStreamConstants.START_DOCUMENT)
+        && (! StaxUtils.nextElement(reader))) {
+      throw new XmlParseException("No root element in the XML document.");
+    }
+    try {
+      return (T) serializer.deserialize(reader);
+    } catch (final ClassCastException e) {
+      throw new XmlSerializationException(e);
+    }
+  }
 }
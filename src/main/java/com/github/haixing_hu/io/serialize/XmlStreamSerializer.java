@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.github.haixing_hu.text.xml.XmlException;
+
+/**
+ * A {@link XmlStreamSerializer} provides interface to serialize and deserialize
+ * objects to and from XML streams, without building XML DOM trees.
+ * <p>
+ * The existing {@link XmlSerializer}s could be used as
+ * {@link XmlStreamSerializer}s through the {@link DomXmlStreamSerializer}
+ * adapter.
+ * <p>
+ * <b>NOTE</b>: All implementation of this interface <b>MUST</b> be thread safe.
+ *
+ * @author Haixing Hu
+ */
+@ThreadSafe
+public interface XmlStreamSerializer {
+
+  /**
+   * Gets the name of the root node of the XML element for the objects of this
+   * class.
+   *
+   * @return the name of the root node of the XML element for the objects of
+   *         this class.
+   */
+  public String getRootNodeName();
+
+  /**
+   * Deserializes an object from an XML stream.
+   *
+   * @param reader
+   *          The StAX reader, which must be positioned at the start of the
+   *          root node of the object. After calling this function, the reader
+   *          is positioned at the end of the root node.
+   * @return The object deserialized from XML stream.
+   * @throws XmlException
+   *           If any XML error occurred.
+   */
+  public Object deserialize(XMLStreamReader reader) throws XmlException;
+
+  /**
+   * Serializes an object to an XML stream.
+   *
+   * @param writer
+   *          The StAX writer where to write the root node of the object.
+   * @param obj
+   *          The object to be serialized. It can't be {@code null}.
+   * @throws NullPointerException
+   *           If the {@code obj} is {@code null}.
+   * @throws XmlException
+   *           If any XML error occurred.
+   */
+  public void serialize(XMLStreamWriter writer, Object obj) throws XmlException;
+
+}
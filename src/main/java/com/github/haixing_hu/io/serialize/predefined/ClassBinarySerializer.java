@@ -41,7 +41,7 @@ public final class ClassBinarySerializer implements BinarySerializer {
   @Override
   public Class<?> deserialize(final InputStream in, final boolean allowNull)
       throws IOException {
-    return InputUtils.readClass(in, allowNull);
+    return InputUtils.readSharedClass(in, allowNull);
   }
 
   @Override
@@ -53,7 +53,7 @@ public final class ClassBinarySerializer implements BinarySerializer {
     } catch (final ClassCastException e) {
       throw new SerializationException(e);
     }
-    OutputUtils.writeClass(out, value);
+    OutputUtils.writeSharedClass(out, value);
   }
 
 }
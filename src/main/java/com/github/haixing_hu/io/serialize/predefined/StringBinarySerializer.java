@@ -41,7 +41,7 @@ public final class StringBinarySerializer implements BinarySerializer {
   @Override
   public String deserialize(final InputStream in, final boolean allowNull)
       throws IOException {
-    return InputUtils.readString(in, allowNull);
+    return InputUtils.readSharedString(in, allowNull);
   }
 
   @Override
@@ -53,7 +53,7 @@ public final class StringBinarySerializer implements BinarySerializer {
     } catch (final ClassCastException e) {
       throw new SerializationException(e);
     }
-    OutputUtils.writeString(out, value);
+    OutputUtils.writeSharedString(out, value);
   }
 
 }
@@ -50,8 +50,8 @@ public final class HostBinarySerializer implements BinarySerializer {
         throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
       }
     } else {
-      final String scheme = readString(in, false);
-      final String hostname = readString(in, false);
+      final String scheme = readSharedString(in, false);
+      final String hostname = readSharedString(in, false);
       final int port = readInt(in);
       return new Host(scheme, hostname, port);
     }
@@ -67,8 +67,8 @@ public final class HostBinarySerializer implements BinarySerializer {
       } catch (final ClassCastException e) {
         throw new SerializationException(e);
       }
-      writeString(out, host.scheme());
-      writeString(out, host.hostname());
+      writeSharedString(out, host.scheme());
+      writeSharedString(out, host.hostname());
       writeInt(out, host.port());
     }
   }
@@ -622,7 +622,29 @@ public final class Url implements Comparable<Url>, Cloneable<Url>, Serializable
         query, fragment, domain, url);
   }
 
-  // used internally by clone()
+  /**
+   * Creates a URL from its normalized components, without parsing or
+   * normalizing them again, and without looking up its domain.
+   *
+   * <p>This function is used by the {@link UrlBinarySerializer} to rebuild the
+   * URLs deserialized from its structured encoding, whose components were
+   * taken from existing {@link Url} objects.</p>
+   */
+  static Url fromNormalized(final String scheme,
+      @Nullable final String userInfo,
+      final String hostname,
+      final int port,
+      @Nullable final String path,
+      @Nullable final String query,
+      @Nullable final String fragment,
+      final String domain) {
+    final String url = buildUrl(scheme, userInfo, hostname, port, path, query,
+        fragment);
+    return new Url(scheme, userInfo, hostname, port, path, query, fragment,
+        domain, url);
+  }
+
+  // used internally by clone() and fromNormalized()
   private Url(@Nullable final String scheme, @Nullable final String userInfo,
       @Nullable final String hostname,
       final int port,
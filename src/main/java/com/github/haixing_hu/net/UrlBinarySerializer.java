@@ -16,6 +16,7 @@
  */
 package com.github.haixing_hu.net;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -27,12 +28,25 @@ import com.github.haixing_hu.io.exception.InvalidFormatException;
 import com.github.haixing_hu.io.exception.SerializationException;
 import com.github.haixing_hu.io.serialize.BinarySerializer;
 
-import static com.github.haixing_hu.io.InputUtils.readString;
-import static com.github.haixing_hu.io.OutputUtils.writeString;
+import static com.github.haixing_hu.CommonsMessages.UNEXPECTED_NULL_VALUE;
+import static com.github.haixing_hu.io.InputUtils.*;
+import static com.github.haixing_hu.io.OutputUtils.*;
 
 /**
  * The {@link BinarySerializer} for the {@link Url} class.
  *
+ * <p>A non-empty URL is written in a structured format: its normalized scheme,
+ * user info, hostname, port, path, query, fragment and domain, so that it
+ * could be rebuilt without parsing, normalizing, or looking up the domain
+ * suffix again. The scheme, hostname and domain are written with
+ * {@link com.github.haixing_hu.io.OutputUtils#writeSharedString}, so they
+ * are shared when the URLs are serialized to a
+ * {@link com.github.haixing_hu.io.DictionaryOutputStream}.</p>
+ *
+ * <p>The format used by the older versions, i.e., the URL string written by
+ * {@link com.github.haixing_hu.io.OutputUtils#writeString}, could still be
+ * read; such URLs are parsed as before.</p>
+ *
  * @author Haixing Hu
  */
 @Immutable
@@ -40,17 +54,63 @@ public final class UrlBinarySerializer implements BinarySerializer {
 
   public static final UrlBinarySerializer INSTANCE = new UrlBinarySerializer();
 
+  /**
+   * The leading byte of a URL string written by the older versions. It is the
+   * mark of a non-null value written by {@code writeString()}.
+   */
+  static final int STRING_FORMAT = 0;
+
+  /**
+   * The leading byte of a null URL. It is the same as the mark of a null
+   * value written by {@code writeString()}.
+   */
+  static final int NULL_FORMAT = 1;
+
+  /**
+   * The leading byte of an empty URL.
+   */
+  static final int EMPTY_FORMAT = 2;
+
+  /**
+   * The leading byte of a URL written in the structured format.
+   */
+  static final int STRUCTURED_FORMAT = 3;
+
   @Override
   public Url deserialize(final InputStream in, final boolean allowNull)
       throws IOException {
-    final String str = readString(in, allowNull);
-    if (str == null) {
-      return null;
-    }
-    try {
-      return new Url(str);
-    } catch (final MalformedURLException e) {
-      throw new InvalidFormatException(e);
+    final int format = in.read();
+    switch (format) {
+      case STRUCTURED_FORMAT: {
+        final String scheme = readSharedString(in, false);
+        final String userInfo = readString(in, true);
+        final String hostname = readSharedString(in, false);
+        final int port = readVarInt(in) - 1;
+        final String path = readString(in, true);
+        final String query = readString(in, true);
+        final String fragment = readString(in, true);
+        final String domain = readSharedString(in, false);
+        return Url.fromNormalized(scheme, userInfo, hostname, port, path,
+            query, fragment, domain);
+      }
+      case EMPTY_FORMAT:
+        return new Url();
+      case NULL_FORMAT:
+        if (allowNull) {
+          return null;
+        } else {
+          throw new InvalidFormatException(UNEXPECTED_NULL_VALUE);
+        }
+      case STRING_FORMAT:
+        try {
+          return new Url(readUtf(in));
+        } catch (final MalformedURLException e) {
+          throw new InvalidFormatException(e);
+        }
+      case -1:
+        throw new EOFException();
+      default:
+        throw new InvalidFormatException("Unsupported URL format: " + format);
     }
   }
 
@@ -63,6 +123,26 @@ public final class UrlBinarySerializer implements BinarySerializer {
     } catch (final ClassCastException e) {
       throw new SerializationException(e);
     }
-    writeString(out, (url == null ? null : url.toString()));
+    if (url == null) {
+      out.write(NULL_FORMAT);
+    } else if (url.toString().length() == 0) {
+      out.write(EMPTY_FORMAT);
+    } else if (url.port() < -1) {
+      // an invalid port parsed from a registry-based authority could not be
+      // written as a varint, so the URL string is written instead
+      out.write(STRING_FORMAT);
+      writeUtf(out, url.toString());
+    } else {
+      out.write(STRUCTURED_FORMAT);
+      writeSharedString(out, url.scheme());
+      writeString(out, url.userInfo());
+      writeSharedString(out, url.hostname());
+      // the port is -1 if it is absent or the default port of the scheme
+      writeVarInt(out, url.port() + 1);
+      writeString(out, url.path());
+      writeString(out, url.query());
+      writeString(out, url.fragment());
+      writeSharedString(out, url.domain());
+    }
   }
 }
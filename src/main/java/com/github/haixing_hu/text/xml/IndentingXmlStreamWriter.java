@@ -0,0 +1,296 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.text.xml;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import com.github.haixing_hu.collection.primitive.impl.ArrayIntList;
+
+/**
+ * A {@link XMLStreamWriter} which indents the elements written to another
+ * StAX writer in the same way as {@link XmlUtils#print(org.w3c.dom.Document,
+ * java.io.Writer)}.
+ * <p>
+ * Each start tag of an element is written in a new line, indented by
+ * {@link XmlUtils#INDENT_AMOUNT} spaces per level; the end tag of an element
+ * is written in a new line only if the element has child elements. Once any
+ * text has been written to an element, no more whitespace is added to it, so
+ * that its text content is preserved.
+ *
+ * @author Haixing Hu
+ */
+final class IndentingXmlStreamWriter implements XMLStreamWriter {
+
+  private static final int SEEN_NOTHING = 0;
+  private static final int SEEN_ELEMENT = 1;
+  private static final int SEEN_DATA = 2;
+
+  private static final String INDENT;
+
+  static {
+    final int amount = Integer.parseInt(XmlUtils.INDENT_AMOUNT);
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < amount; ++i) {
+      builder.append(' ');
+    }
+    INDENT = builder.toString();
+  }
+
+  private final XMLStreamWriter writer;
+  private final ArrayIntList states;
+  private int state;
+  private boolean started;
+
+  IndentingXmlStreamWriter(final XMLStreamWriter writer) {
+    this.writer = writer;
+    this.states = new ArrayIntList();
+    this.state = SEEN_NOTHING;
+    this.started = false;
+  }
+
+  private void indent() throws XMLStreamException {
+    if (started) {
+      writer.writeCharacters("\n");
+      for (int i = 0; i < states.size(); ++i) {
+        writer.writeCharacters(INDENT);
+      }
+    }
+    started = true;
+  }
+
+  private void beforeMarkup() throws XMLStreamException {
+    if (state != SEEN_DATA) {
+      indent();
+      state = SEEN_ELEMENT;
+    }
+  }
+
+  private void beforeStartElement() throws XMLStreamException {
+    beforeMarkup();
+    states.add(state);
+    state = SEEN_NOTHING;
+  }
+
+  private void beforeEndElement() throws XMLStreamException {
+    final int parentState = states.removeElementAt(states.size() - 1);
+    if (state == SEEN_ELEMENT) {
+      indent();
+    }
+    state = parentState;
+  }
+
+  @Override
+  public void writeStartElement(final String localName)
+      throws XMLStreamException {
+    beforeStartElement();
+    writer.writeStartElement(localName);
+  }
+
+  @Override
+  public void writeStartElement(final String namespaceURI,
+      final String localName) throws XMLStreamException {
+    beforeStartElement();
+    writer.writeStartElement(namespaceURI, localName);
+  }
+
+  @Override
+  public void writeStartElement(final String prefix, final String localName,
+      final String namespaceURI) throws XMLStreamException {
+    beforeStartElement();
+    writer.writeStartElement(prefix, localName, namespaceURI);
+  }
+
+  @Override
+  public void writeEmptyElement(final String namespaceURI,
+      final String localName) throws XMLStreamException {
+    beforeMarkup();
+    writer.writeEmptyElement(namespaceURI, localName);
+  }
+
+  @Override
+  public void writeEmptyElement(final String prefix, final String localName,
+      final String namespaceURI) throws XMLStreamException {
+    beforeMarkup();
+    writer.writeEmptyElement(prefix, localName, namespaceURI);
+  }
+
+  @Override
+  public void writeEmptyElement(final String localName)
+      throws XMLStreamException {
+    beforeMarkup();
+    writer.writeEmptyElement(localName);
+  }
+
+  @Override
+  public void writeEndElement() throws XMLStreamException {
+    beforeEndElement();
+    writer.writeEndElement();
+  }
+
+  @Override
+  public void writeEndDocument() throws XMLStreamException {
+    while (! states.isEmpty()) {
+      writeEndElement();
+    }
+    writer.writeEndDocument();
+  }
+
+  @Override
+  public void close() throws XMLStreamException {
+    writer.close();
+  }
+
+  @Override
+  public void flush() throws XMLStreamException {
+    writer.flush();
+  }
+
+  @Override
+  public void writeAttribute(final String localName, final String value)
+      throws XMLStreamException {
+    writer.writeAttribute(localName, value);
+  }
+
+  @Override
+  public void writeAttribute(final String prefix, final String namespaceURI,
+      final String localName, final String value) throws XMLStreamException {
+    writer.writeAttribute(prefix, namespaceURI, localName, value);
+  }
+
+  @Override
+  public void writeAttribute(final String namespaceURI, final String localName,
+      final String value) throws XMLStreamException {
+    writer.writeAttribute(namespaceURI, localName, value);
+  }
+
+  @Override
+  public void writeNamespace(final String prefix, final String namespaceURI)
+      throws XMLStreamException {
+    writer.writeNamespace(prefix, namespaceURI);
+  }
+
+  @Override
+  public void writeDefaultNamespace(final String namespaceURI)
+      throws XMLStreamException {
+    writer.writeDefaultNamespace(namespaceURI);
+  }
+
+  @Override
+  public void writeComment(final String data) throws XMLStreamException {
+    beforeMarkup();
+    writer.writeComment(data);
+  }
+
+  @Override
+  public void writeProcessingInstruction(final String target)
+      throws XMLStreamException {
+    beforeMarkup();
+    writer.writeProcessingInstruction(target);
+  }
+
+  @Override
+  public void writeProcessingInstruction(final String target,
+      final String data) throws XMLStreamException {
+    beforeMarkup();
+    writer.writeProcessingInstruction(target, data);
+  }
+
+  @Override
+  public void writeCData(final String data) throws XMLStreamException {
+    state = SEEN_DATA;
+    writer.writeCData(data);
+  }
+
+  @Override
+  public void writeDTD(final String dtd) throws XMLStreamException {
+    beforeMarkup();
+    writer.writeDTD(dtd);
+  }
+
+  @Override
+  public void writeEntityRef(final String name) throws XMLStreamException {
+    state = SEEN_DATA;
+    writer.writeEntityRef(name);
+  }
+
+  @Override
+  public void writeStartDocument() throws XMLStreamException {
+    writer.writeStartDocument();
+    started = true;
+  }
+
+  @Override
+  public void writeStartDocument(final String version)
+      throws XMLStreamException {
+    writer.writeStartDocument(version);
+    started = true;
+  }
+
+  @Override
+  public void writeStartDocument(final String encoding, final String version)
+      throws XMLStreamException {
+    writer.writeStartDocument(encoding, version);
+    started = true;
+  }
+
+  @Override
+  public void writeCharacters(final String text) throws XMLStreamException {
+    state = SEEN_DATA;
+    writer.writeCharacters(text);
+  }
+
+  @Override
+  public void writeCharacters(final char[] text, final int start,
+      final int len) throws XMLStreamException {
+    state = SEEN_DATA;
+    writer.writeCharacters(text, start, len);
+  }
+
+  @Override
+  public String getPrefix(final String uri) throws XMLStreamException {
+    return writer.getPrefix(uri);
+  }
+
+  @Override
+  public void setPrefix(final String prefix, final String uri)
+      throws XMLStreamException {
+    writer.setPrefix(prefix, uri);
+  }
+
+  @Override
+  public void setDefaultNamespace(final String uri) throws XMLStreamException {
+    writer.setDefaultNamespace(uri);
+  }
+
+  @Override
+  public void setNamespaceContext(final NamespaceContext context)
+      throws XMLStreamException {
+    writer.setNamespaceContext(context);
+  }
+
+  @Override
+  public NamespaceContext getNamespaceContext() {
+    return writer.getNamespaceContext();
+  }
+
+  @Override
+  public Object getProperty(final String name) {
+    return writer.getProperty(name);
+  }
+}
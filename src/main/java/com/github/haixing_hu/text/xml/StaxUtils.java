@@ -0,0 +1,463 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.text.xml;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * This class provides utility functions for reading and writing XML documents
+ * through the streaming StAX API, without building their whole DOM trees.
+ *
+ * @author Haixing Hu
+ */
+@ThreadSafe
+public final class StaxUtils {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StaxUtils.class);
+
+  /**
+   * A global thread-local StAX input factory.
+   */
+  public static final ThreadLocal<XMLInputFactory> INPUT_FACTORY =
+      new ThreadLocal<XMLInputFactory>() {
+    @Override
+    protected XMLInputFactory initialValue() {
+      final XMLInputFactory factory = XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+      return factory;
+    }
+  };
+
+  /**
+   * A global thread-local StAX output factory.
+   */
+  public static final ThreadLocal<XMLOutputFactory> OUTPUT_FACTORY =
+      new ThreadLocal<XMLOutputFactory>() {
+    @Override
+    protected XMLOutputFactory initialValue() {
+      return XMLOutputFactory.newInstance();
+    }
+  };
+
+  /**
+   * Creates a StAX writer writing to a writer.
+   *
+   * @param writer
+   *          the writer where to write the XML.
+   * @return the StAX writer.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static XMLStreamWriter newWriter(final Writer writer)
+      throws XmlException {
+    requireNonNull("writer", writer);
+    try {
+      return OUTPUT_FACTORY.get().createXMLStreamWriter(writer);
+    } catch (final XMLStreamException e) {
+      throw new XmlSerializationException(e);
+    }
+  }
+
+  /**
+   * Creates a StAX writer writing to an output stream in the
+   * {@link XmlUtils#ENCODING} encoding.
+   *
+   * @param out
+   *          the output stream where to write the XML.
+   * @return the StAX writer.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static XMLStreamWriter newWriter(final OutputStream out)
+      throws XmlException {
+    requireNonNull("out", out);
+    try {
+      return OUTPUT_FACTORY.get().createXMLStreamWriter(out, XmlUtils.ENCODING);
+    } catch (final XMLStreamException e) {
+      throw new XmlSerializationException(e);
+    }
+  }
+
+  /**
+   * Creates a StAX writer writing to a writer, which indents the elements in
+   * the same way as {@link XmlUtils#print(Document, Writer)}.
+   *
+   * @param writer
+   *          the writer where to write the XML.
+   * @return the indenting StAX writer.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static XMLStreamWriter newIndentingWriter(final Writer writer)
+      throws XmlException {
+    return new IndentingXmlStreamWriter(newWriter(writer));
+  }
+
+  /**
+   * Creates a StAX writer writing to an output stream in the
+   * {@link XmlUtils#ENCODING} encoding, which indents the elements in the same
+   * way as {@link XmlUtils#print(Document, OutputStream)}.
+   *
+   * @param out
+   *          the output stream where to write the XML.
+   * @return the indenting StAX writer.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static XMLStreamWriter newIndentingWriter(final OutputStream out)
+      throws XmlException {
+    return new IndentingXmlStreamWriter(newWriter(out));
+  }
+
+  /**
+   * Creates a StAX reader reading from a reader.
+   *
+   * @param reader
+   *          the reader from where to read the XML.
+   * @return the StAX reader.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static XMLStreamReader newReader(final Reader reader)
+      throws XmlException {
+    requireNonNull("reader", reader);
+    try {
+      return INPUT_FACTORY.get().createXMLStreamReader(reader);
+    } catch (final XMLStreamException e) {
+      throw new XmlParseException(e);
+    }
+  }
+
+  /**
+   * Creates a StAX reader reading from an input stream.
+   *
+   * @param in
+   *          the input stream from where to read the XML.
+   * @return the StAX reader.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static XMLStreamReader newReader(final InputStream in)
+      throws XmlException {
+    requireNonNull("in", in);
+    try {
+      return INPUT_FACTORY.get().createXMLStreamReader(in);
+    } catch (final XMLStreamException e) {
+      throw new XmlParseException(e);
+    }
+  }
+
+  /**
+   * Advances a StAX reader to the next child element of the current element.
+   *
+   * <p>Texts, comments and processing instructions between the child elements
+   * are skipped. If the reader is at the start of the document, it is
+   * advanced to the root element.</p>
+   *
+   * @param reader
+   *          a StAX reader.
+   * @return {@code true} if the reader is positioned at the start of the next
+   *         child element; {@code false} if the reader is positioned at the end
+   *         of the current element or at the end of the document.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static boolean nextElement(final XMLStreamReader reader)
+      throws XmlException {
+    try {
+      while (reader.hasNext()) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            return true;
+          case XMLStreamConstants.END_ELEMENT:
+          case XMLStreamConstants.END_DOCUMENT:
+            return false;
+          default:
+            break;
+        }
+      }
+      return false;
+    } catch (final XMLStreamException e) {
+      throw new XmlParseException(e);
+    }
+  }
+
+  /**
+   * Reads the element at the current position of a StAX reader into a DOM
+   * element.
+   *
+   * <p>The reader must be positioned at the start of the element, and it is
+   * positioned at the end of the element after calling this function. Comments
+   * and processing instructions are dropped.</p>
+   *
+   * @param reader
+   *          a StAX reader.
+   * @param doc
+   *          the XML DOM document used to create the DOM nodes.
+   * @return the DOM element read from the reader.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static Element readElement(final XMLStreamReader reader,
+      final Document doc) throws XmlException {
+    try {
+      reader.require(XMLStreamConstants.START_ELEMENT, null, null);
+      final Element root = createElement(reader, doc);
+      Element current = root;
+      int depth = 1;
+      while (depth > 0) {
+        switch (reader.next()) {
+          case XMLStreamConstants.START_ELEMENT:
+            final Element child = createElement(reader, doc);
+            current.appendChild(child);
+            current = child;
+            ++depth;
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            if (--depth > 0) {
+              current = (Element) current.getParentNode();
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+          case XMLStreamConstants.CDATA:
+            current.appendChild(doc.createTextNode(reader.getText()));
+            break;
+          case XMLStreamConstants.END_DOCUMENT:
+            throw new XmlParseException("Unexpected end of the XML document.");
+          default:
+            break;
+        }
+      }
+      return root;
+    } catch (final XMLStreamException e) {
+      throw new XmlParseException(e);
+    }
+  }
+
+  private static Element createElement(final XMLStreamReader reader,
+      final Document doc) {
+    final String ns = reader.getNamespaceURI();
+    final Element element;
+    if ((ns == null) || ns.isEmpty()) {
+      element = doc.createElement(reader.getLocalName());
+    } else {
+      element = doc.createElementNS(ns, qualifiedName(reader.getPrefix(),
+          reader.getLocalName()));
+    }
+    final int n = reader.getAttributeCount();
+    for (int i = 0; i < n; ++i) {
+      final String attrNs = reader.getAttributeNamespace(i);
+      if ((attrNs == null) || attrNs.isEmpty()) {
+        element.setAttribute(reader.getAttributeLocalName(i),
+            reader.getAttributeValue(i));
+      } else {
+        element.setAttributeNS(attrNs, qualifiedName(reader.getAttributePrefix(i),
+            reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+      }
+    }
+    return element;
+  }
+
+  private static String qualifiedName(@Nullable final String prefix,
+      final String localName) {
+    if ((prefix == null) || prefix.isEmpty()) {
+      return localName;
+    } else {
+      return prefix + ':' + localName;
+    }
+  }
+
+  /**
+   * Writes a DOM element and all its descendants to a StAX writer.
+   *
+   * @param writer
+   *          a StAX writer.
+   * @param element
+   *          the DOM element to be written.
+   * @throws XmlException
+   *           if any error occurs.
+   */
+  public static void writeElement(final XMLStreamWriter writer,
+      final Element element) throws XmlException {
+    try {
+      writeNode(writer, element);
+    } catch (final XMLStreamException e) {
+      throw new XmlSerializationException(e);
+    }
+  }
+
+  private static void writeNode(final XMLStreamWriter writer, final Node node)
+      throws XMLStreamException {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        final Element element = (Element) node;
+        final NamedNodeMap attributes = element.getAttributes();
+        final int n = attributes.getLength();
+        // the namespace bindings used by the element and its attributes, which
+        // are neither in the scope nor declared explicitly by the element
+        final Map<String, String> bindings = new LinkedHashMap<String, String>();
+        final String ns = element.getNamespaceURI();
+        if ((ns != null) && (! ns.isEmpty())) {
+          addBinding(writer, element, prefixOf(element), ns, bindings);
+        }
+        for (int i = 0; i < n; ++i) {
+          final Attr attr = (Attr) attributes.item(i);
+          final String attrNs = attr.getNamespaceURI();
+          if ((attrNs != null) && (! attrNs.isEmpty())
+              && (! attrNs.equals(XMLConstants.XMLNS_ATTRIBUTE_NS_URI))
+              && (! prefixOf(attr).isEmpty())) {
+            addBinding(writer, element, prefixOf(attr), attrNs, bindings);
+          }
+        }
+        if ((ns == null) || ns.isEmpty()) {
+          writer.writeStartElement(element.getNodeName());
+        } else {
+          writer.writeStartElement(prefixOf(element), element.getLocalName(), ns);
+        }
+        for (final Map.Entry<String, String> binding : bindings.entrySet()) {
+          writeNamespace(writer, binding.getKey(), binding.getValue());
+        }
+        for (int i = 0; i < n; ++i) {
+          final Attr attr = (Attr) attributes.item(i);
+          final String name = attr.getName();
+          final String attrNs = attr.getNamespaceURI();
+          if (name.equals(XMLConstants.XMLNS_ATTRIBUTE)) {
+            writeNamespace(writer, XMLConstants.DEFAULT_NS_PREFIX,
+                attr.getValue());
+          } else if (name.startsWith(XMLConstants.XMLNS_ATTRIBUTE + ':')) {
+            writeNamespace(writer, name.substring(
+                XMLConstants.XMLNS_ATTRIBUTE.length() + 1), attr.getValue());
+          } else if ((attrNs == null) || attrNs.isEmpty()
+              || prefixOf(attr).isEmpty()) {
+            writer.writeAttribute(name, attr.getValue());
+          } else {
+            writer.writeAttribute(prefixOf(attr), attrNs, attr.getLocalName(),
+                attr.getValue());
+          }
+        }
+        for (Node child = node.getFirstChild(); child != null;
+             child = child.getNextSibling()) {
+          writeNode(writer, child);
+        }
+        writer.writeEndElement();
+        break;
+      case Node.TEXT_NODE:
+        writer.writeCharacters(node.getNodeValue());
+        break;
+      case Node.CDATA_SECTION_NODE:
+        writer.writeCData(node.getNodeValue());
+        break;
+      case Node.COMMENT_NODE:
+        writer.writeComment(node.getNodeValue());
+        break;
+      default:
+        LOGGER.warn("Skipping the unsupported DOM node: {}", node);
+        break;
+    }
+  }
+
+  private static String prefixOf(final Node node) {
+    final String prefix = node.getPrefix();
+    return (prefix == null ? XMLConstants.DEFAULT_NS_PREFIX : prefix);
+  }
+
+  private static void addBinding(final XMLStreamWriter writer,
+      final Element element, final String prefix, final String ns,
+      final Map<String, String> bindings) {
+    final String declaration = (prefix.isEmpty() ? XMLConstants.XMLNS_ATTRIBUTE
+        : XMLConstants.XMLNS_ATTRIBUTE + ':' + prefix);
+    if ((! ns.equals(writer.getNamespaceContext().getNamespaceURI(prefix)))
+        && (! element.hasAttribute(declaration))
+        && (! bindings.containsKey(prefix))) {
+      bindings.put(prefix, ns);
+    }
+  }
+
+  private static void writeNamespace(final XMLStreamWriter writer,
+      final String prefix, final String ns) throws XMLStreamException {
+    if (prefix.isEmpty()) {
+      writer.writeDefaultNamespace(ns);
+      writer.setDefaultNamespace(ns);
+    } else {
+      writer.writeNamespace(prefix, ns);
+      writer.setPrefix(prefix, ns);
+    }
+  }
+
+  /**
+   * Closes a StAX writer unconditionally, ignoring any exception.
+   *
+   * <p>Note that this function does not close the underlying output.</p>
+   *
+   * @param writer
+   *          the StAX writer to be closed. It could be null.
+   */
+  public static void closeQuietly(@Nullable final XMLStreamWriter writer) {
+    if (writer != null) {
+      try {
+        writer.close();
+      } catch (final XMLStreamException e) {
+        LOGGER.warn("Failed to close the StAX writer.", e);
+      }
+    }
+  }
+
+  /**
+   * Closes a StAX reader unconditionally, ignoring any exception.
+   *
+   * <p>Note that this function does not close the underlying input.</p>
+   *
+   * @param reader
+   *          the StAX reader to be closed. It could be null.
+   */
+  public static void closeQuietly(@Nullable final XMLStreamReader reader) {
+    if (reader != null) {
+      try {
+        reader.close();
+      } catch (final XMLStreamException e) {
+        LOGGER.warn("Failed to close the StAX reader.", e);
+      }
+    }
+  }
+}
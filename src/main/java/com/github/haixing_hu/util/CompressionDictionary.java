@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Adler32;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.github.haixing_hu.io.serialize.BinarySerialization;
+import com.github.haixing_hu.lang.Equality;
+import com.github.haixing_hu.lang.Hash;
+import com.github.haixing_hu.text.tostring.ToStringBuilder;
+
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
+/**
+ * A preset dictionary used to compress and decompress small records.
+ * <p>
+ * The Deflate algorithm could only find the redundancy inside the data being
+ * compressed, therefore it could hardly shrink small records of a few hundred
+ * bytes. A preset dictionary holding the byte sequences common to the records
+ * provides the compressor such redundancy. The same dictionary must be used
+ * to decompress the records; each dictionary has a version id which is stored
+ * in the compressed records, so that the dictionary could be checked and
+ * looked up while decompressing.
+ *
+ * @author Haixing Hu
+ * @see CompressionTools#compress(byte[], int, int, int, CompressionDictionary)
+ * @see CompressionTools#decompress(byte[], int, int, CompressionDictionary)
+ */
+@Immutable
+public final class CompressionDictionary {
+
+  static {
+    BinarySerialization.register(CompressionDictionary.class,
+        CompressionDictionaryBinarySerializer.INSTANCE);
+  }
+
+  /**
+   * The maximum size of a dictionary, which is the size of the sliding window
+   * of the Deflate algorithm.
+   */
+  public static final int MAX_SIZE = 32 * 1024;
+
+  /**
+   * The length of the byte sequences counted while training a dictionary.
+   */
+  private static final int GRAM_SIZE = 8;
+
+  /**
+   * The length of the segments of samples selected into a trained dictionary.
+   */
+  private static final int SEGMENT_SIZE = 32;
+
+  final int id;
+  final byte[] bytes;
+  private final int adler;
+
+  /**
+   * Constructs a dictionary.
+   *
+   * @param id
+   *          the version id of the dictionary, which must be non-negative.
+   * @param bytes
+   *          the content of the dictionary. It will be copied.
+   */
+  public CompressionDictionary(final int id, final byte[] bytes) {
+    this(id, bytes, true);
+  }
+
+  CompressionDictionary(final int id, final byte[] bytes, final boolean copy) {
+    if (id < 0) {
+      throw new IllegalArgumentException("The id must be non-negative: " + id);
+    }
+    requireNonNull("bytes", bytes);
+    if (bytes.length > MAX_SIZE) {
+      throw new IllegalArgumentException("The dictionary is too large: "
+          + bytes.length);
+    }
+    this.id = id;
+    this.bytes = (copy ? bytes.clone() : bytes);
+    final Adler32 checksum = new Adler32();
+    checksum.update(this.bytes, 0, this.bytes.length);
+    this.adler = (int) checksum.getValue();
+  }
+
+  /**
+   * Gets the version id of this dictionary.
+   *
+   * @return the version id of this dictionary.
+   */
+  public int getId() {
+    return id;
+  }
+
+  /**
+   * Gets the content of this dictionary.
+   *
+   * @return a copy of the content of this dictionary.
+   */
+  public byte[] getBytes() {
+    return bytes.clone();
+  }
+
+  /**
+   * Gets the size of this dictionary.
+   *
+   * @return the size of this dictionary in bytes.
+   */
+  public int size() {
+    return bytes.length;
+  }
+
+  /**
+   * Gets the Adler-32 checksum of this dictionary, which is the value
+   * required by {@link java.util.zip.Inflater#getAdler()} while decompressing
+   * the data compressed with this dictionary.
+   *
+   * @return the Adler-32 checksum of this dictionary.
+   */
+  public int getAdler() {
+    return adler;
+  }
+
+  /**
+   * Trains a dictionary from a corpus of samples.
+   * <p>
+   * The samples are cut into fixed length segments, and each segment is scored
+   * by the number of other samples sharing its byte sequences. The segments
+   * with the highest scores are selected until the dictionary is full, and the
+   * segments with higher scores are put nearer to the end of the dictionary,
+   * since the Deflate algorithm encodes shorter distances with fewer bits.
+   *
+   * @param id
+   *          the version id of the trained dictionary.
+   * @param samples
+   *          the corpus of samples, which should be representative of the
+   *          records to be compressed.
+   * @param maxSize
+   *          the maximum size of the trained dictionary, which will be limited
+   *          to {@link #MAX_SIZE}.
+   * @return the trained dictionary.
+   */
+  public static CompressionDictionary train(final int id,
+      final Iterable<byte[]> samples, final int maxSize) {
+    requireNonNull("samples", samples);
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("The maximum size must be positive: "
+          + maxSize);
+    }
+    final int capacity = Math.min(maxSize, MAX_SIZE);
+    // count the number of samples containing each gram
+    final Map<Long, int[]> frequencies = new HashMap<Long, int[]>();
+    final List<Segment> segments = new ArrayList<Segment>();
+    for (final byte[] sample : samples) {
+      final Set<Long> seen = new HashSet<Long>();
+      for (int i = 0; i + GRAM_SIZE <= sample.length; ++i) {
+        final Long gram = gram(sample, i);
+        if (seen.add(gram)) {
+          final int[] freq = frequencies.get(gram);
+          if (freq == null) {
+            frequencies.put(gram, new int[]{ 1 });
+          } else {
+            ++freq[0];
+          }
+        }
+      }
+      for (int i = 0; i + GRAM_SIZE <= sample.length; i += SEGMENT_SIZE) {
+        final int end = Math.min(i + SEGMENT_SIZE, sample.length);
+        segments.add(new Segment(sample, i, end));
+      }
+    }
+    for (final Segment segment : segments) {
+      segment.score = score(segment, frequencies);
+    }
+    Collections.sort(segments, Segment.BY_SCORE_DESC);
+    // select the segments greedily; the grams covered by the selected
+    // segments no longer contribute to the scores of other segments.
+    final List<Segment> selected = new ArrayList<Segment>();
+    int size = 0;
+    for (final Segment segment : segments) {
+      if ((size >= capacity) || (segment.score <= 0)) {
+        break;
+      }
+      final long score = score(segment, frequencies);
+      if (score * 2 < segment.score) {
+        continue;
+      }
+      final int length = Math.min(segment.end - segment.start, capacity - size);
+      selected.add(segment);
+      size += length;
+      for (int i = segment.start; i + GRAM_SIZE <= segment.end; ++i) {
+        frequencies.remove(gram(segment.sample, i));
+      }
+    }
+    // put the segments of higher scores nearer to the end
+    final byte[] bytes = new byte[size];
+    int pos = size;
+    for (final Segment segment : selected) {
+      final int length = Math.min(segment.end - segment.start, pos);
+      pos -= length;
+      System.arraycopy(segment.sample, segment.start, bytes, pos, length);
+    }
+    return new CompressionDictionary(id, bytes, false);
+  }
+
+  private static Long gram(final byte[] sample, final int start) {
+    long value = 0;
+    for (int i = 0; i < GRAM_SIZE; ++i) {
+      value = (value << 8) | (sample[start + i] & 0xFF);
+    }
+    return value;
+  }
+
+  private static long score(final Segment segment,
+      final Map<Long, int[]> frequencies) {
+    long score = 0;
+    for (int i = segment.start; i + GRAM_SIZE <= segment.end; ++i) {
+      final int[] freq = frequencies.get(gram(segment.sample, i));
+      if (freq != null) {
+        score += freq[0] - 1;
+      }
+    }
+    return score;
+  }
+
+  private static final class Segment {
+
+    static final Comparator<Segment> BY_SCORE_DESC = new Comparator<Segment>() {
+      @Override
+      public int compare(final Segment s1, final Segment s2) {
+        return (s1.score > s2.score ? -1 : (s1.score < s2.score ? 1 : 0));
+      }
+    };
+
+    final byte[] sample;
+    final int start;
+    final int end;
+    long score;
+
+    Segment(final byte[] sample, final int start, final int end) {
+      this.sample = sample;
+      this.start = start;
+      this.end = end;
+    }
+  }
+
+  @Override
+  public int hashCode() {
+    final int multiplier = 13;
+    int code = 7;
+    code = Hash.combine(code, multiplier, id);
+    code = Hash.combine(code, multiplier, bytes);
+    return code;
+  }
+
+  @Override
+  public boolean equals(@Nullable final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null) {
+      return false;
+    }
+    if (getClass() != obj.getClass()) {
+      return false;
+    }
+    final CompressionDictionary other = (CompressionDictionary) obj;
+    return (id == other.id)
+        && Equality.equals(bytes, other.bytes);
+  }
+
+  @Override
+  public String toString() {
+    return new ToStringBuilder(this)
+               .append("id", id)
+               .append("size", bytes.length)
+               .append("adler", adler)
+               .toString();
+  }
+}
@@ -17,25 +17,167 @@
 package com.github.haixing_hu.util;
 
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import javax.annotation.concurrent.ThreadSafe;
 
 import com.github.haixing_hu.lang.ArrayUtils;
 import com.github.haixing_hu.lang.StringUtils;
 import com.github.haixing_hu.text.CharsetUtils;
 
+import static com.github.haixing_hu.lang.Argument.requireNonNull;
+
 /**
  * Simple utility class providing static methods to compress and decompress
  * binary data. This class uses {@link Deflater} and {@link Inflater} classes to
  * compress and decompress.
+ * <p>
+ * The {@link Deflater} and {@link Inflater} objects hold native memory which
+ * is released only after calling their {@code end()} method or after they are
+ * finalized. In order to avoid allocating native memory for every call, this
+ * class keeps a bounded pool of reusable {@link Deflater}s for each
+ * compression level, and a bounded pool of reusable {@link Inflater}s. The
+ * objects returned to a full pool are ended immediately.
  *
  * @author Haixing Hu
  */
+@ThreadSafe
 public final class CompressionTools {
 
   public static final int BUFFER_SIZE = 4096;
 
+  /**
+   * The maximum number of idle {@link Deflater}s pooled for each compression
+   * level, and the maximum number of idle {@link Inflater}s pooled.
+   */
+  public static final int POOL_SIZE = 16;
+
+  private static final int MIN_LEVEL = Deflater.DEFAULT_COMPRESSION;
+
+  private static final int MAX_LEVEL = Deflater.BEST_COMPRESSION;
+
+  private static final BlockingQueue<Deflater>[] DEFLATER_POOLS;
+
+  private static final BlockingQueue<Inflater> INFLATER_POOL =
+      new ArrayBlockingQueue<Inflater>(POOL_SIZE);
+
+  static {
+    @SuppressWarnings("unchecked")
+    final BlockingQueue<Deflater>[] pools =
+        new BlockingQueue[MAX_LEVEL - MIN_LEVEL + 1];
+    for (int i = 0; i < pools.length; ++i) {
+      pools[i] = new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+    }
+    DEFLATER_POOLS = pools;
+  }
+
+  private static BlockingQueue<Deflater> getDeflaterPool(final int compressionLevel) {
+    if ((compressionLevel < MIN_LEVEL) || (compressionLevel > MAX_LEVEL)) {
+      throw new IllegalArgumentException("Invalid compression level: "
+          + compressionLevel);
+    }
+    return DEFLATER_POOLS[compressionLevel - MIN_LEVEL];
+  }
+
+  /**
+   * Acquires a {@link Deflater} from the pool.
+   * <p>
+   * The returned deflater must be returned to the pool by calling
+   * {@link #releaseDeflater(Deflater, int)} after using it, and it must not
+   * be used after releasing.
+   *
+   * @param compressionLevel
+   *          the level of compression. It should be a constant defined in
+   *          {@link Deflater} class.
+   * @return a {@link Deflater} of the specified compression level.
+   */
+  public static Deflater acquireDeflater(final int compressionLevel) {
+    final Deflater deflater = getDeflaterPool(compressionLevel).poll();
+    if (deflater != null) {
+      return deflater;
+    } else {
+      return new Deflater(compressionLevel);
+    }
+  }
+
+  /**
+   * Returns a {@link Deflater} previously acquired by
+   * {@link #acquireDeflater(int)} to the pool.
+   *
+   * @param deflater
+   *          the deflater to be returned.
+   * @param compressionLevel
+   *          the compression level used to acquire the deflater.
+   */
+  public static void releaseDeflater(final Deflater deflater,
+      final int compressionLevel) {
+    deflater.reset();
+    if (! getDeflaterPool(compressionLevel).offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Acquires an {@link Inflater} from the pool.
+   * <p>
+   * The returned inflater must be returned to the pool by calling
+   * {@link #releaseInflater(Inflater)} after using it, and it must not be used
+   * after releasing.
+   *
+   * @return an {@link Inflater}.
+   */
+  public static Inflater acquireInflater() {
+    final Inflater inflater = INFLATER_POOL.poll();
+    if (inflater != null) {
+      return inflater;
+    } else {
+      return new Inflater();
+    }
+  }
+
+  /**
+   * Returns an {@link Inflater} previously acquired by
+   * {@link #acquireInflater()} to the pool.
+   *
+   * @param inflater
+   *          the inflater to be returned.
+   */
+  public static void releaseInflater(final Inflater inflater) {
+    inflater.reset();
+    if (! INFLATER_POOL.offer(inflater)) {
+      inflater.end();
+    }
+  }
+
+  /**
+   * Ends all the idle {@link Deflater}s and {@link Inflater}s in the pools,
+   * releasing their native memory.
+   */
+  public static void clearPools() {
+    for (final BlockingQueue<Deflater> pool : DEFLATER_POOLS) {
+      Deflater deflater;
+      while ((deflater = pool.poll()) != null) {
+        deflater.end();
+      }
+    }
+    Inflater inflater;
+    while ((inflater = INFLATER_POOL.poll()) != null) {
+      inflater.end();
+    }
+  }
+
   /**
    * Compresses the specified byte range using the specified compressionLevel
    * (constants are defined in {@link Deflater} class).
@@ -61,9 +203,8 @@ public final class CompressionTools {
     // guarantee that the compressed data will be smaller than the uncompressed
     // data.
     final ByteArrayOutputStream bos = new ByteArrayOutputStream(nBytes);
-    final Deflater compressor = new Deflater();
+    final Deflater compressor = acquireDeflater(compressionLevel);
     try {
-      compressor.setLevel(compressionLevel);
       compressor.setInput(data, offset, nBytes);
       compressor.finish();
       // Compress the data
@@ -73,7 +214,7 @@ public final class CompressionTools {
         bos.write(buffer, 0, count);
       }
     } finally {
-      compressor.end();
+      releaseDeflater(compressor, compressionLevel);
     }
     return bos.toByteArray();
   }
@@ -87,6 +228,191 @@ public final class CompressionTools {
     }
   }
 
+  /**
+   * Compresses the specified byte range against a preset dictionary.
+   * <p>
+   * The returned compressed data starts with the id of the dictionary encoded
+   * as a variable length integer, followed by the compressed bytes. It must be
+   * decompressed by {@link #decompress(byte[], int, int, CompressionDictionary)}
+   * with the same dictionary.
+   *
+   * @param data
+   *          the data to be compressed.
+   * @param offset
+   *          the offset of the byte array where to start compression.
+   * @param nBytes
+   *          the number of bytes to be compressed.
+   * @param compressionLevel
+   *          the level of compression. It should be a constant defined in
+   *          {@link Deflater} class.
+   * @param dictionary
+   *          the preset dictionary.
+   * @return the compressed byte array.
+   */
+  public static byte[] compress(final byte[] data, final int offset,
+      final int nBytes, final int compressionLevel,
+      final CompressionDictionary dictionary) {
+    requireNonNull("dictionary", dictionary);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream(nBytes + 16);
+    int id = dictionary.id;
+    while (id > 0x7F) {
+      bos.write((id & 0x7F) | 0x80);
+      id >>>= 7;
+    }
+    bos.write(id);
+    final Deflater compressor = acquireDeflater(compressionLevel);
+    try {
+      compressor.setDictionary(dictionary.bytes);
+      compressor.setInput(data, offset, nBytes);
+      compressor.finish();
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      while (! compressor.finished()) {
+        final int count = compressor.deflate(buffer);
+        bos.write(buffer, 0, count);
+      }
+    } finally {
+      releaseDeflater(compressor, compressionLevel);
+    }
+    return bos.toByteArray();
+  }
+
+  public static byte[] compressString(final String str,
+      final int compressionLevel, final CompressionDictionary dictionary) {
+    final byte[] bytes = str.getBytes(CharsetUtils.UTF_8);
+    return compress(bytes, 0, bytes.length, compressionLevel, dictionary);
+  }
+
+  /**
+   * Compresses all the data read from an input stream and writes the
+   * compressed data to an output stream.
+   * <p>
+   * After calling this function, the input stream is read to its end, and the
+   * output stream is flushed; but both of them remain opened.
+   *
+   * @param in
+   *          the input stream where to read the data to be compressed.
+   * @param out
+   *          the output stream where to write the compressed data.
+   * @param compressionLevel
+   *          the level of compression. It should be a constant defined in
+   *          {@link Deflater} class.
+   * @return the number of compressed bytes written to the output stream.
+   * @throws IOException
+   *           if any I/O error occurs.
+   */
+  public static long compress(final InputStream in, final OutputStream out,
+      final int compressionLevel) throws IOException {
+    requireNonNull("in", in);
+    requireNonNull("out", out);
+    final Deflater compressor = acquireDeflater(compressionLevel);
+    try {
+      final byte[] input = new byte[BUFFER_SIZE];
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(input)) >= 0) {
+        compressor.setInput(input, 0, n);
+        while (! compressor.needsInput()) {
+          final int count = compressor.deflate(buffer);
+          out.write(buffer, 0, count);
+        }
+      }
+      compressor.finish();
+      while (! compressor.finished()) {
+        final int count = compressor.deflate(buffer);
+        out.write(buffer, 0, count);
+      }
+      out.flush();
+      return compressor.getBytesWritten();
+    } finally {
+      releaseDeflater(compressor, compressionLevel);
+    }
+  }
+
+  /**
+   * Compresses the remaining bytes of a source buffer into a destination
+   * buffer.
+   * <p>
+   * After calling this function, the position of the source buffer is
+   * advanced to its limit, and the position of the destination buffer is
+   * advanced by the number of compressed bytes.
+   *
+   * @param src
+   *          the buffer holding the data to be compressed.
+   * @param dst
+   *          the buffer where to put the compressed data.
+   * @param compressionLevel
+   *          the level of compression. It should be a constant defined in
+   *          {@link Deflater} class.
+   * @return the number of compressed bytes put into the destination buffer.
+   * @throws BufferOverflowException
+   *           if there is not enough space remaining in the destination
+   *           buffer.
+   */
+  public static int compress(final ByteBuffer src, final ByteBuffer dst,
+      final int compressionLevel) {
+    requireNonNull("src", src);
+    requireNonNull("dst", dst);
+    final int start = dst.position();
+    final Deflater compressor = acquireDeflater(compressionLevel);
+    try {
+      final byte[] input = (src.hasArray() ? null : new byte[BUFFER_SIZE]);
+      final byte[] buffer = (dst.hasArray() ? null : new byte[BUFFER_SIZE]);
+      boolean finishing = false;
+      while (! compressor.finished()) {
+        if (compressor.needsInput() && (! finishing)) {
+          if (! src.hasRemaining()) {
+            compressor.finish();
+            finishing = true;
+          } else if (input == null) {
+            compressor.setInput(src.array(),
+                src.arrayOffset() + src.position(), src.remaining());
+            src.position(src.limit());
+          } else {
+            final int n = Math.min(input.length, src.remaining());
+            src.get(input, 0, n);
+            compressor.setInput(input, 0, n);
+          }
+        }
+        if (! dst.hasRemaining()) {
+          throw new BufferOverflowException();
+        }
+        if (buffer == null) {
+          final int count = compressor.deflate(dst.array(),
+              dst.arrayOffset() + dst.position(), dst.remaining());
+          dst.position(dst.position() + count);
+        } else {
+          final int count = compressor.deflate(buffer, 0,
+              Math.min(buffer.length, dst.remaining()));
+          dst.put(buffer, 0, count);
+        }
+      }
+    } finally {
+      releaseDeflater(compressor, compressionLevel);
+    }
+    return dst.position() - start;
+  }
+
+  /**
+   * Creates an output stream compressing the data written to it, with a
+   * {@link Deflater} taken from the pool.
+   * <p>
+   * The returned output stream must be closed after using it, which finishes
+   * the compression, closes the underlying output stream and returns the
+   * {@link Deflater} to the pool.
+   *
+   * @param out
+   *          the underlying output stream where to write the compressed data.
+   * @param compressionLevel
+   *          the level of compression. It should be a constant defined in
+   *          {@link Deflater} class.
+   * @return an output stream compressing the data written to it.
+   */
+  public static DeflaterOutputStream newCompressingStream(
+      final OutputStream out, final int compressionLevel) {
+    requireNonNull("out", out);
+    return new PooledDeflaterOutputStream(out, compressionLevel);
+  }
+
   /**
    * Decompress the byte array previously returned by compress.
    *
@@ -106,17 +432,21 @@ public final class CompressionTools {
       return ArrayUtils.EMPTY_BYTE_ARRAY;
     }
     final ByteArrayOutputStream bos = new ByteArrayOutputStream(data.length);
-    final Inflater decompressor = new Inflater();
+    final Inflater decompressor = acquireInflater();
     try {
       decompressor.setInput(data, offset, nBytes);
       // Decompress the data
       final byte[] buffer = new byte[BUFFER_SIZE];
       while (! decompressor.finished()) {
         final int count = decompressor.inflate(buffer);
+        if ((count == 0) && (decompressor.needsInput()
+            || decompressor.needsDictionary())) {
+          throw new DataFormatException("Truncated compressed data.");
+        }
         bos.write(buffer, 0, count);
       }
     } finally {
-      decompressor.end();
+      releaseInflater(decompressor);
     }
     return bos.toByteArray();
   }
@@ -130,4 +460,288 @@ public final class CompressionTools {
       return new String(bytes, CharsetUtils.UTF_8);
     }
   }
+
+  /**
+   * Gets the id of the dictionary used to compress the data previously
+   * returned by {@link #compress(byte[], int, int, int, CompressionDictionary)}.
+   *
+   * @param data
+   *          the compressed data.
+   * @param offset
+   *          the offset of the byte array where the compressed data starts.
+   * @param nBytes
+   *          the number of bytes of the compressed data.
+   * @return the id of the dictionary used to compress the data.
+   * @throws DataFormatException
+   *           if the compressed data has errors.
+   */
+  public static int getDictionaryId(final byte[] data, final int offset,
+      final int nBytes) throws DataFormatException {
+    return (int) readDictionaryId(data, offset, nBytes);
+  }
+
+  /**
+   * Reads the id of the dictionary at the beginning of compressed data.
+   *
+   * @return the id of the dictionary in the lower 32 bits, and the number of
+   *         bytes used to encode it in the upper 32 bits.
+   */
+  private static long readDictionaryId(final byte[] data, final int offset,
+      final int nBytes) throws DataFormatException {
+    int value = 0;
+    for (int i = 0; i < 5; ++i) {
+      if (i >= nBytes) {
+        throw new DataFormatException("Truncated dictionary id.");
+      }
+      final int ch = data[offset + i] & 0xFF;
+      value |= (ch & 0x7F) << (7 * i);
+      if ((ch & 0x80) == 0) {
+        if (value < 0) {
+          throw new DataFormatException("Malformed dictionary id.");
+        }
+        return ((long) (i + 1) << 32) | value;
+      }
+    }
+    throw new DataFormatException("Malformed dictionary id.");
+  }
+
+  /**
+   * Decompress the byte array previously returned by
+   * {@link #compress(byte[], int, int, int, CompressionDictionary)}.
+   *
+   * @param data
+   *          the data to be decompressed.
+   * @param offset
+   *          the offset of the byte array where to start decompression.
+   * @param nBytes
+   *          the number of bytes to be decompressed.
+   * @param dictionary
+   *          the preset dictionary used to compress the data.
+   * @return the decompressed result of the original values.
+   * @throws DataFormatException
+   *           if the compressed data has errors, or it was not compressed
+   *           with the specified dictionary.
+   */
+  public static byte[] decompress(final byte[] data, final int offset,
+      final int nBytes, final CompressionDictionary dictionary)
+      throws DataFormatException {
+    requireNonNull("dictionary", dictionary);
+    final long header = readDictionaryId(data, offset, nBytes);
+    final int id = (int) header;
+    if (id != dictionary.id) {
+      throw new DataFormatException("The data was compressed with dictionary "
+          + id + " instead of dictionary " + dictionary.id);
+    }
+    final int headerSize = (int) (header >>> 32);
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream(nBytes * 4);
+    final Inflater decompressor = acquireInflater();
+    try {
+      decompressor.setInput(data, offset + headerSize, nBytes - headerSize);
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      while (! decompressor.finished()) {
+        final int count = decompressor.inflate(buffer);
+        if (count > 0) {
+          bos.write(buffer, 0, count);
+        } else if (decompressor.needsDictionary()) {
+          if (decompressor.getAdler() != dictionary.getAdler()) {
+            throw new DataFormatException("Mismatched dictionary checksum.");
+          }
+          decompressor.setDictionary(dictionary.bytes);
+        } else if (decompressor.needsInput()) {
+          throw new DataFormatException("Truncated compressed data.");
+        }
+      }
+    } finally {
+      releaseInflater(decompressor);
+    }
+    return bos.toByteArray();
+  }
+
+  public static String decompressString(final byte[] data, final int offset,
+      final int nBytes, final CompressionDictionary dictionary)
+      throws DataFormatException {
+    final byte[] bytes = decompress(data, offset, nBytes, dictionary);
+    return new String(bytes, CharsetUtils.UTF_8);
+  }
+
+  /**
+   * Decompresses the data read from an input stream and writes the
+   * decompressed data to an output stream.
+   * <p>
+   * Note that this function may read bytes beyond the end of the compressed
+   * data from the input stream. After calling this function, the output stream
+   * is flushed; both of the input stream and the output stream remain opened.
+   *
+   * @param in
+   *          the input stream where to read the compressed data.
+   * @param out
+   *          the output stream where to write the decompressed data.
+   * @return the number of decompressed bytes written to the output stream.
+   * @throws IOException
+   *           if any I/O error occurs.
+   * @throws DataFormatException
+   *           if the compressed data has errors.
+   */
+  public static long decompress(final InputStream in, final OutputStream out)
+      throws IOException, DataFormatException {
+    requireNonNull("in", in);
+    requireNonNull("out", out);
+    final Inflater decompressor = acquireInflater();
+    try {
+      final byte[] input = new byte[BUFFER_SIZE];
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      while (! decompressor.finished()) {
+        final int count = decompressor.inflate(buffer);
+        if (count > 0) {
+          out.write(buffer, 0, count);
+        } else if (decompressor.needsDictionary()) {
+          throw new DataFormatException("A preset dictionary is required.");
+        } else if (decompressor.needsInput()) {
+          final int n = in.read(input);
+          if (n < 0) {
+            throw new EOFException("Unexpected end of the compressed data.");
+          }
+          decompressor.setInput(input, 0, n);
+        }
+      }
+      out.flush();
+      return decompressor.getBytesWritten();
+    } finally {
+      releaseInflater(decompressor);
+    }
+  }
+
+  /**
+   * Decompresses the remaining bytes of a source buffer into a destination
+   * buffer.
+   * <p>
+   * After calling this function, the position of the source buffer is
+   * advanced to the end of the compressed data, and the position of the
+   * destination buffer is advanced by the number of decompressed bytes.
+   *
+   * @param src
+   *          the buffer holding the compressed data.
+   * @param dst
+   *          the buffer where to put the decompressed data.
+   * @return the number of decompressed bytes put into the destination buffer.
+   * @throws DataFormatException
+   *           if the compressed data has errors.
+   * @throws BufferOverflowException
+   *           if there is not enough space remaining in the destination
+   *           buffer.
+   */
+  public static int decompress(final ByteBuffer src, final ByteBuffer dst)
+      throws DataFormatException {
+    requireNonNull("src", src);
+    requireNonNull("dst", dst);
+    final int start = dst.position();
+    final Inflater decompressor = acquireInflater();
+    try {
+      final byte[] input = (src.hasArray() ? null : new byte[BUFFER_SIZE]);
+      final byte[] buffer = (dst.hasArray() ? null : new byte[BUFFER_SIZE]);
+      while (! decompressor.finished()) {
+        if (! dst.hasRemaining()) {
+          throw new BufferOverflowException();
+        }
+        final int count;
+        if (buffer == null) {
+          count = decompressor.inflate(dst.array(),
+              dst.arrayOffset() + dst.position(), dst.remaining());
+          dst.position(dst.position() + count);
+        } else {
+          count = decompressor.inflate(buffer, 0,
+              Math.min(buffer.length, dst.remaining()));
+          dst.put(buffer, 0, count);
+        }
+        if (count == 0) {
+          if (decompressor.needsDictionary()) {
+            throw new DataFormatException("A preset dictionary is required.");
+          } else if (decompressor.needsInput()) {
+            if (! src.hasRemaining()) {
+              throw new DataFormatException("Truncated compressed data.");
+            } else if (input == null) {
+              decompressor.setInput(src.array(),
+                  src.arrayOffset() + src.position(), src.remaining());
+              src.position(src.limit());
+            } else {
+              final int n = Math.min(input.length, src.remaining());
+              src.get(input, 0, n);
+              decompressor.setInput(input, 0, n);
+            }
+          }
+        }
+      }
+      // push back the bytes beyond the end of the compressed data
+      src.position(src.position() - decompressor.getRemaining());
+    } finally {
+      releaseInflater(decompressor);
+    }
+    return dst.position() - start;
+  }
+
+  /**
+   * Creates an input stream decompressing the data read from an underlying
+   * input stream, with an {@link Inflater} taken from the pool.
+   * <p>
+   * The returned input stream must be closed after using it, which closes the
+   * underlying input stream and returns the {@link Inflater} to the pool.
+   *
+   * @param in
+   *          the underlying input stream where to read the compressed data.
+   * @return an input stream decompressing the data read from the underlying
+   *         input stream.
+   */
+  public static InflaterInputStream newDecompressingStream(final InputStream in) {
+    requireNonNull("in", in);
+    return new PooledInflaterInputStream(in);
+  }
+
+  private static final class PooledDeflaterOutputStream
+      extends DeflaterOutputStream {
+
+    private final int compressionLevel;
+    private boolean released;
+
+    PooledDeflaterOutputStream(final OutputStream out,
+        final int compressionLevel) {
+      super(out, acquireDeflater(compressionLevel), BUFFER_SIZE);
+      this.compressionLevel = compressionLevel;
+      this.released = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (! released) {
+          released = true;
+          releaseDeflater(def, compressionLevel);
+        }
+      }
+    }
+  }
+
+  private static final class PooledInflaterInputStream
+      extends InflaterInputStream {
+
+    private boolean released;
+
+    PooledInflaterInputStream(final InputStream in) {
+      super(in, acquireInflater(), BUFFER_SIZE);
+      this.released = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        if (! released) {
+          released = true;
+          releaseInflater(inf);
+        }
+      }
+    }
+  }
 }
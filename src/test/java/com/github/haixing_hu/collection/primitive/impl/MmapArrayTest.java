@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.collection.primitive.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.io.AccessMode;
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link MmapIntArray}, {@link MmapLongArray} and
+ * {@link MmapDoubleArray} classes.
+ *
+ * @author Haixing Hu
+ */
+public class MmapArrayTest {
+
+  // map the files in segments of 4 KB to test the arrays spanning segments
+  private static final int SEGMENT_SHIFT = 12;
+
+  @Test
+  public void testIntArray() throws IOException {
+    final File file = File.createTempFile("mmap", ".int");
+    file.delete();
+    try {
+      final ArrayIntList expected = new ArrayIntList();
+      MmapIntArray array = new MmapIntArray(file, AccessMode.READ_WRITE,
+          ByteOrder.BIG_ENDIAN, SEGMENT_SHIFT);
+      for (int i = 0; i < 5000; ++i) {
+        array.add(i * 7);
+        expected.add(i * 7);
+      }
+      final int[] values = new int[5000];
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = -i;
+      }
+      array.addAll(values, 0, values.length);
+      expected.addAll(values, 0, values.length);
+      assertEquals(expected, array);
+      array.close();
+
+      array = new MmapIntArray(file, AccessMode.READ_WRITE,
+          ByteOrder.LITTLE_ENDIAN, SEGMENT_SHIFT);
+      assertEquals(ByteOrder.BIG_ENDIAN, array.order());
+      assertTrue(array.verify());
+      assertEquals(expected, array);
+      assertEquals(14, array.set(2, 99));
+      expected.set(2, 99);
+      assertFalse(array.verify());
+      array.force();
+      assertTrue(array.verify());
+      array.add(1000, 12345);
+      expected.add(1000, 12345);
+      assertEquals(expected.removeElementAt(3000), array.removeElementAt(3000));
+      assertEquals(expected, array);
+      array.close();
+
+      // the default constructor maps the file in the default segments
+      array = new MmapIntArray(file);
+      assertEquals(expected, array);
+      array.close();
+
+      array = new MmapIntArray(file, AccessMode.READ_ONLY,
+          ByteOrder.BIG_ENDIAN, SEGMENT_SHIFT);
+      assertTrue(array.verify());
+      assertEquals(expected, array);
+      try {
+        array.set(0, 1);
+        fail("should throw");
+      } catch (final UnsupportedOperationException e) {
+        // ok
+      }
+      array.close();
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testLongArray() throws IOException {
+    final File file = File.createTempFile("mmap", ".long");
+    file.delete();
+    try {
+      final ArrayLongList expected = new ArrayLongList();
+      MmapLongArray array = new MmapLongArray(file, AccessMode.READ_WRITE,
+          ByteOrder.LITTLE_ENDIAN, SEGMENT_SHIFT);
+      for (int i = 0; i < 3000; ++i) {
+        array.add(i * 1000000007L);
+        expected.add(i * 1000000007L);
+      }
+      array.close();
+      array = new MmapLongArray(file, AccessMode.READ_WRITE,
+          ByteOrder.BIG_ENDIAN, SEGMENT_SHIFT);
+      assertEquals(ByteOrder.LITTLE_ENDIAN, array.order());
+      assertEquals(expected, array);
+      array.clear();
+      assertEquals(0, array.size());
+      array.close();
+      array = new MmapLongArray(file);
+      assertEquals(0, array.size());
+      assertTrue(array.verify());
+      array.close();
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testDoubleArray() throws IOException {
+    final File file = File.createTempFile("mmap", ".double");
+    file.delete();
+    try {
+      final ArrayDoubleList expected = new ArrayDoubleList();
+      MmapDoubleArray array = new MmapDoubleArray(file, AccessMode.READ_WRITE,
+          ByteOrder.nativeOrder(), SEGMENT_SHIFT);
+      for (int i = 0; i < 3000; ++i) {
+        array.add(i / 3.0);
+        expected.add(i / 3.0);
+      }
+      array.close();
+      array = new MmapDoubleArray(file);
+      assertEquals(expected, array);
+      array.close();
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testCorruption() throws IOException {
+    final File file = File.createTempFile("mmap", ".int");
+    file.delete();
+    try {
+      final MmapIntArray array = new MmapIntArray(file);
+      for (int i = 0; i < 100; ++i) {
+        array.add(i);
+      }
+      array.close();
+      final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        raf.seek(MmapArrayFile.HEADER_SIZE + 10);
+        raf.write(0xFF);
+      } finally {
+        raf.close();
+      }
+      final MmapIntArray corrupted = new MmapIntArray(file);
+      assertFalse(corrupted.verify());
+      corrupted.close();
+      try {
+        new MmapLongArray(file);
+        fail("should throw");
+      } catch (final InvalidFormatException e) {
+        // ok
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
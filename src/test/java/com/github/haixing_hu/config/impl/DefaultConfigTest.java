@@ -16,11 +16,20 @@
  */
 package com.github.haixing_hu.config.impl;
 
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLStreamReader;
+
 import org.junit.Test;
 
 import com.github.haixing_hu.io.serialize.XmlSerialization;
+import com.github.haixing_hu.text.xml.StaxUtils;
 import com.github.haixing_hu.text.xml.XmlException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 /**
  * Unit test of the DefaultConfig class.
  *
@@ -69,4 +78,24 @@ public class DefaultConfigTest extends ConfigTestBase {
         INSTANCE_CONFIG, DefaultConfigTest.class);
     verifyInstanceProperties(config);
   }
+
+  @Test
+  public void testStreamSerialization() throws XmlException {
+    final DefaultConfig config = XmlSerialization.deserialize(DefaultConfig.class,
+        INSTANCE_CONFIG, DefaultConfigTest.class);
+    final StringWriter writer = new StringWriter();
+    XmlSerialization.serialize(DefaultConfig.class, config, writer);
+    // the streamed document is indented as the printed DOM documents
+    final String xml = writer.toString();
+    assertTrue(xml, xml.contains("\n  <property"));
+    assertTrue(xml, xml.contains("\n</configuration>"));
+    final XMLStreamReader reader = StaxUtils.newReader(new StringReader(writer.toString()));
+    try {
+      final DefaultConfig actual = XmlSerialization.deserialize(DefaultConfig.class, reader);
+      assertEquals(config, actual);
+      verifyInstanceProperties(actual);
+    } finally {
+      StaxUtils.closeQuietly(reader);
+    }
+  }
 }
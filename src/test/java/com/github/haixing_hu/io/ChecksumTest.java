@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.Checksum;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.text.CharsetUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the checksum algorithms.
+ *
+ * @author Haixing Hu
+ */
+public class ChecksumTest {
+
+  private static byte[] createData(final int n) {
+    final byte[] data = new byte[n];
+    for (int i = 0; i < n; ++i) {
+      data[i] = (byte) (i % 251);
+    }
+    return data;
+  }
+
+  private static long checksum(final Checksum checksum, final byte[] data,
+      final int step) {
+    checksum.reset();
+    for (int i = 0; i < data.length; i += step) {
+      if (step == 1) {
+        checksum.update(data[i]);
+      } else {
+        checksum.update(data, i, Math.min(step, data.length - i));
+      }
+    }
+    return checksum.getValue();
+  }
+
+  @Test
+  public void testCrc32C() {
+    final byte[] data = "123456789".getBytes(CharsetUtils.UTF_8);
+    for (final Checksum checksum : new Checksum[]{ new Crc32C(),
+        ChecksumAlgorithm.CRC32C.newChecksum() }) {
+      for (final int step : new int[]{ 1, 2, 5, 9 }) {
+        assertEquals(0xE3069283L, checksum(checksum, data, step));
+      }
+    }
+    final byte[] data2 = createData(1000);
+    final long expected = checksum(ChecksumAlgorithm.CRC32C.newChecksum(), data2, 1000);
+    for (final int step : new int[]{ 1, 3, 8, 100 }) {
+      assertEquals(expected, checksum(new Crc32C(), data2, step));
+    }
+  }
+
+  @Test
+  public void testXxHash64() {
+    final XxHash64 checksum = new XxHash64();
+    assertEquals(0xEF46DB3751D8E999L, checksum.getValue());
+    final byte[] a = { 'a' };
+    assertEquals(0xD24EC4F1A98C6E5BL, checksum(checksum, a, 1));
+    final byte[] data = createData(1000);
+    for (final int step : new int[]{ 1, 3, 31, 32, 33, 100, 1000 }) {
+      assertEquals(0xF306F04AA88B54D3L, checksum(checksum, data, step));
+    }
+  }
+
+  @Test
+  public void testStableIds() {
+    // the identifiers are stored in the files and must never change
+    assertEquals(0, ChecksumAlgorithm.ADLER32.id());
+    assertEquals(1, ChecksumAlgorithm.CRC32.id());
+    assertEquals(2, ChecksumAlgorithm.CRC32C.id());
+    assertEquals(3, ChecksumAlgorithm.XXHASH64.id());
+    for (final ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+      assertSame(algorithm, ChecksumAlgorithm.forId(algorithm.id()));
+    }
+    assertNull(ChecksumAlgorithm.forId(-1));
+  }
+
+  @Test
+  public void testChecksumStreams() throws IOException {
+    final byte[] data = createData(1000);
+    for (final ChecksumAlgorithm algorithm : ChecksumAlgorithm.values()) {
+      final long expected = checksum(algorithm.newChecksum(), data, data.length);
+      final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      final ChecksumOutputStream out = new ChecksumOutputStream(bos, algorithm);
+      for (int i = 0; i < 500; ++i) {
+        out.write(data[i]);
+      }
+      out.write(data, 500, 500);
+      out.sign();
+      out.close();
+      assertEquals(expected, out.getChecksum());
+
+      final ChecksumInputStream in = new ChecksumInputStream(
+          new ByteArrayInputStream(bos.toByteArray()), algorithm);
+      final byte[] buffer = new byte[600];
+      for (int i = 0; i < 400; ++i) {
+        assertEquals(data[i] & 0xFF, in.read());
+      }
+      assertEquals(600, in.read(buffer, 0, 600));
+      assertTrue(in.verify());
+      in.close();
+    }
+  }
+
+  @Test
+  public void testFileChecksum() throws IOException {
+    final byte[] data = createData(200000);
+    final File file = File.createTempFile("checksum", ".dat");
+    try {
+      final FileOutputStream out = new FileOutputStream(file);
+      try {
+        out.write(data);
+      } finally {
+        out.close();
+      }
+      final long expected = checksum(new XxHash64(), data, data.length);
+      assertEquals(expected, FileUtils.checksum(file, new XxHash64()).getValue());
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+import com.github.haixing_hu.io.serialize.BinarySerializer;
+import com.github.haixing_hu.net.Host;
+import com.github.haixing_hu.net.HostBinarySerializer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link DictionaryOutputStream} and
+ * {@link DictionaryInputStream} classes.
+ *
+ * @author Haixing Hu
+ */
+public class DictionaryStreamTest {
+
+  private static void writeValues(final ByteArrayOutputStream bytes,
+      final boolean dictionary) throws IOException {
+    final OutputStream out = (dictionary
+        ? new DictionaryOutputStream(bytes, 4, 16) : bytes);
+    for (int i = 0; i < 100; ++i) {
+      OutputUtils.writeSharedString(out, "www.example" + (i % 3) + ".com");
+      OutputUtils.writeSharedString(out, null);
+      OutputUtils.writeSharedString(out, "");
+      OutputUtils.writeSharedString(out, "a long string which is never shared");
+      OutputUtils.writeSharedClass(out, (i % 2 == 0 ? String.class : Date.class));
+      OutputUtils.writeSharedClass(out, null);
+      OutputUtils.writeInt(out, i);
+    }
+    // the string dictionary is full now
+    OutputUtils.writeSharedString(out, "unshared");
+    OutputUtils.writeSharedString(out, "unshared");
+  }
+
+  private static void readValues(final ByteArrayInputStream bytes,
+      final boolean dictionary) throws IOException {
+    final InputStream in = (dictionary
+        ? new DictionaryInputStream(bytes) : bytes);
+    for (int i = 0; i < 100; ++i) {
+      assertEquals("www.example" + (i % 3) + ".com",
+          InputUtils.readSharedString(in, false));
+      assertNull(InputUtils.readSharedString(in, true));
+      assertEquals("", InputUtils.readSharedString(in, false));
+      assertEquals("a long string which is never shared",
+          InputUtils.readSharedString(in, false));
+      assertSame((i % 2 == 0 ? String.class : Date.class),
+          InputUtils.readSharedClass(in, false));
+      assertNull(InputUtils.readSharedClass(in, true));
+      assertEquals(i, InputUtils.readInt(in));
+    }
+    assertEquals("unshared", InputUtils.readSharedString(in, false));
+    assertEquals("unshared", InputUtils.readSharedString(in, false));
+    assertEquals(-1, in.read());
+    if (dictionary) {
+      assertEquals(4, ((DictionaryInputStream) in).getStringCount());
+      assertEquals(2, ((DictionaryInputStream) in).getClassCount());
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+    writeValues(plain, false);
+    readValues(new ByteArrayInputStream(plain.toByteArray()), false);
+
+    final ByteArrayOutputStream shared = new ByteArrayOutputStream();
+    writeValues(shared, true);
+    readValues(new ByteArrayInputStream(shared.toByteArray()), true);
+    assertTrue(shared.size() * 3 < plain.size() * 2);
+  }
+
+  @Test
+  public void testPlainStreamFormat() throws IOException {
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    OutputUtils.writeString(expected, "hello");
+    OutputUtils.writeString(expected, null);
+    OutputUtils.writeClass(expected, String.class);
+    final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    OutputUtils.writeSharedString(actual, "hello");
+    OutputUtils.writeSharedString(actual, null);
+    OutputUtils.writeSharedClass(actual, String.class);
+    assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+  }
+
+  @Test
+  public void testSerializer() throws IOException {
+    final BinarySerializer serializer = HostBinarySerializer.INSTANCE;
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DictionaryOutputStream out = new DictionaryOutputStream(bytes);
+    for (int i = 0; i < 50; ++i) {
+      serializer.serialize(out, new Host("http", "www.example.com", 80 + i));
+    }
+    assertEquals(2, out.getStringCount());
+    final DictionaryInputStream in = new DictionaryInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()));
+    for (int i = 0; i < 50; ++i) {
+      assertEquals(new Host("http", "www.example.com", 80 + i),
+          serializer.deserialize(in, false));
+    }
+  }
+
+  @Test
+  public void testInvalidReference() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    bytes.write(DictionaryOutputStream.HEADER);
+    OutputUtils.writeVarInt(bytes, OutputUtils.SHARED_REFERENCE + 1);
+    final DictionaryInputStream in = new DictionaryInputStream(
+        new ByteArrayInputStream(bytes.toByteArray()));
+    try {
+      InputUtils.readSharedString(in, false);
+      fail("should throw");
+    } catch (final InvalidFormatException e) {
+      // ok
+    }
+  }
+
+  @Test
+  public void testNegativeReference() throws IOException {
+    // a corrupt five bytes variable length int of -1
+    final byte[] bytes = { (byte) DictionaryOutputStream.HEADER,
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F };
+    final DictionaryInputStream in = new DictionaryInputStream(
+        new ByteArrayInputStream(bytes));
+    try {
+      InputUtils.readSharedClass(in, false);
+      fail("should throw");
+    } catch (final InvalidFormatException e) {
+      // ok
+    }
+    try {
+      in.getString(-1);
+      fail("should throw");
+    } catch (final InvalidFormatException e) {
+      // ok
+    }
+    try {
+      in.getClass(Integer.MIN_VALUE);
+      fail("should throw");
+    } catch (final InvalidFormatException e) {
+      // ok
+    }
+  }
+
+  @Test
+  public void testMissingHeader() throws IOException {
+    final ByteArrayOutputStream plain = new ByteArrayOutputStream();
+    writeValues(plain, false);
+    try {
+      new DictionaryInputStream(new ByteArrayInputStream(plain.toByteArray()));
+      fail("should throw");
+    } catch (final InvalidFormatException e) {
+      // ok
+    }
+    try {
+      new DictionaryInputStream(new ByteArrayInputStream(new byte[0]));
+      fail("should throw");
+    } catch (final EOFException e) {
+      // ok
+    }
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.lang.SystemUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link ExternalSorter} class.
+ *
+ * @author Haixing Hu
+ */
+public class ExternalSorterTest {
+
+  @Test
+  public void testSortSpilledRuns() throws IOException {
+    final Random random = new Random(42);
+    final List<Map.Entry<Integer, String>> input =
+        new ArrayList<Map.Entry<Integer, String>>();
+    for (int i = 0; i < 10000; ++i) {
+      final Integer key = random.nextInt(2000);
+      input.add(new AbstractMap.SimpleEntry<Integer, String>(key,
+          (i % 10 == 0 ? null : String.valueOf(i))));
+    }
+    // small runs and merge factor force several merge passes
+    final ExternalSorter<Integer, String> sorter =
+        new ExternalSorter<Integer, String>(Integer.class, String.class, null,
+            null, 100, 3, 4);
+    final ListRecordWriter<Integer, String> writer =
+        new ListRecordWriter<Integer, String>();
+    final long count = sorter.sort(new ListRecordReader<Integer, String>(input),
+        writer);
+    assertEquals(input.size(), count);
+    assertEquals(input.size(), writer.records.size());
+    final List<Map.Entry<Integer, String>> expected =
+        new ArrayList<Map.Entry<Integer, String>>(input);
+    Collections.sort(expected, new Comparator<Map.Entry<Integer, String>>() {
+      @Override
+      public int compare(final Map.Entry<Integer, String> e1,
+          final Map.Entry<Integer, String> e2) {
+        return e1.getKey().compareTo(e2.getKey());
+      }
+    });
+    // the sort must be stable
+    assertEquals(expected, writer.records);
+    assertEquals(0, countTempFiles());
+  }
+
+  @Test
+  public void testSortInMemory() throws IOException {
+    final List<Map.Entry<String, Integer>> input =
+        new ArrayList<Map.Entry<String, Integer>>();
+    input.add(new AbstractMap.SimpleEntry<String, Integer>("b", 1));
+    input.add(new AbstractMap.SimpleEntry<String, Integer>("c", 2));
+    input.add(new AbstractMap.SimpleEntry<String, Integer>("a", 3));
+    input.add(new AbstractMap.SimpleEntry<String, Integer>("c", 4));
+    final ExternalSorter<String, Integer> sorter =
+        new ExternalSorter<String, Integer>(String.class, Integer.class,
+            Collections.reverseOrder(), null, 100, 2, 1);
+    final ListRecordWriter<String, Integer> writer =
+        new ListRecordWriter<String, Integer>();
+    assertEquals(4, sorter.sort(new ListRecordReader<String, Integer>(input),
+        writer));
+    assertEquals("[c=2, c=4, b=1, a=3]", writer.records.toString());
+  }
+
+  @Test
+  public void testSortFullRunInMemory() throws IOException {
+    final Random random = new Random(11);
+    final int runSize = 50000;
+    final List<Map.Entry<Integer, String>> input =
+        new ArrayList<Map.Entry<Integer, String>>();
+    for (int i = 0; i < runSize; ++i) {
+      input.add(new AbstractMap.SimpleEntry<Integer, String>(
+          random.nextInt(1000), String.valueOf(i)));
+    }
+    final ExternalSorter<Integer, String> sorter =
+        new ExternalSorter<Integer, String>(Integer.class, String.class, null,
+            null, runSize, 2, 4);
+    final ListRecordWriter<Integer, String> writer =
+        new ListRecordWriter<Integer, String>();
+    assertEquals(runSize, sorter.sort(
+        new ListRecordReader<Integer, String>(input), writer));
+    final List<Map.Entry<Integer, String>> expected =
+        new ArrayList<Map.Entry<Integer, String>>(input);
+    Collections.sort(expected, new Comparator<Map.Entry<Integer, String>>() {
+      @Override
+      public int compare(final Map.Entry<Integer, String> e1,
+          final Map.Entry<Integer, String> e2) {
+        return e1.getKey().compareTo(e2.getKey());
+      }
+    });
+    // the sort must be stable
+    assertEquals(expected, writer.records);
+    // an input of exactly one run is not spilled, so the values written are
+    // the values read rather than deserialized copies
+    for (int i = 0; i < runSize; ++i) {
+      assertSame(expected.get(i).getValue(), writer.records.get(i).getValue());
+    }
+  }
+
+  @Test
+  public void testCombiner() throws IOException {
+    final Random random = new Random(7);
+    final List<Map.Entry<String, Integer>> input =
+        new ArrayList<Map.Entry<String, Integer>>();
+    final TreeMap<String, Integer> expected = new TreeMap<String, Integer>();
+    for (int i = 0; i < 5000; ++i) {
+      final String key = "key-" + random.nextInt(300);
+      final int value = random.nextInt(100);
+      input.add(new AbstractMap.SimpleEntry<String, Integer>(key, value));
+      final Integer sum = expected.get(key);
+      expected.put(key, (sum == null ? value : sum + value));
+    }
+    final ExternalSorter<String, Integer> sorter =
+        new ExternalSorter<String, Integer>(String.class, Integer.class, null,
+            new RecordCombiner<String, Integer>() {
+              @Override
+              public Integer combine(final String key,
+                  @Nullable final Integer first, @Nullable final Integer second) {
+                return first + second;
+              }
+            }, 256, 4, 2);
+    final ListRecordWriter<String, Integer> writer =
+        new ListRecordWriter<String, Integer>();
+    final long count = sorter.sort(new ListRecordReader<String, Integer>(input),
+        writer);
+    assertEquals(expected.size(), count);
+    assertEquals(new ArrayList<Map.Entry<String, Integer>>(expected.entrySet()),
+        writer.records);
+  }
+
+  @Test
+  public void testEmptyInput() throws IOException {
+    final ExternalSorter<Integer, String> sorter =
+        new ExternalSorter<Integer, String>(Integer.class, String.class);
+    final ListRecordWriter<Integer, String> writer =
+        new ListRecordWriter<Integer, String>();
+    assertEquals(0, sorter.sort(new ListRecordReader<Integer, String>(
+        new ArrayList<Map.Entry<Integer, String>>()), writer));
+    assertTrue(writer.records.isEmpty());
+  }
+
+  private static int countTempFiles() {
+    final String[] names = new File(SystemUtils.JAVA_IO_TMPDIR).list(
+        new FilenameFilter() {
+          @Override
+          public boolean accept(final File dir, final String name) {
+            return name.startsWith(ExternalSorter.TEMP_FILE_PREFIX);
+          }
+        });
+    return (names == null ? 0 : names.length);
+  }
+
+  private static final class ListRecordReader<KEY, VALUE> implements
+      RecordReader<KEY, VALUE> {
+    private final List<Map.Entry<KEY, VALUE>> records;
+    private int index;
+
+    ListRecordReader(final List<Map.Entry<KEY, VALUE>> records) {
+      this.records = records;
+    }
+
+    @Override
+    public KEY createKey() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public VALUE createValue() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getPosition() {
+      return index;
+    }
+
+    @Override
+    public float getProgress() {
+      return (records.isEmpty() ? 1.0f : (float) index / records.size());
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < records.size();
+    }
+
+    @Override
+    public Map.Entry<KEY, VALUE> next() {
+      return records.get(index++);
+    }
+
+    @Override
+    public void close() {
+      // do nothing
+    }
+  }
+
+  private static final class ListRecordWriter<KEY, VALUE> implements
+      RecordWriter<KEY, VALUE> {
+    final List<Map.Entry<KEY, VALUE>> records =
+        new ArrayList<Map.Entry<KEY, VALUE>>();
+
+    @Override
+    public void write(@Nullable final KEY key, @Nullable final VALUE value) {
+      records.add(new AbstractMap.SimpleEntry<KEY, VALUE>(key, value));
+    }
+
+    @Override
+    public void close() {
+      // do nothing
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link FileUtils} class.
+ *
+ * @author Haixing Hu
+ */
+public class FileUtilsTest {
+
+  private File root;
+
+  @Before
+  public void setUp() throws IOException {
+    root = FileUtils.createTempDir("fileutils", 10);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.forceDelete(root);
+  }
+
+  private static void write(final File file, final int size) throws IOException {
+    FileUtils.ensureParentExist(file);
+    final byte[] data = new byte[size];
+    for (int i = 0; i < size; ++i) {
+      data[i] = (byte) (i + size);
+    }
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+  }
+
+  private File createTree() throws IOException {
+    final File src = new File(root, "src");
+    for (int i = 0; i < 5; ++i) {
+      for (int j = 0; j < 4; ++j) {
+        write(new File(src, "d" + i + File.separator + "f" + j), i * 1000 + j);
+      }
+    }
+    write(new File(src, "top"), 12345);
+    return src;
+  }
+
+  @Test
+  public void testCopyFile() throws IOException {
+    final File src = new File(root, "a");
+    write(src, 100000);
+    final File dest = new File(root, "b");
+    assertTrue(FileUtils.copyFile(src, dest, 0));
+    assertTrue(FileUtils.contentEquals(src, dest));
+    assertEquals(false, FileUtils.copyFile(src, dest, 0));
+  }
+
+  @Test
+  public void testCopyDirectoryInParallel() throws IOException {
+    final File src = createTree();
+    final File dest = new File(root, "dest");
+    final AtomicInteger files = new AtomicInteger();
+    final AtomicLong bytes = new AtomicLong();
+    final FileCopyListener listener = new FileCopyListener() {
+      @Override
+      public void fileCopied(final File srcFile, final File destFile,
+          final long n) {
+        files.incrementAndGet();
+        bytes.addAndGet(n);
+      }
+    };
+    // the results are the same as the results of the sequential copying,
+    // which counts both the files and the directories
+    final File seqDest = new File(root, "seq-dest");
+    assertEquals(FileUtils.copyDirectory(src, seqDest, null,
+        OperationOption.MAKE_DIRS), FileUtils.copyDirectory(src, dest, null,
+        OperationOption.MAKE_DIRS, 4, listener));
+    assertEquals(21, files.get());
+    assertEquals(FileUtils.getSizeOfDirectory(src), bytes.get());
+    assertEquals(FileUtils.getSizeOfDirectory(src),
+        FileUtils.getSizeOfDirectory(dest));
+    assertTrue(FileUtils.contentEquals(new File(src, "d3/f2"),
+        new File(dest, "d3/f2")));
+    // the existing files are not overwritten without the OVERWRITE option
+    assertEquals(FileUtils.copyDirectory(src, seqDest, null, 0),
+        FileUtils.copyDirectory(src, dest, null, 0, 4, null));
+    assertEquals(FileUtils.copyDirectory(src, seqDest, null,
+        OperationOption.OVERWRITE), FileUtils.copyDirectory(src, dest, null,
+        OperationOption.OVERWRITE, 4, null));
+    // copy a directory into itself: 21 files, and the destination directory
+    // with its 5 sub-directories
+    final File inner = new File(src, "copy");
+    assertEquals(27, FileUtils.copyDirectory(src, inner, null,
+        OperationOption.MAKE_DIRS, 4, null));
+    assertEquals(0, FileUtils.getSizeOfDirectory(new File(inner, "copy")));
+  }
+
+  @Test
+  public void testTraversal() throws IOException {
+    final File src = createTree();
+    long expected = 12345;
+    for (int i = 0; i < 5; ++i) {
+      for (int j = 0; j < 4; ++j) {
+        expected += i * 1000 + j;
+      }
+    }
+    assertEquals(expected, FileUtils.getSizeOfDirectory(src));
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(expected, FileUtils.getSizeOfDirectory(src, pool));
+      final List<String> files = FileUtils.listFilesRecursively(src, pool);
+      assertEquals(21, files.size());
+      assertEquals("d0" + File.separator + "f0", files.get(0));
+      assertEquals("top", files.get(20));
+    } finally {
+      pool.shutdown();
+    }
+    final Stream<Path> stream = FileUtils.streamFiles(src);
+    try {
+      assertEquals(21, stream.count());
+    } finally {
+      stream.close();
+    }
+    assertArrayEquals(new String[] { "top" }, FileUtils.listFiles(src));
+    final String[] dirs = FileUtils.listSubDirectories(src);
+    Arrays.sort(dirs);
+    assertArrayEquals(new String[] { "d0", "d1", "d2", "d3", "d4" }, dirs);
+  }
+
+  @Test
+  public void testSymbolicLinkLoop() throws IOException {
+    final File src = createTree();
+    final long expected = FileUtils.getSizeOfDirectory(src);
+    final Path loop = new File(src, "d0/loop").toPath();
+    final Path self = new File(src, "d3/self").toPath();
+    Files.createSymbolicLink(loop, src.toPath());
+    Files.createSymbolicLink(self, new File(src, "d3").toPath());
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(expected, FileUtils.getSizeOfDirectory(src));
+      assertEquals(expected, FileUtils.getSizeOfDirectory(src, pool));
+      final List<String> files = FileUtils.listFilesRecursively(src, pool);
+      assertEquals(21, files.size());
+      assertEquals("d0" + File.separator + "f0", files.get(0));
+      assertEquals("top", files.get(20));
+      final Stream<Path> stream = FileUtils.streamFiles(src);
+      try {
+        assertEquals(21, stream.count());
+      } finally {
+        stream.close();
+      }
+    } finally {
+      pool.shutdown();
+      // forceDelete() follows the symbolic links
+      Files.delete(loop);
+      Files.delete(self);
+    }
+  }
+
+  @Test
+  public void testCompareContent() throws IOException {
+    final File a = new File(root, "a");
+    final File b = new File(root, "b");
+    final File c = new File(root, "c");
+    write(a, 1000000);
+    write(b, 1000000);
+    write(c, 1000);
+    assertEquals(-1, FileUtils.mismatch(a, b));
+    assertEquals(0, FileUtils.compareContent(a, b));
+    assertTrue(FileUtils.contentEquals(a, b));
+    final RandomAccessFile raf = new RandomAccessFile(b, "rw");
+    try {
+      raf.seek(876543);
+      final int old = raf.read();
+      raf.seek(876543);
+      raf.write(old ^ 0x80);
+    } finally {
+      raf.close();
+    }
+    assertEquals(876543, FileUtils.mismatch(a, b));
+    assertTrue(FileUtils.compareContent(a, b) != 0);
+    assertEquals(- FileUtils.compareContent(a, b), FileUtils.compareContent(b, a));
+    assertEquals(false, FileUtils.contentEquals(a, b));
+    // the data of the files of different sizes differ from the first byte
+    assertEquals(0, FileUtils.mismatch(a, c));
+  }
+
+  @Test
+  public void testParallelMismatch() throws IOException {
+    final File a = new File(root, "a");
+    final File b = new File(root, "b");
+    final long size = 200L * 1024 * 1024;
+    for (final File file : new File[] { a, b }) {
+      // sparse files filled with zeros
+      final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+      try {
+        raf.setLength(size);
+      } finally {
+        raf.close();
+      }
+    }
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      assertEquals(-1, FileUtils.mismatch(a, b, pool));
+      final RandomAccessFile raf = new RandomAccessFile(b, "rw");
+      try {
+        raf.seek(size - 10);
+        raf.write(1);
+        raf.seek(150L * 1024 * 1024 + 3);
+        raf.write(1);
+      } finally {
+        raf.close();
+      }
+      assertEquals(150L * 1024 * 1024 + 3, FileUtils.mismatch(a, b, pool));
+      assertEquals(150L * 1024 * 1024 + 3, FileUtils.mismatch(a, b));
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link FlyweightRecord}, {@link FlyweightRecordWriter} and
+ * {@link FlyweightRecordCursor} classes.
+ *
+ * @author Haixing Hu
+ */
+public class FlyweightRecordTest {
+
+  private static final FlyweightSchema SCHEMA = new FlyweightSchema(
+      new String[] { "id", "flag", "level", "score", "host", "time",
+          "count", "payload", "ratio", "rank" },
+      new FlyweightFieldType[] {
+          FlyweightFieldType.LONG, FlyweightFieldType.BOOLEAN,
+          FlyweightFieldType.BYTE, FlyweightFieldType.DOUBLE,
+          FlyweightFieldType.STRING, FlyweightFieldType.VAR_LONG,
+          FlyweightFieldType.VAR_INT, FlyweightFieldType.BYTE_ARRAY,
+          FlyweightFieldType.FLOAT, FlyweightFieldType.SHORT });
+
+  private static String host(final int i) {
+    switch (i % 4) {
+      case 0:
+        return null;
+      case 1:
+        return "www.example" + i + ".com";
+      case 2:
+        return "中文" + i + "\u0000";
+      default:
+        return "";
+    }
+  }
+
+  private static byte[] payload(final int i) {
+    if (i % 5 == 0) {
+      return null;
+    }
+    // a few records have payloads longer than 64 KB
+    final byte[] result = new byte[i % 50 == 1 ? 70000 + i : i % 17];
+    for (int j = 0; j < result.length; ++j) {
+      result[j] = (byte) (i + j);
+    }
+    return result;
+  }
+
+  private static void writeRecords(final FlyweightRecordWriter writer,
+      final int n) throws IOException {
+    for (int i = 0; i < n; ++i) {
+      writer.writeLong(i * 1000000007L);
+      writer.writeBoolean(i % 3 == 0);
+      writer.writeByte((byte) i);
+      writer.writeDouble(i / 7.0);
+      writer.writeString(host(i));
+      writer.writeVarLong(i * 123456789L);
+      writer.writeVarInt(i);
+      writer.writeByteArray(payload(i));
+      writer.writeFloat(i / 3.0f);
+      writer.writeShort((short) -i);
+      writer.endRecord();
+    }
+  }
+
+  private static void checkRecord(final FlyweightRecord record, final int i) {
+    assertEquals(i * 1000000007L, record.getLong(0));
+    assertEquals(i % 3 == 0, record.getBoolean(1));
+    assertEquals((byte) i, record.getByte(2));
+    assertEquals(i / 7.0, record.getDouble(3), 0.0);
+    assertEquals(host(i), record.getString(4));
+    assertTrue(record.equalsString(4, host(i)));
+    assertFalse(record.equalsString(4, "www.example.com"));
+    assertEquals(host(i) == null, record.isNull(4));
+    assertEquals(i * 123456789L, record.getVarLong(5));
+    assertEquals(i, record.getVarInt(6));
+    final byte[] payload = payload(i);
+    assertArrayEquals(payload, record.getByteArray(7));
+    if (payload == null) {
+      assertTrue(record.isNull(7));
+      assertNull(record.getByteArrayView(7));
+    } else {
+      assertEquals(ByteBuffer.wrap(payload), record.getByteArrayView(7));
+    }
+    assertEquals(i / 3.0f, record.getFloat(8), 0.0f);
+    assertEquals((short) -i, record.getShort(9));
+    assertFalse(record.isNull(9));
+  }
+
+  @Test
+  public void testBuffer() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final FlyweightRecordWriter writer = new FlyweightRecordWriter(out, SCHEMA);
+    writeRecords(writer, 200);
+    assertEquals(200, writer.getRecordCount());
+    writer.close();
+
+    final FlyweightRecordCursor cursor = new FlyweightRecordCursor(
+        ByteBuffer.wrap(out.toByteArray()), SCHEMA);
+    int i = 0;
+    while (cursor.next()) {
+      checkRecord(cursor.getRecord(), i++);
+    }
+    assertEquals(200, i);
+    cursor.close();
+
+    // a read-only buffer has no accessible array
+    final FlyweightRecordCursor readOnly = new FlyweightRecordCursor(
+        ByteBuffer.wrap(out.toByteArray()).asReadOnlyBuffer(), SCHEMA);
+    i = 0;
+    while (readOnly.next()) {
+      checkRecord(readOnly.getRecord(), i++);
+    }
+    assertEquals(200, i);
+    readOnly.close();
+  }
+
+  @Test
+  public void testFile() throws IOException {
+    final File file = File.createTempFile("flyweight", ".dat");
+    try {
+      final FlyweightRecordWriter writer = new FlyweightRecordWriter(
+          new FileOutputStream(file), SCHEMA);
+      writeRecords(writer, 1000);
+      writer.close();
+      final FlyweightRecordCursor cursor = new FlyweightRecordCursor(file, SCHEMA);
+      try {
+        int i = 0;
+        long pos = 0;
+        while (cursor.next()) {
+          assertEquals(pos, cursor.getRecordPosition());
+          checkRecord(cursor.getRecord(), i++);
+          pos += cursor.getRecord().getSize();
+        }
+        assertEquals(1000, i);
+        assertEquals(file.length(), pos);
+      } finally {
+        cursor.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testCompatibleEncoding() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final FlyweightRecordWriter writer = new FlyweightRecordWriter(out, SCHEMA);
+    writeRecords(writer, 3);
+    writer.close();
+    final byte[] bytes = out.toByteArray();
+    final FlyweightRecord record = new FlyweightRecord(SCHEMA);
+    int next = 0;
+    for (int i = 0; i < 2; ++i) {
+      next += record.wrap(ByteBuffer.wrap(bytes), next).getSize();
+    }
+    // the fields are encoded by OutputUtils, so they could be decoded by
+    // InputUtils after skipping the header and the 2 bytes offset table
+    final ByteArrayInputStream in = new ByteArrayInputStream(bytes,
+        next + 4 + 2 * SCHEMA.size(), bytes.length);
+    assertEquals(2000000014L, InputUtils.readLong(in));
+    assertEquals(false, InputUtils.readBoolean(in));
+    assertEquals(2, InputUtils.readByte(in));
+    assertEquals(2 / 7.0, InputUtils.readDouble(in), 0.0);
+    assertEquals(host(2), InputUtils.readString(in, true));
+    assertEquals(246913578L, InputUtils.readVarLong(in));
+  }
+
+  @Test
+  public void testErrors() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final FlyweightRecordWriter writer = new FlyweightRecordWriter(out, SCHEMA);
+    try {
+      writer.writeInt(1);
+      fail("should throw");
+    } catch (final IllegalArgumentException e) {
+      // ok
+    }
+    writer.writeLong(1);
+    try {
+      writer.endRecord();
+      fail("should throw");
+    } catch (final IllegalStateException e) {
+      // ok
+    }
+    writer.close();
+
+    final ByteArrayOutputStream good = new ByteArrayOutputStream();
+    final FlyweightRecordWriter goodWriter = new FlyweightRecordWriter(good, SCHEMA);
+    writeRecords(goodWriter, 3);
+    goodWriter.close();
+    final byte[] bytes = good.toByteArray();
+    final FlyweightRecordCursor cursor = new FlyweightRecordCursor(
+        ByteBuffer.wrap(bytes, 0, bytes.length - 1), SCHEMA);
+    assertTrue(cursor.next());
+    try {
+      cursor.getRecord().getInt(0);
+      fail("should throw");
+    } catch (final IllegalArgumentException e) {
+      // ok
+    }
+    assertTrue(cursor.next());
+    try {
+      cursor.next();
+      fail("should throw");
+    } catch (final InvalidFormatException e) {
+      // ok
+    }
+    cursor.close();
+  }
+}
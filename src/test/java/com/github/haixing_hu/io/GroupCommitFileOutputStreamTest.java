@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.io.exception.AlreadyClosedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link GroupCommitFileOutputStream} class.
+ *
+ * @author Haixing Hu
+ */
+public class GroupCommitFileOutputStreamTest {
+
+  @Test
+  public void testConcurrentCommits() throws Exception {
+    final File file = File.createTempFile("group", ".log");
+    try {
+      final int threads = 8;
+      final int records = 200;
+      final GroupCommitFileOutputStream out =
+          new GroupCommitFileOutputStream(file, 256);
+      final List<Thread> writers = new ArrayList<Thread>();
+      final List<Throwable> errors = new ArrayList<Throwable>();
+      for (int t = 0; t < threads; ++t) {
+        final byte id = (byte) t;
+        writers.add(new Thread() {
+          @Override
+          public void run() {
+            try {
+              final byte[] record = new byte[10];
+              for (int i = 0; i < records; ++i) {
+                record[0] = id;
+                final long length = out.append(record, 0, 10).get();
+                assertTrue(length >= 10 * (i + 1));
+              }
+            } catch (final Throwable e) {
+              synchronized (errors) {
+                errors.add(e);
+              }
+            }
+          }
+        });
+      }
+      for (final Thread writer : writers) {
+        writer.start();
+      }
+      for (final Thread writer : writers) {
+        writer.join();
+      }
+      assertTrue(errors.toString(), errors.isEmpty());
+      // the commits are batched, so there are fewer forces than appends
+      assertTrue(out.getCommitCount() < threads * records);
+      // a record larger than the buffer
+      final CompletableFuture<Long> future = out.append(new byte[1000], 0, 1000);
+      out.write(1);
+      out.flush();
+      assertTrue(future.get() >= threads * records * 10 + 1000);
+      assertEquals(out.length(), out.sync().get().longValue());
+      out.close();
+      assertEquals(threads * records * 10 + 1001, file.length());
+      try {
+        out.append(new byte[1], 0, 1);
+        fail("should throw AlreadyClosedException");
+      } catch (final AlreadyClosedException e) {
+        // pass
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testPipelinedAppends() throws Exception {
+    final File file = File.createTempFile("group", ".log");
+    try {
+      final int records = 1000;
+      final GroupCommitFileOutputStream out =
+          new GroupCommitFileOutputStream(file);
+      try {
+        // the appends do not wait for their commits, so the records appended
+        // while a batch is being forced share the next force
+        final List<CompletableFuture<Long>> futures =
+            new ArrayList<CompletableFuture<Long>>();
+        for (int i = 0; i < records; ++i) {
+          futures.add(out.append(new byte[10], 0, 10));
+        }
+        long last = 0;
+        for (final CompletableFuture<Long> future : futures) {
+          final long length = future.get();
+          assertTrue(length >= last);
+          last = length;
+        }
+        assertEquals(records * 10, last);
+        assertTrue(out.getCommitCount() < records);
+      } finally {
+        out.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testAppendToExistingFile() throws IOException {
+    final File file = File.createTempFile("group", ".log");
+    try {
+      GroupCommitFileOutputStream out = new GroupCommitFileOutputStream(file);
+      out.write(new byte[100]);
+      out.close();
+      out = new GroupCommitFileOutputStream(file);
+      assertEquals(100, out.length());
+      out.write(new byte[50]);
+      out.close();
+      assertEquals(150, file.length());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testByteWiseWrite() throws IOException {
+    final File file = File.createTempFile("group", ".log");
+    try {
+      // the batches are filled byte by byte across several commits
+      final GroupCommitFileOutputStream out =
+          new GroupCommitFileOutputStream(file, 64);
+      for (int i = 0; i < 10000; ++i) {
+        out.write(i);
+      }
+      out.close();
+      final FileInputStream in = new FileInputStream(file);
+      final byte[] data;
+      try {
+        data = IoUtils.toByteArray(in);
+      } finally {
+        in.close();
+      }
+      assertEquals(10000, data.length);
+      for (int i = 0; i < data.length; ++i) {
+        assertEquals((byte) i, data[i]);
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
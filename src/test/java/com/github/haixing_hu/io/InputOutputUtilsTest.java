@@ -28,6 +28,10 @@ import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
+import com.github.haixing_hu.collection.primitive.IntList;
+import com.github.haixing_hu.collection.primitive.LongList;
+import com.github.haixing_hu.collection.primitive.impl.ArrayIntList;
+import com.github.haixing_hu.collection.primitive.impl.ArrayLongList;
 import com.github.haixing_hu.io.AbstractSeekableInputStream;
 import com.github.haixing_hu.io.InputUtils;
 import com.github.haixing_hu.io.OutputUtils;
@@ -629,6 +633,117 @@ public class InputOutputUtilsTest {
     assertEquals("1234\n1234", InputUtils.readString(in, true));
   }
 
+  @Test
+  public void testStringAsciiBoundaries() throws IOException {
+    // lengths around the 8 bytes blocks of the ASCII check, with a non-ASCII
+    // character at every position
+    for (int n = 1; n <= 33; ++n) {
+      final StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < n; ++i) {
+        builder.append((char) ('a' + (i % 26)));
+      }
+      checkString(builder.toString());
+      for (int i = 0; i < n; ++i) {
+        final char old = builder.charAt(i);
+        builder.setCharAt(i, '\u00e9');
+        checkString(builder.toString());
+        builder.setCharAt(i, '\u007f');
+        checkString(builder.toString());
+        builder.setCharAt(i, old);
+      }
+    }
+  }
+
+  @Test
+  public void testStringSpecialChars() throws IOException {
+    checkString("\0");
+    checkString("abc\0def\0");
+    checkString("\u007f\u0080\u07ff\u0800\uffff");
+    checkString("\u4e2d\u6587\u5b57\u7b26\u4e32");
+    checkString("\ud83d\ude00");
+    checkString("smile: \ud83d\ude00, \ud83d\ude01!");
+    checkString("\ud800");
+    checkString("\udc00abc\ud800");
+  }
+
+  @Test
+  public void testLongString() throws IOException {
+    final int[] lengths = { 8189, 8190, 8191, 8192, 8193, 3 * 8192,
+        65535, 65536, 65537, 200000 };
+    final Random random = new Random(20141019L);
+    for (final int n : lengths) {
+      final char[] ascii = new char[n];
+      final char[] mixed = new char[n];
+      final char[] wide = new char[n];
+      for (int i = 0; i < n; ++i) {
+        ascii[i] = (char) (0x20 + random.nextInt(0x5F));
+        mixed[i] = (char) random.nextInt(0x1000);
+        wide[i] = (char) (0x800 + random.nextInt(0xD000));
+      }
+      checkString(new String(ascii));
+      checkString(new String(mixed));
+      checkString(new String(wide));
+      // a short string after a long one reuses the thread-local buffers
+      checkString("x\u00e9");
+    }
+  }
+
+  @Test
+  public void testStringCompatibility() throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputUtils.writeString(out, "a\0\u00e9\u20ac\ud83d\ude00");
+    final byte[] expected = { 0x00, 0x0E, 0x61, (byte) 0xC0, (byte) 0x80,
+        (byte) 0xC3, (byte) 0xA9, (byte) 0xE2, (byte) 0x82, (byte) 0xAC,
+        (byte) 0xED, (byte) 0xA0, (byte) 0xBD, (byte) 0xED, (byte) 0xB8,
+        (byte) 0x80 };
+    assertArrayEquals(expected, out.toByteArray());
+    final ByteArrayInputStream in = new ByteArrayInputStream(expected);
+    assertEquals("a\0\u00e9\u20ac\ud83d\ude00",
+        InputUtils.readString(in, false));
+    assertEquals(-1, in.read());
+  }
+
+  /**
+   * Checks that a string is encoded in the same bytes as the original encoder
+   * of {@link OutputUtils#writeString(java.io.OutputStream, String)}, and that
+   * it is decoded back to the same string.
+   */
+  private static void checkString(final String str) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputUtils.writeString(out, str);
+    final byte[] bytes = out.toByteArray();
+    assertArrayEquals(encodeString(str), bytes);
+    final ByteArrayInputStream in = new ByteArrayInputStream(bytes);
+    assertEquals(str, InputUtils.readString(in, false));
+    assertEquals(-1, in.read());
+  }
+
+  /**
+   * Encodes a non-null string as the original implementation of
+   * {@link OutputUtils#writeString(java.io.OutputStream, String)} did.
+   */
+  private static byte[] encodeString(final String str) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    for (int i = 0; i < str.length(); ++i) {
+      final int ch = str.charAt(i);
+      if ((ch >= 0x0001) && (ch <= 0x007F)) {
+        bytes.write(ch);
+      } else if (ch > 0x07FF) {
+        bytes.write(0xE0 | ((ch >> 12) & 0x0F));
+        bytes.write(0x80 | ((ch >> 6) & 0x3F));
+        bytes.write(0x80 | (ch & 0x3F));
+      } else {
+        bytes.write(0xC0 | ((ch >> 6) & 0x1F));
+        bytes.write(0x80 | (ch & 0x3F));
+      }
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputUtils.writeNullMark(out, str);
+    OutputUtils.writeVarInt(out, bytes.size());
+    bytes.writeTo(out);
+    return out.toByteArray();
+  }
+
   @Test
   public void testDate() throws IOException {
     final ByteArrayOutputStream out = new ByteArrayOutputStream();
@@ -801,4 +916,72 @@ public class InputOutputUtilsTest {
     assertEquals(Type.BYTE, InputUtils.readEnum(Type.class, in, true));
     assertEquals(UrlPart.DOMAIN, InputUtils.readEnum(UrlPart.class, in, true));
   }
+
+  @Test
+  public void testIntArray() throws IOException {
+    final Random random = new Random();
+    // larger than the bulk buffer, so that several chunks are used
+    final int[] array = new int[100000];
+    for (int i = 0; i < array.length; ++i) {
+      array[i] = random.nextInt();
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputUtils.writeIntArray(out, array);
+    OutputUtils.writeIntArray(out, null);
+    OutputUtils.writeIntArray(out, new int[0]);
+    OutputUtils.writeIntArray(out, array, 10, 3);
+    OutputUtils.writeIntCollection(out, new ArrayIntList(array));
+
+    final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    assertArrayEquals(array, InputUtils.readIntArray(in, true, null));
+    assertNull(InputUtils.readIntArray(in, true, null));
+    assertEquals(0, InputUtils.readIntArray(in, true, null).length);
+    assertEquals(3, InputUtils.readVarInt(in));
+    assertEquals(array[10], InputUtils.readInt(in));
+    assertEquals(array[11], InputUtils.readInt(in));
+    assertEquals(array[12], InputUtils.readInt(in));
+    final IntList list = InputUtils.readIntList(in, false, null);
+    assertArrayEquals(array, list.toArray());
+  }
+
+  @Test
+  public void testLongArray() throws IOException {
+    final Random random = new Random();
+    final long[] array = new long[20000];
+    for (int i = 0; i < array.length; ++i) {
+      array[i] = random.nextLong();
+    }
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputUtils.writeLongArray(out, array);
+    OutputUtils.writeLongCollection(out, new ArrayLongList(array));
+    OutputUtils.writeLong(out, Long.MIN_VALUE);
+
+    final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    assertArrayEquals(array, InputUtils.readLongArray(in, false, new long[array.length]));
+    final LongList list = InputUtils.readLongList(in, false, new ArrayLongList());
+    assertArrayEquals(array, list.toArray());
+    assertEquals(Long.MIN_VALUE, InputUtils.readLong(in));
+  }
+
+  @Test
+  public void testDoubleArray() throws IOException {
+    final Random random = new Random();
+    final double[] array = new double[20000];
+    for (int i = 0; i < array.length; ++i) {
+      array[i] = random.nextDouble();
+    }
+    array[0] = Double.NaN;
+    array[1] = Double.NEGATIVE_INFINITY;
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OutputUtils.writeDoubleArray(out, array);
+    for (final double value : array) {
+      OutputUtils.writeDouble(out, value);
+    }
+
+    final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+    assertArrayEquals(array, InputUtils.readDoubleArray(in, false, null), DOUBLE_EPSILON);
+    for (final double value : array) {
+      assertEquals(value, InputUtils.readDouble(in), DOUBLE_EPSILON);
+    }
+  }
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit test of the {@link IoUtils} class.
+ *
+ * @author Haixing Hu
+ */
+public class IoUtilsTest {
+
+  @Test
+  public void testMismatch() {
+    final byte[] data = new byte[100];
+    for (int i = 0; i < data.length; ++i) {
+      data[i] = (byte) i;
+    }
+    final ByteBuffer buffer1 = ByteBuffer.wrap(data.clone());
+    final ByteBuffer buffer2 = ByteBuffer.wrap(data.clone());
+    buffer1.order(ByteOrder.LITTLE_ENDIAN);
+    assertEquals(-1, IoUtils.mismatch(buffer1, buffer2));
+    for (final int i : new int[] { 0, 7, 8, 9, 63, 64, 95, 99 }) {
+      buffer2.put(i, (byte) 0xFF);
+      assertEquals(i, IoUtils.mismatch(buffer1, buffer2));
+      assertEquals(i, IoUtils.mismatch(buffer2, buffer1));
+      buffer2.put(i, data[i]);
+    }
+    // the mismatch is relative to the positions of the buffers
+    buffer1.position(10);
+    buffer2.position(10);
+    buffer2.put(50, (byte) 0xFF);
+    assertEquals(40, IoUtils.mismatch(buffer1, buffer2));
+    // a proper prefix
+    buffer2.put(50, data[50]);
+    buffer2.limit(30);
+    assertEquals(20, IoUtils.mismatch(buffer1, buffer2));
+    // the positions and orders of the buffers are not changed
+    assertEquals(10, buffer1.position());
+    assertEquals(10, buffer2.position());
+    assertSame(ByteOrder.LITTLE_ENDIAN, buffer1.order());
+    assertSame(ByteOrder.BIG_ENDIAN, buffer2.order());
+  }
+}
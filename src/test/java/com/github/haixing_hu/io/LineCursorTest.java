@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.text.CharsetUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link LineCursor} and {@link MmapLineCursor} classes.
+ *
+ * @author Haixing Hu
+ */
+public class LineCursorTest {
+
+  private static List<String> readAll(final LineCursor cursor)
+      throws IOException {
+    final List<String> result = new ArrayList<String>();
+    try {
+      while (cursor.next()) {
+        result.add(cursor.getLine().toString());
+      }
+    } finally {
+      cursor.close();
+    }
+    return result;
+  }
+
+  @Test
+  public void testReader() throws IOException {
+    final String text = "first\nsecond\r\nthird\r\rfifth";
+    final List<String> expected = IoUtils.readLines(new StringReader(text));
+    assertEquals(expected, readAll(new LineCursor(new StringReader(text))));
+    assertEquals(5, expected.size());
+    // lines longer than the buffer
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 3000; ++i) {
+      builder.append("line-").append(i);
+      for (int j = 0; j < i % 40; ++j) {
+        builder.append('x');
+      }
+      builder.append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    builder.append(new char[50000]).append("\n\n");
+    final String big = builder.toString();
+    assertEquals(IoUtils.readLines(new StringReader(big)),
+        readAll(new LineCursor(new StringReader(big))));
+    assertEquals(IoUtils.toString(new StringReader(big)), big);
+  }
+
+  @Test
+  public void testRecords() throws IOException {
+    final List<String> records = readAll(new LineCursor(
+        new StringReader("a|bc||d\n|"), '|'));
+    assertEquals(4, records.size());
+    assertEquals("", records.get(2));
+    assertEquals("d\n", records.get(3));
+  }
+
+  @Test
+  public void testMmap() throws IOException {
+    final File file = File.createTempFile("lines", ".txt");
+    try {
+      final StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < 10000; ++i) {
+        builder.append(i % 7 == 0 ? "中文-" : "line-").append(i)
+               .append(i % 5 == 0 ? "\r\n" : "\n");
+      }
+      builder.append("last");
+      final String text = builder.toString();
+      final FileOutputStream out = new FileOutputStream(file);
+      try {
+        out.write(text.getBytes(CharsetUtils.UTF_8));
+      } finally {
+        out.close();
+      }
+      final List<String> expected = IoUtils.readLines(new StringReader(text));
+      final MmapLineCursor cursor = IoUtils.lineCursor(file);
+      try {
+        int i = 0;
+        while (cursor.next()) {
+          assertEquals(expected.get(i), cursor.getLine().toString());
+          assertEquals(expected.get(i).getBytes(CharsetUtils.UTF_8).length,
+              cursor.getLineLength());
+          ++i;
+        }
+        assertEquals(expected.size(), i);
+        assertFalse(cursor.next());
+      } finally {
+        cursor.close();
+      }
+      // the splits read every line exactly once
+      for (final int n : new int[] { 1, 3, 16, 1000 }) {
+        final List<String> actual = new ArrayList<String>();
+        for (final MmapLineCursor split : MmapLineCursor.split(file, n)) {
+          try {
+            while (split.next()) {
+              actual.add(split.getLineAsString());
+            }
+          } finally {
+            split.close();
+          }
+        }
+        assertEquals(expected, actual);
+      }
+      final MmapLineCursor first = new MmapLineCursor(file);
+      try {
+        assertTrue(first.next());
+        assertEquals(0, first.getLineStart());
+        assertEquals('中', first.getLine().charAt(0));
+        assertEquals((byte) 0xE4, first.getLineBytes().get());
+      } finally {
+        first.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+}
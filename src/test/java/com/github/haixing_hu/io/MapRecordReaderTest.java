@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.util.buffer.IntBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link MapRecordReader} class.
+ *
+ * @author Haixing Hu
+ */
+public class MapRecordReaderTest {
+
+  private static IntBuffer buffer(final int... values) {
+    final IntBuffer result = new IntBuffer();
+    for (final int value : values) {
+      result.append(value);
+    }
+    return result;
+  }
+
+  @Test
+  public void testReusingRead() throws IOException {
+    final Map<IntBuffer, IntBuffer> map =
+        new LinkedHashMap<IntBuffer, IntBuffer>();
+    for (int i = 0; i < 10; ++i) {
+      map.put(buffer(i), buffer(i, i * i));
+    }
+    final MapRecordReader<IntBuffer, IntBuffer> reader =
+        new MapRecordReader<IntBuffer, IntBuffer>(map, IntBuffer.class,
+            IntBuffer.class);
+    // the default implementation assigns the entries to the specified objects
+    final IntBuffer key = new IntBuffer();
+    final IntBuffer value = new IntBuffer();
+    int i = 0;
+    while (reader.next(key, value)) {
+      assertEquals(buffer(i), key);
+      assertEquals(buffer(i, i * i), value);
+      ++i;
+    }
+    assertEquals(10, i);
+    assertEquals(10, reader.getPosition());
+    reader.close();
+  }
+
+  @Test
+  public void testReusingReadImmutable() throws IOException {
+    final Map<Integer, String> map = new LinkedHashMap<Integer, String>();
+    map.put(1, "a");
+    final MapRecordReader<Integer, String> reader =
+        new MapRecordReader<Integer, String>(map, Integer.class, String.class);
+    try {
+      reader.next(0, "");
+      fail("should throw UnsupportedOperationException");
+    } catch (final UnsupportedOperationException e) {
+      // the record is not consumed
+      assertTrue(reader.hasNext());
+    }
+    assertEquals(1, reader.next().getKey().intValue());
+    assertFalse(reader.hasNext());
+    reader.close();
+  }
+}
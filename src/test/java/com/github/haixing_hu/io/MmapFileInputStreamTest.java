@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test of the positional reading of {@link MmapFileInputStream} and
+ * {@link MultiMmapFileInputStream}.
+ *
+ * @author Haixing Hu
+ */
+public class MmapFileInputStreamTest {
+
+  private static final int FILE_SIZE = 100000;
+
+  private static File file;
+  private static byte[] data;
+
+  @BeforeClass
+  public static void setUpClass() throws IOException {
+    data = new byte[FILE_SIZE];
+    new Random(0).nextBytes(data);
+    file = File.createTempFile("mmap", ".dat");
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    file.delete();
+  }
+
+  private static void verifyRead(final PositionalReadable in, final long pos,
+      final int len) throws IOException {
+    final byte[] buf = new byte[len];
+    final int n = in.read(pos, buf, 0, len);
+    final int expected = (int) Math.min(len, FILE_SIZE - pos);
+    assertEquals(expected, n);
+    for (int i = 0; i < n; ++i) {
+      assertEquals(data[(int) pos + i], buf[i]);
+    }
+  }
+
+  private static void verifySlice(final PositionalReadable in, final long pos,
+      final int len) throws IOException {
+    final ByteBuffer slice = in.slice(pos, len);
+    assertEquals(0, slice.position());
+    assertEquals(len, slice.limit());
+    final byte[] actual = new byte[len];
+    slice.get(actual);
+    final byte[] expected = new byte[len];
+    System.arraycopy(data, (int) pos, expected, 0, len);
+    assertArrayEquals(expected, actual);
+  }
+
+  @Test
+  public void testMmapFileInputStream() throws IOException {
+    final MmapFileInputStream in = new MmapFileInputStream(file);
+    try {
+      in.seek(10);
+      verifyRead(in, 0, 100);
+      verifyRead(in, FILE_SIZE - 10, 100);
+      assertEquals(-1, in.read(FILE_SIZE, new byte[10], 0, 10));
+      verifySlice(in, 500, 1000);
+      assertEquals(10, in.position());
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testMultiMmapFileInputStream() throws Exception {
+    final MultiMmapFileInputStream in = new MultiMmapFileInputStream(file, 4096);
+    try {
+      in.seek(10);
+      verifyRead(in, 4000, 200);     // cross a boundary
+      verifyRead(in, 100, 10000);    // cross several boundaries
+      verifyRead(in, FILE_SIZE - 10, 100);
+      assertEquals(-1, in.read(FILE_SIZE, new byte[10], 0, 10));
+      verifySlice(in, 100, 1000);
+      verifySlice(in, 4000, 200);
+      assertEquals(10, in.position());
+      // concurrent random access on the same stream
+      final ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+        final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int t = 0; t < 8; ++t) {
+          final Random random = new Random(t);
+          futures.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+              for (int i = 0; i < 1000; ++i) {
+                final long pos = random.nextInt(FILE_SIZE);
+                final int len = random.nextInt(10000);
+                verifyRead(in, pos, len);
+              }
+              return null;
+            }
+          }));
+        }
+        for (final Future<Void> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+    } finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link NioFileInputStream} class.
+ *
+ * @author Haixing Hu
+ */
+public class NioFileInputStreamTest {
+
+  private static final int FILE_SIZE = 100000;
+
+  private static File file;
+  private static byte[] data;
+
+  @BeforeClass
+  public static void setUpClass() throws IOException {
+    data = new byte[FILE_SIZE];
+    new Random(0).nextBytes(data);
+    file = File.createTempFile("nio", ".dat");
+    final FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+  }
+
+  @AfterClass
+  public static void tearDownClass() {
+    file.delete();
+  }
+
+  @Test
+  public void testSequentialRead() throws IOException {
+    for (final int depth : new int[]{ 0, 1, 4 }) {
+      final NioFileInputStream in = new NioFileInputStream(file, 1024, depth);
+      try {
+        assertEquals(depth, in.getReadAheadDepth());
+        for (int i = 0; i < 5000; ++i) {
+          assertEquals(data[i] & 0xFF, in.read());
+        }
+        final byte[] buf = new byte[3000];
+        int pos = 5000;
+        int n;
+        while ((n = in.read(buf, 0, buf.length)) > 0) {
+          for (int i = 0; i < n; ++i) {
+            assertEquals(data[pos + i], buf[i]);
+          }
+          pos += n;
+        }
+        assertEquals(FILE_SIZE, pos);
+        assertEquals(FILE_SIZE, in.position());
+        assertEquals(-1, in.read());
+        assertTrue(in.getStallNanos() >= 0);
+      } finally {
+        in.close();
+      }
+    }
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    for (final int depth : new int[]{ 0, 2 }) {
+      final NioFileInputStream in = new NioFileInputStream(file, 1024, depth);
+      try {
+        final Random random = new Random(depth);
+        for (int i = 0; i < 1000; ++i) {
+          final int pos = random.nextInt(FILE_SIZE);
+          in.seek(pos);
+          assertEquals(pos, in.position());
+          final int n = Math.min(100, FILE_SIZE - pos);
+          for (int j = 0; j < n; ++j) {
+            assertEquals(data[pos + j] & 0xFF, in.read());
+          }
+        }
+        in.seek(FILE_SIZE);
+        assertEquals(-1, in.read());
+      } finally {
+        in.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link RamDirectory} class.
+ *
+ * @author Haixing Hu
+ */
+public class RamDirectoryTest {
+
+  private static byte[] data(final int n) {
+    final byte[] result = new byte[n];
+    for (int i = 0; i < n; ++i) {
+      result[i] = (byte) (i * 31 + i / 251);
+    }
+    return result;
+  }
+
+  private void testReadWrite(final boolean direct) throws IOException {
+    final RamDirectory dir = new RamDirectory(direct);
+    final byte[] expected = data(RamFile.BLOCK_SIZE * 3 + 123);
+    final RamFileOutputStream out = dir.createOutput("a");
+    try {
+      out.write(expected, 0, 100);
+      out.write(expected[100]);
+      out.write(expected, 101, expected.length - 101);
+      try {
+        dir.appendOutput("a");
+        fail("should throw IOException");
+      } catch (final IOException e) {
+        // pass
+      }
+    } finally {
+      out.close();
+    }
+    assertEquals(expected.length, dir.length("a"));
+    assertTrue(dir.getFile("a").isDirect() == direct);
+
+    final RamFileInputStream in = dir.openInput("a");
+    try {
+      final byte[] actual = new byte[expected.length];
+      assertEquals(expected.length, in.read(actual, 0, actual.length));
+      assertArrayEquals(expected, actual);
+      assertEquals(-1, in.read());
+      in.seek(RamFile.BLOCK_SIZE - 1);
+      assertEquals(expected[RamFile.BLOCK_SIZE - 1] & 0xFF, in.read());
+      final byte[] part = new byte[10];
+      assertEquals(10, in.read(RamFile.BLOCK_SIZE - 5, part, 0, 10));
+      for (int i = 0; i < 10; ++i) {
+        assertEquals(expected[RamFile.BLOCK_SIZE - 5 + i], part[i]);
+      }
+      // a slice inside a block and a slice crossing the blocks
+      final ByteBuffer inside = in.slice(10, 20);
+      final ByteBuffer across = in.slice(RamFile.BLOCK_SIZE - 10, 20);
+      for (int i = 0; i < 20; ++i) {
+        assertEquals(expected[10 + i], inside.get(i));
+        assertEquals(expected[RamFile.BLOCK_SIZE - 10 + i], across.get(i));
+      }
+    } finally {
+      in.close();
+    }
+
+    final File file = File.createTempFile("ram", ".dat");
+    try {
+      dir.copyTo("a", file);
+      assertEquals(expected.length, file.length());
+      dir.copyFrom(file, "b");
+      assertEquals(expected.length, dir.length("b"));
+      final byte[] actual = new byte[expected.length];
+      assertEquals(expected.length,
+          dir.getFile("b").read(0, actual, 0, actual.length));
+      assertArrayEquals(expected, actual);
+    } finally {
+      file.delete();
+    }
+
+    dir.rename("b", "c");
+    assertArrayEquals(new String[] { "a", "c" }, dir.list());
+    assertTrue(dir.delete("a"));
+    assertFalse(dir.exists("a"));
+    assertNull(dir.getFile("a"));
+    try {
+      dir.openInput("a");
+      fail("should throw FileNotFoundException");
+    } catch (final FileNotFoundException e) {
+      // pass
+    }
+  }
+
+  @Test
+  public void testHeap() throws IOException {
+    testReadWrite(false);
+  }
+
+  @Test
+  public void testDirect() throws IOException {
+    testReadWrite(true);
+  }
+
+  @Test
+  public void testConcurrentReader() throws Exception {
+    final RamDirectory dir = new RamDirectory(true);
+    final RamFileOutputStream out = dir.createOutput("log");
+    final RamFileInputStream in = dir.openInput("log");
+    final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+    final int total = 200000;
+    final Thread reader = new Thread() {
+      @Override
+      public void run() {
+        try {
+          long pos = 0;
+          while (pos < total) {
+            final int b = in.read();
+            if (b >= 0) {
+              if (b != (int) (pos % 251)) {
+                throw new AssertionError("Unexpected byte at " + pos);
+              }
+              ++pos;
+            }
+          }
+        } catch (final Throwable e) {
+          error.set(e);
+        }
+      }
+    };
+    reader.start();
+    for (int i = 0; i < total; ++i) {
+      out.write(i % 251);
+    }
+    out.close();
+    reader.join();
+    in.close();
+    assertNull(error.get());
+  }
+}
@@ -0,0 +1,512 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.Nullable;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+import com.github.haixing_hu.io.serialize.BinarySerialization;
+import com.github.haixing_hu.io.serialize.BinarySerializer;
+import com.github.haixing_hu.io.serialize.GeneratedBinarySerializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link SortedRecordWriter} and {@link SortedRecordReader}
+ * classes.
+ *
+ * @author Haixing Hu
+ */
+public class SortedRecordFileTest {
+
+  private static final int RECORDS = 10000;
+
+  static final class MutableKey implements Comparable<MutableKey> {
+    int id;
+
+    MutableKey() {}
+
+    MutableKey(final int id) {
+      this.id = id;
+    }
+
+    @Override
+    public int compareTo(final MutableKey other) {
+      return Integer.compare(id, other.id);
+    }
+  }
+
+  static final class MutableValue {
+    long count;
+    String name;
+  }
+
+  /**
+   * A value whose serialization fails if it is marked as failing.
+   */
+  static final class FailingValue {
+    final boolean failing;
+
+    FailingValue(final boolean failing) {
+      this.failing = failing;
+    }
+  }
+
+  static {
+    BinarySerialization.register(FailingValue.class, new BinarySerializer() {
+      @Override
+      public Object deserialize(final InputStream in, final boolean allowNull)
+          throws IOException {
+        return new FailingValue(InputUtils.readBoolean(in));
+      }
+
+      @Override
+      public void serialize(final OutputStream out, @Nullable final Object obj)
+          throws IOException {
+        final FailingValue value = (FailingValue) obj;
+        OutputUtils.writeBoolean(out, false);
+        if (value.failing) {
+          throw new IOException("Failed to serialize the value.");
+        }
+      }
+    });
+    GeneratedBinarySerializer.register(MutableKey.class);
+    GeneratedBinarySerializer.register(MutableValue.class);
+  }
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("sorted", ".dat");
+    final SortedRecordWriter<Integer, String> writer =
+        new SortedRecordWriter<Integer, String>(file, Integer.class,
+            String.class, null, 1024, SortedRecordFile.DEFAULT_COMPRESSION_LEVEL,
+            ChecksumAlgorithm.CRC32C, 10);
+    try {
+      for (int i = 0; i < RECORDS; ++i) {
+        // only the even keys are written
+        writer.write(i * 2, (i % 100 == 0 ? null : "value-" + i));
+      }
+      assertEquals(RECORDS, writer.getRecordCount());
+    } finally {
+      writer.close();
+    }
+  }
+
+  @After
+  public void tearDown() {
+    file.delete();
+  }
+
+  @Test
+  public void testSequentialRead() throws IOException {
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      assertEquals(RECORDS, reader.getRecordCount());
+      assertTrue(reader.getBlockCount() > 1);
+      int i = 0;
+      while (reader.hasNext()) {
+        assertEquals(i, reader.getPosition());
+        final Map.Entry<Integer, String> entry = reader.next();
+        assertEquals(i * 2, entry.getKey().intValue());
+        assertEquals((i % 100 == 0 ? null : "value-" + i), entry.getValue());
+        ++i;
+      }
+      assertEquals(RECORDS, i);
+      assertEquals(1.0f, reader.getProgress(), 0.0f);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testReusingRead() throws IOException {
+    final File mutableFile = File.createTempFile("mutable", ".dat");
+    try {
+      final SortedRecordWriter<MutableKey, MutableValue> writer =
+          new SortedRecordWriter<MutableKey, MutableValue>(mutableFile,
+              MutableKey.class, MutableValue.class);
+      try {
+        // a single key object is reused and modified for all the records
+        final MutableKey key = new MutableKey();
+        final MutableValue value = new MutableValue();
+        for (int i = 0; i < 1000; ++i) {
+          key.id = i;
+          value.count = i * 10L;
+          value.name = "name-" + i;
+          writer.write(key, value);
+        }
+      } finally {
+        writer.close();
+      }
+      final SortedRecordReader<MutableKey, MutableValue> reader =
+          new SortedRecordReader<MutableKey, MutableValue>(mutableFile,
+              MutableKey.class, MutableValue.class);
+      try {
+        final MutableKey key = new MutableKey();
+        final MutableValue value = new MutableValue();
+        int i = 0;
+        while (reader.next(key, value)) {
+          assertEquals(i, key.id);
+          assertEquals(i * 10L, value.count);
+          assertEquals("name-" + i, value.name);
+          ++i;
+        }
+        assertEquals(1000, i);
+        // the key peeked by seeking is read again into the specified key
+        assertTrue(reader.seek(new MutableKey(500)));
+        assertTrue(reader.next(key, value));
+        assertEquals(500, key.id);
+        assertEquals("name-500", value.name);
+        assertTrue(reader.next(key, value));
+        assertEquals(501, key.id);
+      } finally {
+        reader.close();
+      }
+    } finally {
+      mutableFile.delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnorderedReusedKeyWrite() throws IOException {
+    final File mutableFile = File.createTempFile("mutable", ".dat");
+    final SortedRecordWriter<MutableKey, MutableValue> writer =
+        new SortedRecordWriter<MutableKey, MutableValue>(mutableFile,
+            MutableKey.class, MutableValue.class);
+    try {
+      final MutableKey key = new MutableKey(2);
+      writer.write(key, new MutableValue());
+      key.id = 1;
+      writer.write(key, new MutableValue());
+    } finally {
+      writer.close();
+      mutableFile.delete();
+    }
+  }
+
+  @Test
+  public void testFailedValueWrite() throws IOException {
+    final File failingFile = File.createTempFile("failing", ".dat");
+    try {
+      final SortedRecordWriter<Integer, FailingValue> writer =
+          new SortedRecordWriter<Integer, FailingValue>(failingFile,
+              Integer.class, FailingValue.class, null, 64,
+              SortedRecordFile.DEFAULT_COMPRESSION_LEVEL,
+              ChecksumAlgorithm.CRC32, 10);
+      try {
+        for (int i = 0; i < 100; ++i) {
+          try {
+            writer.write(i, new FailingValue(i % 3 == 0));
+            assertFalse(i % 3 == 0);
+          } catch (final IOException e) {
+            // the failed record is not written
+            assertTrue(i % 3 == 0);
+          }
+        }
+      } finally {
+        writer.close();
+      }
+      final SortedRecordReader<Integer, FailingValue> reader =
+          new SortedRecordReader<Integer, FailingValue>(failingFile,
+              Integer.class, FailingValue.class);
+      try {
+        int count = 0;
+        for (int i = 0; i < 100; ++i) {
+          if (i % 3 == 0) {
+            assertFalse(reader.mightContain(i) && reader.seek(i));
+          } else {
+            assertTrue(reader.seek(i));
+            assertEquals(i, reader.next().getKey().intValue());
+            ++count;
+          }
+        }
+        assertEquals(count, reader.getRecordCount());
+      } finally {
+        reader.close();
+      }
+    } finally {
+      failingFile.delete();
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReusingReadImmutable() throws IOException {
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      reader.next(0, "");
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSplit() throws IOException {
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      final List<SortedRecordReader<Integer, String>> splits = reader.split(4);
+      assertEquals(4, splits.size());
+      int i = 0;
+      for (final SortedRecordReader<Integer, String> split : splits) {
+        try {
+          assertEquals(i, split.getPosition());
+          assertEquals(0.0f, split.getProgress(), 0.0f);
+          while (split.hasNext()) {
+            assertEquals(i * 2, split.next().getKey().intValue());
+            ++i;
+          }
+          assertEquals(1.0f, split.getProgress(), 0.0f);
+        } finally {
+          split.close();
+        }
+      }
+      assertEquals(RECORDS, i);
+      // seeking a split only searches its own records
+      final SortedRecordReader<Integer, String> last = reader.split(2).get(1);
+      try {
+        assertFalse(last.seek(0));
+        assertEquals(last.getRecordCount() - last.getSplitRecordCount(),
+            last.getPosition());
+        assertTrue(last.seek(RECORDS * 2 - 2));
+        assertEquals("value-" + (RECORDS - 1), last.next().getValue());
+      } finally {
+        last.close();
+      }
+      assertEquals(reader.getBlockCount(), reader.split(100000).size());
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSplitRemaining() throws IOException {
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      // split in the middle of a block, after reading some records
+      final int read = RECORDS / 3 + 1;
+      for (int i = 0; i < read; ++i) {
+        reader.next();
+      }
+      checkRemainingSplits(reader, read);
+      // split after seeking, with the key of the next record peeked
+      assertTrue(reader.seek(RECORDS + 2));
+      checkRemainingSplits(reader, RECORDS / 2 + 1);
+      // split after reading all records
+      while (reader.hasNext()) {
+        reader.next();
+      }
+      final List<SortedRecordReader<Integer, String>> splits = reader.split(4);
+      assertEquals(1, splits.size());
+      try {
+        assertFalse(splits.get(0).hasNext());
+        assertEquals(0, splits.get(0).getSplitRecordCount());
+      } finally {
+        splits.get(0).close();
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSplitOfSplit() throws IOException {
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      // the first split starts in the middle of a block
+      final int read = RECORDS / 3 + 1;
+      for (int i = 0; i < read; ++i) {
+        reader.next();
+      }
+      int i = read;
+      for (final SortedRecordReader<Integer, String> split : reader.split(3)) {
+        try {
+          // splits the splits before reading them
+          for (final SortedRecordReader<Integer, String> sub : split.split(3)) {
+            try {
+              assertEquals(i, sub.getPosition());
+              while (sub.hasNext()) {
+                assertEquals(i * 2, sub.next().getKey().intValue());
+                ++i;
+              }
+            } finally {
+              sub.close();
+            }
+          }
+        } finally {
+          split.close();
+        }
+      }
+      assertEquals(RECORDS, i);
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Checks that the splits of a reader read the records from the specified
+   * one to the end, and that the reader is not changed by the splitting.
+   */
+  private static void checkRemainingSplits(
+      final SortedRecordReader<Integer, String> reader, final int first)
+      throws IOException {
+    assertEquals(first, reader.getPosition());
+    int i = first;
+    long count = 0;
+    for (final SortedRecordReader<Integer, String> split : reader.split(3)) {
+      try {
+        assertEquals(i, split.getPosition());
+        count += split.getSplitRecordCount();
+        while (split.hasNext()) {
+          assertEquals(i * 2, split.next().getKey().intValue());
+          ++i;
+        }
+      } finally {
+        split.close();
+      }
+    }
+    assertEquals(RECORDS, i);
+    assertEquals(RECORDS - first, count);
+    assertEquals(first, reader.getPosition());
+    assertEquals(first * 2, reader.next().getKey().intValue());
+  }
+
+  @Test
+  public void testParallelProcessing() throws IOException {
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      final RecordProcessor<Integer, String, long[]> processor =
+          new RecordProcessor<Integer, String, long[]>() {
+        @Override
+        public long[] process(final RecordReader<Integer, String> input)
+            throws IOException {
+          // the count, and the first and last keys of the split
+          final long[] result = { 0, Long.MAX_VALUE, Long.MIN_VALUE };
+          while (input.hasNext()) {
+            final int key = input.next().getKey();
+            ++result[0];
+            result[1] = Math.min(result[1], key);
+            result[2] = Math.max(result[2], key);
+          }
+          return result;
+        }
+
+        @Override
+        public long[] merge(final long[] left, final long[] right) {
+          assertTrue(left[2] < right[1]);
+          return new long[] { left[0] + right[0], left[1], right[2] };
+        }
+      };
+      final long[] result = ParallelRecordProcessing.process(reader,
+          processor, new ForkJoinPool(4), 8);
+      assertEquals(RECORDS, result[0]);
+      assertEquals(0, result[1]);
+      assertEquals(RECORDS * 2 - 2, result[2]);
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test
+  public void testSeekAndGet() throws IOException {
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      assertTrue(reader.seek(5002));
+      assertEquals(2501, reader.getPosition());
+      assertEquals("value-2501", reader.next().getValue());
+      assertFalse(reader.seek(5001));
+      assertEquals(5002, reader.next().getKey().intValue());
+      assertFalse(reader.seek(-1));
+      assertEquals(0, reader.next().getKey().intValue());
+      assertFalse(reader.seek(RECORDS * 2));
+      assertFalse(reader.hasNext());
+      for (int i = 1; i < RECORDS; i += 37) {
+        assertEquals((i % 100 == 0 ? null : "value-" + i), reader.get(i * 2));
+        assertNull(reader.get(i * 2 + 1));
+      }
+      int falsePositives = 0;
+      for (int i = 0; i < RECORDS; ++i) {
+        assertTrue(reader.mightContain(i * 2));
+        if (reader.mightContain(i * 2 + 1)) {
+          ++falsePositives;
+        }
+      }
+      assertTrue(falsePositives < RECORDS / 20);
+      // keys before the first key are definitely not in the file
+      assertFalse(reader.mightContain(-2));
+    } finally {
+      reader.close();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsortedKeys() throws IOException {
+    final SortedRecordWriter<Integer, String> writer =
+        new SortedRecordWriter<Integer, String>(file, Integer.class, String.class);
+    try {
+      writer.write(2, "a");
+      writer.write(1, "b");
+    } finally {
+      writer.close();
+    }
+  }
+
+  @Test(expected = InvalidFormatException.class)
+  public void testCorruptedBlock() throws IOException {
+    final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+    try {
+      raf.seek(100);
+      final int b = raf.read();
+      raf.seek(100);
+      raf.write(b ^ 0xFF);
+    } finally {
+      raf.close();
+    }
+    final SortedRecordReader<Integer, String> reader =
+        new SortedRecordReader<Integer, String>(file, Integer.class, String.class);
+    try {
+      while (reader.hasNext()) {
+        reader.next();
+      }
+    } finally {
+      reader.close();
+    }
+  }
+}
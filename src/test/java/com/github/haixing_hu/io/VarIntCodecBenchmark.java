@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * A simple benchmark comparing the decoding speed of the formats of the
+ * variable length integer arrays.
+ * <p>
+ * It is not run as a unit test; run its {@code main} function with an
+ * optional argument of the number of integers per array.
+ *
+ * @author Haixing Hu
+ */
+public final class VarIntCodecBenchmark {
+
+  private static final int ROUNDS = 200;
+
+  public static void main(final String[] args) throws IOException {
+    final int n = (args.length > 0 ? Integer.parseInt(args[0]) : 100000);
+    final Random random = new Random(0);
+    final int[] values = new int[n];
+    for (int i = 0; i < n; ++i) {
+      // skewed towards small ids, as the typical payloads
+      values[i] = random.nextInt(1 << (7 * (1 + random.nextInt(4))));
+    }
+    for (final VarIntFormat format : VarIntFormat.values()) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      OutputUtils.writeVarIntArray(out, values, format);
+      final byte[] data = out.toByteArray();
+      int[] result = null;
+      // warm up
+      for (int i = 0; i < ROUNDS; ++i) {
+        result = InputUtils.readVarIntArray(new ByteArrayInputStream(data),
+            false, result, format);
+      }
+      final long start = System.nanoTime();
+      for (int i = 0; i < ROUNDS; ++i) {
+        result = InputUtils.readVarIntArray(new ByteArrayInputStream(data),
+            false, result, format);
+      }
+      final double nanos = System.nanoTime() - start;
+      System.out.printf("%-14s %10d bytes %8.2f ns/int %10.1f M ints/s%n",
+          format, data.length, nanos / ROUNDS / n, ROUNDS * n * 1000.0 / nanos);
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.io.exception.InvalidFormatException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link VarIntCodec} class.
+ *
+ * @author Haixing Hu
+ */
+public class VarIntCodecTest {
+
+  static int[] randomValues(final Random random, final int n) {
+    final int[] result = new int[n];
+    for (int i = 0; i < n; ++i) {
+      // non-negative values of mixed byte lengths
+      result[i] = random.nextInt() >>> (1 + random.nextInt(31));
+    }
+    return result;
+  }
+
+  @Test
+  public void testEncodeDecode() throws IOException {
+    final Random random = new Random(42);
+    for (final VarIntFormat format : VarIntFormat.values()) {
+      for (final int n : new int[] { 0, 1, 3, 4, 5, 7, 8, 1001 }) {
+        final int[] values = randomValues(random, n);
+        final byte[] buffer = new byte[VarIntCodec.maxEncodedSize(format, n)];
+        final int size = VarIntCodec.encode(format, values, 0, n, buffer, 0);
+        final int[] decoded = new int[n];
+        assertEquals(size, VarIntCodec.decode(format, buffer, 0, size,
+            decoded, 0, n));
+        assertArrayEquals(format + ":" + n, values, decoded);
+        if (n > 0) {
+          try {
+            VarIntCodec.decode(format, buffer, 0, size - 1, decoded, 0, n);
+            fail("should throw InvalidFormatException");
+          } catch (final InvalidFormatException e) {
+            // pass
+          }
+        }
+      }
+    }
+    // the group varint of 1, 256, 65536, 16777216
+    final byte[] buffer = new byte[17];
+    assertEquals(11, VarIntCodec.encode(VarIntFormat.GROUP_VARINT,
+        new int[] { 1, 256, 65536, 16777216 }, 0, 4, buffer, 0));
+    assertEquals((byte) 0xE4, buffer[0]);
+  }
+
+  @Test
+  public void testReadWriteArray() throws IOException {
+    final int[] values = randomValues(new Random(7), 333);
+    for (final VarIntFormat format : VarIntFormat.values()) {
+      final ByteArrayOutputStream out = new ByteArrayOutputStream();
+      OutputUtils.writeVarIntArray(out, values, format);
+      OutputUtils.writeVarIntArray(out, null, format);
+      final ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+      assertArrayEquals(values, InputUtils.readVarIntArray(in, false, null, format));
+      assertNull(InputUtils.readVarIntArray(in, true, null, format));
+      assertEquals(-1, in.read());
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit test of the {@link GeneratedBinarySerializer} class.
+ *
+ * @author Haixing Hu
+ */
+public class GeneratedBinarySerializerTest {
+
+  static class Base {
+    protected long id;
+    protected transient String cached;
+  }
+
+  static final class Item extends Base {
+    static {
+      GeneratedBinarySerializer.register(Item.class);
+    }
+
+    private boolean flag;
+    private char ch;
+    private short count;
+    private int size;
+    private float ratio;
+    private double score;
+    private String name;
+    private Date date;
+    private int[] values;
+    private TimeUnit unit;
+    private Item next;
+
+    private Item() {}
+  }
+
+  @Test
+  public void testSerializeDeserialize() throws IOException {
+    final Item item = new Item();
+    item.id = 12345678901L;
+    item.cached = "not serialized";
+    item.flag = true;
+    item.ch = '中';
+    item.count = -3;
+    item.size = Integer.MIN_VALUE;
+    item.ratio = 0.5f;
+    item.score = Double.NaN;
+    item.name = "hello";
+    item.date = new Date(1000L);
+    item.values = new int[] { 1, 2, 3 };
+    item.unit = TimeUnit.HOURS;
+    item.next = new Item();
+    item.next.name = "nested";
+
+    final byte[] data = BinarySerialization.serialize(Item.class, item);
+    final Item result = BinarySerialization.deserialize(Item.class, data, false);
+    assertEquals(item.id, result.id);
+    assertNull(result.cached);
+    assertEquals(item.flag, result.flag);
+    assertEquals(item.ch, result.ch);
+    assertEquals(item.count, result.count);
+    assertEquals(item.size, result.size);
+    assertEquals(item.ratio, result.ratio, 0.0f);
+    assertTrue(Double.isNaN(result.score));
+    assertEquals(item.name, result.name);
+    assertEquals(item.date, result.date);
+    assertArrayEquals(item.values, result.values);
+    assertEquals(TimeUnit.HOURS, result.unit);
+    assertEquals("nested", result.next.name);
+    assertNull(result.next.unit);
+    assertNull(result.next.next);
+
+    assertNull(BinarySerialization.deserialize(Item.class,
+        BinarySerialization.serialize(Item.class, null), true));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNoDefaultConstructor() {
+    GeneratedBinarySerializer.generate(Integer.class);
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link SerializerRegistry} class.
+ *
+ * @author Haixing Hu
+ */
+public class SerializerRegistryTest {
+
+  static final SerializerRegistry<String> REGISTRY =
+      new SerializerRegistry<String>();
+
+  /**
+   * A class registering itself in its static initialization block.
+   */
+  static final class SelfRegistered {
+    static {
+      REGISTRY.put(SelfRegistered.class, "self");
+    }
+  }
+
+  @Test
+  public void testLookup() {
+    final SerializerRegistry<String> registry =
+        new SerializerRegistry<String>();
+    assertNull(registry.get(String.class));
+    assertNull(registry.get(int.class));
+    assertNull(registry.put(String.class, "string"));
+    assertNull(registry.put(int.class, "int"));
+    assertEquals("string", registry.get(String.class));
+    assertEquals("int", registry.get(int.class));
+    assertEquals("string", registry.put(String.class, "another"));
+    assertEquals("another", registry.get(String.class));
+    assertNull(registry.get(Integer.class));
+  }
+
+  @Test
+  public void testLookupInitializesClass() {
+    // the lookup runs the static initialization block of the class
+    assertEquals("self", REGISTRY.get(SelfRegistered.class));
+  }
+
+  @Test
+  public void testConcurrentRegistration() throws Exception {
+    final SerializerRegistry<String> registry =
+        new SerializerRegistry<String>();
+    final Class<?>[] bases = { boolean.class, byte.class, char.class,
+        short.class, int.class, long.class, float.class, double.class };
+    final int depth = 200;
+    final List<Thread> threads = new ArrayList<Thread>();
+    final List<Throwable> errors = new ArrayList<Throwable>();
+    for (final Class<?> base : bases) {
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            // registers the array classes of the base type of each dimension,
+            // and checks that all of them are still registered
+            final List<Class<?>> registered = new ArrayList<Class<?>>();
+            Class<?> type = base;
+            for (int i = 0; i < depth; ++i) {
+              type = Array.newInstance(type, 0).getClass();
+              assertNull(registry.put(type, type.getName()));
+              registered.add(type);
+              for (final Class<?> c : registered) {
+                assertEquals(c.getName(), registry.get(c));
+              }
+            }
+          } catch (final Throwable e) {
+            synchronized (errors) {
+              errors.add(e);
+            }
+          }
+        }
+      });
+    }
+    for (final Thread thread : threads) {
+      thread.start();
+    }
+    for (final Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(errors.toString(), errors.isEmpty());
+    for (final Class<?> base : bases) {
+      Class<?> type = base;
+      for (int i = 0; i < depth; ++i) {
+        type = Array.newInstance(type, 0).getClass();
+        assertSame(type.getName(), registry.get(type));
+      }
+    }
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.io.serialize;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.io.IoUtils;
+import com.github.haixing_hu.text.CharsetUtils;
+import com.github.haixing_hu.text.xml.XmlException;
+import com.github.haixing_hu.text.xml.XmlSerializationException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit test of the {@link XmlSerialization} class.
+ *
+ * @author Haixing Hu
+ */
+public class XmlSerializationTest {
+
+  /**
+   * A class which only has a native XML stream serializer.
+   */
+  static final class StreamOnly {
+    final String name;
+
+    StreamOnly(final String name) {
+      this.name = name;
+    }
+  }
+
+  /**
+   * A class which has no XML serializer.
+   */
+  static final class Unregistered {}
+
+  static {
+    XmlSerialization.registerStreamSerializer(StreamOnly.class,
+        new XmlStreamSerializer() {
+          @Override
+          public String getRootNodeName() {
+            return "stream-only";
+          }
+
+          @Override
+          public Object deserialize(final XMLStreamReader reader) {
+            throw new UnsupportedOperationException();
+          }
+
+          @Override
+          public void serialize(final XMLStreamWriter writer, final Object obj)
+              throws XmlException {
+            try {
+              writer.writeStartElement(getRootNodeName());
+              writer.writeCharacters(((StreamOnly) obj).name);
+              writer.writeEndElement();
+            } catch (final XMLStreamException e) {
+              throw new XmlSerializationException(e);
+            }
+          }
+        });
+  }
+
+  @Test
+  public void testSerializeStreamOnlyToFile() throws Exception {
+    final File file = File.createTempFile("stream", ".xml");
+    try {
+      XmlSerialization.serialize(StreamOnly.class, new StreamOnly("hello"),
+          file);
+      final InputStream in = new FileInputStream(file);
+      try {
+        final String xml = new String(IoUtils.toByteArray(in),
+            CharsetUtils.UTF_8);
+        assertTrue(xml, xml.contains("<stream-only>hello</stream-only>"));
+      } finally {
+        in.close();
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSerializeUnregisteredToFile() throws Exception {
+    final File file = File.createTempFile("unregistered", ".xml");
+    file.delete();
+    try {
+      XmlSerialization.serialize(Unregistered.class, new Unregistered(), file);
+      fail("should throw");
+    } catch (final NoXmlSerializerRegisteredException e) {
+      // the file is not created
+      assertFalse(file.exists());
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.text.xml;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link StaxUtils} class.
+ *
+ * @author Haixing Hu
+ */
+public class StaxUtilsTest {
+
+  @Test
+  public void testWriteNamespacedElement() throws XmlException,
+      XMLStreamException {
+    final Document doc = XmlUtils.newDocument();
+    // no explicit xmlns attribute is added to the DOM nodes
+    final Element root = doc.createElementNS("urn:a", "a:root");
+    final Element child = doc.createElementNS("urn:b", "item");
+    child.setAttributeNS("urn:c", "c:attr", "value");
+    child.setAttribute("plain", "1");
+    child.setTextContent("some text");
+    root.appendChild(child);
+    root.appendChild(doc.createElement("empty"));
+
+    final StringWriter out = new StringWriter();
+    final XMLStreamWriter writer = StaxUtils.newIndentingWriter(out);
+    writer.writeStartDocument();
+    StaxUtils.writeElement(writer, root);
+    writer.writeEndDocument();
+    writer.close();
+    final String xml = out.toString();
+    assertTrue(xml, xml.contains("\n  <item"));
+    assertTrue(xml, xml.contains(">some text</item>"));
+    assertTrue(xml, xml.contains("\n</a:root>"));
+
+    final XMLStreamReader reader = StaxUtils.newReader(new StringReader(xml));
+    try {
+      assertTrue(StaxUtils.nextElement(reader));
+      assertEquals("urn:a", reader.getNamespaceURI());
+      assertEquals("root", reader.getLocalName());
+      assertTrue(StaxUtils.nextElement(reader));
+      assertEquals("urn:b", reader.getNamespaceURI());
+      assertEquals("item", reader.getLocalName());
+      assertEquals("value", reader.getAttributeValue("urn:c", "attr"));
+      assertEquals("1", reader.getAttributeValue(null, "plain"));
+      assertEquals("some text", reader.getElementText());
+      assertTrue(StaxUtils.nextElement(reader));
+      assertEquals("empty", reader.getLocalName());
+      // the default namespace of the sibling is not inherited
+      assertTrue((reader.getNamespaceURI() == null)
+          || reader.getNamespaceURI().isEmpty());
+    } finally {
+      StaxUtils.closeQuietly(reader);
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2014  Haixing Hu
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.github.haixing_hu.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+import com.github.haixing_hu.io.IoUtils;
+import com.github.haixing_hu.text.CharsetUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit test of the {@link CompressionTools} class.
+ *
+ * @author Haixing Hu
+ */
+public class CompressionToolsTest {
+
+  private static byte[] createData(final int n) {
+    final Random random = new Random(n);
+    final byte[] data = new byte[n];
+    for (int i = 0; i < n; ++i) {
+      data[i] = (byte) ('a' + random.nextInt(8));
+    }
+    return data;
+  }
+
+  @Test
+  public void testCompressByteArray() throws DataFormatException {
+    for (final int n : new int[]{ 1, 100, 10000, 100000 }) {
+      final byte[] data = createData(n);
+      for (int level = Deflater.DEFAULT_COMPRESSION;
+           level <= Deflater.BEST_COMPRESSION; ++level) {
+        final byte[] compressed = CompressionTools.compress(data, 0, n, level);
+        final byte[] actual = CompressionTools.decompress(compressed, 0,
+            compressed.length);
+        assertArrayEquals(data, actual);
+      }
+    }
+  }
+
+  @Test
+  public void testCompressStream() throws IOException, DataFormatException {
+    final byte[] data = createData(100000);
+    final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    final long n = CompressionTools.compress(new ByteArrayInputStream(data),
+        compressed, Deflater.BEST_SPEED);
+    assertEquals(compressed.size(), n);
+    final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+    assertEquals(data.length, CompressionTools.decompress(
+        new ByteArrayInputStream(compressed.toByteArray()), actual));
+    assertArrayEquals(data, actual.toByteArray());
+
+    final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    final OutputStream out = CompressionTools.newCompressingStream(bos,
+        Deflater.DEFAULT_COMPRESSION);
+    try {
+      out.write(data);
+    } finally {
+      out.close();
+    }
+    final InputStream in = CompressionTools.newDecompressingStream(
+        new ByteArrayInputStream(bos.toByteArray()));
+    try {
+      assertArrayEquals(data, IoUtils.toByteArray(in));
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test
+  public void testCompressByteBuffer() throws DataFormatException {
+    final byte[] data = createData(100000);
+    final ByteBuffer src = ByteBuffer.allocateDirect(data.length);
+    src.put(data).flip();
+    final ByteBuffer compressed = ByteBuffer.allocate(data.length + 1024);
+    final int n = CompressionTools.compress(src, compressed,
+        Deflater.DEFAULT_COMPRESSION);
+    assertEquals(n, compressed.position());
+    assertEquals(0, src.remaining());
+    compressed.put((byte) 1).flip();
+    final ByteBuffer actual = ByteBuffer.allocateDirect(data.length);
+    assertEquals(data.length, CompressionTools.decompress(compressed, actual));
+    assertEquals(1, compressed.remaining());
+    actual.flip();
+    final byte[] bytes = new byte[actual.remaining()];
+    actual.get(bytes);
+    assertArrayEquals(data, bytes);
+  }
+
+  @Test(expected = DataFormatException.class)
+  public void testDecompressTruncated() throws DataFormatException {
+    final byte[] data = createData(10000);
+    final byte[] compressed = CompressionTools.compress(data, 0, data.length,
+        Deflater.DEFAULT_COMPRESSION);
+    CompressionTools.decompress(compressed, 0, compressed.length / 2);
+  }
+
+  private static byte[] createRecord(final Random random) {
+    final String record = "{\"id\":" + random.nextInt(1000000)
+        + ",\"name\":\"user" + random.nextInt(1000)
+        + "\",\"email\":\"user" + random.nextInt(1000) + "@example.com\""
+        + ",\"status\":\"" + (random.nextBoolean() ? "active" : "inactive")
+        + "\",\"roles\":[\"reader\",\"writer\"],\"created\":\"2014-0"
+        + (1 + random.nextInt(9)) + "-1" + random.nextInt(10) + "T10:00:00Z\"}";
+    return record.getBytes(CharsetUtils.UTF_8);
+  }
+
+  @Test
+  public void testCompressWithDictionary() throws DataFormatException {
+    final Random random = new Random(0);
+    final List<byte[]> samples = new ArrayList<byte[]>();
+    for (int i = 0; i < 1000; ++i) {
+      samples.add(createRecord(random));
+    }
+    final CompressionDictionary dict = CompressionDictionary.train(300, samples, 4096);
+    assertTrue(dict.size() > 0);
+    assertTrue(dict.size() <= 4096);
+    long plainSize = 0;
+    long dictSize = 0;
+    for (int i = 0; i < 100; ++i) {
+      final byte[] record = createRecord(random);
+      final int level = Deflater.DEFAULT_COMPRESSION;
+      plainSize += CompressionTools.compress(record, 0, record.length, level).length;
+      final byte[] compressed = CompressionTools.compress(record, 0,
+          record.length, level, dict);
+      dictSize += compressed.length;
+      assertEquals(300, CompressionTools.getDictionaryId(compressed, 0,
+          compressed.length));
+      assertArrayEquals(record, CompressionTools.decompress(compressed, 0,
+          compressed.length, dict));
+    }
+    assertTrue(dictSize < plainSize);
+  }
+
+  @Test(expected = DataFormatException.class)
+  public void testDecompressWithWrongDictionary() throws DataFormatException {
+    final CompressionDictionary dict1 = new CompressionDictionary(1,
+        "hello world".getBytes(CharsetUtils.UTF_8));
+    final CompressionDictionary dict2 = new CompressionDictionary(2,
+        "hello world".getBytes(CharsetUtils.UTF_8));
+    final byte[] compressed = CompressionTools.compressString("hello world!",
+        Deflater.DEFAULT_COMPRESSION, dict1);
+    CompressionTools.decompress(compressed, 0, compressed.length, dict2);
+  }
+}